@@ -0,0 +1,125 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.embedded.EmbeddedCodis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Tuple;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheClient 常用命令的端到端开销:get、set、hgetAll、mget、zrangeByScoreWithScores
+ * 客户端经 {@link CacheClientFactory} 创建,通过进程内 {@link EmbeddedCodis} 的 zookeeper 发现 proxy,与生产环境的连接路径相同,不需要外部服务;
+ * valueSize 为每个值的字节数,elements 为 hgetAll、mget、zrangeByScoreWithScores 的元素个数,latencyMicros 为 proxy 注入的回复延迟,
+ * engine 比较连接池与多路复用引擎。本类单线程运行,{@link Threads8}、{@link Threads64} 用相同的参数在 8、64 个线程下运行。
+ * 用 -prof gc 查看每次操作的分配字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class CacheClientBenchmark {
+
+    @Param({"pool", "multiplexed"})
+    public String engine;
+
+    @Param({"64", "1024", "16384"})
+    public int valueSize;
+
+    @Param({"16"})
+    public int elements;
+
+    @Param({"0"})
+    public long latencyMicros;
+
+    private EmbeddedCodis codis;
+
+    private AbstractCacheClient client;
+
+    private String value;
+
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codis = new EmbeddedCodis(1);
+        CacheConfig config = codis.newConfig();
+        config.setEngine(engine);
+        config.setDedicatedPool(true);
+        client = CacheClientFactory.create(config);
+        char[] chars = new char[valueSize];
+        Arrays.fill(chars, 'v');
+        value = new String(chars);
+        keys = new String[elements];
+        for (int i = 0; i < elements; i++) {
+            keys[i] = "benchmark:key:" + i;
+            client.set(keys[i], value);
+            client.hset("benchmark:hash", "field:" + i, value);
+            client.zadd("benchmark:zset", i, "member:" + i);
+        }
+        client.set("benchmark:key", value);
+        codis.setLatencyMicros(latencyMicros);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (client instanceof Closeable) {
+            ((Closeable) client).close();
+        }
+        codis.close();
+    }
+
+    @Benchmark
+    public String get() {
+        return client.get("benchmark:key");
+    }
+
+    @Benchmark
+    public Boolean set() {
+        return client.set("benchmark:key", value);
+    }
+
+    @Benchmark
+    public Map<String, String> hgetAll() {
+        return client.hgetAll("benchmark:hash");
+    }
+
+    @Benchmark
+    public List<String> mget() {
+        return client.mget(keys);
+    }
+
+    @Benchmark
+    public Set<Tuple> zrangeByScoreWithScores() {
+        return client.zrangeByScoreWithScores("benchmark:zset", 0, elements);
+    }
+
+    @Threads(8)
+    public static class Threads8 extends CacheClientBenchmark {
+    }
+
+    @Threads(64)
+    public static class Threads64 extends CacheClientBenchmark {
+    }
+}
@@ -0,0 +1,85 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * proxy 选择策略的模拟:proxies 个本地替身 proxy,其中一个每条命令额外等待 slowMicros
+ * 用 SampleTime 模式比较 roundRobin 与 leastLoaded 的延迟分布(p99、p99.9),
+ * roundRobin 下慢 proxy 分到 1/proxies 的请求,尾延迟接近 slowMicros;leastLoaded 应把尾延迟压到快 proxy 的水平。
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ProxySelectionBenchmark {
+
+    @Param({"roundRobin", "leastLoaded"})
+    public String selector;
+
+    @Param({"4"})
+    public int proxies;
+
+    @Param({"1000", "20000"})
+    public int slowMicros;
+
+    @Param({"100"})
+    public int fastMicros;
+
+    private List<StandInServer> servers;
+
+    private CodisProxyPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        servers = new ArrayList<>();
+        List<HostAndPort> addresses = new ArrayList<>();
+        for (int i = 0; i < proxies; i++) {
+            StandInServer server = new StandInServer(i == 0 ? slowMicros : fastMicros, 64);
+            servers.add(server);
+            addresses.add(new HostAndPort("127.0.0.1", server.getPort()));
+        }
+        CacheConfig config = new CacheConfig();
+        config.setProxySelector(selector);
+        config.setProxySlowStartMillis(1000);
+        pool = new CodisProxyPool(config, addresses);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.close();
+        for (StandInServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        try (Jedis jedis = pool.getResource(CommandClass.READ)) {
+            return jedis.get("key");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.nonobank.architecture.cache;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.util.RedisInputStream;
+import redis.clients.util.RedisOutputStream;
+import redis.clients.util.SafeEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 代替 codis proxy 的本地 RESP 服务,每个连接一个线程
+ * 每条命令回复前等待固定的 delayMicros,用来模拟 GC、邻居干扰等导致变慢的 proxy;
+ * PING 回复 PONG,GET 回复固定的值,MGET 每个 key 回复一个固定的值,
+ * HGETALL 回复 elements 个 field 与固定值,ZRANGEBYSCORE 回复 elements 个 member(带 WITHSCORES 时附带分数),其他命令回复 OK。
+ */
+public class StandInServer implements Closeable {
+
+    private static final byte[] PONG = SafeEncoder.encode("+PONG\r\n");
+
+    private static final byte[] OK = SafeEncoder.encode("+OK\r\n");
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "stand-in-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final byte[] value;
+
+    private final byte[] hash;
+
+    private final byte[] members;
+
+    private final byte[] membersWithScores;
+
+    private volatile long delayNanos;
+
+    public StandInServer(long delayMicros, int valueSize) throws IOException {
+        this(delayMicros, valueSize, 16);
+    }
+
+    public StandInServer(long delayMicros, int valueSize, int elements) throws IOException {
+        this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        byte[] data = new byte[valueSize];
+        Arrays.fill(data, (byte) 'v');
+        this.value = bulk(data);
+        ByteArrayOutputStream hash = new ByteArrayOutputStream();
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        ByteArrayOutputStream membersWithScores = new ByteArrayOutputStream();
+        hash.write(SafeEncoder.encode("*" + elements * 2 + "\r\n"));
+        members.write(SafeEncoder.encode("*" + elements + "\r\n"));
+        membersWithScores.write(SafeEncoder.encode("*" + elements * 2 + "\r\n"));
+        for (int i = 0; i < elements; i++) {
+            byte[] member = bulk(member(i, valueSize));
+            hash.write(bulk(SafeEncoder.encode("field" + i)));
+            hash.write(value);
+            members.write(member);
+            membersWithScores.write(member);
+            membersWithScores.write(bulk(SafeEncoder.encode(String.valueOf(i))));
+        }
+        this.hash = hash.toByteArray();
+        this.members = members.toByteArray();
+        this.membersWithScores = membersWithScores.toByteArray();
+        executor.execute(this::accept);
+    }
+
+    /**
+     * 与 value 等长、以序号开头的 member,保证 zset 回复中的 member 互不相同
+     */
+    private static byte[] member(int index, int size) {
+        byte[] prefix = SafeEncoder.encode(index + ":");
+        byte[] member = new byte[Math.max(size, prefix.length)];
+        Arrays.fill(member, (byte) 'm');
+        System.arraycopy(prefix, 0, member, 0, prefix.length);
+        return member;
+    }
+
+    private static byte[] bulk(byte[] data) {
+        byte[] header = SafeEncoder.encode("$" + data.length + "\r\n");
+        byte[] bulk = new byte[header.length + data.length + 2];
+        System.arraycopy(header, 0, bulk, 0, header.length);
+        System.arraycopy(data, 0, bulk, header.length, data.length);
+        bulk[bulk.length - 2] = '\r';
+        bulk[bulk.length - 1] = '\n';
+        return bulk;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setDelayMicros(long delayMicros) {
+        this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            RedisInputStream in = new RedisInputStream(s.getInputStream());
+            RedisOutputStream out = new RedisOutputStream(s.getOutputStream());
+            while (true) {
+                @SuppressWarnings("unchecked")
+                List<byte[]> command = (List<byte[]>) Protocol.read(in);
+                if (delayNanos > 0) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+                String name = SafeEncoder.encode(command.get(0)).toUpperCase();
+                if ("PING".equals(name)) {
+                    out.write(PONG);
+                } else if ("GET".equals(name)) {
+                    out.write(value);
+                } else if ("MGET".equals(name)) {
+                    out.write(SafeEncoder.encode("*" + (command.size() - 1) + "\r\n"));
+                    for (int i = 1; i < command.size(); i++) {
+                        out.write(value);
+                    }
+                } else if ("HGETALL".equals(name)) {
+                    out.write(hash);
+                } else if ("ZRANGEBYSCORE".equals(name)) {
+                    boolean withScores = "WITHSCORES".equalsIgnoreCase(SafeEncoder.encode(command.get(command.size() - 1)));
+                    out.write(withScores ? membersWithScores : members);
+                } else if ("QUIT".equals(name)) {
+                    out.write(OK);
+                    out.flush();
+                    return;
+                } else {
+                    out.write(OK);
+                }
+                out.flush();
+            }
+        } catch (Exception e) {
+            // 客户端断开
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
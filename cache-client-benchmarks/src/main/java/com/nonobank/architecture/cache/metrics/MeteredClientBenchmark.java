@@ -0,0 +1,73 @@
+package com.nonobank.architecture.cache.metrics;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MeteredCacheClient} 每次调用的额外开销
+ * 被包装的客户端是不访问网络、直接返回固定值的动态代理,direct 与 metered 的差值即计量的开销(目标在 100ns 以内);
+ * record 只测 {@link CommandMeter#success} 本身。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeteredClientBenchmark {
+
+    private AbstractCacheClient direct;
+
+    private MeteredCacheClient metered;
+
+    private CommandMeter meter;
+
+    private final String key = "user:session:10086";
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String value = "{\"id\":10086,\"name\":\"benchmark\"}";
+        direct = (AbstractCacheClient) Proxy.newProxyInstance(AbstractCacheClient.class.getClassLoader(),
+                new Class<?>[]{AbstractCacheClient.class}, (proxy, method, args) -> value);
+        CacheConfig config = new CacheConfig();
+        config.setMetricsJmx(false);
+        CacheMetrics metrics = new CacheMetrics("benchmark", config);
+        metered = new MeteredCacheClient(direct, metrics);
+        meter = metrics.command("record");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        metered.getMetrics().close();
+    }
+
+    @Benchmark
+    public String direct() {
+        return direct.get(key);
+    }
+
+    @Benchmark
+    public String metered() {
+        return metered.get(key);
+    }
+
+    @Benchmark
+    public void record() {
+        meter.success(System.nanoTime(), 18, 32);
+    }
+}
@@ -0,0 +1,90 @@
+package com.nonobank.architecture.cache.nio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Protocol;
+import redis.clients.util.RedisInputStream;
+import redis.clients.util.SafeEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET 回复的解码开销:现有 String 路径与二进制、零拷贝切片路径的对比
+ * jedisString 对应 CacheClient.get(Jedis 解析 + UTF-8 解码),jedisBytes 对应 CacheClient.getBytes,
+ * respString/respBytes/respSlice 对应多路复用引擎的 get/getBytes/getBuffer。
+ * 用 -prof gc 查看每次操作的分配字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RespDecodeBenchmark {
+
+    @Param({"256", "4096", "32768"})
+    public int valueSize;
+
+    private byte[] reply;
+
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; json.length() < valueSize - 32; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"商品").append(i).append("\"},");
+        }
+        json.append("{}]}");
+        byte[] value = SafeEncoder.encode(json.toString());
+        byte[] header = SafeEncoder.encode("$" + value.length + "\r\n");
+        reply = new byte[header.length + value.length + 2];
+        System.arraycopy(header, 0, reply, 0, header.length);
+        System.arraycopy(value, 0, reply, header.length, value.length);
+        reply[reply.length - 2] = '\r';
+        reply[reply.length - 1] = '\n';
+        buffer = ByteBuffer.allocateDirect(reply.length);
+        buffer.put(reply).flip();
+    }
+
+    @Benchmark
+    public String jedisString() {
+        return SafeEncoder.encode((byte[]) Protocol.read(new RedisInputStream(new ByteArrayInputStream(reply))));
+    }
+
+    @Benchmark
+    public byte[] jedisBytes() {
+        return (byte[]) Protocol.read(new RedisInputStream(new ByteArrayInputStream(reply)));
+    }
+
+    @Benchmark
+    public String respString() {
+        buffer.rewind();
+        return SafeEncoder.encode((byte[]) RespCodec.decode(buffer));
+    }
+
+    @Benchmark
+    public byte[] respBytes() {
+        buffer.rewind();
+        return (byte[]) RespCodec.decode(buffer);
+    }
+
+    @Benchmark
+    public int respSlice() {
+        buffer.rewind();
+        ByteBuffer slice = (ByteBuffer) RespCodec.decodeSlice(buffer);
+        // 模拟 reader 只读取需要的部分
+        return slice.remaining() + slice.get(slice.remaining() - 1);
+    }
+}
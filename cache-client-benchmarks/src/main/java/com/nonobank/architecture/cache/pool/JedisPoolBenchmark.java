@@ -0,0 +1,119 @@
+package com.nonobank.architecture.cache.pool;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.util.Pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池借用和归还的开销:commons-pool2 GenericObjectPool 与 {@link LockFreeJedisPool} 在 8/32/128 个线程下的对比
+ * 连接不建立网络连接,持有期间只消耗 holdTokens 个 CPU 单位,测得的是连接池本身的竞争;
+ * maxTotal=1000 与 CacheConfig 默认值相同(连接充足),maxTotal=16 时线程需要等待其他线程归还。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JedisPoolBenchmark {
+
+    @Param({"commons", "lockFree"})
+    public String pool;
+
+    @Param({"1000", "16"})
+    public int maxTotal;
+
+    @Param({"50"})
+    public int holdTokens;
+
+    private Pool<Jedis> jedisPool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // 与 CacheConfig.CacheConfig2JedisPoolConfig 相同的 jodis 默认参数
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setTestWhileIdle(true);
+        config.setMinEvictableIdleTimeMillis(60000);
+        config.setTimeBetweenEvictionRunsMillis(30000);
+        config.setNumTestsPerEvictionRun(-1);
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setMaxWaitMillis(20000);
+        if ("lockFree".equals(pool)) {
+            jedisPool = new LockFreeJedisPool(config, new UnconnectedJedisFactory());
+        } else {
+            jedisPool = new Pool<Jedis>(config, new UnconnectedJedisFactory()) {
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jedisPool.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads8() {
+        borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void threads32() {
+        borrowAndReturn();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void threads128() {
+        borrowAndReturn();
+    }
+
+    private void borrowAndReturn() {
+        Jedis jedis = jedisPool.getResource();
+        Blackhole.consumeCPU(holdTokens);
+        jedisPool.returnResource(jedis);
+    }
+
+    /**
+     * 只创建对象,不连接 redis
+     */
+    private static final class UnconnectedJedisFactory extends BasePooledObjectFactory<Jedis> {
+
+        @Override
+        public Jedis create() {
+            return new Jedis("127.0.0.1", 6379);
+        }
+
+        @Override
+        public PooledObject<Jedis> wrap(Jedis jedis) {
+            return new DefaultPooledObject<>(jedis);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Jedis> pooled) {
+            return true;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import redis.clients.jedis.Tuple;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public interface AbstractCacheClient {
 
@@ -24,6 +26,12 @@ public interface AbstractCacheClient {
 
 	public String get(String key);
 
+	/**缓存未命中时调用 loader 加载并以 ttlSeconds 写回,同一 key 的并发加载只执行一次;loader 返回 null 时不写缓存*/
+	public String get(String key, Function<String, String> loader, int ttlSeconds);
+
+	/**同 get(key, loader, ttlSeconds),但值带到期时间和加载耗时写入,临近到期时按概率在后台提前刷新;这类key只能通过本方法读取*/
+	public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds);
+
 	public Long setnx(String key,String value);
 
 	public String getSet(String key, String value);
@@ -275,4 +283,30 @@ public interface AbstractCacheClient {
 
 	public Double zscore(String key, String member);
 
+	/**二进制值读写:key 和 field 按 UTF-8 编码,值按原始字节保存和返回,不经过 String 编解码*/
+	public byte[] getBytes(String key);
+
+	public Boolean setBytes(String key, byte[] value);
+
+	public String setExpireBytes(String key, int seconds, byte[] value);
+
+	public List<byte[]> mgetBytes(String... keys);
+
+	public byte[] hgetBytes(String key, String field);
+
+	public Long hsetBytes(String key, String field, byte[] value);
+
+	public List<byte[]> hmgetBytes(String key, String... fields);
+
+	public String hmsetBytes(String key, Map<String, byte[]> hash);
+
+	public Map<String, byte[]> hgetAllBytes(String key);
+
+	public Long rpushBytes(String key, byte[]... values);
+
+	public List<byte[]> lrangeBytes(String key, long start, long end);
+
+	/**在同一个连接上以pipeline方式执行一批命令,结果按提交顺序返回,失败的命令在对应位置上为其异常对象*/
+	public List<Object> batch(Consumer<CacheBatch> commands);
+
 }
@@ -0,0 +1,15 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.retry.CommandNotSentException;
+
+/**
+ * 连接池借出的连接数已达到 bulkheadMaxConcurrent,并且在 bulkheadMaxWaitMillis 内没有归还
+ */
+public class BulkheadFullException extends CommandNotSentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,228 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量命令收集器,由 {@link AbstractCacheClient#batch} 提供。
+ * 所有命令在同一连接上以pipeline方式发送,每个方法返回对应命令的 {@link Response},
+ * 在 batch 调用返回后才能读取;单条命令失败时,对应 Response.get() 抛出该命令自己的异常,不影响其他命令。
+ * 返回类型与 Jedis 原始返回一致,例如 set/mset 返回 "OK",expire 返回 1/0。
+ */
+public interface CacheBatch {
+
+	public Response<String> set(String key, String value);
+
+	public Response<String> get(String key);
+
+	public Response<Long> setnx(String key, String value);
+
+	public Response<String> getSet(String key, String value);
+
+	public Response<Boolean> exists(String key);
+
+	public Response<Long> expire(String key, int seconds);
+
+	public Response<Long> expireAt(String key, long unixTime);
+
+	public Response<Long> append(String key, String value);
+
+	public Response<Long> decr(String key);
+
+	public Response<Long> decrBy(String key, long integer);
+
+	public Response<Long> incr(String key);
+
+	public Response<Long> incrBy(String key, long integer);
+
+	public Response<Long> del(String... keys);
+
+	public Response<String> getrange(String key, long startOffset, long endOffset);
+
+	public Response<String> hget(String key, String field);
+
+	public Response<Long> hdel(String key, String... fields);
+
+	public Response<Boolean> hexists(String key, String field);
+
+	public Response<Map<String, String>> hgetAll(String key);
+
+	public Response<Long> hincrBy(String key, String field, long value);
+
+	public Response<Set<String>> hkeys(String key);
+
+	public Response<Long> hlen(String key);
+
+	public Response<List<String>> hmget(String key, String... fields);
+
+	public Response<String> hmset(String key, Map<String, String> hash);
+
+	public Response<Long> hset(String key, String field, String value);
+
+	public Response<Long> hsetnx(String key, String field, String value);
+
+	public Response<List<String>> hvals(String key);
+
+	public Response<String> lindex(String key, long index);
+
+	public Response<Long> linsert(String key, ListPosition where, String pivot, String value);
+
+	public Response<List<String>> mget(String... keys);
+
+	public Response<String> mset(String... keysvalues);
+
+	public Response<Long> llen(String key);
+
+	public Response<String> lpop(String key);
+
+	public Response<Long> lpush(String key, String... strings);
+
+	public Response<Long> lpushx(String key, String... string);
+
+	public Response<List<String>> lrange(String key, long start, long end);
+
+	public Response<Long> lrem(String key, long count, String value);
+
+	public Response<String> ltrim(String key, long start, long end);
+
+	public Response<String> lset(String key, long index, String value);
+
+	public Response<String> rpop(String key);
+
+	public Response<Long> rpush(String key, String... strings);
+
+	public Response<Long> rpushx(String key, String string);
+
+	public Response<Long> sadd(String key, String... members);
+
+	public Response<Long> scard(String key);
+
+	public Response<Set<String>> smembers(String key);
+
+	public Response<String> setExpire(String key, int seconds, String value);
+
+	public Response<String> spop(String key);
+
+	public Response<Long> setrange(String key, long offset, String value);
+
+	public Response<Boolean> sismember(String key, String member);
+
+	public Response<Long> strlen(String key);
+
+	public Response<Long> ttl(String key);
+
+	public Response<List<String>> sort(String key);
+
+	public Response<List<String>> sort(String key, SortingParams sortingParameters);
+
+	public Response<Long> sort(String key, SortingParams sortingParameters, String dstkey);
+
+	public Response<Long> sort(String key, String dstkey);
+
+	public Response<String> srandmember(String key);
+
+	public Response<List<String>> srandmember(String key, int count);
+
+	public Response<Long> srem(String key, String... members);
+
+	public Response<String> substr(String key, int start, int end);
+
+	public Response<String> type(String key);
+
+	public Response<Long> zadd(String key, double score, String member);
+
+	public Response<Long> zadd(String key, Map<String,Double> scoreMembers);
+
+	public Response<Long> zcard(String key);
+
+	public Response<Long> zcount(String key, double min, double max);
+
+	public Response<Long> zcount(String key, String min, String max);
+
+	public Response<Double> zincrby(String key, double score, String member);
+
+	public Response<Set<String>> zrange(String key, long start, long end);
+
+	public Response<Set<String>> zrangeByScore(String key, double min, double max);
+
+	public Response<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count);
+
+	public Response<Set<String>> zrangeByScore(String key, String min, String max);
+
+	public Response<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count);
+
+	public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max);
+
+	public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count);
+
+	public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max);
+
+	public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count);
+
+	public Response<Set<Tuple>> zrangeWithScores(String key, long start, long end);
+
+	public Response<Long> zrank(String key, String member);
+
+	public Response<Long> zrem(String key, String... members);
+
+	public Response<Long> zremrangeByRank(String key, long start, long end);
+
+	public Response<Long> zremrangeByScore(String key, double start, double end);
+
+	public Response<Long> zremrangeByScore(String key, String start, String end);
+
+	public Response<Set<String>> zrevrange(String key, long start, long end);
+
+	public Response<Set<String>> zrevrangeByScore(String key, double max, double min);
+
+	public Response<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count);
+
+	public Response<Set<String>> zrevrangeByScore(String key, String max, String min);
+
+	public Response<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count);
+
+	public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min);
+
+	public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count);
+
+	public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min);
+
+	public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count);
+
+	public Response<Set<Tuple>> zrevrangeWithScores(String key, long start, long end);
+
+	public Response<Long> zrevrank(String key, String member);
+
+	public Response<Double> zscore(String key, String member);
+
+	public Response<byte[]> getBytes(String key);
+
+	public Response<String> setBytes(String key, byte[] value);
+
+	public Response<String> setExpireBytes(String key, int seconds, byte[] value);
+
+	public Response<List<byte[]>> mgetBytes(String... keys);
+
+	public Response<byte[]> hgetBytes(String key, String field);
+
+	public Response<Long> hsetBytes(String key, String field, byte[] value);
+
+	public Response<List<byte[]>> hmgetBytes(String key, String... fields);
+
+	public Response<Long> rpushBytes(String key, byte[]... values);
+
+	public Response<List<byte[]>> lrangeBytes(String key, long start, long end);
+
+	/**
+	 * 执行 lua 脚本,codis 按 keys 的第一个 key 路由,脚本只能访问这一个 key,见 {@link CacheScripts}
+	 *
+	 * @return 脚本的回复按字符串读取,Jedis 的 pipeline 只支持字符串回复,脚本用 tostring 返回整数,用 {@link CacheScripts#toLong} 读取
+	 */
+	public Response<String> eval(String script, List<String> keys, List<String> args);
+}
@@ -1,153 +1,192 @@
 package com.nonobank.architecture.cache;
 
 import com.google.common.base.Strings;
+import com.nonobank.architecture.cache.breaker.CircuitBreakerStats;
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import com.nonobank.architecture.cache.compress.CompressionStats;
+import com.nonobank.architecture.cache.compress.ValueCompressor;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.retry.Retryer;
 import com.nonobank.architecture.enumeration.CacheEnvironment;
 import com.nonobank.architecture.enumeration.ListPosition;
 import io.codis.jodis.JedisResourcePool;
-import io.codis.jodis.RoundRobinJedisPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.SortingParams;
 import redis.clients.jedis.Tuple;
+import redis.clients.util.SafeEncoder;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-public class CacheClient implements AbstractCacheClient {
+/**
+ * 基于连接池的客户端,每个命令借用一个连接同步执行
+ * 连接池按集群和环境共享,见 {@link CachePool};不再使用时调用 {@link #close()} 释放
+ */
+public class CacheClient implements AbstractCacheClient, Closeable {
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
-    private static JedisResourcePool jedisPool = null;
+    private final CachePool jedisPool;
 
     private CacheConfig config;
 
+    private ReadCoalescer readCoalescer;
+
+    private SingleFlightLoader singleFlightLoader;
+
+    private ValueCompressor compressor;
+
+    private Retryer retryer;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
     public CacheClient(CacheConfig config) {
         this.config = config;
-        fresh();
+        this.jedisPool = CachePool.acquire(config);
+        if (config.getWarmup() && !jedisPool.awaitReady(config.getWarmupTimeoutMillis())) {
+            log.info("cache pool not warmed up within " + config.getWarmupTimeoutMillis() + "ms, pool:" + jedisPool.getName());
+        }
+        if (config.getAutoBatch()) {
+            readCoalescer = new ReadCoalescer(jedisPool, config);
+        }
+        singleFlightLoader = new SingleFlightLoader(this, config);
+        retryer = Retryer.of(config);
+        if (config.getCompression()) {
+            compressor = new ValueCompressor(config, this::loadCompressionDictionary);
+        }
     }
 
     protected JedisResourcePool fresh() {
-        if (jedisPool == null) {
-            synchronized (CacheClient.class) {
-                if (jedisPool == null) {
-                    jedisPool = RoundRobinJedisPool.create().poolConfig(config.CacheConfig2JedisPoolConfig())
-                            .curatorClient(config.getZkAddressAndPort(), config.getZkSessionTimeOutMs())
-                            .zkProxyDir(config.getZkProxyDir()).build();
-                }
-            }
-        }
         return jedisPool;
     }
 
+    private Jedis resource(CommandClass commandClass) {
+        return jedisPool.getResource(commandClass);
+    }
+
+    /**
+     * @return 本客户端使用的连接池的借用数、拒绝数和连接数
+     */
+    public CachePoolStats getPoolStats() {
+        return jedisPool.getStats();
+    }
+
+    /**
+     * @return 连接池的计量(借用等待时间、每个 proxy 的延迟),未开启 metrics 时返回 null;
+     * 每个命令的计量由 {@link CacheClientFactory} 包装的 {@link com.nonobank.architecture.cache.metrics.MeteredCacheClient} 记录到同一个对象
+     */
+    public CacheMetrics getMetrics() {
+        return jedisPool.getMetrics();
+    }
+
+    /**
+     * @return 连接池是否已预热完成,未开启 warmup 时总是 true;服务可以在就绪后再接收流量
+     */
+    public boolean isReady() {
+        return jedisPool.isReady();
+    }
+
+    /**
+     * 等待连接池预热完成
+     *
+     * @return 是否在 timeoutMillis 内就绪
+     */
+    public boolean awaitReady(long timeoutMillis) {
+        return jedisPool.awaitReady(timeoutMillis);
+    }
+
+    /**
+     * 释放连接池的引用,同一集群同一环境的客户端全部关闭后关闭连接池
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        singleFlightLoader.close();
+        jedisPool.close();
+    }
+
+    /**
+     * @return 各 proxy 各命令类别的熔断器状态,未开启 circuitBreaker 时为空
+     */
+    public List<CircuitBreakerStats> getCircuitBreakerStats() {
+        JedisResourcePool pool = jedisPool.getDelegate();
+        if (pool instanceof CodisProxyPool && ((CodisProxyPool) pool).getCircuitBreakers() != null) {
+            return ((CodisProxyPool) pool).getCircuitBreakers().getStats();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return 各 proxy 的在途命令数、延迟 EWMA 和剔除状态,使用 jodis 连接池(proxySelector=roundRobin 且未开启熔断)时为空
+     */
+    public List<ProxyLoad> getProxyLoads() {
+        JedisResourcePool pool = jedisPool.getDelegate();
+        if (pool instanceof CodisProxyPool) {
+            return ((CodisProxyPool) pool).getProxyLoads();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 以下 xxxWithRetry 最多执行 retryTimes 次,失败后按重试策略的毫秒级退避加随机抖动重试,sleepSeconds 为退避时间的上限;
+     * 只重试连接类失败,并受全局重试预算限制,见 {@link Retryer}
+     */
     public String setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds){
-        int cur_time = 0;
-        for (; cur_time < retryTimes; ++cur_time) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.setex(key, seconds, value);
-            } catch (Exception e) {
-                log.info("cannot get redis client,retry currentTime: " + cur_time + " Excepton: " + e.toString());
-                e.printStackTrace();
-                try {
-                    if (cur_time == retryTimes - 1) {
-                        throw e;
-                    }
-                    Thread.sleep(sleepSeconds * 1000);
-                } catch (InterruptedException e1) {
-                    e.printStackTrace();
-                }
-            }
+        if (retryTimes <= 0) {
+            return null;
         }
-        return null;
+        return retryer.call("setExpire", () -> setExpire(key, seconds, value), retryer.legacyPolicy(retryTimes, sleepSeconds));
     }
 
     public Boolean setWithRetry(String key, String value, int retryTimes, int sleepSeconds){
-        int cur_time = 0;
-        for (; cur_time < retryTimes; ++cur_time) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.set(key, value).equals("OK") ? true : false;
-            } catch (Exception e) {
-                log.info("cannot get redis client,retry currentTime: " + cur_time + " Excepton: " + e.toString());
-                e.printStackTrace();
-                try {
-                    if (cur_time == retryTimes - 1) {
-                        throw e;
-                    }
-                    Thread.sleep(sleepSeconds * 1000);
-                } catch (InterruptedException e1) {
-                    e.printStackTrace();
-                }
-            }
+        if (retryTimes <= 0) {
+            return null;
         }
-        return null;
+        return retryer.call("set", () -> set(key, value), retryer.legacyPolicy(retryTimes, sleepSeconds));
     }
 
     public Long delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
-        int cur_time = 0;
-        for (; cur_time < retryTimes; ++cur_time) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.del(keys);
-            } catch (Exception e) {
-                log.info("cannot get redis client,retry currentTime: " + cur_time + " Excepton: " + e.toString());
-                e.printStackTrace();
-                try {
-                    if (cur_time == retryTimes - 1) {
-                        throw e;
-                    }
-                    Thread.sleep(sleepSeconds * 1000);
-                } catch (InterruptedException e1) {
-                    e.printStackTrace();
-                }
-            }
+        if (retryTimes <= 0) {
+            return null;
         }
-        return null;
+        return retryer.call("del", () -> del(keys), retryer.legacyPolicy(retryTimes, sleepSeconds));
     }
 
     public Boolean expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds){
-        int cur_time = 0;
-        for (; cur_time < retryTimes; ++cur_time) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.expire(key, seconds) == 1 ? true : false;
-            } catch (Exception e) {
-                log.info("cannot get redis client,retry currentTime: " + cur_time + " Excepton: " + e.toString());
-                e.printStackTrace();
-                try {
-                    if (cur_time == retryTimes - 1) {
-                        throw e;
-                    }
-                    Thread.sleep(sleepSeconds * 1000);
-                } catch (InterruptedException e1) {
-                    e.printStackTrace();
-                }
-            }
+        if (retryTimes <= 0) {
+            return null;
         }
-        return null;
+        return retryer.call("expire", () -> expire(key, seconds), retryer.legacyPolicy(retryTimes, sleepSeconds));
     }
 
     public String getWithRetry(String key, int retryTimes, int sleepSeconds) {
-        int cur_time = 0;
-        for (; cur_time < retryTimes; ++cur_time) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                return jedis.get(key);
-            } catch (Exception e) {
-                log.info("cannot get redis client,retry currentTime: " + cur_time + " Excepton: " + e.toString());
-                try {
-                    if (cur_time == retryTimes - 1) {
-                        throw e;
-                    }
-                    Thread.sleep(sleepSeconds * 1000);
-                } catch (InterruptedException e1) {
-                }
-            }
+        if (retryTimes <= 0) {
+            return null;
         }
-        return null;
+        return retryer.call("get", () -> get(key), retryer.legacyPolicy(retryTimes, sleepSeconds));
     }
 
 
     public Boolean set(String key, String value) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return setBytes(key, SafeEncoder.encode(value));
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.set(key, value).equals("OK") ? true : false;
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -159,7 +198,13 @@ public class CacheClient implements AbstractCacheClient {
 
     public String get(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return asString(getBytes(key));
+        }
+        if (readCoalescer != null) {
+            return readCoalescer.get(key);
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.get(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -169,6 +214,37 @@ public class CacheClient implements AbstractCacheClient {
         }
     }
 
+    /**
+     * 读取key的值,未命中时调用loader加载并设置有效期写回
+     * 同一个JVM内同一个key的并发加载只执行一次,其他线程等待共享结果;
+     * 开启 loaderLease 时整个集群同一时刻只有一个实例加载,其他实例短暂等待它写入的结果
+     *
+     * @param key
+     * @param loader     根据key加载值,返回null时不写缓存
+     * @param ttlSeconds 写回的有效期(秒)
+     * @return 缓存中或加载得到的值
+     */
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        return singleFlightLoader.get(key, loader, ttlSeconds);
+    }
+
+    /**
+     * 提前刷新模式的 cache-aside 读取
+     * 值与其到期时间、加载耗时一起写入,读取时按 XFetch 算法以一定概率在到期前于后台重新加载,
+     * 期间继续返回当前值,避免key集中到期时的延迟尖刺;加载越慢、越接近到期,提前刷新的概率越大。
+     * 以这种方式写入的key带有格式头,只能通过本方法读取
+     *
+     * @param key
+     * @param loader     根据key加载值,返回null时不写缓存
+     * @param ttlSeconds 写回的有效期(秒)
+     * @return 缓存中或加载得到的值
+     */
+    @Override
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return singleFlightLoader.getRefreshAhead(key, loader, ttlSeconds);
+    }
+
     /**
      * key 不存在时，为 key 设置指定的值
      *
@@ -177,7 +253,10 @@ public class CacheClient implements AbstractCacheClient {
      * @return 设置成功，返回 1 。 设置失败，返回 0 。
      */
     public Long setnx(String key, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            if (compressor != null) {
+                return jedis.setnx(SafeEncoder.encode(key), compress(key, SafeEncoder.encode(value)));
+            }
             return jedis.setnx(key, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -196,7 +275,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     public String getSet(String key, String value) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            if (compressor != null) {
+                return decompressString(key, jedis.getSet(SafeEncoder.encode(key), compress(key, SafeEncoder.encode(value))));
+            }
             return jedis.getSet(key, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -214,7 +296,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Boolean exists(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.exists(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -233,7 +315,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Boolean expire(String key, int seconds) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.expire(key, seconds) == 1 ? true : false;
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -252,7 +334,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Long expireAt(String key, long unixTime) {
         //key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.expireAt(key, unixTime);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -271,7 +353,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long ttl(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.ttl(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -287,10 +369,14 @@ public class CacheClient implements AbstractCacheClient {
      * @param key
      * @param value
      * @return 追加操作后的字符串的长度
+     * @throws UnsupportedOperationException 开启 compression 时,服务端保存的可能是压缩值,追加会破坏它
      */
     public Long append(String key, String value) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            throw new UnsupportedOperationException("append is not supported when compression is enabled");
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.append(key, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -309,7 +395,11 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long strlen(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            byte[] value = getBytes(key);
+            return value == null ? 0L : value.length;
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.strlen(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -330,7 +420,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Long decr(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.decr(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -352,7 +442,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Long decrBy(String key, long integer) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.decrBy(key, integer);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -372,7 +462,7 @@ public class CacheClient implements AbstractCacheClient {
 //		for(int i=0;i<keys.length;i++){
 //			keys[i]=keyWapper(keys[i]);
 //		}
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.del(keys);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -393,7 +483,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     public String getrange(String key, long startOffset, long endOffset) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return range(getBytes(key), startOffset, endOffset);
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.getrange(key, startOffset, endOffset);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -410,10 +503,14 @@ public class CacheClient implements AbstractCacheClient {
      * @param offset
      * @param value
      * @return 被修改后的字符串长度
+     * @throws UnsupportedOperationException 开启 compression 时,服务端保存的可能是压缩值,覆盖会破坏它
      */
     @Override
     public Long setrange(String key, long offset, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            throw new UnsupportedOperationException("setrange is not supported when compression is enabled");
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.setrange(key, offset, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -435,7 +532,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Long hset(String key, String field, String value) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return hsetBytes(key, field, SafeEncoder.encode(value));
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.hset(key, field, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -454,7 +554,13 @@ public class CacheClient implements AbstractCacheClient {
      */
     public String hget(String key, String field) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return asString(hgetBytes(key, field));
+        }
+        if (readCoalescer != null) {
+            return readCoalescer.hget(key, field);
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hget(key, field);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -472,7 +578,14 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Map<String, String> hgetAll(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            Map<String, String> hash = new LinkedHashMap<>();
+            for (Map.Entry<String, byte[]> entry : hgetAllBytes(key).entrySet()) {
+                hash.put(entry.getKey(), asString(entry.getValue()));
+            }
+            return hash;
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hgetAll(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -490,7 +603,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Set<String> hkeys(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hkeys(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -508,7 +621,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     public Long hlen(String key) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hlen(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -527,7 +640,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     public List<String> hmget(String key, String... fields) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return asStrings(hmgetBytes(key, fields));
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hmget(key, fields);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -548,7 +664,14 @@ public class CacheClient implements AbstractCacheClient {
      */
     public String hmset(String key, Map<String, String> hash) {
 //		key=keyWapper(key);
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            Map<String, byte[]> encoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+            for (Map.Entry<String, String> entry : hash.entrySet()) {
+                encoded.put(entry.getKey(), SafeEncoder.encode(entry.getValue()));
+            }
+            return hmsetBytes(key, encoded);
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.hmset(key, hash);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -569,7 +692,10 @@ public class CacheClient implements AbstractCacheClient {
 //		for(int i=0;i<keys.length;i++){
 //			keys[i]=keyWapper(keys[i]);
 //		}
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return asStrings(mgetBytes(keys));
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.mget(keys);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -589,7 +715,17 @@ public class CacheClient implements AbstractCacheClient {
 //		for(int i=0;i<keysvalues.length;i++){
 //			keysvalues[i]=keyWapper(keysvalues[i]);
 //		}
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            if (compressor != null) {
+                byte[][] encoded = new byte[keysvalues.length][];
+                for (int i = 0; i < keysvalues.length; i++) {
+                    encoded[i] = SafeEncoder.encode(keysvalues[i]);
+                    if (i % 2 == 1) {
+                        encoded[i] = compress(keysvalues[i - 1], encoded[i]);
+                    }
+                }
+                return jedis.mset(encoded).equals("OK") ? true : false;
+            }
             return jedis.mset(keysvalues).equals("OK") ? true : false;
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -622,7 +758,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long incr(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.incr(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -641,7 +777,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long incrBy(String key, long integer) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.incrBy(key, integer);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -662,7 +798,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long hdel(String key, String... fields) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.hdel(key, fields);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -681,7 +817,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Boolean hexists(String key, String field) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.hexists(key, field);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -704,7 +840,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long hincrBy(String key, String field, long value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.hincrBy(key, field, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -726,7 +862,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long hsetnx(String key, String field, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            if (compressor != null) {
+                return jedis.hsetnx(SafeEncoder.encode(key), SafeEncoder.encode(field), compress(key, SafeEncoder.encode(value)));
+            }
             return jedis.hsetnx(key, field, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -744,7 +883,14 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public List<String> hvals(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            if (compressor != null) {
+                List<String> values = new ArrayList<>();
+                for (byte[] value : jedis.hvals(SafeEncoder.encode(key))) {
+                    values.add(decompressString(key, value));
+                }
+                return values;
+            }
             return jedis.hvals(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -765,7 +911,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String lindex(String key, long index) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.lindex(key, index);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -788,7 +934,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long linsert(String key, ListPosition where, String pivot, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.linsert(key, where.warp(), pivot, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -808,7 +954,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long llen(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.llen(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -826,7 +972,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String lpop(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.lpop(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -846,7 +992,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long lpush(String key, String... strings) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.lpush(key, strings);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -865,7 +1011,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long lpushx(String key, String... string) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.lpushx(key, string);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -886,7 +1032,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public List<String> lrange(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.lrange(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -906,7 +1052,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long lrem(String key, long count, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.lrem(key, count, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -927,7 +1073,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String ltrim(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.ltrim(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -948,7 +1094,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String lset(String key, long index, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.lset(key, index, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -966,7 +1112,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String rpop(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.rpop(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -986,7 +1132,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long rpush(String key, String... strings) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.rpush(key, strings);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1006,7 +1152,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long rpushx(String key, String string) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.rpushx(key, string);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1028,7 +1174,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long sadd(String key, String... members) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.sadd(key, members);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1046,7 +1192,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long scard(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.scard(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1066,7 +1212,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Set<String> smembers(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.smembers(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1086,7 +1232,10 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String setExpire(String key, int seconds, String value) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return setExpireBytes(key, seconds, SafeEncoder.encode(value));
+        }
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.setex(key, seconds, value);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1104,7 +1253,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String spop(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.spop(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1123,7 +1272,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Boolean sismember(String key, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.sismember(key, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1142,7 +1291,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public List<String> sort(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.sort(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1154,7 +1303,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public List<String> sort(String key, SortingParams sortingParameters) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.sort(key, sortingParameters);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1166,7 +1315,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Long sort(String key, SortingParams sortingParameters, String dstkey) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.sort(key, sortingParameters, dstkey);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1178,7 +1327,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Long sort(String key, String dstkey) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.sort(key, dstkey);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1197,7 +1346,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String srandmember(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.srandmember(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1218,7 +1367,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public List<String> srandmember(String key, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.srandmember(key, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1238,7 +1387,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long srem(String key, String... members) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.srem(key, members);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1259,7 +1408,10 @@ public class CacheClient implements AbstractCacheClient {
     @Override
     @Deprecated
     public String substr(String key, int start, int end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        if (compressor != null) {
+            return range(getBytes(key), start, end);
+        }
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.substr(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1277,7 +1429,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public String type(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.type(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1301,7 +1453,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zadd(String key, double score, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zadd(key, score, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1320,7 +1472,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zadd(String key, Map<String, Double> scoreMembers) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zadd(key, scoreMembers);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1338,7 +1490,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zcard(String key) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zcard(key);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1358,7 +1510,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zcount(String key, double min, double max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zcount(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1370,7 +1522,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Long zcount(String key, String min, String max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zcount(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1392,7 +1544,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Double zincrby(String key, double score, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zincrby(key, score, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1415,7 +1567,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Set<String> zrange(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrange(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1436,7 +1588,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Set<String> zrangeByScore(String key, double min, double max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScore(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1456,7 +1608,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScore(key, min, max, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1468,7 +1620,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrangeByScore(String key, String min, String max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScore(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1480,7 +1632,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrangeByScore(String key, String min, String max, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScore(key, min, max, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1492,7 +1644,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScoreWithScores(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1504,7 +1656,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1516,7 +1668,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScoreWithScores(key, min, max);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1528,7 +1680,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeByScoreWithScores(key, min, max, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1546,7 +1698,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Set<Tuple> zrangeWithScores(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrangeWithScores(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1565,7 +1717,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zrank(String key, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrank(key, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1585,7 +1737,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zrem(String key, String... members) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zrem(key, members);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1605,7 +1757,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zremrangeByRank(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zremrangeByRank(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1617,7 +1769,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Long zremrangeByScore(String key, double start, double end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zremrangeByScore(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1629,7 +1781,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Long zremrangeByScore(String key, String start, String end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
             return jedis.zremrangeByScore(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1641,7 +1793,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrevrange(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrange(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1653,7 +1805,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrevrangeByScore(String key, double max, double min) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScore(key, max, min);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1665,7 +1817,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScore(key, max, min, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1677,7 +1829,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrevrangeByScore(String key, String max, String min) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScore(key, max, min);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1689,7 +1841,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<String> zrevrangeByScore(String key, String max, String min, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScore(key, max, min, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1701,7 +1853,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScoreWithScores(key, max, min);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1713,7 +1865,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScoreWithScores(key, max, min, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1725,7 +1877,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScoreWithScores(key, max, min);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1737,7 +1889,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeByScoreWithScores(key, max, min, offset, count);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1749,7 +1901,7 @@ public class CacheClient implements AbstractCacheClient {
 
     @Override
     public Set<Tuple> zrevrangeWithScores(String key, long start, long end) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrangeWithScores(key, start, end);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1769,7 +1921,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Long zrevrank(String key, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zrevrank(key, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1788,7 +1940,7 @@ public class CacheClient implements AbstractCacheClient {
      */
     @Override
     public Double zscore(String key, String member) {
-        try (Jedis jedis = jedisPool.getResource()) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
             return jedis.zscore(key, member);
         } catch (Exception e) {
             if (config.getDebug()) {
@@ -1797,4 +1949,357 @@ public class CacheClient implements AbstractCacheClient {
             throw e;
         }
     }
+
+    /**
+     * 读取二进制值
+     *
+     * @param key
+     * @return key 不存在时返回 null
+     */
+    @Override
+    public byte[] getBytes(String key) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            return decompress(key, jedis.get(SafeEncoder.encode(key)));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 设置二进制值
+     *
+     * @param key
+     * @param value
+     * @return true:设置成功
+     */
+    @Override
+    public Boolean setBytes(String key, byte[] value) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            return "OK".equals(jedis.set(SafeEncoder.encode(key), compress(key, value)));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 设置二进制值并指定有效期(秒)
+     *
+     * @param key
+     * @param seconds
+     * @param value
+     * @return 成功返回 OK
+     */
+    @Override
+    public String setExpireBytes(String key, int seconds, byte[] value) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            return jedis.setex(SafeEncoder.encode(key), seconds, compress(key, value));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量读取二进制值
+     *
+     * @param keys
+     * @return 与 keys 顺序一致,不存在的 key 对应 null
+     */
+    @Override
+    public List<byte[]> mgetBytes(String... keys) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            List<byte[]> values = jedis.mget(SafeEncoder.encodeMany(keys));
+            if (compressor != null) {
+                for (int i = 0; i < keys.length; i++) {
+                    values.set(i, decompress(keys[i], values.get(i)));
+                }
+            }
+            return values;
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读取 hash 字段的二进制值
+     *
+     * @param key
+     * @param field
+     * @return 字段不存在时返回 null
+     */
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            return decompress(key, jedis.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 设置 hash 字段的二进制值
+     *
+     * @param key
+     * @param field
+     * @param value
+     * @return 新建字段返回 1,覆盖已有字段返回 0
+     */
+    @Override
+    public Long hsetBytes(String key, String field, byte[] value) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            return jedis.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), compress(key, value));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量读取 hash 字段的二进制值
+     *
+     * @param key
+     * @param fields
+     * @return 与 fields 顺序一致,不存在的字段对应 null
+     */
+    @Override
+    public List<byte[]> hmgetBytes(String key, String... fields) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            List<byte[]> values = jedis.hmget(SafeEncoder.encode(key), SafeEncoder.encodeMany(fields));
+            if (compressor != null) {
+                for (int i = 0; i < values.size(); i++) {
+                    values.set(i, decompress(key, values.get(i)));
+                }
+            }
+            return values;
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量设置 hash 字段的二进制值
+     *
+     * @param key
+     * @param hash
+     * @return 成功返回 OK
+     */
+    @Override
+    public String hmsetBytes(String key, Map<String, byte[]> hash) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            return jedis.hmset(SafeEncoder.encode(key), encodeFields(key, hash));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读取 hash 的全部字段,字段名按 UTF-8 解码,值保持二进制
+     *
+     * @param key
+     * @return key 不存在时返回空 map
+     */
+    @Override
+    public Map<String, byte[]> hgetAllBytes(String key) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            return decodeFields(key, jedis.hgetAll(SafeEncoder.encode(key)));
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在列表尾部追加二进制值
+     *
+     * @param key
+     * @param values
+     * @return 追加后列表的长度
+     */
+    @Override
+    public Long rpushBytes(String key, byte[]... values) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            return jedis.rpush(SafeEncoder.encode(key), values);
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读取列表指定区间的二进制值
+     *
+     * @param key
+     * @param start
+     * @param end
+     * @return 区间内的元素
+     */
+    @Override
+    public List<byte[]> lrangeBytes(String key, long start, long end) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            return jedis.lrange(SafeEncoder.encode(key), start, end);
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 为 key 前缀注册 zstd 字典:字典保存到 codis 供所有实例解压,之后本实例写入该前缀下的值时使用
+     * 字典可以用 {@link ValueCompressor#train} 从同一类值的样本训练得到,需要开启 compression
+     *
+     * @param prefix     key 中第一个 ':' 之前的部分
+     * @param dictionary 字典内容
+     * @return 字典 id
+     */
+    public long registerCompressionDictionary(String prefix, byte[] dictionary) {
+        if (compressor == null) {
+            throw new IllegalStateException("compression is not enabled");
+        }
+        long id = ValueCompressor.dictionaryId(dictionary);
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            jedis.set(SafeEncoder.encode(ValueCompressor.DICTIONARY_KEY_PREFIX + id), dictionary);
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+        compressor.useDictionary(prefix, dictionary);
+        return id;
+    }
+
+    /**
+     * @return 按 key 前缀统计的压缩率和压缩、解压耗时,未开启压缩时返回空 map
+     */
+    public Map<String, CompressionStats> getCompressionStats() {
+        return compressor == null ? Collections.<String, CompressionStats>emptyMap() : compressor.stats();
+    }
+
+    private byte[] loadCompressionDictionary(long id) {
+        try (Jedis jedis = resource(CommandClass.READ)) {
+            return jedis.get(SafeEncoder.encode(ValueCompressor.DICTIONARY_KEY_PREFIX + id));
+        }
+    }
+
+    private byte[] compress(String key, byte[] value) {
+        return compressor == null ? value : compressor.compress(key, value);
+    }
+
+    private byte[] decompress(String key, byte[] value) {
+        return compressor == null ? value : compressor.decompress(key, value);
+    }
+
+    private String decompressString(String key, byte[] value) {
+        return asString(decompress(key, value));
+    }
+
+    /**
+     * 按 GETRANGE 的规则截取解压后的值:偏移按字节计算,负数从末尾算起,两端都包括,key 不存在时为空串
+     */
+    static String range(byte[] value, long start, long end) {
+        if (value == null || value.length == 0) {
+            return "";
+        }
+        long length = value.length;
+        if (start < 0) {
+            start = Math.max(0, length + start);
+        }
+        if (end < 0) {
+            end = Math.max(0, length + end);
+        }
+        end = Math.min(end, length - 1);
+        if (start > end) {
+            return "";
+        }
+        return SafeEncoder.encode(Arrays.copyOfRange(value, (int) start, (int) end + 1));
+    }
+
+    private static String asString(byte[] value) {
+        return value == null ? null : SafeEncoder.encode(value);
+    }
+
+    private static List<String> asStrings(List<byte[]> values) {
+        List<String> strings = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            strings.add(asString(value));
+        }
+        return strings;
+    }
+
+    private Map<byte[], byte[]> encodeFields(String key, Map<String, byte[]> hash) {
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        for (Map.Entry<String, byte[]> entry : hash.entrySet()) {
+            encoded.put(SafeEncoder.encode(entry.getKey()), compress(key, entry.getValue()));
+        }
+        return encoded;
+    }
+
+    private Map<String, byte[]> decodeFields(String key, Map<byte[], byte[]> hash) {
+        Map<String, byte[]> decoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+            decoded.put(SafeEncoder.encode(entry.getKey()), decompress(key, entry.getValue()));
+        }
+        return decoded;
+    }
+
+    /**
+     * 在同一个连接上以pipeline方式批量执行命令,整批只借用一次连接、只有一次网络往返
+     * 单条命令失败不影响其他命令:失败命令的 Response.get() 抛出其异常,结果列表中对应位置为该异常对象
+     * 开启 compression 时批量命令与单条命令一样压缩写入的值、解压读取的值
+     *
+     * @param commands 向 CacheBatch 提交命令的回调,回调内不能读取 Response 的值
+     * @return 按提交顺序排列的各命令结果
+     */
+    @Override
+    public List<Object> batch(Consumer<CacheBatch> commands) {
+        try (Jedis jedis = resource(CommandClass.WRITE)) {
+            Pipeline pipeline = jedis.pipelined();
+            CompressingCacheBatch compressing = compressor != null ? new CompressingCacheBatch(pipeline, compressor) : null;
+            try {
+                commands.accept(compressing != null ? compressing : new PipelineCacheBatch(pipeline));
+            } catch (RuntimeException e) {
+                // 读掉已发送命令的回复,避免连接归还连接池时残留未读数据
+                pipeline.sync();
+                throw e;
+            }
+            if (compressing != null) {
+                pipeline.sync();
+                return compressing.results();
+            }
+            return pipeline.syncAndReturnAll();
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,112 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.async.AsyncCacheClient;
+import com.nonobank.architecture.cache.async.BlockingCacheClient;
+import com.nonobank.architecture.cache.async.ExecutorAsyncCacheClient;
+import com.nonobank.architecture.cache.breaker.FallbackAsyncCacheClient;
+import com.nonobank.architecture.cache.breaker.FallbackCacheClient;
+import com.nonobank.architecture.cache.hotkey.HotKeyCacheClient;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.metrics.MeteredAsyncCacheClient;
+import com.nonobank.architecture.cache.metrics.MeteredCacheClient;
+import com.nonobank.architecture.cache.nio.MultiplexedAsyncCacheClient;
+import com.nonobank.architecture.cache.retry.RetryingAsyncCacheClient;
+import com.nonobank.architecture.cache.retry.RetryingCacheClient;
+
+/**
+ * 按 {@link CacheConfig#getEngine()} 创建客户端
+ * pool:每个命令从 jodis 连接池借用一个连接同步执行(默认,即 {@link CacheClient});
+ * multiplexed:所有线程共享到每个 proxy 的少量非阻塞连接,并发命令自动合并写出。
+ * 两种引擎对外接口一致,可以通过配置切换。
+ * {@link CacheConfig#getRetry()} 为 true 时再包装一层自动重试;
+ * {@link CacheConfig#getHotKey()} 为 true 时统计热点 key(同步客户端),可选把热点 key 的读结果缓存在本地;
+ * {@link CacheConfig#getMetrics()} 为 true 时在重试之外记录每个命令的延迟(包含重试),与连接池或引擎的计量放在同一个 {@link CacheMetrics};
+ * 开启 circuitBreaker 且 circuitBreakerFallback=miss 时最外层把熔断的读命令按 key 不存在返回。
+ */
+public final class CacheClientFactory {
+
+    public static final String ENGINE_POOL = "pool";
+
+    public static final String ENGINE_MULTIPLEXED = "multiplexed";
+
+    public static final String FALLBACK_FAIL = "fail";
+
+    public static final String FALLBACK_MISS = "miss";
+
+    private CacheClientFactory() {
+    }
+
+    public static AbstractCacheClient create(CacheConfig config) {
+        AbstractCacheClient client;
+        CacheMetrics metrics;
+        if (isMultiplexed(config)) {
+            MultiplexedAsyncCacheClient multiplexed = new MultiplexedAsyncCacheClient(config);
+            metrics = multiplexed.getEngine().getMetrics();
+            client = new BlockingCacheClient(multiplexed, config);
+        } else {
+            CacheClient pooled = new CacheClient(config);
+            metrics = pooled.getMetrics();
+            client = pooled;
+        }
+        if (config.getRetry()) {
+            client = new RetryingCacheClient(client, config);
+        }
+        if (config.getHotKey()) {
+            HotKeyCacheClient hotKeys = new HotKeyCacheClient(client, config);
+            if (metrics != null) {
+                metrics.setHotKeyDetector(hotKeys.getDetector());
+            }
+            client = hotKeys;
+        }
+        if (metrics != null) {
+            client = new MeteredCacheClient(client, metrics);
+        }
+        return isFallbackMiss(config) ? new FallbackCacheClient(client, config) : client;
+    }
+
+    public static AsyncCacheClient createAsync(CacheConfig config) {
+        AsyncCacheClient client;
+        CacheMetrics metrics;
+        if (isMultiplexed(config)) {
+            MultiplexedAsyncCacheClient multiplexed = new MultiplexedAsyncCacheClient(config);
+            metrics = multiplexed.getEngine().getMetrics();
+            client = multiplexed;
+        } else {
+            CacheClient pooled = new CacheClient(config);
+            metrics = pooled.getMetrics();
+            client = new ExecutorAsyncCacheClient(pooled, config);
+        }
+        if (config.getRetry()) {
+            client = new RetryingAsyncCacheClient(client, config);
+        }
+        if (metrics != null) {
+            client = new MeteredAsyncCacheClient(client, metrics);
+        }
+        return isFallbackMiss(config) ? new FallbackAsyncCacheClient(client, config) : client;
+    }
+
+    private static boolean isFallbackMiss(CacheConfig config) {
+        if (!config.getCircuitBreaker()) {
+            return false;
+        }
+        String fallback = config.getCircuitBreakerFallback();
+        if (fallback == null || FALLBACK_FAIL.equalsIgnoreCase(fallback)) {
+            return false;
+        }
+        if (FALLBACK_MISS.equalsIgnoreCase(fallback)) {
+            return true;
+        }
+        throw new IllegalArgumentException("unknown circuit breaker fallback: " + fallback);
+    }
+
+    private static boolean isMultiplexed(CacheConfig config) {
+        String engine = config.getEngine();
+        if (engine == null || ENGINE_POOL.equalsIgnoreCase(engine)) {
+            return false;
+        }
+        if (ENGINE_MULTIPLEXED.equalsIgnoreCase(engine)) {
+            return true;
+        }
+        throw new IllegalArgumentException("unknown cache engine: " + engine);
+    }
+}
@@ -0,0 +1,145 @@
+package com.nonobank.architecture.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link AbstractCacheClient} 的命令
+ * 同名的重载方法是同一个命令,带 loader 的 get 单独为 getLoader,写入目标 key 的 sort 单独为 SORT_STORE(名称仍为 sort)。
+ * 装饰器按命令区分处理或按命令索引保存数据,见 {@link ForwardingCacheClient#invoke}。
+ */
+public enum CacheCommand {
+
+    SET_EXPIRE_WITH_RETRY("setExpireWithRetry", false),
+    SET_WITH_RETRY("setWithRetry", false),
+    DEL_WITH_RETRY("delWithRetry", false),
+    EXPIRE_WITH_RETRY("expireWithRetry", false),
+    GET_WITH_RETRY("getWithRetry", true),
+    SET("set", false),
+    GET("get", true),
+    GET_LOADER("getLoader", true),
+    GET_REFRESH_AHEAD("getRefreshAhead", true),
+    SETNX("setnx", false),
+    GET_SET("getSet", false),
+    EXISTS("exists", true),
+    EXPIRE("expire", false),
+    EXPIRE_AT("expireAt", false),
+    APPEND("append", false),
+    DECR("decr", false),
+    DECR_BY("decrBy", false),
+    INCR("incr", false),
+    INCR_BY("incrBy", false),
+    DEL("del", false),
+    GETRANGE("getrange", true),
+    HGET("hget", true),
+    HDEL("hdel", false),
+    HEXISTS("hexists", true),
+    HGET_ALL("hgetAll", true),
+    HINCR_BY("hincrBy", false),
+    HKEYS("hkeys", true),
+    HLEN("hlen", true),
+    HMGET("hmget", true),
+    HMSET("hmset", false),
+    HSET("hset", false),
+    HSETNX("hsetnx", false),
+    HVALS("hvals", true),
+    LINDEX("lindex", true),
+    LINSERT("linsert", false),
+    MGET("mget", true),
+    MSET("mset", false),
+    LLEN("llen", true),
+    LPOP("lpop", false),
+    LPUSH("lpush", false),
+    LPUSHX("lpushx", false),
+    LRANGE("lrange", true),
+    LREM("lrem", false),
+    LTRIM("ltrim", false),
+    LSET("lset", false),
+    RPOP("rpop", false),
+    RPUSH("rpush", false),
+    RPUSHX("rpushx", false),
+    SADD("sadd", false),
+    SCARD("scard", true),
+    SMEMBERS("smembers", true),
+    SET_EXPIRE("setExpire", false),
+    SPOP("spop", false),
+    SETRANGE("setrange", false),
+    SISMEMBER("sismember", true),
+    STRLEN("strlen", true),
+    TTL("ttl", true),
+    SORT("sort", true),
+    SORT_STORE("sort", false),
+    SRANDMEMBER("srandmember", true),
+    SREM("srem", false),
+    SUBSTR("substr", true),
+    TYPE("type", true),
+    ZADD("zadd", false),
+    ZCARD("zcard", true),
+    ZCOUNT("zcount", true),
+    ZINCRBY("zincrby", false),
+    ZRANGE("zrange", true),
+    ZRANGE_BY_SCORE("zrangeByScore", true),
+    ZRANGE_BY_SCORE_WITH_SCORES("zrangeByScoreWithScores", true),
+    ZRANGE_WITH_SCORES("zrangeWithScores", true),
+    ZRANK("zrank", true),
+    ZREM("zrem", false),
+    ZREMRANGE_BY_RANK("zremrangeByRank", false),
+    ZREMRANGE_BY_SCORE("zremrangeByScore", false),
+    ZREVRANGE("zrevrange", true),
+    ZREVRANGE_BY_SCORE("zrevrangeByScore", true),
+    ZREVRANGE_BY_SCORE_WITH_SCORES("zrevrangeByScoreWithScores", true),
+    ZREVRANGE_WITH_SCORES("zrevrangeWithScores", true),
+    ZREVRANK("zrevrank", true),
+    ZSCORE("zscore", true),
+    GET_BYTES("getBytes", true),
+    SET_BYTES("setBytes", false),
+    SET_EXPIRE_BYTES("setExpireBytes", false),
+    MGET_BYTES("mgetBytes", true),
+    HGET_BYTES("hgetBytes", true),
+    HSET_BYTES("hsetBytes", false),
+    HMGET_BYTES("hmgetBytes", true),
+    HMSET_BYTES("hmsetBytes", false),
+    HGET_ALL_BYTES("hgetAllBytes", true),
+    RPUSH_BYTES("rpushBytes", false),
+    LRANGE_BYTES("lrangeBytes", true),
+    BATCH("batch", false);
+
+    private static final Map<String, CacheCommand> BY_NAME = new HashMap<>();
+
+    static {
+        for (CacheCommand command : values()) {
+            BY_NAME.putIfAbsent(command.name, command);
+        }
+    }
+
+    private final String name;
+
+    private final boolean read;
+
+    CacheCommand(String name, boolean read) {
+        this.name = name;
+        this.read = read;
+    }
+
+    /**
+     * @return 命令名,即 AbstractCacheClient 的方法名(getLoader 除外)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 只读命令,不修改任何 key
+     */
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * @param name AbstractCacheClient 的方法名
+     * @return 对应的命令,不存在时为 null;sort 对应只读的 SORT
+     */
+    public static CacheCommand of(String name) {
+        return BY_NAME.get(name);
+    }
+}
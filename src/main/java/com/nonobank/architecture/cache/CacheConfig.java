@@ -34,6 +34,174 @@ public final class CacheConfig {
 	
 	private static final boolean DEFAULT_DEBUG=false;
 	
+	private static final boolean DEFAULT_AUTO_BATCH=false;
+	
+	private static final Integer DEFAULT_AUTO_BATCH_WINDOW_MICROS=200;
+	
+	private static final Integer DEFAULT_AUTO_BATCH_MAX_KEYS=128;
+	
+	private static final boolean DEFAULT_LOADER_LEASE=false;
+	
+	private static final Integer DEFAULT_LOADER_LEASE_SECONDS=5;
+	
+	private static final Integer DEFAULT_LOADER_LEASE_WAIT_MILLIS=200;
+	
+	private static final double DEFAULT_REFRESH_AHEAD_BETA=1.0;
+	
+	private static final Integer DEFAULT_REFRESH_AHEAD_THREADS=4;
+	
+	private static final Integer DEFAULT_ASYNC_THREADS=16;
+	
+	private static final Integer DEFAULT_ASYNC_QUEUE_SIZE=1024;
+	
+	private static final long DEFAULT_ASYNC_TIMEOUT_MILLIS=0;
+	
+	private static final String DEFAULT_ENGINE="pool";
+	
+	private static final Integer DEFAULT_MULTIPLEX_CONNECTIONS_PER_PROXY=2;
+	
+	private static final Integer DEFAULT_MULTIPLEX_EVENT_LOOPS=0;
+	
+	private static final Integer DEFAULT_MULTIPLEX_MAX_PENDING=10000;
+	
+	private static final boolean DEFAULT_COMPRESSION=false;
+	
+	private static final int DEFAULT_COMPRESSION_THRESHOLD=16 * 1024;
+	
+	private static final String DEFAULT_COMPRESSION_CODEC="lz4";
+	
+	private static final int DEFAULT_COMPRESSION_LEVEL=3;
+	
+	private static final int DEFAULT_COMPRESSION_DICTIONARY_THRESHOLD=256;
+	
+	private static final boolean DEFAULT_RETRY=false;
+	
+	private static final int DEFAULT_RETRY_MAX_ATTEMPTS=3;
+	
+	private static final long DEFAULT_RETRY_BASE_DELAY_MILLIS=20;
+	
+	private static final long DEFAULT_RETRY_MAX_DELAY_MILLIS=1000;
+	
+	private static final double DEFAULT_RETRY_BUDGET_RATIO=0.1;
+	
+	private static final int DEFAULT_RETRY_BUDGET_MIN_PER_SECOND=10;
+	
+	private static final boolean DEFAULT_CIRCUIT_BREAKER=false;
+	
+	private static final long DEFAULT_CIRCUIT_BREAKER_WINDOW_MILLIS=10000;
+	
+	private static final int DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS=20;
+	
+	private static final double DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD=0.5;
+	
+	private static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_MILLIS=500;
+	
+	private static final double DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD=0.8;
+	
+	private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS=5000;
+	
+	private static final int DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_PROBES=3;
+	
+	private static final String DEFAULT_CIRCUIT_BREAKER_FALLBACK="fail";
+	
+	private static final String DEFAULT_PROXY_SELECTOR="roundRobin";
+	
+	private static final long DEFAULT_PROXY_LATENCY_DECAY_MILLIS=10000;
+	
+	private static final int DEFAULT_PROXY_EJECTION_CONSECUTIVE_FAILURES=5;
+	
+	private static final double DEFAULT_PROXY_EJECTION_LATENCY_FACTOR=3.0;
+	
+	private static final long DEFAULT_PROXY_EJECTION_MIN_LATENCY_MILLIS=5;
+	
+	private static final long DEFAULT_PROXY_EJECTION_MILLIS=30000;
+	
+	private static final int DEFAULT_PROXY_MAX_EJECTION_PERCENT=50;
+	
+	private static final long DEFAULT_PROXY_SLOW_START_MILLIS=30000;
+	
+	private static final boolean DEFAULT_HEDGE=false;
+	
+	private static final double DEFAULT_HEDGE_PERCENTILE=0.95;
+	
+	private static final long DEFAULT_HEDGE_MIN_DELAY_MICROS=500;
+	
+	private static final long DEFAULT_HEDGE_MAX_DELAY_MICROS=50000;
+	
+	private static final double DEFAULT_HEDGE_BUDGET_RATIO=0.05;
+	
+	private static final int DEFAULT_HEDGE_BUDGET_MIN_PER_SECOND=10;
+	
+	private static final boolean DEFAULT_DEDICATED_POOL=false;
+	
+	private static final int DEFAULT_BULKHEAD_MAX_CONCURRENT=0;
+	
+	private static final long DEFAULT_BULKHEAD_MAX_WAIT_MILLIS=0;
+	
+	private static final boolean DEFAULT_WARMUP=false;
+	
+	private static final int DEFAULT_WARMUP_CONNECTIONS_PER_PROXY=8;
+	
+	private static final long DEFAULT_WARMUP_TIMEOUT_MILLIS=10000;
+	
+	private static final int DEFAULT_WARMUP_PARALLELISM=16;
+	
+	private static final String DEFAULT_POOL_TYPE="commons";
+	
+	private static final boolean DEFAULT_METRICS=false;
+	
+	private static final int DEFAULT_METRICS_WINDOW_SECONDS=60;
+	
+	private static final boolean DEFAULT_METRICS_JMX=true;
+	
+	private static final boolean DEFAULT_HOT_KEY=false;
+	
+	private static final int DEFAULT_HOT_KEY_TOP_N=32;
+	
+	private static final int DEFAULT_HOT_KEY_THRESHOLD_PER_SECOND=1000;
+	
+	private static final int DEFAULT_HOT_KEY_WINDOW_MILLIS=1000;
+	
+	private static final int DEFAULT_HOT_KEY_SKETCH_WIDTH=8192;
+	
+	private static final int DEFAULT_HOT_KEY_SKETCH_DEPTH=4;
+	
+	private static final boolean DEFAULT_HOT_KEY_LOCAL_CACHE=false;
+	
+	private static final int DEFAULT_HOT_KEY_LOCAL_TTL_MILLIS=1000;
+	
+	private static final String DEFAULT_PROXY_ADDRESSES=null;
+	
+	private static final int DEFAULT_SCAN_COUNT=1000;
+	
+	private static final int DEFAULT_SCAN_PARALLELISM=8;
+	
+	private static final boolean DEFAULT_SCAN_PROBE_SIZE=true;
+	
+	private static final int DEFAULT_SCAN_TIMEOUT_MILLIS=10000;
+	
+	private static final long DEFAULT_SCAN_CHECKPOINT_INTERVAL_MILLIS=5000;
+	
+	private static final int DEFAULT_SCAN_OUTPUT_BUFFER_SIZE=64 * 1024;
+	
+	private static final double DEFAULT_SCAN_SAMPLE_RATE=1.0;
+	
+	private static final int DEFAULT_BIG_KEY_TOP_N=20;
+	
+	private static final int DEFAULT_BIG_KEY_PREFIX_TOP_N=50;
+	
+	private static final int DEFAULT_BIG_KEY_ELEMENT_BYTES=64;
+	
+	private static final String DEFAULT_BACKFILL_RULES=null;
+	
+	private static final int DEFAULT_BACKFILL_KEYS_PER_SECOND=20000;
+	
+	private static final int DEFAULT_BACKFILL_BATCH_SIZE=500;
+	
+	private static final long DEFAULT_BACKFILL_SLOW_BATCH_MILLIS=50;
+	
+	private static final boolean DEFAULT_BACKFILL_DRY_RUN=true;
+	
 	private int maxTotal=DEFAULT_MAX_TOTAL;
 	
 	private int maxIdle=DEFAULT_MAX_IDLE; 
@@ -52,6 +220,258 @@ public final class CacheConfig {
 	
 	private String envrionment=DEFAULT_ENVIRONMENT;
 	
+	/**是否将并发的 get/hget 合并为 MGET/HMGET 批量请求*/
+	private boolean autoBatch=DEFAULT_AUTO_BATCH;
+	
+	/**合并窗口(微秒),窗口内到达的读请求合并为一次往返*/
+	private int autoBatchWindowMicros=DEFAULT_AUTO_BATCH_WINDOW_MICROS;
+	
+	/**单批最多合并的请求数,达到后立即发送*/
+	private int autoBatchMaxKeys=DEFAULT_AUTO_BATCH_MAX_KEYS;
+	
+	/**缓存未命中时是否先在 codis 上抢占加载租约(setnx+expire),使整个集群同一时刻只有一个实例执行加载*/
+	private boolean loaderLease=DEFAULT_LOADER_LEASE;
+	
+	/**加载租约的有效期(秒),应大于一次加载的耗时*/
+	private int loaderLeaseSeconds=DEFAULT_LOADER_LEASE_SECONDS;
+	
+	/**未抢到租约时等待其他实例写入结果的最长时间(毫秒),超时后自行加载*/
+	private int loaderLeaseWaitMillis=DEFAULT_LOADER_LEASE_WAIT_MILLIS;
+	
+	/**getRefreshAhead 提前刷新的激进程度,大于1更早刷新,小于1更接近到期才刷新*/
+	private double refreshAheadBeta=DEFAULT_REFRESH_AHEAD_BETA;
+	
+	/**执行后台提前刷新的最大线程数,队列满时放弃本次刷新*/
+	private int refreshAheadThreads=DEFAULT_REFRESH_AHEAD_THREADS;
+	
+	/**异步客户端执行命令的线程数*/
+	private int asyncThreads=DEFAULT_ASYNC_THREADS;
+	
+	/**异步客户端等待执行的命令队列长度,队列满时新命令直接以 RejectedExecutionException 失败*/
+	private int asyncQueueSize=DEFAULT_ASYNC_QUEUE_SIZE;
+	
+	/**异步命令默认超时(毫秒),0表示不限制*/
+	private long asyncTimeoutMillis=DEFAULT_ASYNC_TIMEOUT_MILLIS;
+	
+	/**命令执行引擎:pool 为 jodis 连接池,multiplexed 为非阻塞多路复用连接,见 CacheClientFactory*/
+	private String engine=DEFAULT_ENGINE;
+	
+	/**多路复用引擎到每个 proxy 的连接数*/
+	private int multiplexConnectionsPerProxy=DEFAULT_MULTIPLEX_CONNECTIONS_PER_PROXY;
+	
+	/**多路复用引擎的 IO 线程数,0表示取CPU核数与4的较小值*/
+	private int multiplexEventLoops=DEFAULT_MULTIPLEX_EVENT_LOOPS;
+	
+	/**多路复用引擎每个连接上未完成命令数的上限,超出时新命令直接失败*/
+	private int multiplexMaxPending=DEFAULT_MULTIPLEX_MAX_PENDING;
+	
+	/**是否开启值压缩:写入时超过阈值的值压缩后保存,读取时识别并解压;读写同一批 key 的所有实例都要开启。只作用于 CacheClient 的字符串和 hash 值命令(包括 batch 中的这些命令),列表、集合命令不压缩;strlen、getrange、substr 作用于解压后的值,append、setrange 不支持;开启后 get、hget 不经过 autoBatch 合并;multiplexed 引擎不支持压缩,同时开启时创建客户端失败*/
+	private boolean compression=DEFAULT_COMPRESSION;
+	
+	/**值(UTF-8 字节数)达到该大小才压缩,只读不写压缩值的实例可以设为 Integer.MAX_VALUE*/
+	private int compressionThreshold=DEFAULT_COMPRESSION_THRESHOLD;
+	
+	/**压缩算法:lz4 速度优先,zstd 压缩率优先*/
+	private String compressionCodec=DEFAULT_COMPRESSION_CODEC;
+	
+	/**zstd 压缩级别(1-22),越大压缩率越高、CPU 开销越大*/
+	private int compressionLevel=DEFAULT_COMPRESSION_LEVEL;
+	
+	/**key 前缀注册了字典时使用的压缩阈值,字典对小而相似的值效果明显*/
+	private int compressionDictionaryThreshold=DEFAULT_COMPRESSION_DICTIONARY_THRESHOLD;
+	
+	/**CacheClientFactory 创建的客户端是否对所有命令按重试策略自动重试,非幂等命令只在确定未发出时重试*/
+	private boolean retry=DEFAULT_RETRY;
+	
+	/**包括第一次在内的最多执行次数*/
+	private int retryMaxAttempts=DEFAULT_RETRY_MAX_ATTEMPTS;
+	
+	/**第一次重试前的退避时间(毫秒),之后每次翻倍并加随机抖动*/
+	private long retryBaseDelayMillis=DEFAULT_RETRY_BASE_DELAY_MILLIS;
+	
+	/**重试退避时间的上限(毫秒)*/
+	private long retryMaxDelayMillis=DEFAULT_RETRY_MAX_DELAY_MILLIS;
+	
+	/**重试次数占请求数比例的上限,超出后失败直接返回不再重试*/
+	private double retryBudgetRatio=DEFAULT_RETRY_BUDGET_RATIO;
+	
+	/**不受比例限制的每秒重试次数,保证低流量时也能重试*/
+	private int retryBudgetMinPerSecond=DEFAULT_RETRY_BUDGET_MIN_PER_SECOND;
+	
+	/**是否按 proxy 和命令类别(读/写)熔断:错误率或慢调用比例超过阈值时不再向该 proxy 发送此类命令,直接失败或返回 fallback*/
+	private boolean circuitBreaker=DEFAULT_CIRCUIT_BREAKER;
+	
+	/**统计错误率和慢调用比例的滑动窗口长度(毫秒)*/
+	private long circuitBreakerWindowMillis=DEFAULT_CIRCUIT_BREAKER_WINDOW_MILLIS;
+	
+	/**窗口内调用数达到该值才计算比例,避免低流量时偶发错误导致熔断*/
+	private int circuitBreakerMinimumCalls=DEFAULT_CIRCUIT_BREAKER_MINIMUM_CALLS;
+	
+	/**连接类错误(连接失败、超时、取不到连接)比例的熔断阈值*/
+	private double circuitBreakerFailureRateThreshold=DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD;
+	
+	/**命令耗时达到该值(毫秒)计为慢调用*/
+	private long circuitBreakerSlowCallMillis=DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_MILLIS;
+	
+	/**慢调用比例的熔断阈值*/
+	private double circuitBreakerSlowCallRateThreshold=DEFAULT_CIRCUIT_BREAKER_SLOW_CALL_RATE_THRESHOLD;
+	
+	/**熔断后多久(毫秒)进入半开状态放行探测请求*/
+	private long circuitBreakerOpenMillis=DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS;
+	
+	/**半开状态放行的探测请求数,全部成功后恢复,任一失败或慢调用重新熔断*/
+	private int circuitBreakerHalfOpenProbes=DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_PROBES;
+	
+	/**熔断时的处理:fail 抛出 CircuitBreakerOpenException;miss 读命令按 key 不存在返回(cache-aside 读取直接调用 loader),写命令仍然失败*/
+	private String circuitBreakerFallback=DEFAULT_CIRCUIT_BREAKER_FALLBACK;
+	
+	/**连接池选择 proxy 的策略:roundRobin 轮询(与 jodis 一致);leastLoaded 随机取两个 proxy,选延迟 EWMA 与在途命令数乘积较小的一个,并剔除异常 proxy;也可以是 ProxySelector 实现类的全名*/
+	private String proxySelector=DEFAULT_PROXY_SELECTOR;
+	
+	/**proxy 延迟 EWMA 的衰减时间常数(毫秒),越小对延迟变化越敏感*/
+	private long proxyLatencyDecayMillis=DEFAULT_PROXY_LATENCY_DECAY_MILLIS;
+	
+	/**连续失败达到该次数的 proxy 被临时剔除*/
+	private int proxyEjectionConsecutiveFailures=DEFAULT_PROXY_EJECTION_CONSECUTIVE_FAILURES;
+	
+	/**延迟 EWMA 超过所有 proxy 中位数该倍数的 proxy 被临时剔除*/
+	private double proxyEjectionLatencyFactor=DEFAULT_PROXY_EJECTION_LATENCY_FACTOR;
+	
+	/**延迟 EWMA 低于该值(毫秒)时不按延迟剔除,避免亚毫秒级的正常波动触发剔除*/
+	private long proxyEjectionMinLatencyMillis=DEFAULT_PROXY_EJECTION_MIN_LATENCY_MILLIS;
+	
+	/**剔除时长(毫秒)*/
+	private long proxyEjectionMillis=DEFAULT_PROXY_EJECTION_MILLIS;
+	
+	/**同时被剔除的 proxy 最多占比(百分比),至少保留一个*/
+	private int proxyMaxEjectionPercent=DEFAULT_PROXY_MAX_EJECTION_PERCENT;
+	
+	/**剔除结束或新上线的 proxy 在该时长(毫秒)内逐步恢复到完整权重*/
+	private long proxySlowStartMillis=DEFAULT_PROXY_SLOW_START_MILLIS;
+	
+	/**多路复用引擎是否对只读命令发送对冲请求:第一个 proxy 超过对冲延迟仍未回复时,把同一命令发给另一个 proxy,先到的回复生效*/
+	private boolean hedge=DEFAULT_HEDGE;
+	
+	/**对冲延迟取只读命令延迟分布的该分位数*/
+	private double hedgePercentile=DEFAULT_HEDGE_PERCENTILE;
+	
+	/**对冲延迟的下限(微秒)*/
+	private long hedgeMinDelayMicros=DEFAULT_HEDGE_MIN_DELAY_MICROS;
+	
+	/**对冲延迟的上限(微秒),样本不足时也使用该值*/
+	private long hedgeMaxDelayMicros=DEFAULT_HEDGE_MAX_DELAY_MICROS;
+	
+	/**对冲请求占只读命令数比例的上限*/
+	private double hedgeBudgetRatio=DEFAULT_HEDGE_BUDGET_RATIO;
+	
+	/**不受比例限制的每秒对冲次数*/
+	private int hedgeBudgetMinPerSecond=DEFAULT_HEDGE_BUDGET_MIN_PER_SECOND;
+	
+	/**是否为该客户端单独创建连接池,默认同一集群(zkAddressAndPort、zkProxyDir)同一环境(envrionment)的客户端共享一个连接池*/
+	private boolean dedicatedPool=DEFAULT_DEDICATED_POOL;
+	
+	/**连接池同时借出的连接数上限(隔离舱),0表示不限制*/
+	private int bulkheadMaxConcurrent=DEFAULT_BULKHEAD_MAX_CONCURRENT;
+	
+	/**达到 bulkheadMaxConcurrent 时等待的时长(毫秒),超时后快速失败而不是排队等待连接*/
+	private long bulkheadMaxWaitMillis=DEFAULT_BULKHEAD_MAX_WAIT_MILLIS;
+	
+	/**是否预热连接池:每个 proxy 加入时先并行建立 warmupConnectionsPerProxy 个连接并 PING 校验,完成后才分配命令;创建客户端时等待首批 proxy 预热完成*/
+	private boolean warmup=DEFAULT_WARMUP;
+	
+	/**每个 proxy 预热的连接数,不超过 maxIdle,同时作为该 proxy 连接池的 minIdle*/
+	private int warmupConnectionsPerProxy=DEFAULT_WARMUP_CONNECTIONS_PER_PROXY;
+	
+	/**一个 proxy 预热的最长时间(毫秒),也是创建客户端时等待就绪的最长时间*/
+	private long warmupTimeoutMillis=DEFAULT_WARMUP_TIMEOUT_MILLIS;
+	
+	/**同时建立连接的线程数*/
+	private int warmupParallelism=DEFAULT_WARMUP_PARALLELISM;
+	
+	/**每个 proxy 的连接池实现:commons(commons-pool2 GenericObjectPool)或 lockFree(借用和归还不加锁,线程较多时竞争更小)*/
+	private String poolType=DEFAULT_POOL_TYPE;
+	
+	/**是否记录每个命令、每个 proxy 的延迟分布、调用数、失败数和字节数,以及借用连接的等待时间*/
+	private boolean metrics=DEFAULT_METRICS;
+	
+	/**延迟分位数统计的时间窗口(秒),每个窗口结束时旧样本权重减半*/
+	private int metricsWindowSeconds=DEFAULT_METRICS_WINDOW_SECONDS;
+	
+	/**开启 metrics 时是否注册 JMX MBean(com.nonobank.architecture.cache:type=CacheMetrics)*/
+	private boolean metricsJmx=DEFAULT_METRICS_JMX;
+	
+	/**是否用 count-min sketch 统计滑动窗口内访问最多的 key(热点 key)*/
+	private boolean hotKey=DEFAULT_HOT_KEY;
+	
+	/**最多保留的热点 key 数量,也是本地缓存的 key 数量上限*/
+	private int hotKeyTopN=DEFAULT_HOT_KEY_TOP_N;
+	
+	/**每秒访问次数达到该值的 key 才视为热点*/
+	private int hotKeyThresholdPerSecond=DEFAULT_HOT_KEY_THRESHOLD_PER_SECOND;
+	
+	/**热点统计的滑动窗口(毫秒)*/
+	private int hotKeyWindowMillis=DEFAULT_HOT_KEY_WINDOW_MILLIS;
+	
+	/**count-min sketch 每行的计数器数量(向上取 2 的幂),越大误差越小*/
+	private int hotKeySketchWidth=DEFAULT_HOT_KEY_SKETCH_WIDTH;
+	
+	/**count-min sketch 的行数(哈希函数个数)*/
+	private int hotKeySketchDepth=DEFAULT_HOT_KEY_SKETCH_DEPTH;
+	
+	/**是否把热点 key 的读命令结果缓存在本地*/
+	private boolean hotKeyLocalCache=DEFAULT_HOT_KEY_LOCAL_CACHE;
+	
+	/**热点 key 本地缓存的存活时间(毫秒),也是其他实例写入后本地数据最长的不一致时间*/
+	private int hotKeyLocalTtlMillis=DEFAULT_HOT_KEY_LOCAL_TTL_MILLIS;
+	
+	/**直接指定 proxy(或 redis)地址,逗号分隔的 host:port,设置后不再从 zookeeper 发现 proxy;用于本地开发和基准测试*/
+	private String proxyAddresses=DEFAULT_PROXY_ADDRESSES;
+	
+	/**扫描工具每次 SCAN 的 COUNT*/
+	private int scanCount=DEFAULT_SCAN_COUNT;
+	
+	/**扫描工具同时扫描的节点数*/
+	private int scanParallelism=DEFAULT_SCAN_PARALLELISM;
+	
+	/**扫描时是否查询每个 key 的长度(strlen/hlen/llen/scard/zcard)*/
+	private boolean scanProbeSize=DEFAULT_SCAN_PROBE_SIZE;
+	
+	/**扫描连接的连接和读超时*/
+	private int scanTimeoutMillis=DEFAULT_SCAN_TIMEOUT_MILLIS;
+	
+	/**扫描游标写入检查点文件的间隔*/
+	private long scanCheckpointIntervalMillis=DEFAULT_SCAN_CHECKPOINT_INTERVAL_MILLIS;
+	
+	/**扫描结果文件的写缓冲字节数*/
+	private int scanOutputBufferSize=DEFAULT_SCAN_OUTPUT_BUFFER_SIZE;
+	
+	/**扫描工具对每页 key 的抽样比例,小于 1 时只探测抽中的 key*/
+	private double scanSampleRate=DEFAULT_SCAN_SAMPLE_RATE;
+	
+	/**大 key 分析输出的最大 key 个数*/
+	private int bigKeyTopN=DEFAULT_BIG_KEY_TOP_N;
+	
+	/**大 key 分析输出的二级前缀个数*/
+	private int bigKeyPrefixTopN=DEFAULT_BIG_KEY_PREFIX_TOP_N;
+	
+	/**估算集合内存时每个元素的平均字节数*/
+	private int bigKeyElementBytes=DEFAULT_BIG_KEY_ELEMENT_BYTES;
+	
+	/**TTL 补齐规则,逗号分隔的 prefix=秒数[~抖动秒数],按最长前缀匹配,没有匹配规则的 key 不处理*/
+	private String backfillRules=DEFAULT_BACKFILL_RULES;
+	
+	/**TTL 补齐每秒处理的最大 key 数*/
+	private int backfillKeysPerSecond=DEFAULT_BACKFILL_KEYS_PER_SECOND;
+	
+	/**TTL 补齐每个 pipeline 的 key 数*/
+	private int backfillBatchSize=DEFAULT_BACKFILL_BATCH_SIZE;
+	
+	/**一批 pipeline 超过该耗时时速率减半,之后逐步恢复*/
+	private long backfillSlowBatchMillis=DEFAULT_BACKFILL_SLOW_BATCH_MILLIS;
+	
+	/**只统计将要设置过期时间的 key,不执行 expire*/
+	private boolean backfillDryRun=DEFAULT_BACKFILL_DRY_RUN;
+	
 	private static Logger log=LoggerFactory.getLogger(CacheConfig.class);
 	
 	public CacheConfig(){
@@ -182,5 +602,677 @@ public final class CacheConfig {
 	public void setEnvrionment(String envrionment) {
 		this.envrionment = envrionment;
 	}
+
+	public boolean getAutoBatch() {
+		return autoBatch;
+	}
+
+	public void setAutoBatch(boolean autoBatch) {
+		this.autoBatch = autoBatch;
+	}
+
+	public int getAutoBatchWindowMicros() {
+		return autoBatchWindowMicros;
+	}
+
+	public void setAutoBatchWindowMicros(int autoBatchWindowMicros) {
+		this.autoBatchWindowMicros = autoBatchWindowMicros;
+	}
+
+	public int getAutoBatchMaxKeys() {
+		return autoBatchMaxKeys;
+	}
+
+	public void setAutoBatchMaxKeys(int autoBatchMaxKeys) {
+		this.autoBatchMaxKeys = autoBatchMaxKeys;
+	}
+
+	public boolean getLoaderLease() {
+		return loaderLease;
+	}
+
+	public void setLoaderLease(boolean loaderLease) {
+		this.loaderLease = loaderLease;
+	}
+
+	public int getLoaderLeaseSeconds() {
+		return loaderLeaseSeconds;
+	}
+
+	public void setLoaderLeaseSeconds(int loaderLeaseSeconds) {
+		this.loaderLeaseSeconds = loaderLeaseSeconds;
+	}
+
+	public int getLoaderLeaseWaitMillis() {
+		return loaderLeaseWaitMillis;
+	}
+
+	public void setLoaderLeaseWaitMillis(int loaderLeaseWaitMillis) {
+		this.loaderLeaseWaitMillis = loaderLeaseWaitMillis;
+	}
+
+	public double getRefreshAheadBeta() {
+		return refreshAheadBeta;
+	}
+
+	public void setRefreshAheadBeta(double refreshAheadBeta) {
+		this.refreshAheadBeta = refreshAheadBeta;
+	}
+
+	public int getRefreshAheadThreads() {
+		return refreshAheadThreads;
+	}
+
+	public void setRefreshAheadThreads(int refreshAheadThreads) {
+		this.refreshAheadThreads = refreshAheadThreads;
+	}
+
+	public int getAsyncThreads() {
+		return asyncThreads;
+	}
+
+	public void setAsyncThreads(int asyncThreads) {
+		this.asyncThreads = asyncThreads;
+	}
+
+	public int getAsyncQueueSize() {
+		return asyncQueueSize;
+	}
+
+	public void setAsyncQueueSize(int asyncQueueSize) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	public long getAsyncTimeoutMillis() {
+		return asyncTimeoutMillis;
+	}
+
+	public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+		this.asyncTimeoutMillis = asyncTimeoutMillis;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+
+	public void setEngine(String engine) {
+		this.engine = engine;
+	}
+
+	public int getMultiplexConnectionsPerProxy() {
+		return multiplexConnectionsPerProxy;
+	}
+
+	public void setMultiplexConnectionsPerProxy(int multiplexConnectionsPerProxy) {
+		this.multiplexConnectionsPerProxy = multiplexConnectionsPerProxy;
+	}
+
+	public int getMultiplexEventLoops() {
+		return multiplexEventLoops;
+	}
+
+	public void setMultiplexEventLoops(int multiplexEventLoops) {
+		this.multiplexEventLoops = multiplexEventLoops;
+	}
+
+	public int getMultiplexMaxPending() {
+		return multiplexMaxPending;
+	}
+
+	public void setMultiplexMaxPending(int multiplexMaxPending) {
+		this.multiplexMaxPending = multiplexMaxPending;
+	}
+
+	public boolean getCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public String getCompressionCodec() {
+		return compressionCodec;
+	}
+
+	public void setCompressionCodec(String compressionCodec) {
+		this.compressionCodec = compressionCodec;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getCompressionDictionaryThreshold() {
+		return compressionDictionaryThreshold;
+	}
+
+	public void setCompressionDictionaryThreshold(int compressionDictionaryThreshold) {
+		this.compressionDictionaryThreshold = compressionDictionaryThreshold;
+	}
+
+	public boolean getRetry() {
+		return retry;
+	}
+
+	public void setRetry(boolean retry) {
+		this.retry = retry;
+	}
+
+	public int getRetryMaxAttempts() {
+		return retryMaxAttempts;
+	}
+
+	public void setRetryMaxAttempts(int retryMaxAttempts) {
+		this.retryMaxAttempts = retryMaxAttempts;
+	}
+
+	public long getRetryBaseDelayMillis() {
+		return retryBaseDelayMillis;
+	}
+
+	public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+		this.retryBaseDelayMillis = retryBaseDelayMillis;
+	}
+
+	public long getRetryMaxDelayMillis() {
+		return retryMaxDelayMillis;
+	}
+
+	public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+		this.retryMaxDelayMillis = retryMaxDelayMillis;
+	}
+
+	public double getRetryBudgetRatio() {
+		return retryBudgetRatio;
+	}
+
+	public void setRetryBudgetRatio(double retryBudgetRatio) {
+		this.retryBudgetRatio = retryBudgetRatio;
+	}
+
+	public int getRetryBudgetMinPerSecond() {
+		return retryBudgetMinPerSecond;
+	}
+
+	public void setRetryBudgetMinPerSecond(int retryBudgetMinPerSecond) {
+		this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+	}
+
+	public boolean getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(boolean circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	public long getCircuitBreakerWindowMillis() {
+		return circuitBreakerWindowMillis;
+	}
+
+	public void setCircuitBreakerWindowMillis(long circuitBreakerWindowMillis) {
+		this.circuitBreakerWindowMillis = circuitBreakerWindowMillis;
+	}
+
+	public int getCircuitBreakerMinimumCalls() {
+		return circuitBreakerMinimumCalls;
+	}
+
+	public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+		this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+	}
+
+	public double getCircuitBreakerFailureRateThreshold() {
+		return circuitBreakerFailureRateThreshold;
+	}
+
+	public void setCircuitBreakerFailureRateThreshold(double circuitBreakerFailureRateThreshold) {
+		this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+	}
+
+	public long getCircuitBreakerSlowCallMillis() {
+		return circuitBreakerSlowCallMillis;
+	}
+
+	public void setCircuitBreakerSlowCallMillis(long circuitBreakerSlowCallMillis) {
+		this.circuitBreakerSlowCallMillis = circuitBreakerSlowCallMillis;
+	}
+
+	public double getCircuitBreakerSlowCallRateThreshold() {
+		return circuitBreakerSlowCallRateThreshold;
+	}
+
+	public void setCircuitBreakerSlowCallRateThreshold(double circuitBreakerSlowCallRateThreshold) {
+		this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+	}
+
+	public long getCircuitBreakerOpenMillis() {
+		return circuitBreakerOpenMillis;
+	}
+
+	public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+		this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+	}
+
+	public int getCircuitBreakerHalfOpenProbes() {
+		return circuitBreakerHalfOpenProbes;
+	}
+
+	public void setCircuitBreakerHalfOpenProbes(int circuitBreakerHalfOpenProbes) {
+		this.circuitBreakerHalfOpenProbes = circuitBreakerHalfOpenProbes;
+	}
+
+	public String getCircuitBreakerFallback() {
+		return circuitBreakerFallback;
+	}
+
+	public void setCircuitBreakerFallback(String circuitBreakerFallback) {
+		this.circuitBreakerFallback = circuitBreakerFallback;
+	}
+
+	public String getProxySelector() {
+		return proxySelector;
+	}
+
+	public void setProxySelector(String proxySelector) {
+		this.proxySelector = proxySelector;
+	}
+
+	public long getProxyLatencyDecayMillis() {
+		return proxyLatencyDecayMillis;
+	}
+
+	public void setProxyLatencyDecayMillis(long proxyLatencyDecayMillis) {
+		this.proxyLatencyDecayMillis = proxyLatencyDecayMillis;
+	}
+
+	public int getProxyEjectionConsecutiveFailures() {
+		return proxyEjectionConsecutiveFailures;
+	}
+
+	public void setProxyEjectionConsecutiveFailures(int proxyEjectionConsecutiveFailures) {
+		this.proxyEjectionConsecutiveFailures = proxyEjectionConsecutiveFailures;
+	}
+
+	public double getProxyEjectionLatencyFactor() {
+		return proxyEjectionLatencyFactor;
+	}
+
+	public void setProxyEjectionLatencyFactor(double proxyEjectionLatencyFactor) {
+		this.proxyEjectionLatencyFactor = proxyEjectionLatencyFactor;
+	}
+
+	public long getProxyEjectionMinLatencyMillis() {
+		return proxyEjectionMinLatencyMillis;
+	}
+
+	public void setProxyEjectionMinLatencyMillis(long proxyEjectionMinLatencyMillis) {
+		this.proxyEjectionMinLatencyMillis = proxyEjectionMinLatencyMillis;
+	}
+
+	public long getProxyEjectionMillis() {
+		return proxyEjectionMillis;
+	}
+
+	public void setProxyEjectionMillis(long proxyEjectionMillis) {
+		this.proxyEjectionMillis = proxyEjectionMillis;
+	}
+
+	public int getProxyMaxEjectionPercent() {
+		return proxyMaxEjectionPercent;
+	}
+
+	public void setProxyMaxEjectionPercent(int proxyMaxEjectionPercent) {
+		this.proxyMaxEjectionPercent = proxyMaxEjectionPercent;
+	}
+
+	public long getProxySlowStartMillis() {
+		return proxySlowStartMillis;
+	}
+
+	public void setProxySlowStartMillis(long proxySlowStartMillis) {
+		this.proxySlowStartMillis = proxySlowStartMillis;
+	}
+
+	public boolean getHedge() {
+		return hedge;
+	}
+
+	public void setHedge(boolean hedge) {
+		this.hedge = hedge;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	public long getHedgeMinDelayMicros() {
+		return hedgeMinDelayMicros;
+	}
+
+	public void setHedgeMinDelayMicros(long hedgeMinDelayMicros) {
+		this.hedgeMinDelayMicros = hedgeMinDelayMicros;
+	}
+
+	public long getHedgeMaxDelayMicros() {
+		return hedgeMaxDelayMicros;
+	}
+
+	public void setHedgeMaxDelayMicros(long hedgeMaxDelayMicros) {
+		this.hedgeMaxDelayMicros = hedgeMaxDelayMicros;
+	}
+
+	public double getHedgeBudgetRatio() {
+		return hedgeBudgetRatio;
+	}
+
+	public void setHedgeBudgetRatio(double hedgeBudgetRatio) {
+		this.hedgeBudgetRatio = hedgeBudgetRatio;
+	}
+
+	public int getHedgeBudgetMinPerSecond() {
+		return hedgeBudgetMinPerSecond;
+	}
+
+	public void setHedgeBudgetMinPerSecond(int hedgeBudgetMinPerSecond) {
+		this.hedgeBudgetMinPerSecond = hedgeBudgetMinPerSecond;
+	}
+
+	public boolean getDedicatedPool() {
+		return dedicatedPool;
+	}
+
+	public void setDedicatedPool(boolean dedicatedPool) {
+		this.dedicatedPool = dedicatedPool;
+	}
+
+	public int getBulkheadMaxConcurrent() {
+		return bulkheadMaxConcurrent;
+	}
+
+	public void setBulkheadMaxConcurrent(int bulkheadMaxConcurrent) {
+		this.bulkheadMaxConcurrent = bulkheadMaxConcurrent;
+	}
+
+	public long getBulkheadMaxWaitMillis() {
+		return bulkheadMaxWaitMillis;
+	}
+
+	public void setBulkheadMaxWaitMillis(long bulkheadMaxWaitMillis) {
+		this.bulkheadMaxWaitMillis = bulkheadMaxWaitMillis;
+	}
+
+	public boolean getWarmup() {
+		return warmup;
+	}
+
+	public void setWarmup(boolean warmup) {
+		this.warmup = warmup;
+	}
+
+	public int getWarmupConnectionsPerProxy() {
+		return warmupConnectionsPerProxy;
+	}
+
+	public void setWarmupConnectionsPerProxy(int warmupConnectionsPerProxy) {
+		this.warmupConnectionsPerProxy = warmupConnectionsPerProxy;
+	}
+
+	public long getWarmupTimeoutMillis() {
+		return warmupTimeoutMillis;
+	}
+
+	public void setWarmupTimeoutMillis(long warmupTimeoutMillis) {
+		this.warmupTimeoutMillis = warmupTimeoutMillis;
+	}
+
+	public int getWarmupParallelism() {
+		return warmupParallelism;
+	}
+
+	public void setWarmupParallelism(int warmupParallelism) {
+		this.warmupParallelism = warmupParallelism;
+	}
+
+	public String getPoolType() {
+		return poolType;
+	}
+
+	public void setPoolType(String poolType) {
+		this.poolType = poolType;
+	}
+
+	public boolean getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(boolean metrics) {
+		this.metrics = metrics;
+	}
+
+	public int getMetricsWindowSeconds() {
+		return metricsWindowSeconds;
+	}
+
+	public void setMetricsWindowSeconds(int metricsWindowSeconds) {
+		this.metricsWindowSeconds = metricsWindowSeconds;
+	}
+
+	public boolean getMetricsJmx() {
+		return metricsJmx;
+	}
+
+	public void setMetricsJmx(boolean metricsJmx) {
+		this.metricsJmx = metricsJmx;
+	}
+
+	public boolean getHotKey() {
+		return hotKey;
+	}
+
+	public void setHotKey(boolean hotKey) {
+		this.hotKey = hotKey;
+	}
+
+	public int getHotKeyTopN() {
+		return hotKeyTopN;
+	}
+
+	public void setHotKeyTopN(int hotKeyTopN) {
+		this.hotKeyTopN = hotKeyTopN;
+	}
+
+	public int getHotKeyThresholdPerSecond() {
+		return hotKeyThresholdPerSecond;
+	}
+
+	public void setHotKeyThresholdPerSecond(int hotKeyThresholdPerSecond) {
+		this.hotKeyThresholdPerSecond = hotKeyThresholdPerSecond;
+	}
+
+	public int getHotKeyWindowMillis() {
+		return hotKeyWindowMillis;
+	}
+
+	public void setHotKeyWindowMillis(int hotKeyWindowMillis) {
+		this.hotKeyWindowMillis = hotKeyWindowMillis;
+	}
+
+	public int getHotKeySketchWidth() {
+		return hotKeySketchWidth;
+	}
+
+	public void setHotKeySketchWidth(int hotKeySketchWidth) {
+		this.hotKeySketchWidth = hotKeySketchWidth;
+	}
+
+	public int getHotKeySketchDepth() {
+		return hotKeySketchDepth;
+	}
+
+	public void setHotKeySketchDepth(int hotKeySketchDepth) {
+		this.hotKeySketchDepth = hotKeySketchDepth;
+	}
+
+	public boolean getHotKeyLocalCache() {
+		return hotKeyLocalCache;
+	}
+
+	public void setHotKeyLocalCache(boolean hotKeyLocalCache) {
+		this.hotKeyLocalCache = hotKeyLocalCache;
+	}
+
+	public int getHotKeyLocalTtlMillis() {
+		return hotKeyLocalTtlMillis;
+	}
+
+	public void setHotKeyLocalTtlMillis(int hotKeyLocalTtlMillis) {
+		this.hotKeyLocalTtlMillis = hotKeyLocalTtlMillis;
+	}
+
+	public String getProxyAddresses() {
+		return proxyAddresses;
+	}
+
+	public void setProxyAddresses(String proxyAddresses) {
+		this.proxyAddresses = proxyAddresses;
+	}
+
+	public int getScanCount() {
+		return scanCount;
+	}
+
+	public void setScanCount(int scanCount) {
+		this.scanCount = scanCount;
+	}
+
+	public int getScanParallelism() {
+		return scanParallelism;
+	}
+
+	public void setScanParallelism(int scanParallelism) {
+		this.scanParallelism = scanParallelism;
+	}
+
+	public boolean getScanProbeSize() {
+		return scanProbeSize;
+	}
+
+	public void setScanProbeSize(boolean scanProbeSize) {
+		this.scanProbeSize = scanProbeSize;
+	}
+
+	public int getScanTimeoutMillis() {
+		return scanTimeoutMillis;
+	}
+
+	public void setScanTimeoutMillis(int scanTimeoutMillis) {
+		this.scanTimeoutMillis = scanTimeoutMillis;
+	}
+
+	public long getScanCheckpointIntervalMillis() {
+		return scanCheckpointIntervalMillis;
+	}
+
+	public void setScanCheckpointIntervalMillis(long scanCheckpointIntervalMillis) {
+		this.scanCheckpointIntervalMillis = scanCheckpointIntervalMillis;
+	}
+
+	public int getScanOutputBufferSize() {
+		return scanOutputBufferSize;
+	}
+
+	public void setScanOutputBufferSize(int scanOutputBufferSize) {
+		this.scanOutputBufferSize = scanOutputBufferSize;
+	}
+
+	public double getScanSampleRate() {
+		return scanSampleRate;
+	}
+
+	public void setScanSampleRate(double scanSampleRate) {
+		this.scanSampleRate = scanSampleRate;
+	}
+
+	public int getBigKeyTopN() {
+		return bigKeyTopN;
+	}
+
+	public void setBigKeyTopN(int bigKeyTopN) {
+		this.bigKeyTopN = bigKeyTopN;
+	}
+
+	public int getBigKeyPrefixTopN() {
+		return bigKeyPrefixTopN;
+	}
+
+	public void setBigKeyPrefixTopN(int bigKeyPrefixTopN) {
+		this.bigKeyPrefixTopN = bigKeyPrefixTopN;
+	}
+
+	public int getBigKeyElementBytes() {
+		return bigKeyElementBytes;
+	}
+
+	public void setBigKeyElementBytes(int bigKeyElementBytes) {
+		this.bigKeyElementBytes = bigKeyElementBytes;
+	}
+
+	public String getBackfillRules() {
+		return backfillRules;
+	}
+
+	public void setBackfillRules(String backfillRules) {
+		this.backfillRules = backfillRules;
+	}
+
+	public int getBackfillKeysPerSecond() {
+		return backfillKeysPerSecond;
+	}
+
+	public void setBackfillKeysPerSecond(int backfillKeysPerSecond) {
+		this.backfillKeysPerSecond = backfillKeysPerSecond;
+	}
+
+	public int getBackfillBatchSize() {
+		return backfillBatchSize;
+	}
+
+	public void setBackfillBatchSize(int backfillBatchSize) {
+		this.backfillBatchSize = backfillBatchSize;
+	}
+
+	public long getBackfillSlowBatchMillis() {
+		return backfillSlowBatchMillis;
+	}
+
+	public void setBackfillSlowBatchMillis(long backfillSlowBatchMillis) {
+		this.backfillSlowBatchMillis = backfillSlowBatchMillis;
+	}
+
+	public boolean getBackfillDryRun() {
+		return backfillDryRun;
+	}
+
+	public void setBackfillDryRun(boolean backfillDryRun) {
+		this.backfillDryRun = backfillDryRun;
+	}
 	
 }
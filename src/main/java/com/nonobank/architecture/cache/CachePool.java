@@ -0,0 +1,232 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.metrics.CommandMeter;
+import com.nonobank.architecture.enumeration.CacheEnvironment;
+import io.codis.jodis.JedisResourcePool;
+import io.codis.jodis.RoundRobinJedisPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按集群(zkAddressAndPort、zkProxyDir)和环境({@link CacheEnvironment})划分的连接池
+ * 同一集群同一环境的客户端共享一个连接池,连接数、隔离舱等按第一个客户端的配置创建;
+ * 不同环境(如 PAY 和 MKT)各自使用独立的连接池,一个环境的突发流量不会占用其他环境的连接。
+ * dedicatedPool 为 true 时客户端单独创建连接池,不与其他客户端共享。
+ * 每个客户端关闭时释放一次引用,最后一个客户端关闭时关闭连接池。
+ * metrics 为 true 时连接池带有一个 {@link CacheMetrics},记录借用连接的等待时间和每个 proxy 的延迟。
+ */
+public final class CachePool implements JedisResourcePool {
+
+    private static final Logger log = LoggerFactory.getLogger(CachePool.class);
+
+    private static final Map<String, CachePool> shared = new HashMap<>();
+
+    private static final List<CachePool> dedicated = new ArrayList<>();
+
+    private static final AtomicInteger dedicatedSequence = new AtomicInteger();
+
+    private final String name;
+
+    private final boolean isShared;
+
+    private final JedisResourcePool pool;
+
+    private final LongAdder borrows = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final CacheMetrics metrics;
+
+    /**guarded by CachePool.class*/
+    private int references;
+
+    private CachePool(String name, boolean isShared, CacheConfig config) {
+        this.name = name;
+        this.isShared = isShared;
+        this.pool = create(config);
+        this.metrics = config.getMetrics() ? new CacheMetrics(name, config) : null;
+        if (metrics != null && pool instanceof CodisProxyPool) {
+            ((CodisProxyPool) pool).setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 取得配置对应的连接池并增加一次引用,用完后调用 {@link #close()}
+     */
+    public static synchronized CachePool acquire(CacheConfig config) {
+        String name = name(config);
+        CachePool pool;
+        if (config.getDedicatedPool()) {
+            pool = new CachePool(name + "#" + dedicatedSequence.incrementAndGet(), false, config);
+            dedicated.add(pool);
+        } else {
+            pool = shared.get(name);
+            if (pool == null) {
+                pool = new CachePool(name, true, config);
+                shared.put(name, pool);
+            }
+        }
+        pool.references++;
+        log.info("cache pool acquired, name:" + pool.name + ", clients:" + pool.references);
+        return pool;
+    }
+
+    /**
+     * @return 所有未关闭连接池的状态
+     */
+    public static synchronized List<CachePoolStats> getAllStats() {
+        List<CachePoolStats> stats = new ArrayList<>(shared.size() + dedicated.size());
+        for (CachePool pool : shared.values()) {
+            stats.add(pool.getStats());
+        }
+        for (CachePool pool : dedicated) {
+            stats.add(pool.getStats());
+        }
+        return stats;
+    }
+
+    private static String name(CacheConfig config) {
+        String environment = config.getEnvrionment() == null ? CacheEnvironment.DEFAULT.value()
+                : CacheEnvironment.env(config.getEnvrionment()).value();
+        if (CodisProxyWatcher.staticAddresses(config) != null) {
+            return environment + "@" + config.getProxyAddresses();
+        }
+        return environment + "@" + config.getZkAddressAndPort() + config.getZkProxyDir();
+    }
+
+    /**
+     * 开启熔断、隔离舱、预热、metrics,使用 lockFree 连接池、roundRobin 以外的 proxy 选择策略或固定的 proxyAddresses 时使用 {@link CodisProxyPool},否则使用 jodis 连接池
+     */
+    private static JedisResourcePool create(CacheConfig config) {
+        if (config.getCircuitBreaker() || config.getBulkheadMaxConcurrent() > 0 || config.getWarmup() || config.getMetrics()
+                || CodisProxyPool.isLockFree(config) || CodisProxyWatcher.staticAddresses(config) != null
+                || !ProxySelector.ROUND_ROBIN.equalsIgnoreCase(config.getProxySelector())) {
+            return new CodisProxyPool(config);
+        }
+        return RoundRobinJedisPool.create().poolConfig(config.CacheConfig2JedisPoolConfig())
+                .curatorClient(config.getZkAddressAndPort(), config.getZkSessionTimeOutMs())
+                .zkProxyDir(config.getZkProxyDir()).build();
+    }
+
+    /**
+     * 按写命令借用,见 {@link CodisProxyPool#getResource()}
+     */
+    @Override
+    public Jedis getResource() {
+        return getResource(CommandClass.WRITE);
+    }
+
+    public Jedis getResource(CommandClass commandClass) {
+        borrows.increment();
+        CommandMeter borrowWait = metrics == null ? null : metrics.borrowWait();
+        long begin = borrowWait == null ? 0 : System.nanoTime();
+        try {
+            Jedis jedis = CodisProxyPool.getResource(pool, commandClass);
+            if (borrowWait != null) {
+                borrowWait.success(begin, 0, 0);
+            }
+            return jedis;
+        } catch (BulkheadFullException e) {
+            rejected.increment();
+            failures.increment();
+            if (borrowWait != null) {
+                borrowWait.failure(begin);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            failures.increment();
+            if (borrowWait != null) {
+                borrowWait.failure(begin);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return 连接池是否已预热完成,见 {@link CodisProxyPool#isReady()}
+     */
+    public boolean isReady() {
+        return !(pool instanceof CodisProxyPool) || ((CodisProxyPool) pool).isReady();
+    }
+
+    public boolean awaitReady(long timeoutMillis) {
+        return !(pool instanceof CodisProxyPool) || ((CodisProxyPool) pool).awaitReady(timeoutMillis);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 连接池的计量,metrics 为 false 时返回 null
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return 实际的连接池,{@link CodisProxyPool} 或 jodis RoundRobinJedisPool
+     */
+    public JedisResourcePool getDelegate() {
+        return pool;
+    }
+
+    public CachePoolStats getStats() {
+        int clients;
+        synchronized (CachePool.class) {
+            clients = references;
+        }
+        if (pool instanceof CodisProxyPool) {
+            CodisProxyPool proxyPool = (CodisProxyPool) pool;
+            return new CachePoolStats(name, clients, borrows.sum(), failures.sum(), rejected.sum(),
+                    proxyPool.getNumActive(), proxyPool.getNumIdle(), proxyPool.getNumWaiters());
+        }
+        return new CachePoolStats(name, clients, borrows.sum(), failures.sum(), rejected.sum(), -1, -1, -1);
+    }
+
+    /**
+     * 释放一次引用,最后一个引用释放时关闭连接池
+     */
+    @Override
+    public void close() {
+        synchronized (CachePool.class) {
+            if (references == 0) {
+                return;
+            }
+            if (--references > 0) {
+                return;
+            }
+            if (isShared) {
+                shared.remove(name);
+            } else {
+                dedicated.remove(this);
+            }
+        }
+        log.info("cache pool closed, name:" + name);
+        if (metrics != null) {
+            metrics.close();
+        }
+        try {
+            pool.close();
+        } catch (Exception e) {
+            log.info("cache pool close error, name:" + name + ", " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
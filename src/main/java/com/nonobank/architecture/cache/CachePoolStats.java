@@ -0,0 +1,85 @@
+package com.nonobank.architecture.cache;
+
+/**
+ * 一个连接池的状态快照,借用数、失败数和拒绝数为累计值
+ * 使用 jodis 连接池(未开启熔断、隔离舱且 proxySelector=roundRobin)时无法取得连接数,active、idle、waiters 为 -1
+ */
+public class CachePoolStats {
+
+    private final String name;
+
+    private final int clients;
+
+    private final long borrows;
+
+    private final long failures;
+
+    private final long rejected;
+
+    private final int active;
+
+    private final int idle;
+
+    private final int waiters;
+
+    CachePoolStats(String name, int clients, long borrows, long failures, long rejected, int active, int idle, int waiters) {
+        this.name = name;
+        this.clients = clients;
+        this.borrows = borrows;
+        this.failures = failures;
+        this.rejected = rejected;
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+    }
+
+    /**
+     * @return 环境@zookeeper地址/proxy目录,单独创建的连接池另有序号后缀
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 使用该连接池且未关闭的客户端数
+     */
+    public int getClients() {
+        return clients;
+    }
+
+    public long getBorrows() {
+        return borrows;
+    }
+
+    /**
+     * @return 借用失败数,包括隔离舱拒绝
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return 因隔离舱已满被拒绝的借用数
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    @Override
+    public String toString() {
+        return "{name=" + name + ", clients=" + clients + ", borrows=" + borrows + ", failures=" + failures
+                + ", rejected=" + rejected + ", active=" + active + ", idle=" + idle + ", waiters=" + waiters + "}";
+    }
+}
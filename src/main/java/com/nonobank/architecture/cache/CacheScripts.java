@@ -0,0 +1,38 @@
+package com.nonobank.architecture.cache;
+
+import redis.clients.util.SafeEncoder;
+
+/**
+ * 客户端使用的 lua 脚本,经 {@link CacheBatch#eval} 执行
+ * 每个脚本只访问一个 key,codis 按这个 key 路由,脚本在该 key 所在的 redis 上原子执行;
+ * 整数结果用 tostring 以字符串返回。
+ */
+public final class CacheScripts {
+
+    /**KEYS[1] 的值等于 ARGV[1] 时删除,返回删除的数量;用于只释放自己持有的租约*/
+    public static final String COMPARE_AND_DELETE =
+            "if redis.call('get',KEYS[1])==ARGV[1] then return tostring(redis.call('del',KEYS[1])) end return '0'";
+
+    /**KEYS[1] 没有过期时间时设置为 ARGV[1] 秒,返回设置的数量;检查和设置原子执行,不覆盖其他客户端已设置的过期时间*/
+    public static final String EXPIRE_IF_PERSISTENT =
+            "if redis.call('ttl',KEYS[1])==-1 then return tostring(redis.call('expire',KEYS[1],ARGV[1])) end return '0'";
+
+    private CacheScripts() {
+    }
+
+    /**
+     * 脚本以字符串返回的整数结果
+     */
+    public static long toLong(Object reply) {
+        if (reply == null) {
+            return 0;
+        }
+        if (reply instanceof Number) {
+            return ((Number) reply).longValue();
+        }
+        if (reply instanceof byte[]) {
+            return Long.parseLong(SafeEncoder.encode((byte[]) reply));
+        }
+        return Long.parseLong(reply.toString());
+    }
+}
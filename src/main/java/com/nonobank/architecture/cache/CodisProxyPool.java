@@ -0,0 +1,693 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.breaker.CircuitBreaker;
+import com.nonobank.architecture.cache.breaker.CircuitBreakerOpenException;
+import com.nonobank.architecture.cache.breaker.CircuitBreakers;
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.metrics.CommandMeter;
+import com.nonobank.architecture.cache.pool.LockFreeJedisPool;
+import com.nonobank.architecture.cache.retry.CommandNotSentException;
+import io.codis.jodis.JedisResourcePool;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按 proxy 分别维护连接池的 {@link JedisResourcePool},替代 jodis RoundRobinJedisPool
+ * proxy 发现与 jodis 相同(见 {@link CodisProxyWatcher}),每次借用由 {@link ProxySelector} 选择 proxy,
+ * 连接归还时按是否断开和命令耗时更新该 proxy 的负载({@link ProxyLoad});
+ * 开启 circuitBreaker 时跳过熔断器打开的 proxy,并更新该 proxy 对应命令类别的熔断器({@link CircuitBreakers}),
+ * 所有 proxy 的熔断器都打开时直接抛出 {@link CircuitBreakerOpenException},不再等待连接或超时。
+ * bulkheadMaxConcurrent 大于0时限制所有 proxy 合计同时借出的连接数,超出且等待 bulkheadMaxWaitMillis 后抛出 {@link BulkheadFullException}。
+ * 开启 warmup 时新发现的 proxy 先并行建立并校验 warmupConnectionsPerProxy 个连接,预热完成(或超时)后才参与选择;
+ * 首批 proxy 全部预热完成后 {@link #isReady()} 为 true。
+ * 每个 proxy 的连接池按 poolType 使用 commons-pool2 或 {@link LockFreeJedisPool}。
+ */
+public class CodisProxyPool implements JedisResourcePool {
+
+    private static final Logger log = LoggerFactory.getLogger(CodisProxyPool.class);
+
+    public static final String POOL_TYPE_COMMONS = "commons";
+
+    public static final String POOL_TYPE_LOCK_FREE = "lockFree";
+
+    private final CacheConfig config;
+
+    private final GenericObjectPoolConfig poolConfig;
+
+    private final boolean lockFree;
+
+    private final ProxySelector selector;
+
+    private final CircuitBreakers breakers;
+
+    private final CodisProxyWatcher watcher;
+
+    /**未开启隔离舱时为 null*/
+    private final Semaphore bulkhead;
+
+    private final long bulkheadWaitNanos;
+
+    private final int warmupConnections;
+
+    /**未开启预热时为 null*/
+    private final ScheduledThreadPoolExecutor warmer;
+
+    /**首批 proxy 预热完成*/
+    private final CompletableFuture<Void> ready;
+
+    /**未开启 metrics 时为 null*/
+    private volatile CacheMetrics metrics;
+
+    private volatile Map<HostAndPort, ProxyPool> proxies = Collections.emptyMap();
+
+    private volatile Snapshot snapshot = new Snapshot(new ProxyPool[0]);
+
+    private volatile boolean closed;
+
+    /**
+     * 从 zookeeper 发现 codis proxy,配置了 proxyAddresses 时直接使用这些地址
+     */
+    public CodisProxyPool(CacheConfig config) {
+        this(config, ProxySelector.of(config));
+    }
+
+    public CodisProxyPool(CacheConfig config, ProxySelector selector) {
+        this.config = config;
+        this.poolConfig = config.CacheConfig2JedisPoolConfig();
+        this.lockFree = isLockFree(config);
+        this.selector = selector;
+        this.breakers = config.getCircuitBreaker() ? CircuitBreakers.of(config) : null;
+        this.bulkhead = config.getBulkheadMaxConcurrent() > 0 ? new Semaphore(config.getBulkheadMaxConcurrent()) : null;
+        this.bulkheadWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getBulkheadMaxWaitMillis());
+        this.warmupConnections = warmupConnections(config, poolConfig);
+        this.warmer = config.getWarmup() ? createWarmer(config) : null;
+        List<HostAndPort> addresses = CodisProxyWatcher.staticAddresses(config);
+        this.watcher = addresses == null ? new CodisProxyWatcher(config, this::resetPools) : null;
+        if (addresses != null) {
+            resetPools(addresses);
+        }
+        this.ready = warmed(proxies.values());
+    }
+
+    /**
+     * 直接连接指定的 proxy(或 redis)地址
+     */
+    public CodisProxyPool(CacheConfig config, List<HostAndPort> addresses) {
+        this(config, ProxySelector.of(config), addresses);
+    }
+
+    public CodisProxyPool(CacheConfig config, ProxySelector selector, List<HostAndPort> addresses) {
+        this.config = config;
+        this.poolConfig = config.CacheConfig2JedisPoolConfig();
+        this.lockFree = isLockFree(config);
+        this.selector = selector;
+        this.breakers = config.getCircuitBreaker() ? CircuitBreakers.of(config) : null;
+        this.bulkhead = config.getBulkheadMaxConcurrent() > 0 ? new Semaphore(config.getBulkheadMaxConcurrent()) : null;
+        this.bulkheadWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getBulkheadMaxWaitMillis());
+        this.warmupConnections = warmupConnections(config, poolConfig);
+        this.warmer = config.getWarmup() ? createWarmer(config) : null;
+        this.watcher = null;
+        resetPools(addresses);
+        this.ready = warmed(proxies.values());
+    }
+
+    /**
+     * @return poolType 是否为 lockFree,未知的类型抛出 IllegalArgumentException
+     */
+    public static boolean isLockFree(CacheConfig config) {
+        String type = config.getPoolType();
+        if (type == null || POOL_TYPE_COMMONS.equalsIgnoreCase(type)) {
+            return false;
+        }
+        if (POOL_TYPE_LOCK_FREE.equalsIgnoreCase(type)) {
+            return true;
+        }
+        throw new IllegalArgumentException("unknown pool type: " + type);
+    }
+
+    /**
+     * 预热的连接数不超过 maxIdle(否则归还时被销毁),并把 minIdle 提高到该值,空闲回收后由连接池补足
+     */
+    private static int warmupConnections(CacheConfig config, GenericObjectPoolConfig poolConfig) {
+        if (!config.getWarmup()) {
+            return 0;
+        }
+        int connections = Math.max(0, Math.min(config.getWarmupConnectionsPerProxy(),
+                Math.min(poolConfig.getMaxIdle(), poolConfig.getMaxTotal())));
+        poolConfig.setMinIdle(Math.max(poolConfig.getMinIdle(), connections));
+        return connections;
+    }
+
+    private static ScheduledThreadPoolExecutor createWarmer(CacheConfig config) {
+        ScheduledThreadPoolExecutor warmer = new ScheduledThreadPoolExecutor(Math.max(1, config.getWarmupParallelism()), r -> {
+            Thread thread = new Thread(r, "cache-pool-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        warmer.setKeepAliveTime(60, TimeUnit.SECONDS);
+        warmer.allowCoreThreadTimeOut(true);
+        warmer.setRemoveOnCancelPolicy(true);
+        return warmer;
+    }
+
+    private static CompletableFuture<Void> warmed(Collection<ProxyPool> pools) {
+        List<CompletableFuture<Void>> warmed = new ArrayList<>(pools.size());
+        for (ProxyPool pool : pools) {
+            warmed.add(pool.warmed);
+        }
+        return CompletableFuture.allOf(warmed.toArray(new CompletableFuture<?>[warmed.size()]));
+    }
+
+    private synchronized void resetPools(List<HostAndPort> addresses) {
+        if (closed) {
+            return;
+        }
+        Map<HostAndPort, ProxyPool> current = proxies;
+        Map<HostAndPort, ProxyPool> updated = new HashMap<>();
+        for (HostAndPort address : addresses) {
+            ProxyPool pool = current.get(address);
+            if (pool == null) {
+                pool = new ProxyPool(address, poolConfig, lockFree, new ProxyLoad(address, config),
+                        breakers == null ? null : breakers.forProxy(address.toString()));
+                pool.meter = metrics == null ? null : metrics.proxy(address.toString());
+                warm(pool);
+            }
+            updated.put(address, pool);
+        }
+        proxies = updated;
+        snapshot = serving(updated.values());
+        for (Map.Entry<HostAndPort, ProxyPool> entry : current.entrySet()) {
+            if (!updated.containsKey(entry.getKey())) {
+                log.info("codis proxy removed, address:" + entry.getKey());
+                entry.getValue().close();
+            }
+        }
+        log.info("codis proxies for pool: " + updated.keySet());
+    }
+
+    /**
+     * 预热完成的 proxy,都没有完成时(如刚创建未等待就绪)使用全部 proxy
+     */
+    private static Snapshot serving(Collection<ProxyPool> pools) {
+        List<ProxyPool> warmed = new ArrayList<>(pools.size());
+        for (ProxyPool pool : pools) {
+            if (pool.warmed.isDone()) {
+                warmed.add(pool);
+            }
+        }
+        Collection<ProxyPool> serving = warmed.isEmpty() ? pools : warmed;
+        return new Snapshot(serving.toArray(new ProxyPool[serving.size()]));
+    }
+
+    private synchronized void refresh() {
+        if (!closed) {
+            snapshot = serving(proxies.values());
+        }
+    }
+
+    /**
+     * 并行借用 warmupConnections 个连接并 PING,全部完成后一起归还,保证建立的是不同的连接;
+     * 超过 warmupTimeoutMillis 时不再等待,proxy 直接参与选择
+     */
+    private void warm(ProxyPool pool) {
+        if (warmer == null || warmupConnections == 0) {
+            pool.warmed.complete(null);
+            return;
+        }
+        long begin = System.nanoTime();
+        List<CompletableFuture<Jedis>> opened = new ArrayList<>(warmupConnections);
+        for (int i = 0; i < warmupConnections; i++) {
+            opened.add(CompletableFuture.supplyAsync(() -> {
+                Jedis jedis = pool.getResource();
+                try {
+                    jedis.ping();
+                    return jedis;
+                } catch (RuntimeException e) {
+                    jedis.close();
+                    throw e;
+                }
+            }, warmer));
+        }
+        CompletableFuture.allOf(opened.toArray(new CompletableFuture<?>[opened.size()])).whenComplete((r, e) -> {
+            int connections = 0;
+            for (CompletableFuture<Jedis> future : opened) {
+                if (!future.isCompletedExceptionally()) {
+                    future.join().close();
+                    connections++;
+                }
+            }
+            log.info("codis proxy warmed up, address:" + pool.address + ", connections:" + connections + "/" + opened.size()
+                    + ", millis:" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)
+                    + (e == null ? "" : ", last error:" + e.getMessage()));
+            pool.warmed.complete(null);
+        });
+        ScheduledFuture<?> timeout = warmer.schedule(() -> {
+            if (pool.warmed.complete(null)) {
+                log.info("codis proxy warm-up timed out, address:" + pool.address + ", millis:" + config.getWarmupTimeoutMillis());
+            }
+        }, config.getWarmupTimeoutMillis(), TimeUnit.MILLISECONDS);
+        pool.warmed.whenComplete((r, e) -> {
+            timeout.cancel(false);
+            refresh();
+        });
+    }
+
+    /**
+     * @return 首批发现的 proxy 是否都已预热完成(或超时),未开启 warmup 时总是 true
+     */
+    public boolean isReady() {
+        return ready.isDone();
+    }
+
+    /**
+     * 等待首批 proxy 预热完成
+     *
+     * @return 是否在 timeoutMillis 内就绪
+     */
+    public boolean awaitReady(long timeoutMillis) {
+        try {
+            ready.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return ready.isDone();
+        }
+    }
+
+    /**
+     * 按写命令统计熔断,不确定命令类别的调用方(pipeline 等)使用
+     */
+    @Override
+    public Jedis getResource() {
+        return getResource(CommandClass.WRITE);
+    }
+
+    /**
+     * 从熔断器允许的下一个 proxy 借用连接,借用失败时尝试下一个 proxy
+     */
+    public Jedis getResource(CommandClass commandClass) {
+        if (bulkhead == null) {
+            return borrow(commandClass);
+        }
+        acquireBulkhead();
+        try {
+            ProxyJedis jedis = borrow(commandClass);
+            jedis.bulkhead = bulkhead;
+            return jedis;
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+    }
+
+    private void acquireBulkhead() {
+        boolean acquired;
+        try {
+            acquired = bulkheadWaitNanos <= 0 ? bulkhead.tryAcquire() : bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new BulkheadFullException("bulkhead full, max concurrent: " + config.getBulkheadMaxConcurrent());
+        }
+    }
+
+    private ProxyJedis borrow(CommandClass commandClass) {
+        Snapshot current = snapshot;
+        ProxyPool[] pools = current.pools;
+        if (pools.length == 0) {
+            throw new CommandNotSentException("no codis proxy available");
+        }
+        int start = selector.select(current.loads);
+        JedisException failure = null;
+        for (int i = 0; i < pools.length; i++) {
+            ProxyPool pool = pools[(start + i) % pools.length];
+            CircuitBreaker breaker = pool.breakers == null ? null : pool.breakers[commandClass.ordinal()];
+            if (breaker != null && !breaker.tryAcquire()) {
+                continue;
+            }
+            long begin = System.nanoTime();
+            try {
+                ProxyJedis jedis = (ProxyJedis) pool.getResource();
+                pool.load.onStart();
+                jedis.load = pool.load;
+                jedis.breaker = breaker;
+                jedis.begin = System.nanoTime();
+                return jedis;
+            } catch (JedisException e) {
+                long elapsed = System.nanoTime() - begin;
+                pool.load.onSample(elapsed, true);
+                if (breaker != null) {
+                    breaker.onResult(elapsed, true);
+                }
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        throw new CircuitBreakerOpenException("circuit breaker open for all codis proxies, command class: " + commandClass);
+    }
+
+    /**
+     * pool 为 CachePool 或 CodisProxyPool 时按命令类别借用,否则直接借用
+     */
+    public static Jedis getResource(JedisResourcePool pool, CommandClass commandClass) {
+        if (pool instanceof CachePool) {
+            return ((CachePool) pool).getResource(commandClass);
+        }
+        if (pool instanceof CodisProxyPool) {
+            return ((CodisProxyPool) pool).getResource(commandClass);
+        }
+        return pool.getResource();
+    }
+
+    public List<HostAndPort> getProxies() {
+        return new ArrayList<>(proxies.keySet());
+    }
+
+    /**
+     * @return 熔断器,未开启 circuitBreaker 时为 null
+     */
+    public CircuitBreakers getCircuitBreakers() {
+        return breakers;
+    }
+
+    /**
+     * @return 各 proxy 当前的负载
+     */
+    public List<ProxyLoad> getProxyLoads() {
+        return Arrays.asList(snapshot.loads.clone());
+    }
+
+    /**
+     * @return 所有 proxy 合计借出的连接数
+     */
+    public int getNumActive() {
+        int active = 0;
+        for (ProxyPool pool : proxies.values()) {
+            active += pool.getNumActive();
+        }
+        return active;
+    }
+
+    public int getNumIdle() {
+        int idle = 0;
+        for (ProxyPool pool : proxies.values()) {
+            idle += pool.getNumIdle();
+        }
+        return idle;
+    }
+
+    /**
+     * @return 等待借用连接的线程数,不包括等待隔离舱的线程
+     */
+    public int getNumWaiters() {
+        int waiters = 0;
+        for (ProxyPool pool : proxies.values()) {
+            waiters += pool.getNumWaiters();
+        }
+        return waiters;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (warmer != null) {
+            warmer.shutdownNow();
+        }
+        for (ProxyPool pool : proxies.values()) {
+            pool.close();
+        }
+    }
+
+    /**
+     * 设置后每个 proxy 按借出到归还的时间记录延迟和失败数,见 {@link CacheMetrics#getProxies()}
+     */
+    public synchronized void setMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        for (Map.Entry<HostAndPort, ProxyPool> entry : proxies.entrySet()) {
+            entry.getValue().meter = metrics == null ? null : metrics.proxy(entry.getKey().toString());
+        }
+    }
+
+    /**
+     * 在线 proxy 的连接池和对应的负载,整体替换
+     */
+    private static final class Snapshot {
+
+        final ProxyPool[] pools;
+
+        final ProxyLoad[] loads;
+
+        Snapshot(ProxyPool[] pools) {
+            this.pools = pools;
+            this.loads = new ProxyLoad[pools.length];
+            for (int i = 0; i < pools.length; i++) {
+                loads[i] = pools[i].load;
+            }
+        }
+    }
+
+    /**
+     * 一个 proxy 的连接池,连接归还时回报负载和熔断器
+     */
+    private static final class ProxyPool extends Pool<Jedis> {
+
+        final HostAndPort address;
+
+        final ProxyLoad load;
+
+        /**未开启熔断时为 null*/
+        final CircuitBreaker[] breakers;
+
+        /**未开启 metrics 时为 null*/
+        volatile CommandMeter meter;
+
+        /**预热完成或超时,未开启预热时创建后立即完成*/
+        final CompletableFuture<Void> warmed = new CompletableFuture<>();
+
+        /**poolType=lockFree 时保存连接,否则使用父类的 GenericObjectPool*/
+        private final LockFreeJedisPool lockFree;
+
+        ProxyPool(HostAndPort address, GenericObjectPoolConfig poolConfig, boolean lockFree, ProxyLoad load,
+                  CircuitBreaker[] breakers) {
+            this.address = address;
+            this.load = load;
+            this.breakers = breakers;
+            if (lockFree) {
+                this.lockFree = new LockFreeJedisPool(poolConfig, new ProxyJedisFactory(address));
+            } else {
+                this.lockFree = null;
+                initPool(poolConfig, new ProxyJedisFactory(address));
+            }
+        }
+
+        @Override
+        public Jedis getResource() {
+            Jedis jedis = lockFree != null ? lockFree.getResource() : super.getResource();
+            jedis.setDataSource(this);
+            return jedis;
+        }
+
+        /**
+         * @deprecated 由 {@link Jedis#close()} 回调,归还连接使用 {@link Jedis#close()}
+         */
+        @Override
+        @Deprecated
+        public void returnResource(Jedis resource) {
+            if (resource != null) {
+                report((ProxyJedis) resource, false);
+                release((ProxyJedis) resource);
+                if (lockFree != null) {
+                    lockFree.returnObject(resource);
+                } else {
+                    resource.resetState();
+                    try {
+                        internalPool.returnObject(resource);
+                    } catch (Exception e) {
+                        throw new JedisException("Could not return the resource to the pool", e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @deprecated 由 {@link Jedis#close()} 回调,归还连接使用 {@link Jedis#close()}
+         */
+        @Override
+        @Deprecated
+        public void returnBrokenResource(Jedis resource) {
+            if (resource != null) {
+                report((ProxyJedis) resource, true);
+                release((ProxyJedis) resource);
+                if (lockFree != null) {
+                    lockFree.invalidateObject(resource);
+                } else {
+                    returnBrokenResourceObject(resource);
+                }
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (lockFree != null) {
+                lockFree.destroy();
+            } else {
+                super.destroy();
+            }
+        }
+
+        @Override
+        public int getNumActive() {
+            return lockFree != null ? lockFree.getNumActive() : super.getNumActive();
+        }
+
+        @Override
+        public int getNumIdle() {
+            return lockFree != null ? lockFree.getNumIdle() : super.getNumIdle();
+        }
+
+        @Override
+        public int getNumWaiters() {
+            return lockFree != null ? lockFree.getNumWaiters() : super.getNumWaiters();
+        }
+
+        private void release(ProxyJedis jedis) {
+            Semaphore bulkhead = jedis.bulkhead;
+            if (bulkhead != null) {
+                jedis.bulkhead = null;
+                bulkhead.release();
+            }
+        }
+
+        private void report(ProxyJedis jedis, boolean broken) {
+            ProxyLoad load = jedis.load;
+            if (load == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - jedis.begin;
+            load.onComplete(elapsed, broken);
+            jedis.load = null;
+            CommandMeter meter = this.meter;
+            if (meter != null) {
+                meter.record(elapsed, broken);
+            }
+            if (jedis.breaker != null) {
+                jedis.breaker.onResult(elapsed, broken);
+                jedis.breaker = null;
+            }
+        }
+    }
+
+    /**
+     * 记录本次借用对应的负载、熔断器、隔离舱和开始时间
+     */
+    private static final class ProxyJedis extends Jedis {
+
+        ProxyLoad load;
+
+        CircuitBreaker breaker;
+
+        Semaphore bulkhead;
+
+        long begin;
+
+        ProxyJedis(HostAndPort address) {
+            super(address.getHost(), address.getPort(), Protocol.DEFAULT_TIMEOUT, Protocol.DEFAULT_TIMEOUT);
+        }
+    }
+
+    /**
+     * 与 jodis 使用的 JedisFactory 一致:无密码、database 0,校验时发送 PING
+     */
+    private static final class ProxyJedisFactory implements PooledObjectFactory<Jedis> {
+
+        private final HostAndPort address;
+
+        ProxyJedisFactory(HostAndPort address) {
+            this.address = address;
+        }
+
+        @Override
+        public PooledObject<Jedis> makeObject() {
+            Jedis jedis = new ProxyJedis(address);
+            try {
+                jedis.connect();
+            } catch (JedisException e) {
+                jedis.close();
+                throw e;
+            }
+            return new DefaultPooledObject<>(jedis);
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Jedis> pooled) {
+            Jedis jedis = pooled.getObject();
+            if (jedis.isConnected()) {
+                try {
+                    jedis.quit();
+                } catch (Exception e) {
+                    // 连接可能已经断开
+                }
+                try {
+                    jedis.disconnect();
+                } catch (Exception e) {
+                    // 连接可能已经断开
+                }
+            }
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Jedis> pooled) {
+            try {
+                Jedis jedis = pooled.getObject();
+                return jedis.isConnected() && "PONG".equals(jedis.ping());
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void activateObject(PooledObject<Jedis> pooled) {
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Jedis> pooled) {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.nonobank.architecture.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.codis.jodis.CodisProxyInfo;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
+import org.apache.curator.retry.BoundedExponentialBackoffRetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 监听 zookeeper 上 codis proxy 的注册目录,与 jodis RoundRobinJedisPool 的发现逻辑一致:
+ * 节点数据为 proxy 信息的 json,只取状态为 online 的 proxy;
+ * 每次目录下的节点增加、删除或数据变化时,把当前全部在线 proxy 地址回调给监听者。
+ */
+public class CodisProxyWatcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CodisProxyWatcher.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String CODIS_PROXY_STATE_ONLINE = "online";
+
+    private static final int CURATOR_RETRY_BASE_SLEEP_MS = 100;
+
+    private static final int CURATOR_RETRY_MAX_SLEEP_MS = 30 * 1000;
+
+    private static final int CURATOR_RETRY_MAX_TIMES = 29;
+
+    private final CuratorFramework curatorClient;
+
+    private final PathChildrenCache watcher;
+
+    private final Consumer<List<HostAndPort>> listener;
+
+    /**
+     * @return proxyAddresses 配置的固定地址,未配置时返回 null,需要从 zookeeper 发现
+     */
+    public static List<HostAndPort> staticAddresses(CacheConfig config) {
+        String addresses = config.getProxyAddresses();
+        if (addresses == null || addresses.trim().isEmpty()) {
+            return null;
+        }
+        List<HostAndPort> proxies = new ArrayList<>();
+        for (String address : addresses.split(",")) {
+            String[] addr = address.trim().split(":", 2);
+            if (addr.length != 2) {
+                throw new IllegalArgumentException("invalid proxy address: " + address);
+            }
+            proxies.add(new HostAndPort(addr[0], Integer.parseInt(addr[1])));
+        }
+        return proxies;
+    }
+
+    public CodisProxyWatcher(CacheConfig config, Consumer<List<HostAndPort>> listener) {
+        this.listener = listener;
+        this.curatorClient = CuratorFrameworkFactory.builder().connectString(config.getZkAddressAndPort())
+                .sessionTimeoutMs(config.getZkSessionTimeOutMs())
+                .retryPolicy(new BoundedExponentialBackoffRetry(CURATOR_RETRY_BASE_SLEEP_MS, CURATOR_RETRY_MAX_SLEEP_MS, CURATOR_RETRY_MAX_TIMES))
+                .build();
+        curatorClient.start();
+        this.watcher = new PathChildrenCache(curatorClient, config.getZkProxyDir(), true);
+        watcher.getListenable().addListener((client, event) -> {
+            PathChildrenCacheEvent.Type type = event.getType();
+            if (type == PathChildrenCacheEvent.Type.CHILD_ADDED || type == PathChildrenCacheEvent.Type.CHILD_UPDATED
+                    || type == PathChildrenCacheEvent.Type.CHILD_REMOVED || type == PathChildrenCacheEvent.Type.INITIALIZED) {
+                reset();
+            }
+        });
+        try {
+            watcher.start(PathChildrenCache.StartMode.BUILD_INITIAL_CACHE);
+        } catch (Exception e) {
+            close();
+            throw new IllegalStateException("cannot watch codis proxy dir: " + config.getZkProxyDir(), e);
+        }
+        reset();
+    }
+
+    private synchronized void reset() {
+        List<HostAndPort> proxies = new ArrayList<>();
+        for (ChildData child : watcher.getCurrentData()) {
+            try {
+                CodisProxyInfo info = MAPPER.readValue(child.getData(), CodisProxyInfo.class);
+                if (!CODIS_PROXY_STATE_ONLINE.equals(info.getState())) {
+                    continue;
+                }
+                String[] addr = info.getAddr().split(":", 2);
+                proxies.add(new HostAndPort(addr[0], Integer.parseInt(addr[1])));
+            } catch (Exception e) {
+                log.warn("parse codis proxy info failed, path:" + child.getPath(), e);
+            }
+        }
+        listener.accept(proxies);
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (Exception e) {
+            log.warn("close codis proxy watcher failed", e);
+        }
+        curatorClient.close();
+    }
+}
@@ -0,0 +1,654 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.compress.ValueCompressor;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 开启 compression 时 {@link CacheClient#batch} 使用的 {@link CacheBatch}
+ * 与单条命令的压缩规则一致:写入的值超过阈值时压缩,读取的值在 Response.get() 时解压,
+ * getrange/strlen/substr 读取整个值解压后计算,append/setrange 不支持;其他命令直接交给 {@link PipelineCacheBatch}。
+ * 记录所有命令的 Response,批量执行的结果列表由解压后的值组成。
+ */
+class CompressingCacheBatch implements CacheBatch {
+
+    private final CacheBatch batch;
+
+    private final Pipeline pipeline;
+
+    private final ValueCompressor compressor;
+
+    private final List<Response<?>> responses = new ArrayList<>();
+
+    CompressingCacheBatch(Pipeline pipeline, ValueCompressor compressor) {
+        this.batch = new PipelineCacheBatch(pipeline);
+        this.pipeline = pipeline;
+        this.compressor = compressor;
+    }
+
+    /**
+     * pipeline 同步之后调用
+     *
+     * @return 按提交顺序排列的各命令结果,失败命令对应位置为该异常对象
+     */
+    List<Object> results() {
+        List<Object> results = new ArrayList<>(responses.size());
+        for (Response<?> response : responses) {
+            try {
+                results.add(response.get());
+            } catch (JedisDataException e) {
+                results.add(e);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Response<String> set(String key, String value) {
+        return add(pipeline.set(SafeEncoder.encode(key), compress(key, value)));
+    }
+
+    @Override
+    public Response<String> get(String key) {
+        return add(decoded(pipeline.get(SafeEncoder.encode(key)), value -> decompressString(key, value)));
+    }
+
+    @Override
+    public Response<Long> setnx(String key, String value) {
+        return add(pipeline.setnx(SafeEncoder.encode(key), compress(key, value)));
+    }
+
+    @Override
+    public Response<String> getSet(String key, String value) {
+        return add(decoded(pipeline.getSet(SafeEncoder.encode(key), compress(key, value)), old -> decompressString(key, old)));
+    }
+
+    @Override
+    public Response<Boolean> exists(String key) {
+        return add(batch.exists(key));
+    }
+
+    @Override
+    public Response<Long> expire(String key, int seconds) {
+        return add(batch.expire(key, seconds));
+    }
+
+    @Override
+    public Response<Long> expireAt(String key, long unixTime) {
+        return add(batch.expireAt(key, unixTime));
+    }
+
+    @Override
+    public Response<Long> append(String key, String value) {
+        throw new UnsupportedOperationException("append is not supported when compression is enabled");
+    }
+
+    @Override
+    public Response<Long> decr(String key) {
+        return add(batch.decr(key));
+    }
+
+    @Override
+    public Response<Long> decrBy(String key, long integer) {
+        return add(batch.decrBy(key, integer));
+    }
+
+    @Override
+    public Response<Long> incr(String key) {
+        return add(batch.incr(key));
+    }
+
+    @Override
+    public Response<Long> incrBy(String key, long integer) {
+        return add(batch.incrBy(key, integer));
+    }
+
+    @Override
+    public Response<Long> del(String... keys) {
+        return add(batch.del(keys));
+    }
+
+    @Override
+    public Response<String> getrange(String key, long startOffset, long endOffset) {
+        return add(decoded(pipeline.get(SafeEncoder.encode(key)), value -> CacheClient.range(compressor.decompress(key, value), startOffset, endOffset)));
+    }
+
+    @Override
+    public Response<String> hget(String key, String field) {
+        return add(decoded(pipeline.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)), value -> decompressString(key, value)));
+    }
+
+    @Override
+    public Response<Long> hdel(String key, String... fields) {
+        return add(batch.hdel(key, fields));
+    }
+
+    @Override
+    public Response<Boolean> hexists(String key, String field) {
+        return add(batch.hexists(key, field));
+    }
+
+    @Override
+    public Response<Map<String, String>> hgetAll(String key) {
+        return add(decoded(pipeline.hgetAll(SafeEncoder.encode(key)), hash -> {
+            Map<String, String> decoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+            for (Map.Entry<byte[], byte[]> entry : hash.entrySet()) {
+                decoded.put(SafeEncoder.encode(entry.getKey()), decompressString(key, entry.getValue()));
+            }
+            return decoded;
+        }));
+    }
+
+    @Override
+    public Response<Long> hincrBy(String key, String field, long value) {
+        return add(batch.hincrBy(key, field, value));
+    }
+
+    @Override
+    public Response<Set<String>> hkeys(String key) {
+        return add(batch.hkeys(key));
+    }
+
+    @Override
+    public Response<Long> hlen(String key) {
+        return add(batch.hlen(key));
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return add(decoded(pipeline.hmget(SafeEncoder.encode(key), SafeEncoder.encodeMany(fields)), values -> decompressStrings(key, values)));
+    }
+
+    @Override
+    public Response<String> hmset(String key, Map<String, String> hash) {
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            encoded.put(SafeEncoder.encode(entry.getKey()), compress(key, entry.getValue()));
+        }
+        return add(pipeline.hmset(SafeEncoder.encode(key), encoded));
+    }
+
+    @Override
+    public Response<Long> hset(String key, String field, String value) {
+        return add(pipeline.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), compress(key, value)));
+    }
+
+    @Override
+    public Response<Long> hsetnx(String key, String field, String value) {
+        return add(pipeline.hsetnx(SafeEncoder.encode(key), SafeEncoder.encode(field), compress(key, value)));
+    }
+
+    @Override
+    public Response<List<String>> hvals(String key) {
+        return add(decoded(pipeline.hvals(SafeEncoder.encode(key)), values -> decompressStrings(key, values)));
+    }
+
+    @Override
+    public Response<String> lindex(String key, long index) {
+        return add(batch.lindex(key, index));
+    }
+
+    @Override
+    public Response<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        return add(batch.linsert(key, where, pivot, value));
+    }
+
+    @Override
+    public Response<List<String>> mget(String... keys) {
+        return add(decoded(pipeline.mget(SafeEncoder.encodeMany(keys)), values -> {
+            List<String> decoded = new ArrayList<>(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                decoded.add(decompressString(keys[i], values.get(i)));
+            }
+            return decoded;
+        }));
+    }
+
+    @Override
+    public Response<String> mset(String... keysvalues) {
+        byte[][] encoded = new byte[keysvalues.length][];
+        for (int i = 0; i < keysvalues.length; i++) {
+            encoded[i] = i % 2 == 0 ? SafeEncoder.encode(keysvalues[i]) : compress(keysvalues[i - 1], keysvalues[i]);
+        }
+        return add(pipeline.mset(encoded));
+    }
+
+    @Override
+    public Response<Long> llen(String key) {
+        return add(batch.llen(key));
+    }
+
+    @Override
+    public Response<String> lpop(String key) {
+        return add(batch.lpop(key));
+    }
+
+    @Override
+    public Response<Long> lpush(String key, String... strings) {
+        return add(batch.lpush(key, strings));
+    }
+
+    @Override
+    public Response<Long> lpushx(String key, String... string) {
+        return add(batch.lpushx(key, string));
+    }
+
+    @Override
+    public Response<List<String>> lrange(String key, long start, long end) {
+        return add(batch.lrange(key, start, end));
+    }
+
+    @Override
+    public Response<Long> lrem(String key, long count, String value) {
+        return add(batch.lrem(key, count, value));
+    }
+
+    @Override
+    public Response<String> ltrim(String key, long start, long end) {
+        return add(batch.ltrim(key, start, end));
+    }
+
+    @Override
+    public Response<String> lset(String key, long index, String value) {
+        return add(batch.lset(key, index, value));
+    }
+
+    @Override
+    public Response<String> rpop(String key) {
+        return add(batch.rpop(key));
+    }
+
+    @Override
+    public Response<Long> rpush(String key, String... strings) {
+        return add(batch.rpush(key, strings));
+    }
+
+    @Override
+    public Response<Long> rpushx(String key, String string) {
+        return add(batch.rpushx(key, string));
+    }
+
+    @Override
+    public Response<Long> sadd(String key, String... members) {
+        return add(batch.sadd(key, members));
+    }
+
+    @Override
+    public Response<Long> scard(String key) {
+        return add(batch.scard(key));
+    }
+
+    @Override
+    public Response<Set<String>> smembers(String key) {
+        return add(batch.smembers(key));
+    }
+
+    @Override
+    public Response<String> setExpire(String key, int seconds, String value) {
+        return add(pipeline.setex(SafeEncoder.encode(key), seconds, compress(key, value)));
+    }
+
+    @Override
+    public Response<String> spop(String key) {
+        return add(batch.spop(key));
+    }
+
+    @Override
+    public Response<Long> setrange(String key, long offset, String value) {
+        throw new UnsupportedOperationException("setrange is not supported when compression is enabled");
+    }
+
+    @Override
+    public Response<Boolean> sismember(String key, String member) {
+        return add(batch.sismember(key, member));
+    }
+
+    @Override
+    public Response<Long> strlen(String key) {
+        return add(decoded(pipeline.get(SafeEncoder.encode(key)), value -> value == null ? 0L : (long) compressor.decompress(key, value).length));
+    }
+
+    @Override
+    public Response<Long> ttl(String key) {
+        return add(batch.ttl(key));
+    }
+
+    @Override
+    public Response<List<String>> sort(String key) {
+        return add(batch.sort(key));
+    }
+
+    @Override
+    public Response<List<String>> sort(String key, SortingParams sortingParameters) {
+        return add(batch.sort(key, sortingParameters));
+    }
+
+    @Override
+    public Response<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        return add(batch.sort(key, sortingParameters, dstkey));
+    }
+
+    @Override
+    public Response<Long> sort(String key, String dstkey) {
+        return add(batch.sort(key, dstkey));
+    }
+
+    @Override
+    public Response<String> srandmember(String key) {
+        return add(batch.srandmember(key));
+    }
+
+    @Override
+    public Response<List<String>> srandmember(String key, int count) {
+        return add(batch.srandmember(key, count));
+    }
+
+    @Override
+    public Response<Long> srem(String key, String... members) {
+        return add(batch.srem(key, members));
+    }
+
+    @Override
+    public Response<String> substr(String key, int start, int end) {
+        return add(decoded(pipeline.get(SafeEncoder.encode(key)), value -> CacheClient.range(compressor.decompress(key, value), start, end)));
+    }
+
+    @Override
+    public Response<String> type(String key) {
+        return add(batch.type(key));
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member) {
+        return add(batch.zadd(key, score, member));
+    }
+
+    @Override
+    public Response<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        return add(batch.zadd(key, scoreMembers));
+    }
+
+    @Override
+    public Response<Long> zcard(String key) {
+        return add(batch.zcard(key));
+    }
+
+    @Override
+    public Response<Long> zcount(String key, double min, double max) {
+        return add(batch.zcount(key, min, max));
+    }
+
+    @Override
+    public Response<Long> zcount(String key, String min, String max) {
+        return add(batch.zcount(key, min, max));
+    }
+
+    @Override
+    public Response<Double> zincrby(String key, double score, String member) {
+        return add(batch.zincrby(key, score, member));
+    }
+
+    @Override
+    public Response<Set<String>> zrange(String key, long start, long end) {
+        return add(batch.zrange(key, start, end));
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+        return add(batch.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return add(batch.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max) {
+        return add(batch.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return add(batch.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return add(batch.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return add(batch.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return add(batch.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return add(batch.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return add(batch.zrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Response<Long> zrank(String key, String member) {
+        return add(batch.zrank(key, member));
+    }
+
+    @Override
+    public Response<Long> zrem(String key, String... members) {
+        return add(batch.zrem(key, members));
+    }
+
+    @Override
+    public Response<Long> zremrangeByRank(String key, long start, long end) {
+        return add(batch.zremrangeByRank(key, start, end));
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, double start, double end) {
+        return add(batch.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, String start, String end) {
+        return add(batch.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Response<Set<String>> zrevrange(String key, long start, long end) {
+        return add(batch.zrevrange(key, start, end));
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return add(batch.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return add(batch.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return add(batch.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return add(batch.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return add(batch.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return add(batch.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return add(batch.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return add(batch.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return add(batch.zrevrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Response<Long> zrevrank(String key, String member) {
+        return add(batch.zrevrank(key, member));
+    }
+
+    @Override
+    public Response<Double> zscore(String key, String member) {
+        return add(batch.zscore(key, member));
+    }
+
+    @Override
+    public Response<byte[]> getBytes(String key) {
+        return add(decoded(pipeline.get(SafeEncoder.encode(key)), value -> compressor.decompress(key, value)));
+    }
+
+    @Override
+    public Response<String> setBytes(String key, byte[] value) {
+        return add(pipeline.set(SafeEncoder.encode(key), compressor.compress(key, value)));
+    }
+
+    @Override
+    public Response<String> setExpireBytes(String key, int seconds, byte[] value) {
+        return add(pipeline.setex(SafeEncoder.encode(key), seconds, compressor.compress(key, value)));
+    }
+
+    @Override
+    public Response<List<byte[]>> mgetBytes(String... keys) {
+        return add(decoded(pipeline.mget(SafeEncoder.encodeMany(keys)), values -> {
+            List<byte[]> decoded = new ArrayList<>(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                decoded.add(compressor.decompress(keys[i], values.get(i)));
+            }
+            return decoded;
+        }));
+    }
+
+    @Override
+    public Response<byte[]> hgetBytes(String key, String field) {
+        return add(decoded(pipeline.hget(SafeEncoder.encode(key), SafeEncoder.encode(field)), value -> compressor.decompress(key, value)));
+    }
+
+    @Override
+    public Response<Long> hsetBytes(String key, String field, byte[] value) {
+        return add(pipeline.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), compressor.compress(key, value)));
+    }
+
+    @Override
+    public Response<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return add(decoded(pipeline.hmget(SafeEncoder.encode(key), SafeEncoder.encodeMany(fields)), values -> {
+            List<byte[]> decoded = new ArrayList<>(values.size());
+            for (byte[] value : values) {
+                decoded.add(compressor.decompress(key, value));
+            }
+            return decoded;
+        }));
+    }
+
+    @Override
+    public Response<Long> rpushBytes(String key, byte[]... values) {
+        return add(batch.rpushBytes(key, values));
+    }
+
+    @Override
+    public Response<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return add(batch.lrangeBytes(key, start, end));
+    }
+
+    @Override
+    public Response<String> eval(String script, List<String> keys, List<String> args) {
+        return add(batch.eval(script, keys, args));
+    }
+
+    private <T> Response<T> add(Response<T> response) {
+        responses.add(response);
+        return response;
+    }
+
+    private byte[] compress(String key, String value) {
+        return compressor.compress(key, SafeEncoder.encode(value));
+    }
+
+    private String decompressString(String key, byte[] value) {
+        value = compressor.decompress(key, value);
+        return value == null ? null : SafeEncoder.encode(value);
+    }
+
+    private List<String> decompressStrings(String key, List<byte[]> values) {
+        List<String> decoded = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            decoded.add(decompressString(key, value));
+        }
+        return decoded;
+    }
+
+    private static <T, R> Response<R> decoded(Response<T> raw, Function<T, R> decoder) {
+        return new DecodedResponse<>(raw, decoder);
+    }
+
+    /**
+     * 读取时才转换原始回复的 Response,转换结果只计算一次;原始回复是错误时抛出同一个异常
+     */
+    private static final class DecodedResponse<T, R> extends Response<R> {
+
+        private final Response<T> raw;
+
+        private final Function<T, R> decoder;
+
+        private boolean decoded;
+
+        private R value;
+
+        DecodedResponse(Response<T> raw, Function<T, R> decoder) {
+            super(null);
+            this.raw = raw;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public synchronized R get() {
+            if (!decoded) {
+                value = decoder.apply(raw.get());
+                decoded = true;
+            }
+            return value;
+        }
+    }
+}
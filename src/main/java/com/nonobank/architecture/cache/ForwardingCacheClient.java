@@ -0,0 +1,604 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 把所有命令转发给另一个 {@link AbstractCacheClient} 的装饰器基类
+ * 每个命令都经过 {@link #invoke},对所有命令一视同仁的装饰器只需覆盖它;
+ * 只改变个别命令的装饰器直接覆盖对应的方法。
+ */
+public abstract class ForwardingCacheClient implements AbstractCacheClient, Closeable {
+
+    protected final AbstractCacheClient delegate;
+
+    protected ForwardingCacheClient(AbstractCacheClient delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 执行一个转发的命令,默认直接执行
+     *
+     * @param key   命令访问的 key,多 key 命令和 batch 为 null;SORT_STORE 为写入的目标 key
+     * @param value 命令写入的值或其他主要参数(String、byte[]、数组或 Map),没有时为 null
+     * @param call  调用被包装的客户端
+     */
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        return call.get();
+    }
+
+    /**
+     * 关闭被包装的客户端
+     */
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    @Override
+    public String setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds) {
+        return invoke(CacheCommand.SET_EXPIRE_WITH_RETRY, key, value, () -> delegate.setExpireWithRetry(key, seconds, value, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Boolean setWithRetry(String key, String value, int retryTimes, int sleepSeconds) {
+        return invoke(CacheCommand.SET_WITH_RETRY, key, value, () -> delegate.setWithRetry(key, value, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Long delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        return invoke(CacheCommand.DEL_WITH_RETRY, null, keys, () -> delegate.delWithRetry(retryTimes, sleepSeconds, keys));
+    }
+
+    @Override
+    public Boolean expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds) {
+        return invoke(CacheCommand.EXPIRE_WITH_RETRY, key, null, () -> delegate.expireWithRetry(key, seconds, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public String getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        return invoke(CacheCommand.GET_WITH_RETRY, key, null, () -> delegate.getWithRetry(key, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Boolean set(String key, String value) {
+        return invoke(CacheCommand.SET, key, value, () -> delegate.set(key, value));
+    }
+
+    @Override
+    public String get(String key) {
+        return invoke(CacheCommand.GET, key, null, () -> delegate.get(key));
+    }
+
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        return invoke(CacheCommand.GET_LOADER, key, null, () -> delegate.get(key, loader, ttlSeconds));
+    }
+
+    @Override
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return invoke(CacheCommand.GET_REFRESH_AHEAD, key, null, () -> delegate.getRefreshAhead(key, loader, ttlSeconds));
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        return invoke(CacheCommand.SETNX, key, value, () -> delegate.setnx(key, value));
+    }
+
+    @Override
+    public String getSet(String key, String value) {
+        return invoke(CacheCommand.GET_SET, key, value, () -> delegate.getSet(key, value));
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return invoke(CacheCommand.EXISTS, key, null, () -> delegate.exists(key));
+    }
+
+    @Override
+    public Boolean expire(String key, int seconds) {
+        return invoke(CacheCommand.EXPIRE, key, null, () -> delegate.expire(key, seconds));
+    }
+
+    @Override
+    public Long expireAt(String key, long unixTime) {
+        return invoke(CacheCommand.EXPIRE_AT, key, null, () -> delegate.expireAt(key, unixTime));
+    }
+
+    @Override
+    public Long append(String key, String value) {
+        return invoke(CacheCommand.APPEND, key, value, () -> delegate.append(key, value));
+    }
+
+    @Override
+    public Long decr(String key) {
+        return invoke(CacheCommand.DECR, key, null, () -> delegate.decr(key));
+    }
+
+    @Override
+    public Long decrBy(String key, long integer) {
+        return invoke(CacheCommand.DECR_BY, key, null, () -> delegate.decrBy(key, integer));
+    }
+
+    @Override
+    public Long incr(String key) {
+        return invoke(CacheCommand.INCR, key, null, () -> delegate.incr(key));
+    }
+
+    @Override
+    public Long incrBy(String key, long integer) {
+        return invoke(CacheCommand.INCR_BY, key, null, () -> delegate.incrBy(key, integer));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return invoke(CacheCommand.DEL, null, keys, () -> delegate.del(keys));
+    }
+
+    @Override
+    public String getrange(String key, long startOffset, long endOffset) {
+        return invoke(CacheCommand.GETRANGE, key, null, () -> delegate.getrange(key, startOffset, endOffset));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return invoke(CacheCommand.HGET, key, field, () -> delegate.hget(key, field));
+    }
+
+    @Override
+    public Long hdel(String key, String... fields) {
+        return invoke(CacheCommand.HDEL, key, fields, () -> delegate.hdel(key, fields));
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return invoke(CacheCommand.HEXISTS, key, field, () -> delegate.hexists(key, field));
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return invoke(CacheCommand.HGET_ALL, key, null, () -> delegate.hgetAll(key));
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return invoke(CacheCommand.HINCR_BY, key, value, () -> delegate.hincrBy(key, field, value));
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        return invoke(CacheCommand.HKEYS, key, null, () -> delegate.hkeys(key));
+    }
+
+    @Override
+    public Long hlen(String key) {
+        return invoke(CacheCommand.HLEN, key, null, () -> delegate.hlen(key));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return invoke(CacheCommand.HMGET, key, fields, () -> delegate.hmget(key, fields));
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        return invoke(CacheCommand.HMSET, key, hash, () -> delegate.hmset(key, hash));
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return invoke(CacheCommand.HSET, key, value, () -> delegate.hset(key, field, value));
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return invoke(CacheCommand.HSETNX, key, value, () -> delegate.hsetnx(key, field, value));
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        return invoke(CacheCommand.HVALS, key, null, () -> delegate.hvals(key));
+    }
+
+    @Override
+    public String lindex(String key, long index) {
+        return invoke(CacheCommand.LINDEX, key, null, () -> delegate.lindex(key, index));
+    }
+
+    @Override
+    public Long linsert(String key, ListPosition where, String pivot, String value) {
+        return invoke(CacheCommand.LINSERT, key, value, () -> delegate.linsert(key, where, pivot, value));
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        return invoke(CacheCommand.MGET, null, keys, () -> delegate.mget(keys));
+    }
+
+    @Override
+    public Boolean mset(String... keysvalues) {
+        return invoke(CacheCommand.MSET, null, keysvalues, () -> delegate.mset(keysvalues));
+    }
+
+    @Override
+    public Long llen(String key) {
+        return invoke(CacheCommand.LLEN, key, null, () -> delegate.llen(key));
+    }
+
+    @Override
+    public String lpop(String key) {
+        return invoke(CacheCommand.LPOP, key, null, () -> delegate.lpop(key));
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        return invoke(CacheCommand.LPUSH, key, strings, () -> delegate.lpush(key, strings));
+    }
+
+    @Override
+    public Long lpushx(String key, String... string) {
+        return invoke(CacheCommand.LPUSHX, key, string, () -> delegate.lpushx(key, string));
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        return invoke(CacheCommand.LRANGE, key, null, () -> delegate.lrange(key, start, end));
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        return invoke(CacheCommand.LREM, key, value, () -> delegate.lrem(key, count, value));
+    }
+
+    @Override
+    public String ltrim(String key, long start, long end) {
+        return invoke(CacheCommand.LTRIM, key, null, () -> delegate.ltrim(key, start, end));
+    }
+
+    @Override
+    public String lset(String key, long index, String value) {
+        return invoke(CacheCommand.LSET, key, value, () -> delegate.lset(key, index, value));
+    }
+
+    @Override
+    public String rpop(String key) {
+        return invoke(CacheCommand.RPOP, key, null, () -> delegate.rpop(key));
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        return invoke(CacheCommand.RPUSH, key, strings, () -> delegate.rpush(key, strings));
+    }
+
+    @Override
+    public Long rpushx(String key, String string) {
+        return invoke(CacheCommand.RPUSHX, key, string, () -> delegate.rpushx(key, string));
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        return invoke(CacheCommand.SADD, key, members, () -> delegate.sadd(key, members));
+    }
+
+    @Override
+    public Long scard(String key) {
+        return invoke(CacheCommand.SCARD, key, null, () -> delegate.scard(key));
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        return invoke(CacheCommand.SMEMBERS, key, null, () -> delegate.smembers(key));
+    }
+
+    @Override
+    public String setExpire(String key, int seconds, String value) {
+        return invoke(CacheCommand.SET_EXPIRE, key, value, () -> delegate.setExpire(key, seconds, value));
+    }
+
+    @Override
+    public String spop(String key) {
+        return invoke(CacheCommand.SPOP, key, null, () -> delegate.spop(key));
+    }
+
+    @Override
+    public Long setrange(String key, long offset, String value) {
+        return invoke(CacheCommand.SETRANGE, key, value, () -> delegate.setrange(key, offset, value));
+    }
+
+    @Override
+    public Boolean sismember(String key, String member) {
+        return invoke(CacheCommand.SISMEMBER, key, member, () -> delegate.sismember(key, member));
+    }
+
+    @Override
+    public Long strlen(String key) {
+        return invoke(CacheCommand.STRLEN, key, null, () -> delegate.strlen(key));
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return invoke(CacheCommand.TTL, key, null, () -> delegate.ttl(key));
+    }
+
+    @Override
+    public List<String> sort(String key) {
+        return invoke(CacheCommand.SORT, key, null, () -> delegate.sort(key));
+    }
+
+    @Override
+    public List<String> sort(String key, SortingParams sortingParameters) {
+        return invoke(CacheCommand.SORT, key, null, () -> delegate.sort(key, sortingParameters));
+    }
+
+    @Override
+    public Long sort(String key, SortingParams sortingParameters, String dstkey) {
+        return invoke(CacheCommand.SORT_STORE, dstkey, null, () -> delegate.sort(key, sortingParameters, dstkey));
+    }
+
+    @Override
+    public Long sort(String key, String dstkey) {
+        return invoke(CacheCommand.SORT_STORE, dstkey, null, () -> delegate.sort(key, dstkey));
+    }
+
+    @Override
+    public String srandmember(String key) {
+        return invoke(CacheCommand.SRANDMEMBER, key, null, () -> delegate.srandmember(key));
+    }
+
+    @Override
+    public List<String> srandmember(String key, int count) {
+        return invoke(CacheCommand.SRANDMEMBER, key, null, () -> delegate.srandmember(key, count));
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        return invoke(CacheCommand.SREM, key, members, () -> delegate.srem(key, members));
+    }
+
+    @Override
+    public String substr(String key, int start, int end) {
+        return invoke(CacheCommand.SUBSTR, key, null, () -> delegate.substr(key, start, end));
+    }
+
+    @Override
+    public String type(String key) {
+        return invoke(CacheCommand.TYPE, key, null, () -> delegate.type(key));
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        return invoke(CacheCommand.ZADD, key, member, () -> delegate.zadd(key, score, member));
+    }
+
+    @Override
+    public Long zadd(String key, Map<String, Double> scoreMembers) {
+        return invoke(CacheCommand.ZADD, key, scoreMembers, () -> delegate.zadd(key, scoreMembers));
+    }
+
+    @Override
+    public Long zcard(String key) {
+        return invoke(CacheCommand.ZCARD, key, null, () -> delegate.zcard(key));
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return invoke(CacheCommand.ZCOUNT, key, null, () -> delegate.zcount(key, min, max));
+    }
+
+    @Override
+    public Long zcount(String key, String min, String max) {
+        return invoke(CacheCommand.ZCOUNT, key, null, () -> delegate.zcount(key, min, max));
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member) {
+        return invoke(CacheCommand.ZINCRBY, key, member, () -> delegate.zincrby(key, score, member));
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        return invoke(CacheCommand.ZRANGE, key, null, () -> delegate.zrange(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE, key, null, () -> delegate.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE, key, null, () -> delegate.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE, key, null, () -> delegate.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE, key, null, () -> delegate.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return invoke(CacheCommand.ZRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeWithScores(String key, long start, long end) {
+        return invoke(CacheCommand.ZRANGE_WITH_SCORES, key, null, () -> delegate.zrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Long zrank(String key, String member) {
+        return invoke(CacheCommand.ZRANK, key, member, () -> delegate.zrank(key, member));
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        return invoke(CacheCommand.ZREM, key, members, () -> delegate.zrem(key, members));
+    }
+
+    @Override
+    public Long zremrangeByRank(String key, long start, long end) {
+        return invoke(CacheCommand.ZREMRANGE_BY_RANK, key, null, () -> delegate.zremrangeByRank(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double start, double end) {
+        return invoke(CacheCommand.ZREMRANGE_BY_SCORE, key, null, () -> delegate.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, String start, String end) {
+        return invoke(CacheCommand.ZREMRANGE_BY_SCORE, key, null, () -> delegate.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        return invoke(CacheCommand.ZREVRANGE, key, null, () -> delegate.zrevrange(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE, key, null, () -> delegate.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE, key, null, () -> delegate.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE, key, null, () -> delegate.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE, key, null, () -> delegate.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return invoke(CacheCommand.ZREVRANGE_BY_SCORE_WITH_SCORES, key, null, () -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeWithScores(String key, long start, long end) {
+        return invoke(CacheCommand.ZREVRANGE_WITH_SCORES, key, null, () -> delegate.zrevrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        return invoke(CacheCommand.ZREVRANK, key, member, () -> delegate.zrevrank(key, member));
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return invoke(CacheCommand.ZSCORE, key, member, () -> delegate.zscore(key, member));
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        return invoke(CacheCommand.GET_BYTES, key, null, () -> delegate.getBytes(key));
+    }
+
+    @Override
+    public Boolean setBytes(String key, byte[] value) {
+        return invoke(CacheCommand.SET_BYTES, key, value, () -> delegate.setBytes(key, value));
+    }
+
+    @Override
+    public String setExpireBytes(String key, int seconds, byte[] value) {
+        return invoke(CacheCommand.SET_EXPIRE_BYTES, key, value, () -> delegate.setExpireBytes(key, seconds, value));
+    }
+
+    @Override
+    public List<byte[]> mgetBytes(String... keys) {
+        return invoke(CacheCommand.MGET_BYTES, null, keys, () -> delegate.mgetBytes(keys));
+    }
+
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        return invoke(CacheCommand.HGET_BYTES, key, field, () -> delegate.hgetBytes(key, field));
+    }
+
+    @Override
+    public Long hsetBytes(String key, String field, byte[] value) {
+        return invoke(CacheCommand.HSET_BYTES, key, value, () -> delegate.hsetBytes(key, field, value));
+    }
+
+    @Override
+    public List<byte[]> hmgetBytes(String key, String... fields) {
+        return invoke(CacheCommand.HMGET_BYTES, key, fields, () -> delegate.hmgetBytes(key, fields));
+    }
+
+    @Override
+    public String hmsetBytes(String key, Map<String, byte[]> hash) {
+        return invoke(CacheCommand.HMSET_BYTES, key, hash, () -> delegate.hmsetBytes(key, hash));
+    }
+
+    @Override
+    public Map<String, byte[]> hgetAllBytes(String key) {
+        return invoke(CacheCommand.HGET_ALL_BYTES, key, null, () -> delegate.hgetAllBytes(key));
+    }
+
+    @Override
+    public Long rpushBytes(String key, byte[]... values) {
+        return invoke(CacheCommand.RPUSH_BYTES, key, values, () -> delegate.rpushBytes(key, values));
+    }
+
+    @Override
+    public List<byte[]> lrangeBytes(String key, long start, long end) {
+        return invoke(CacheCommand.LRANGE_BYTES, key, null, () -> delegate.lrangeBytes(key, start, end));
+    }
+
+    @Override
+    public List<Object> batch(Consumer<CacheBatch> commands) {
+        return invoke(CacheCommand.BATCH, null, null, () -> delegate.batch(commands));
+    }
+}
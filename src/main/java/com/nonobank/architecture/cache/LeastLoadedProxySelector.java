@@ -0,0 +1,129 @@
+package com.nonobank.architecture.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按负载选择 proxy(power of two choices)
+ * 每次随机取两个未被剔除的 proxy,选 {@link ProxyLoad#cost} 较小的一个:变慢或积压的 proxy 很快分不到流量,
+ * 随机性又避免所有客户端同时涌向同一个"最快"的 proxy。
+ * 连续失败达到 proxyEjectionConsecutiveFailures 次,或延迟 EWMA 超过中位数 proxyEjectionLatencyFactor 倍的 proxy
+ * 被剔除 proxyEjectionMillis,同时被剔除的 proxy 不超过 proxyMaxEjectionPercent;剔除结束后按慢启动权重逐步恢复流量。
+ */
+public class LeastLoadedProxySelector implements ProxySelector {
+
+    private static final Logger log = LoggerFactory.getLogger(LeastLoadedProxySelector.class);
+
+    /**按延迟检查异常 proxy 的间隔*/
+    private static final long EVALUATE_INTERVAL_MILLIS = 1000;
+
+    private final int ejectionConsecutiveFailures;
+
+    private final double ejectionLatencyFactor;
+
+    private final long ejectionMinLatencyNanos;
+
+    private final long ejectionMillis;
+
+    private final int maxEjectionPercent;
+
+    private final AtomicLong nextEvaluation = new AtomicLong();
+
+    public LeastLoadedProxySelector(CacheConfig config) {
+        this.ejectionConsecutiveFailures = config.getProxyEjectionConsecutiveFailures();
+        this.ejectionLatencyFactor = config.getProxyEjectionLatencyFactor();
+        this.ejectionMinLatencyNanos = TimeUnit.MILLISECONDS.toNanos(config.getProxyEjectionMinLatencyMillis());
+        this.ejectionMillis = config.getProxyEjectionMillis();
+        this.maxEjectionPercent = config.getProxyMaxEjectionPercent();
+    }
+
+    @Override
+    public int select(ProxyLoad[] proxies) {
+        if (proxies.length == 1) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long next = nextEvaluation.get();
+        if (now >= next && nextEvaluation.compareAndSet(next, now + EVALUATE_INTERVAL_MILLIS)) {
+            evaluate(proxies, now);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = pick(proxies, random.nextInt(proxies.length), -1, now);
+        int second = pick(proxies, random.nextInt(proxies.length), first, now);
+        int selected = first;
+        if (second >= 0) {
+            ProxyLoad a = proxies[first];
+            ProxyLoad b = proxies[second];
+            // 没有延迟样本的 proxy 按对方衰减后的延迟比较,只看在途命令数和慢启动权重;
+            // 用未衰减的延迟比较时它的代价总是更高,永远分不到流量
+            if (b.cost(a.decayedLatencyNanos(), now) < a.cost(b.decayedLatencyNanos(), now)) {
+                selected = second;
+            }
+        }
+        if (ejectionConsecutiveFailures > 0 && proxies[selected].getConsecutiveFailures() >= ejectionConsecutiveFailures) {
+            eject(proxies, proxies[selected], now, "consecutive failures: " + proxies[selected].getConsecutiveFailures());
+        }
+        return selected;
+    }
+
+    /**
+     * 从 start 开始找第一个未被剔除且不是 exclude 的 proxy
+     * 选第一个时(exclude 为 -1)全部被剔除则忽略剔除状态,选第二个时没有可选的返回 -1
+     */
+    private static int pick(ProxyLoad[] proxies, int start, int exclude, long now) {
+        for (int i = 0; i < proxies.length; i++) {
+            int index = (start + i) % proxies.length;
+            if (index != exclude && !proxies[index].isEjected(now)) {
+                return index;
+            }
+        }
+        return exclude < 0 ? start : -1;
+    }
+
+    /**
+     * 剔除延迟 EWMA 明显高于其他 proxy 的 proxy
+     */
+    private void evaluate(ProxyLoad[] proxies, long now) {
+        long[] latencies = new long[proxies.length];
+        int count = 0;
+        for (ProxyLoad proxy : proxies) {
+            if (!proxy.isEjected(now) && proxy.getLatencyNanos() > 0) {
+                latencies[count++] = proxy.getLatencyNanos();
+            }
+        }
+        if (count < 2) {
+            return;
+        }
+        Arrays.sort(latencies, 0, count);
+        long median = latencies[count / 2];
+        for (ProxyLoad proxy : proxies) {
+            long latency = proxy.getLatencyNanos();
+            if (!proxy.isEjected(now) && latency > ejectionMinLatencyNanos && latency > median * ejectionLatencyFactor) {
+                eject(proxies, proxy, now, "latency micros: " + latency / 1000 + " median micros: " + median / 1000);
+            }
+        }
+    }
+
+    private synchronized void eject(ProxyLoad[] proxies, ProxyLoad proxy, long now, String reason) {
+        if (proxy.isEjected(now)) {
+            return;
+        }
+        int ejected = 0;
+        for (ProxyLoad other : proxies) {
+            if (other.isEjected(now)) {
+                ejected++;
+            }
+        }
+        int max = Math.min(proxies.length - 1, proxies.length * maxEjectionPercent / 100);
+        if (ejected >= max) {
+            return;
+        }
+        proxy.eject(now + ejectionMillis);
+        log.warn("codis proxy ejected for " + ejectionMillis + "ms, address: " + proxy.getAddress() + " " + reason);
+    }
+}
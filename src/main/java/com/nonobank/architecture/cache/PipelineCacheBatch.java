@@ -0,0 +1,534 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+import redis.clients.util.SafeEncoder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于 Jedis {@link Pipeline} 的 {@link CacheBatch} 实现
+ */
+class PipelineCacheBatch implements CacheBatch {
+
+    private final Pipeline pipeline;
+
+    PipelineCacheBatch(Pipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public Response<String> set(String key, String value) {
+        return pipeline.set(key, value);
+    }
+
+    @Override
+    public Response<String> get(String key) {
+        return pipeline.get(key);
+    }
+
+    @Override
+    public Response<Long> setnx(String key, String value) {
+        return pipeline.setnx(key, value);
+    }
+
+    @Override
+    public Response<String> getSet(String key, String value) {
+        return pipeline.getSet(key, value);
+    }
+
+    @Override
+    public Response<Boolean> exists(String key) {
+        return pipeline.exists(key);
+    }
+
+    @Override
+    public Response<Long> expire(String key, int seconds) {
+        return pipeline.expire(key, seconds);
+    }
+
+    @Override
+    public Response<Long> expireAt(String key, long unixTime) {
+        return pipeline.expireAt(key, unixTime);
+    }
+
+    @Override
+    public Response<Long> append(String key, String value) {
+        return pipeline.append(key, value);
+    }
+
+    @Override
+    public Response<Long> decr(String key) {
+        return pipeline.decr(key);
+    }
+
+    @Override
+    public Response<Long> decrBy(String key, long integer) {
+        return pipeline.decrBy(key, integer);
+    }
+
+    @Override
+    public Response<Long> incr(String key) {
+        return pipeline.incr(key);
+    }
+
+    @Override
+    public Response<Long> incrBy(String key, long integer) {
+        return pipeline.incrBy(key, integer);
+    }
+
+    @Override
+    public Response<Long> del(String... keys) {
+        return pipeline.del(keys);
+    }
+
+    @Override
+    public Response<String> getrange(String key, long startOffset, long endOffset) {
+        return pipeline.getrange(key, startOffset, endOffset);
+    }
+
+    @Override
+    public Response<String> hget(String key, String field) {
+        return pipeline.hget(key, field);
+    }
+
+    @Override
+    public Response<Long> hdel(String key, String... fields) {
+        return pipeline.hdel(key, fields);
+    }
+
+    @Override
+    public Response<Boolean> hexists(String key, String field) {
+        return pipeline.hexists(key, field);
+    }
+
+    @Override
+    public Response<Map<String, String>> hgetAll(String key) {
+        return pipeline.hgetAll(key);
+    }
+
+    @Override
+    public Response<Long> hincrBy(String key, String field, long value) {
+        return pipeline.hincrBy(key, field, value);
+    }
+
+    @Override
+    public Response<Set<String>> hkeys(String key) {
+        return pipeline.hkeys(key);
+    }
+
+    @Override
+    public Response<Long> hlen(String key) {
+        return pipeline.hlen(key);
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return pipeline.hmget(key, fields);
+    }
+
+    @Override
+    public Response<String> hmset(String key, Map<String, String> hash) {
+        return pipeline.hmset(key, hash);
+    }
+
+    @Override
+    public Response<Long> hset(String key, String field, String value) {
+        return pipeline.hset(key, field, value);
+    }
+
+    @Override
+    public Response<Long> hsetnx(String key, String field, String value) {
+        return pipeline.hsetnx(key, field, value);
+    }
+
+    @Override
+    public Response<List<String>> hvals(String key) {
+        return pipeline.hvals(key);
+    }
+
+    @Override
+    public Response<String> lindex(String key, long index) {
+        return pipeline.lindex(key, index);
+    }
+
+    @Override
+    public Response<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        return pipeline.linsert(key, where.warp(), pivot, value);
+    }
+
+    @Override
+    public Response<List<String>> mget(String... keys) {
+        return pipeline.mget(keys);
+    }
+
+    @Override
+    public Response<String> mset(String... keysvalues) {
+        return pipeline.mset(keysvalues);
+    }
+
+    @Override
+    public Response<Long> llen(String key) {
+        return pipeline.llen(key);
+    }
+
+    @Override
+    public Response<String> lpop(String key) {
+        return pipeline.lpop(key);
+    }
+
+    @Override
+    public Response<Long> lpush(String key, String... strings) {
+        return pipeline.lpush(key, strings);
+    }
+
+    @Override
+    public Response<Long> lpushx(String key, String... string) {
+        return pipeline.lpushx(key, string);
+    }
+
+    @Override
+    public Response<List<String>> lrange(String key, long start, long end) {
+        return pipeline.lrange(key, start, end);
+    }
+
+    @Override
+    public Response<Long> lrem(String key, long count, String value) {
+        return pipeline.lrem(key, count, value);
+    }
+
+    @Override
+    public Response<String> ltrim(String key, long start, long end) {
+        return pipeline.ltrim(key, start, end);
+    }
+
+    @Override
+    public Response<String> lset(String key, long index, String value) {
+        return pipeline.lset(key, index, value);
+    }
+
+    @Override
+    public Response<String> rpop(String key) {
+        return pipeline.rpop(key);
+    }
+
+    @Override
+    public Response<Long> rpush(String key, String... strings) {
+        return pipeline.rpush(key, strings);
+    }
+
+    @Override
+    public Response<Long> rpushx(String key, String string) {
+        return pipeline.rpushx(key, string);
+    }
+
+    @Override
+    public Response<Long> sadd(String key, String... members) {
+        return pipeline.sadd(key, members);
+    }
+
+    @Override
+    public Response<Long> scard(String key) {
+        return pipeline.scard(key);
+    }
+
+    @Override
+    public Response<Set<String>> smembers(String key) {
+        return pipeline.smembers(key);
+    }
+
+    @Override
+    public Response<String> setExpire(String key, int seconds, String value) {
+        return pipeline.setex(key, seconds, value);
+    }
+
+    @Override
+    public Response<String> spop(String key) {
+        return pipeline.spop(key);
+    }
+
+    @Override
+    public Response<Long> setrange(String key, long offset, String value) {
+        return pipeline.setrange(key, offset, value);
+    }
+
+    @Override
+    public Response<Boolean> sismember(String key, String member) {
+        return pipeline.sismember(key, member);
+    }
+
+    @Override
+    public Response<Long> strlen(String key) {
+        return pipeline.strlen(key);
+    }
+
+    @Override
+    public Response<Long> ttl(String key) {
+        return pipeline.ttl(key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key) {
+        return pipeline.sort(key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key, SortingParams sortingParameters) {
+        return pipeline.sort(key, sortingParameters);
+    }
+
+    @Override
+    public Response<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        return pipeline.sort(key, sortingParameters, dstkey);
+    }
+
+    @Override
+    public Response<Long> sort(String key, String dstkey) {
+        return pipeline.sort(key, dstkey);
+    }
+
+    @Override
+    public Response<String> srandmember(String key) {
+        return pipeline.srandmember(key);
+    }
+
+    @Override
+    public Response<List<String>> srandmember(String key, int count) {
+        return pipeline.srandmember(key, count);
+    }
+
+    @Override
+    public Response<Long> srem(String key, String... members) {
+        return pipeline.srem(key, members);
+    }
+
+    @Override
+    public Response<String> substr(String key, int start, int end) {
+        return pipeline.substr(key, start, end);
+    }
+
+    @Override
+    public Response<String> type(String key) {
+        return pipeline.type(key);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member) {
+        return pipeline.zadd(key, score, member);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        return pipeline.zadd(key, scoreMembers);
+    }
+
+    @Override
+    public Response<Long> zcard(String key) {
+        return pipeline.zcard(key);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, double min, double max) {
+        return pipeline.zcount(key, min, max);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, String min, String max) {
+        return pipeline.zcount(key, min, max);
+    }
+
+    @Override
+    public Response<Double> zincrby(String key, double score, String member) {
+        return pipeline.zincrby(key, score, member);
+    }
+
+    @Override
+    public Response<Set<String>> zrange(String key, long start, long end) {
+        return pipeline.zrange(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+        return pipeline.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return pipeline.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max) {
+        return pipeline.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return pipeline.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return pipeline.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return pipeline.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return pipeline.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return pipeline.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return pipeline.zrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zrank(String key, String member) {
+        return pipeline.zrank(key, member);
+    }
+
+    @Override
+    public Response<Long> zrem(String key, String... members) {
+        return pipeline.zrem(key, members);
+    }
+
+    @Override
+    public Response<Long> zremrangeByRank(String key, long start, long end) {
+        return pipeline.zremrangeByRank(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, double start, double end) {
+        return pipeline.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, String start, String end) {
+        return pipeline.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrange(String key, long start, long end) {
+        return pipeline.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return pipeline.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return pipeline.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return pipeline.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return pipeline.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return pipeline.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return pipeline.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return pipeline.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return pipeline.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return pipeline.zrevrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zrevrank(String key, String member) {
+        return pipeline.zrevrank(key, member);
+    }
+
+    @Override
+    public Response<Double> zscore(String key, String member) {
+        return pipeline.zscore(key, member);
+    }
+
+    @Override
+    public Response<byte[]> getBytes(String key) {
+        return pipeline.get(SafeEncoder.encode(key));
+    }
+
+    @Override
+    public Response<String> setBytes(String key, byte[] value) {
+        return pipeline.set(SafeEncoder.encode(key), value);
+    }
+
+    @Override
+    public Response<String> setExpireBytes(String key, int seconds, byte[] value) {
+        return pipeline.setex(SafeEncoder.encode(key), seconds, value);
+    }
+
+    @Override
+    public Response<List<byte[]>> mgetBytes(String... keys) {
+        return pipeline.mget(SafeEncoder.encodeMany(keys));
+    }
+
+    @Override
+    public Response<byte[]> hgetBytes(String key, String field) {
+        return pipeline.hget(SafeEncoder.encode(key), SafeEncoder.encode(field));
+    }
+
+    @Override
+    public Response<Long> hsetBytes(String key, String field, byte[] value) {
+        return pipeline.hset(SafeEncoder.encode(key), SafeEncoder.encode(field), value);
+    }
+
+    @Override
+    public Response<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return pipeline.hmget(SafeEncoder.encode(key), SafeEncoder.encodeMany(fields));
+    }
+
+    @Override
+    public Response<Long> rpushBytes(String key, byte[]... values) {
+        return pipeline.rpush(SafeEncoder.encode(key), values);
+    }
+
+    @Override
+    public Response<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return pipeline.lrange(SafeEncoder.encode(key), start, end);
+    }
+
+    @Override
+    public Response<String> eval(String script, List<String> keys, List<String> args) {
+        return pipeline.eval(script, keys, args);
+    }
+}
@@ -0,0 +1,169 @@
+package com.nonobank.architecture.cache;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 proxy 的实时负载:在途命令数、延迟 EWMA、连续失败次数和剔除状态,供 {@link ProxySelector} 选择 proxy
+ * 延迟使用峰值敏感的 EWMA:比当前值慢的样本直接生效,比当前值快的样本按时间常数衰减,
+ * 这样刚开始变慢的 proxy 会立即被避开,恢复后再逐步收回流量;没有新样本时估计值随时间衰减,
+ * 被避开的 proxy 过一段时间会重新分到少量请求用来探测是否恢复。
+ * 字段更新不加锁,并发更新时偶尔丢失一个样本对估计值没有影响。
+ */
+public class ProxyLoad {
+
+    /**失败按一次读超时计入延迟,避免快速失败(连接被拒绝)的 proxy 看起来延迟很低而吸走流量*/
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.MILLISECONDS.toNanos(Protocol.DEFAULT_TIMEOUT);
+
+    /**权重的下限,慢启动开始时仍然分到少量流量*/
+    private static final double MIN_WEIGHT = 0.1;
+
+    private final HostAndPort address;
+
+    private final double decayNanos;
+
+    private final long slowStartMillis;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**延迟 EWMA(纳秒),0 表示还没有样本*/
+    private volatile long latencyNanos;
+
+    private volatile long lastSampleNanos = System.nanoTime();
+
+    private volatile int consecutiveFailures;
+
+    private volatile long ejectedUntil;
+
+    private volatile long slowStartAt;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder ejections = new LongAdder();
+
+    public ProxyLoad(HostAndPort address, CacheConfig config) {
+        this.address = address;
+        this.decayNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getProxyLatencyDecayMillis()));
+        this.slowStartMillis = config.getProxySlowStartMillis();
+        this.slowStartAt = System.currentTimeMillis();
+    }
+
+    public HostAndPort getAddress() {
+        return address;
+    }
+
+    void onStart() {
+        inFlight.incrementAndGet();
+        requests.increment();
+    }
+
+    /**
+     * 命令结束,与 {@link #onStart()} 成对调用
+     */
+    void onComplete(long elapsedNanos, boolean failure) {
+        inFlight.decrementAndGet();
+        onSample(elapsedNanos, failure);
+    }
+
+    /**
+     * 没有借到连接(连接失败、连接池耗尽),不经过 {@link #onStart()}
+     */
+    void onSample(long elapsedNanos, boolean failure) {
+        if (failure) {
+            failures.increment();
+            consecutiveFailures++;
+            elapsedNanos = Math.max(elapsedNanos, FAILURE_PENALTY_NANOS);
+        } else if (consecutiveFailures != 0) {
+            consecutiveFailures = 0;
+        }
+        long now = System.nanoTime();
+        long current = latencyNanos;
+        if (current == 0 || elapsedNanos >= current) {
+            latencyNanos = elapsedNanos;
+        } else {
+            double w = Math.exp(-(now - lastSampleNanos) / decayNanos);
+            latencyNanos = (long) (current * w + elapsedNanos * (1 - w));
+        }
+        lastSampleNanos = now;
+    }
+
+    /**
+     * @return 选择代价,越小越优先:延迟 EWMA × (在途命令数 + 1) ÷ 慢启动权重
+     * @param unknownLatencyNanos 还没有延迟样本时使用的延迟
+     */
+    public double cost(double unknownLatencyNanos, long nowMillis) {
+        double latency = latencyNanos == 0 ? unknownLatencyNanos : decayedLatencyNanos();
+        return (latency + 1) * (double) (inFlight.get() + 1) / weight(nowMillis);
+    }
+
+    /**
+     * @return 按距上次样本的时间衰减后的延迟(纳秒),与 {@link #cost} 使用的延迟相同,没有样本时为 0
+     */
+    public double decayedLatencyNanos() {
+        long current = latencyNanos;
+        return current == 0 ? 0 : current * Math.exp(-(System.nanoTime() - lastSampleNanos) / decayNanos);
+    }
+
+    /**
+     * @return 慢启动权重,从 0.1 线性增长到 1
+     */
+    public double weight(long nowMillis) {
+        long elapsed = nowMillis - slowStartAt;
+        if (slowStartMillis <= 0 || elapsed >= slowStartMillis) {
+            return 1.0;
+        }
+        return MIN_WEIGHT + (1 - MIN_WEIGHT) * Math.max(0, elapsed) / slowStartMillis;
+    }
+
+    public boolean isEjected(long nowMillis) {
+        return nowMillis < ejectedUntil;
+    }
+
+    /**
+     * 剔除到 until,之后从慢启动重新开始,剔除前的延迟样本作废
+     */
+    void eject(long until) {
+        ejectedUntil = until;
+        slowStartAt = until;
+        latencyNanos = 0;
+        consecutiveFailures = 0;
+        ejections.increment();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getEjections() {
+        return ejections.sum();
+    }
+
+    @Override
+    public String toString() {
+        return address + "{inFlight=" + inFlight.get() + ", latencyMicros=" + latencyNanos / 1000
+                + ", requests=" + requests.sum() + ", failures=" + failures.sum() + ", ejections=" + ejections.sum()
+                + ", ejected=" + isEjected(System.currentTimeMillis()) + "}";
+    }
+}
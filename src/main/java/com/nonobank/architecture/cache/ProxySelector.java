@@ -0,0 +1,39 @@
+package com.nonobank.architecture.cache;
+
+/**
+ * {@link CodisProxyPool} 每次借用连接时选择 proxy 的策略
+ * 内置 roundRobin({@link RoundRobinProxySelector})和 leastLoaded({@link LeastLoadedProxySelector}),
+ * 也可以配置实现类的全名,实现类需要有 (CacheConfig) 或无参构造函数。
+ */
+public interface ProxySelector {
+
+    String ROUND_ROBIN = "roundRobin";
+
+    String LEAST_LOADED = "leastLoaded";
+
+    /**
+     * @param proxies 当前在线的 proxy,至少一个,同一个数组在 proxy 列表变化前会被重复传入
+     * @return 优先使用的 proxy 下标;该 proxy 熔断或借不到连接时,连接池按顺序尝试其后的 proxy
+     */
+    int select(ProxyLoad[] proxies);
+
+    static ProxySelector of(CacheConfig config) {
+        String name = config.getProxySelector();
+        if (name == null || ROUND_ROBIN.equalsIgnoreCase(name)) {
+            return new RoundRobinProxySelector();
+        }
+        if (LEAST_LOADED.equalsIgnoreCase(name)) {
+            return new LeastLoadedProxySelector(config);
+        }
+        try {
+            Class<?> type = Class.forName(name);
+            try {
+                return (ProxySelector) type.getConstructor(CacheConfig.class).newInstance(config);
+            } catch (NoSuchMethodException e) {
+                return (ProxySelector) type.getDeclaredConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("unknown proxy selector: " + name, e);
+        }
+    }
+}
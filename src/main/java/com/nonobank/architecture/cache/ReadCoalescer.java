@@ -0,0 +1,294 @@
+package com.nonobank.architecture.cache;
+
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import io.codis.jodis.JedisResourcePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 读请求合并器
+ * 把一个时间窗口内并发到达的 get/hget 请求合并为一次 MGET 加若干 HMGET(同一个 hash 的字段合并),
+ * 用一个连接、一次 pipeline 往返发送,再把结果分发给各个等待的调用线程。
+ * 窗口内第一个请求的线程负责等待窗口结束并发送,请求数达到上限时由填满该批的线程立即发送并唤醒第一个线程,
+ * 第一个线程等待时被中断则立即发送并保留中断状态。
+ * MGET 对非 string 类型的 key 返回 nil 而不是 WRONGTYPE,为了和单独 GET 的行为一致,
+ * MGET 中有 nil 时在同一个连接上再用一条 EXISTS 确认这些 key 都不存在(批次多一次往返、一条命令),
+ * 只有 EXISTS 发现其中有 key 存在时才逐个 GET;只有一个 key 的批次直接发送 GET。
+ */
+class ReadCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadCoalescer.class);
+
+    private final JedisResourcePool pool;
+
+    private final CacheConfig config;
+
+    private final long windowNanos;
+
+    private final int maxKeys;
+
+    private final Object lock = new Object();
+
+    private Batch current;
+
+    ReadCoalescer(JedisResourcePool pool, CacheConfig config) {
+        this.pool = pool;
+        this.config = config;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(config.getAutoBatchWindowMicros());
+        this.maxKeys = Math.max(1, config.getAutoBatchMaxKeys());
+    }
+
+    String get(String key) {
+        return await(enqueue(null, key));
+    }
+
+    String hget(String key, String field) {
+        return await(enqueue(key, field));
+    }
+
+    private CompletableFuture<String> enqueue(String hash, String keyOrField) {
+        Batch batch;
+        CompletableFuture<String> future;
+        boolean leader = false;
+        boolean full = false;
+        synchronized (lock) {
+            if (current == null) {
+                current = new Batch(Thread.currentThread());
+                leader = true;
+            }
+            batch = current;
+            future = batch.add(hash, keyOrField);
+            if (batch.size >= maxKeys) {
+                current = null;
+                batch.closed = true;
+                full = true;
+            }
+        }
+        if (full) {
+            if (!leader) {
+                LockSupport.unpark(batch.leader);
+            }
+            flush(batch);
+        } else if (leader) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            boolean interrupted = false;
+            while (!batch.closed && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+            }
+            boolean mine = false;
+            synchronized (lock) {
+                if (current == batch) {
+                    current = null;
+                    batch.closed = true;
+                    mine = true;
+                }
+            }
+            if (mine) {
+                flush(batch);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return future;
+    }
+
+    private void flush(Batch batch) {
+        try (Jedis jedis = CodisProxyPool.getResource(pool, CommandClass.READ)) {
+            Pipeline pipeline = jedis.pipelined();
+            Response<List<String>> values = null;
+            Response<String> single = null;
+            if (batch.keys.size() == 1) {
+                single = pipeline.get(batch.keys.keySet().iterator().next());
+            } else if (!batch.keys.isEmpty()) {
+                values = pipeline.mget(batch.keys.keySet().toArray(new String[batch.keys.size()]));
+            }
+            Map<String, Response<List<String>>> hashValues = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<String, List<CompletableFuture<String>>>> entry : batch.hashes.entrySet()) {
+                Map<String, List<CompletableFuture<String>>> fields = entry.getValue();
+                hashValues.put(entry.getKey(), pipeline.hmget(entry.getKey(), fields.keySet().toArray(new String[fields.size()])));
+            }
+            pipeline.sync();
+            if (single != null) {
+                complete(batch.keys.values().iterator().next(), single);
+            }
+            if (values != null) {
+                Map<String, List<CompletableFuture<String>>> misses = complete(batch.keys, values, true);
+                if (!misses.isEmpty()) {
+                    confirmMisses(jedis, misses);
+                }
+            }
+            for (Map.Entry<String, Response<List<String>>> entry : hashValues.entrySet()) {
+                complete(batch.hashes.get(entry.getKey()), entry.getValue(), false);
+            }
+        } catch (Exception e) {
+            if (config.getDebug()) {
+                log.info(e.getMessage());
+            }
+            batch.fail(e);
+        }
+    }
+
+    /**
+     * MGET 中为 nil 的 key 先用一条 EXISTS 确认,都不存在(通常情况)时直接得到 null;
+     * 有 key 存在时说明其中有非 string 类型的 key,逐个 GET 一次,类型不对的 key 得到 WRONGTYPE 异常
+     */
+    private static void confirmMisses(Jedis jedis, Map<String, List<CompletableFuture<String>>> misses) {
+        if (jedis.exists(misses.keySet().toArray(new String[misses.size()])) == 0) {
+            for (List<CompletableFuture<String>> futures : misses.values()) {
+                for (CompletableFuture<String> future : futures) {
+                    future.complete(null);
+                }
+            }
+            return;
+        }
+        Pipeline pipeline = jedis.pipelined();
+        Map<String, Response<String>> replies = new LinkedHashMap<>();
+        for (String key : misses.keySet()) {
+            replies.put(key, pipeline.get(key));
+        }
+        pipeline.sync();
+        for (Map.Entry<String, Response<String>> entry : replies.entrySet()) {
+            complete(misses.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * 按顺序把多值回复分发给等待的调用方
+     *
+     * @param holdMisses 为 true 时回复为 nil 的等待者不完成,交给调用方确认
+     * @return holdMisses 为 true 时回复为 nil 的 key 和它们的等待者
+     */
+    private static Map<String, List<CompletableFuture<String>>> complete(Map<String, List<CompletableFuture<String>>> waiters,
+                                                                        Response<List<String>> response, boolean holdMisses) {
+        List<String> values;
+        try {
+            values = response.get();
+        } catch (RuntimeException e) {
+            for (List<CompletableFuture<String>> futures : waiters.values()) {
+                for (CompletableFuture<String> future : futures) {
+                    future.completeExceptionally(e);
+                }
+            }
+            return Collections.emptyMap();
+        }
+        Map<String, List<CompletableFuture<String>>> misses = Collections.emptyMap();
+        int i = 0;
+        for (Map.Entry<String, List<CompletableFuture<String>>> entry : waiters.entrySet()) {
+            String value = values.get(i++);
+            if (value == null && holdMisses) {
+                if (misses.isEmpty()) {
+                    misses = new LinkedHashMap<>();
+                }
+                misses.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            for (CompletableFuture<String> future : entry.getValue()) {
+                future.complete(value);
+            }
+        }
+        return misses;
+    }
+
+    private static void complete(List<CompletableFuture<String>> futures, Response<String> response) {
+        String value;
+        try {
+            value = response.get();
+        } catch (RuntimeException e) {
+            for (CompletableFuture<String> future : futures) {
+                future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (CompletableFuture<String> future : futures) {
+            future.complete(value);
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JedisException(cause);
+        }
+    }
+
+    /**
+     * 一个合并窗口内收集到的请求,相同 key(或相同 hash 的相同字段)只发送一次
+     */
+    private static class Batch {
+
+        final Map<String, List<CompletableFuture<String>>> keys = new LinkedHashMap<>();
+
+        final Map<String, Map<String, List<CompletableFuture<String>>>> hashes = new LinkedHashMap<>();
+
+        /**等待窗口结束的线程,批次被填满时由填满的线程唤醒*/
+        final Thread leader;
+
+        int size;
+
+        volatile boolean closed;
+
+        Batch(Thread leader) {
+            this.leader = leader;
+        }
+
+        CompletableFuture<String> add(String hash, String keyOrField) {
+            Map<String, List<CompletableFuture<String>>> target = keys;
+            if (hash != null) {
+                target = hashes.get(hash);
+                if (target == null) {
+                    target = new LinkedHashMap<>();
+                    hashes.put(hash, target);
+                }
+            }
+            List<CompletableFuture<String>> futures = target.get(keyOrField);
+            if (futures == null) {
+                futures = new ArrayList<>(1);
+                target.put(keyOrField, futures);
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            futures.add(future);
+            size++;
+            return future;
+        }
+
+        void fail(Throwable e) {
+            for (List<CompletableFuture<String>> futures : keys.values()) {
+                for (CompletableFuture<String> future : futures) {
+                    future.completeExceptionally(e);
+                }
+            }
+            for (Map<String, List<CompletableFuture<String>>> fields : hashes.values()) {
+                for (List<CompletableFuture<String>> futures : fields.values()) {
+                    for (CompletableFuture<String> future : futures) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nonobank.architecture.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 轮询选择 proxy,与 jodis RoundRobinJedisPool 一致,不考虑 proxy 的负载
+ */
+public class RoundRobinProxySelector implements ProxySelector {
+
+    private final AtomicInteger nextIdx = new AtomicInteger();
+
+    @Override
+    public int select(ProxyLoad[] proxies) {
+        return Math.abs(nextIdx.getAndIncrement() % proxies.length);
+    }
+}
@@ -0,0 +1,255 @@
+package com.nonobank.architecture.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * cache-aside 加载器
+ * 同一个 JVM 内同一个 key 同时只有一个线程执行加载,其他线程等待并共享它的结果;
+ * 开启 loaderLease 后,加载前在 codis 上用 setnx+expire 抢占一个短期租约,
+ * 未抢到租约的实例在 loaderLeaseWaitMillis 内轮询等待持有者写入的结果,超时后再自行加载。
+ * 提前刷新模式下值以 {@link ValueEnvelope} 格式写入,读取时按 XFetch 概率在后台提前重新加载,期间继续返回当前值。
+ * 只依赖 {@link AbstractCacheClient} 的同步命令,其他引擎的客户端也可以复用。
+ */
+public class SingleFlightLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightLoader.class);
+
+    private static final String LEASE_PREFIX = "__lease:";
+
+    private static final long LEASE_POLL_MILLIS = 20;
+
+    private final AbstractCacheClient client;
+
+    private final CacheConfig config;
+
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private volatile ThreadPoolExecutor refresher;
+
+    public SingleFlightLoader(AbstractCacheClient client, CacheConfig config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        String value = client.get(key);
+        if (value != null) {
+            return value;
+        }
+        return loadOnce(key, loader, ttlSeconds, false);
+    }
+
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        String raw = client.get(key);
+        if (raw == null) {
+            return loadOnce(key, loader, ttlSeconds, true);
+        }
+        ValueEnvelope envelope = ValueEnvelope.decode(raw);
+        if (envelope == null) {
+            return raw;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        if (envelope.shouldRefresh(System.currentTimeMillis(), config.getRefreshAheadBeta(), random)) {
+            refreshInBackground(key, loader, ttlSeconds, envelope.value);
+        }
+        return envelope.value;
+    }
+
+    private String loadOnce(String key, Function<String, String> loader, int ttlSeconds, boolean envelope) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // 上一个加载者可能刚写入并移除了在途记录,再读一次避免重复加载
+            String value = cached(key, envelope);
+            if (value == null) {
+                value = config.getLoaderLease()
+                        ? loadWithLease(key, loader, ttlSeconds, envelope)
+                        : load(key, loader, ttlSeconds, envelope);
+            }
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // 包括 Error 和 loader 抛出的受检异常,等待同一个 future 的线程不能永远阻塞
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void refreshInBackground(String key, Function<String, String> loader, int ttlSeconds, String current) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            refresher().execute(() -> {
+                try {
+                    future.complete(refresh(key, loader, ttlSeconds, current));
+                } catch (RuntimeException e) {
+                    log.info("refresh ahead failed, key:" + key + " Exception: " + e.toString());
+                } finally {
+                    // 刷新失败(包括 Error)时返回当前值,已完成时无效
+                    future.complete(current);
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 刷新线程忙,放弃本次刷新,后续读取还会再次尝试
+            inFlight.remove(key, future);
+            future.complete(current);
+        }
+    }
+
+    /**
+     * 后台刷新时若其他实例持有租约,说明已经有人在刷新,直接放弃
+     */
+    private String refresh(String key, Function<String, String> loader, int ttlSeconds, String current) {
+        if (!config.getLoaderLease()) {
+            return load(key, loader, ttlSeconds, true);
+        }
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        if (!tryLease(leaseKey, token)) {
+            return current;
+        }
+        try {
+            return load(key, loader, ttlSeconds, true);
+        } finally {
+            releaseLease(leaseKey, token);
+        }
+    }
+
+    private String load(String key, Function<String, String> loader, int ttlSeconds, boolean envelope) {
+        long start = System.currentTimeMillis();
+        String value = loader.apply(key);
+        if (value != null) {
+            if (envelope) {
+                long now = System.currentTimeMillis();
+                client.setExpire(key, ttlSeconds, ValueEnvelope.encode(value, now + ttlSeconds * 1000L, now - start));
+            } else {
+                client.setExpire(key, ttlSeconds, value);
+            }
+        }
+        return value;
+    }
+
+    private String loadWithLease(String key, Function<String, String> loader, int ttlSeconds, boolean envelope) {
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        if (tryLease(leaseKey, token)) {
+            try {
+                return load(key, loader, ttlSeconds, envelope);
+            } finally {
+                releaseLease(leaseKey, token);
+            }
+        }
+        long deadline = System.currentTimeMillis() + config.getLoaderLeaseWaitMillis();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(Math.min(LEASE_POLL_MILLIS, Math.max(1, deadline - System.currentTimeMillis())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            String value = cached(key, envelope);
+            if (value != null) {
+                return value;
+            }
+        }
+        return load(key, loader, ttlSeconds, envelope);
+    }
+
+    private String cached(String key, boolean envelope) {
+        String value = client.get(key);
+        if (value == null || !envelope) {
+            return value;
+        }
+        ValueEnvelope loaded = ValueEnvelope.decode(value);
+        return loaded == null ? value : loaded.value;
+    }
+
+    private boolean tryLease(String leaseKey, String token) {
+        if (client.setnx(leaseKey, token) == 1) {
+            client.expire(leaseKey, config.getLoaderLeaseSeconds());
+            return true;
+        }
+        // 持有者可能在 setnx 与 expire 之间退出,补上有效期避免租约永不过期
+        if (client.ttl(leaseKey) == -1) {
+            client.expire(leaseKey, config.getLoaderLeaseSeconds());
+        }
+        return false;
+    }
+
+    /**
+     * 只删除自己持有的租约:比较和删除在一个脚本中原子执行,租约过期后被其他实例抢到时不会误删
+     */
+    private void releaseLease(String leaseKey, String token) {
+        try {
+            client.batch(b -> b.eval(CacheScripts.COMPARE_AND_DELETE,
+                    Collections.singletonList(leaseKey), Collections.singletonList(token)));
+        } catch (RuntimeException e) {
+            // 释放失败时租约在 loaderLeaseSeconds 后过期
+            log.info("release loader lease failed, key:" + leaseKey + " Exception: " + e.toString());
+        }
+    }
+
+    private ThreadPoolExecutor refresher() {
+        if (refresher == null) {
+            synchronized (this) {
+                if (refresher == null) {
+                    int threads = Math.max(1, config.getRefreshAheadThreads());
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(threads * 64), r -> {
+                                Thread thread = new Thread(r, "cache-refresh-ahead");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    refresher = executor;
+                }
+            }
+        }
+        return refresher;
+    }
+
+    /**
+     * 停止提前刷新的后台线程,已提交的刷新继续执行
+     */
+    void close() {
+        ThreadPoolExecutor executor = refresher;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JedisException(cause);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.nonobank.architecture.cache;
+
+/**
+ * 提前刷新模式下写入缓存的值格式:标记 + 到期时间 + 加载耗时 + 原始值
+ * 到期时间为毫秒时间戳,加载耗时为毫秒,均用36进制表示以减少存储
+ */
+final class ValueEnvelope {
+
+    private static final String MARKER = "\u0001xf:";
+
+    private static final char SEPARATOR = ':';
+
+    final String value;
+
+    final long expiryMillis;
+
+    final long deltaMillis;
+
+    private ValueEnvelope(String value, long expiryMillis, long deltaMillis) {
+        this.value = value;
+        this.expiryMillis = expiryMillis;
+        this.deltaMillis = deltaMillis;
+    }
+
+    static String encode(String value, long expiryMillis, long deltaMillis) {
+        return MARKER + Long.toString(expiryMillis, 36) + SEPARATOR + Long.toString(deltaMillis, 36) + SEPARATOR + value;
+    }
+
+    /**
+     * @return 不是提前刷新格式的值返回 null
+     */
+    static ValueEnvelope decode(String raw) {
+        if (!raw.startsWith(MARKER)) {
+            return null;
+        }
+        int expiryEnd = raw.indexOf(SEPARATOR, MARKER.length());
+        int deltaEnd = expiryEnd < 0 ? -1 : raw.indexOf(SEPARATOR, expiryEnd + 1);
+        if (deltaEnd < 0) {
+            return null;
+        }
+        try {
+            long expiry = Long.parseLong(raw.substring(MARKER.length(), expiryEnd), 36);
+            long delta = Long.parseLong(raw.substring(expiryEnd + 1, deltaEnd), 36);
+            return new ValueEnvelope(raw.substring(deltaEnd + 1), expiry, delta);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * XFetch:到期前以 delta * beta * -ln(rand) 的随机提前量决定是否刷新,
+     * 加载越慢、越接近到期,提前刷新的概率越大
+     */
+    boolean shouldRefresh(long nowMillis, double beta, double random) {
+        return nowMillis - deltaMillis * beta * Math.log(random) >= expiryMillis;
+    }
+}
@@ -0,0 +1,249 @@
+package com.nonobank.architecture.cache.async;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link AbstractCacheClient} 的异步版本,每个命令立即返回 CompletableFuture,不阻塞调用线程
+ * 超时的命令以 TimeoutException 失败;取消尚未执行的命令后它不会再发送到服务端。
+ */
+public interface AsyncCacheClient {
+
+	/**返回一个共享同一执行资源、但命令超时为 timeout 的客户端视图,用于单次调用指定超时*/
+	public AsyncCacheClient withTimeout(long timeout, TimeUnit unit);
+
+	public CompletableFuture<String> setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds);
+
+	public CompletableFuture<Boolean> setWithRetry(String key, String value, int retryTimes, int sleepSeconds);
+
+	public CompletableFuture<Long> delWithRetry(int retryTimes, int sleepSeconds, String... keys);
+
+	public CompletableFuture<Boolean> expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds);
+
+	public CompletableFuture<String> getWithRetry(String key, int retryTimes, int sleepSeconds);
+
+	public CompletableFuture<Boolean> set(String key, String value);
+
+	public CompletableFuture<String> get(String key);
+
+	public CompletableFuture<String> get(String key, Function<String, String> loader, int ttlSeconds);
+
+	public CompletableFuture<String> getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds);
+
+	public CompletableFuture<Long> setnx(String key, String value);
+
+	public CompletableFuture<String> getSet(String key, String value);
+
+	public CompletableFuture<Boolean> exists(String key);
+
+	public CompletableFuture<Boolean> expire(String key, int seconds);
+
+	public CompletableFuture<Long> expireAt(String key, long unixTime);
+
+	public CompletableFuture<Long> append(String key, String value);
+
+	public CompletableFuture<Long> decr(String key);
+
+	public CompletableFuture<Long> decrBy(String key, long integer);
+
+	public CompletableFuture<Long> incr(String key);
+
+	public CompletableFuture<Long> incrBy(String key, long integer);
+
+	public CompletableFuture<Long> del(String... keys);
+
+	public CompletableFuture<String> getrange(String key, long startOffset, long endOffset);
+
+	public CompletableFuture<String> hget(String key, String field);
+
+	public CompletableFuture<Long> hdel(String key, String... fields);
+
+	public CompletableFuture<Boolean> hexists(String key, String field);
+
+	public CompletableFuture<Map<String, String>> hgetAll(String key);
+
+	public CompletableFuture<Long> hincrBy(String key, String field, long value);
+
+	public CompletableFuture<Set<String>> hkeys(String key);
+
+	public CompletableFuture<Long> hlen(String key);
+
+	public CompletableFuture<List<String>> hmget(String key, String... fields);
+
+	public CompletableFuture<String> hmset(String key, Map<String, String> hash);
+
+	public CompletableFuture<Long> hset(String key, String field, String value);
+
+	public CompletableFuture<Long> hsetnx(String key, String field, String value);
+
+	public CompletableFuture<List<String>> hvals(String key);
+
+	public CompletableFuture<String> lindex(String key, long index);
+
+	public CompletableFuture<Long> linsert(String key, ListPosition where, String pivot, String value);
+
+	public CompletableFuture<List<String>> mget(String... keys);
+
+	public CompletableFuture<Boolean> mset(String... keysvalues);
+
+	public CompletableFuture<Long> llen(String key);
+
+	public CompletableFuture<String> lpop(String key);
+
+	public CompletableFuture<Long> lpush(String key, String... strings);
+
+	public CompletableFuture<Long> lpushx(String key, String... string);
+
+	public CompletableFuture<List<String>> lrange(String key, long start, long end);
+
+	public CompletableFuture<Long> lrem(String key, long count, String value);
+
+	public CompletableFuture<String> ltrim(String key, long start, long end);
+
+	public CompletableFuture<String> lset(String key, long index, String value);
+
+	public CompletableFuture<String> rpop(String key);
+
+	public CompletableFuture<Long> rpush(String key, String... strings);
+
+	public CompletableFuture<Long> rpushx(String key, String string);
+
+	public CompletableFuture<Long> sadd(String key, String... members);
+
+	public CompletableFuture<Long> scard(String key);
+
+	public CompletableFuture<Set<String>> smembers(String key);
+
+	public CompletableFuture<String> setExpire(String key, int seconds, String value);
+
+	public CompletableFuture<String> spop(String key);
+
+	public CompletableFuture<Long> setrange(String key, long offset, String value);
+
+	public CompletableFuture<Boolean> sismember(String key, String member);
+
+	public CompletableFuture<Long> strlen(String key);
+
+	public CompletableFuture<Long> ttl(String key);
+
+	public CompletableFuture<List<String>> sort(String key);
+
+	public CompletableFuture<List<String>> sort(String key, SortingParams sortingParameters);
+
+	public CompletableFuture<Long> sort(String key, SortingParams sortingParameters, String dstkey);
+
+	public CompletableFuture<Long> sort(String key, String dstkey);
+
+	public CompletableFuture<String> srandmember(String key);
+
+	public CompletableFuture<List<String>> srandmember(String key, int count);
+
+	public CompletableFuture<Long> srem(String key, String... members);
+
+	public CompletableFuture<String> substr(String key, int start, int end);
+
+	public CompletableFuture<String> type(String key);
+
+	public CompletableFuture<Long> zadd(String key, double score, String member);
+
+	public CompletableFuture<Long> zadd(String key, Map<String,Double> scoreMembers);
+
+	public CompletableFuture<Long> zcard(String key);
+
+	public CompletableFuture<Long> zcount(String key, double min, double max);
+
+	public CompletableFuture<Long> zcount(String key, String min, String max);
+
+	public CompletableFuture<Double> zincrby(String key, double score, String member);
+
+	public CompletableFuture<Set<String>> zrange(String key, long start, long end);
+
+	public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max);
+
+	public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count);
+
+	public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max);
+
+	public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max);
+
+	public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max);
+
+	public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrangeWithScores(String key, long start, long end);
+
+	public CompletableFuture<Long> zrank(String key, String member);
+
+	public CompletableFuture<Long> zrem(String key, String... members);
+
+	public CompletableFuture<Long> zremrangeByRank(String key, long start, long end);
+
+	public CompletableFuture<Long> zremrangeByScore(String key, double start, double end);
+
+	public CompletableFuture<Long> zremrangeByScore(String key, String start, String end);
+
+	public CompletableFuture<Set<String>> zrevrange(String key, long start, long end);
+
+	public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min);
+
+	public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count);
+
+	public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min);
+
+	public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min);
+
+	public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min);
+
+	public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count);
+
+	public CompletableFuture<Set<Tuple>> zrevrangeWithScores(String key, long start, long end);
+
+	public CompletableFuture<Long> zrevrank(String key, String member);
+
+	public CompletableFuture<Double> zscore(String key, String member);
+
+	/**二进制值读写,见 AbstractCacheClient#getBytes*/
+	public CompletableFuture<byte[]> getBytes(String key);
+
+	public CompletableFuture<Boolean> setBytes(String key, byte[] value);
+
+	public CompletableFuture<String> setExpireBytes(String key, int seconds, byte[] value);
+
+	public CompletableFuture<List<byte[]>> mgetBytes(String... keys);
+
+	public CompletableFuture<byte[]> hgetBytes(String key, String field);
+
+	public CompletableFuture<Long> hsetBytes(String key, String field, byte[] value);
+
+	public CompletableFuture<List<byte[]>> hmgetBytes(String key, String... fields);
+
+	public CompletableFuture<String> hmsetBytes(String key, Map<String, byte[]> hash);
+
+	public CompletableFuture<Map<String, byte[]>> hgetAllBytes(String key);
+
+	public CompletableFuture<Long> rpushBytes(String key, byte[]... values);
+
+	public CompletableFuture<List<byte[]>> lrangeBytes(String key, long start, long end);
+
+	public CompletableFuture<List<Object>> batch(Consumer<CacheBatch> commands);
+
+}
@@ -0,0 +1,615 @@
+package com.nonobank.architecture.cache.async;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.SingleFlightLoader;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 把 {@link AsyncCacheClient} 适配为同步的 {@link AbstractCacheClient}
+ * 调用线程等待命令完成,异常与同步客户端一致地直接抛出(超时抛出包装了 TimeoutException 的 JedisException)。
+ * cache-aside 加载在调用线程上通过同步命令完成。
+ * 不要在异步客户端的回调线程中调用本类的方法。
+ */
+public class BlockingCacheClient implements AbstractCacheClient, Closeable {
+
+    private final AsyncCacheClient async;
+
+    private final SingleFlightLoader singleFlightLoader;
+
+    public BlockingCacheClient(AsyncCacheClient async, CacheConfig config) {
+        this.async = async;
+        this.singleFlightLoader = new SingleFlightLoader(this, config);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JedisException(cause);
+        }
+    }
+
+    /**
+     * 关闭底层异步客户端
+     */
+    @Override
+    public void close() throws IOException {
+        if (async instanceof Closeable) {
+            ((Closeable) async).close();
+        }
+    }
+
+    @Override
+    public String setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds) {
+        return join(async.setExpireWithRetry(key, seconds, value, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Boolean setWithRetry(String key, String value, int retryTimes, int sleepSeconds) {
+        return join(async.setWithRetry(key, value, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Long delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        return join(async.delWithRetry(retryTimes, sleepSeconds, keys));
+    }
+
+    @Override
+    public Boolean expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds) {
+        return join(async.expireWithRetry(key, seconds, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public String getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        return join(async.getWithRetry(key, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public Boolean set(String key, String value) {
+        return join(async.set(key, value));
+    }
+
+    @Override
+    public String get(String key) {
+        return join(async.get(key));
+    }
+
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        return singleFlightLoader.get(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return singleFlightLoader.getRefreshAhead(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public Long setnx(String key, String value) {
+        return join(async.setnx(key, value));
+    }
+
+    @Override
+    public String getSet(String key, String value) {
+        return join(async.getSet(key, value));
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        return join(async.exists(key));
+    }
+
+    @Override
+    public Boolean expire(String key, int seconds) {
+        return join(async.expire(key, seconds));
+    }
+
+    @Override
+    public Long expireAt(String key, long unixTime) {
+        return join(async.expireAt(key, unixTime));
+    }
+
+    @Override
+    public Long append(String key, String value) {
+        return join(async.append(key, value));
+    }
+
+    @Override
+    public Long decr(String key) {
+        return join(async.decr(key));
+    }
+
+    @Override
+    public Long decrBy(String key, long integer) {
+        return join(async.decrBy(key, integer));
+    }
+
+    @Override
+    public Long incr(String key) {
+        return join(async.incr(key));
+    }
+
+    @Override
+    public Long incrBy(String key, long integer) {
+        return join(async.incrBy(key, integer));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        return join(async.del(keys));
+    }
+
+    @Override
+    public String getrange(String key, long startOffset, long endOffset) {
+        return join(async.getrange(key, startOffset, endOffset));
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return join(async.hget(key, field));
+    }
+
+    @Override
+    public Long hdel(String key, String... fields) {
+        return join(async.hdel(key, fields));
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        return join(async.hexists(key, field));
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return join(async.hgetAll(key));
+    }
+
+    @Override
+    public Long hincrBy(String key, String field, long value) {
+        return join(async.hincrBy(key, field, value));
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        return join(async.hkeys(key));
+    }
+
+    @Override
+    public Long hlen(String key) {
+        return join(async.hlen(key));
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return join(async.hmget(key, fields));
+    }
+
+    @Override
+    public String hmset(String key, Map<String, String> hash) {
+        return join(async.hmset(key, hash));
+    }
+
+    @Override
+    public Long hset(String key, String field, String value) {
+        return join(async.hset(key, field, value));
+    }
+
+    @Override
+    public Long hsetnx(String key, String field, String value) {
+        return join(async.hsetnx(key, field, value));
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        return join(async.hvals(key));
+    }
+
+    @Override
+    public String lindex(String key, long index) {
+        return join(async.lindex(key, index));
+    }
+
+    @Override
+    public Long linsert(String key, ListPosition where, String pivot, String value) {
+        return join(async.linsert(key, where, pivot, value));
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        return join(async.mget(keys));
+    }
+
+    @Override
+    public Boolean mset(String... keysvalues) {
+        return join(async.mset(keysvalues));
+    }
+
+    @Override
+    public Long llen(String key) {
+        return join(async.llen(key));
+    }
+
+    @Override
+    public String lpop(String key) {
+        return join(async.lpop(key));
+    }
+
+    @Override
+    public Long lpush(String key, String... strings) {
+        return join(async.lpush(key, strings));
+    }
+
+    @Override
+    public Long lpushx(String key, String... string) {
+        return join(async.lpushx(key, string));
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        return join(async.lrange(key, start, end));
+    }
+
+    @Override
+    public Long lrem(String key, long count, String value) {
+        return join(async.lrem(key, count, value));
+    }
+
+    @Override
+    public String ltrim(String key, long start, long end) {
+        return join(async.ltrim(key, start, end));
+    }
+
+    @Override
+    public String lset(String key, long index, String value) {
+        return join(async.lset(key, index, value));
+    }
+
+    @Override
+    public String rpop(String key) {
+        return join(async.rpop(key));
+    }
+
+    @Override
+    public Long rpush(String key, String... strings) {
+        return join(async.rpush(key, strings));
+    }
+
+    @Override
+    public Long rpushx(String key, String string) {
+        return join(async.rpushx(key, string));
+    }
+
+    @Override
+    public Long sadd(String key, String... members) {
+        return join(async.sadd(key, members));
+    }
+
+    @Override
+    public Long scard(String key) {
+        return join(async.scard(key));
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        return join(async.smembers(key));
+    }
+
+    @Override
+    public String setExpire(String key, int seconds, String value) {
+        return join(async.setExpire(key, seconds, value));
+    }
+
+    @Override
+    public String spop(String key) {
+        return join(async.spop(key));
+    }
+
+    @Override
+    public Long setrange(String key, long offset, String value) {
+        return join(async.setrange(key, offset, value));
+    }
+
+    @Override
+    public Boolean sismember(String key, String member) {
+        return join(async.sismember(key, member));
+    }
+
+    @Override
+    public Long strlen(String key) {
+        return join(async.strlen(key));
+    }
+
+    @Override
+    public Long ttl(String key) {
+        return join(async.ttl(key));
+    }
+
+    @Override
+    public List<String> sort(String key) {
+        return join(async.sort(key));
+    }
+
+    @Override
+    public List<String> sort(String key, SortingParams sortingParameters) {
+        return join(async.sort(key, sortingParameters));
+    }
+
+    @Override
+    public Long sort(String key, SortingParams sortingParameters, String dstkey) {
+        return join(async.sort(key, sortingParameters, dstkey));
+    }
+
+    @Override
+    public Long sort(String key, String dstkey) {
+        return join(async.sort(key, dstkey));
+    }
+
+    @Override
+    public String srandmember(String key) {
+        return join(async.srandmember(key));
+    }
+
+    @Override
+    public List<String> srandmember(String key, int count) {
+        return join(async.srandmember(key, count));
+    }
+
+    @Override
+    public Long srem(String key, String... members) {
+        return join(async.srem(key, members));
+    }
+
+    @Override
+    public String substr(String key, int start, int end) {
+        return join(async.substr(key, start, end));
+    }
+
+    @Override
+    public String type(String key) {
+        return join(async.type(key));
+    }
+
+    @Override
+    public Long zadd(String key, double score, String member) {
+        return join(async.zadd(key, score, member));
+    }
+
+    @Override
+    public Long zadd(String key, Map<String,Double> scoreMembers) {
+        return join(async.zadd(key, scoreMembers));
+    }
+
+    @Override
+    public Long zcard(String key) {
+        return join(async.zcard(key));
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        return join(async.zcount(key, min, max));
+    }
+
+    @Override
+    public Long zcount(String key, String min, String max) {
+        return join(async.zcount(key, min, max));
+    }
+
+    @Override
+    public Double zincrby(String key, double score, String member) {
+        return join(async.zincrby(key, score, member));
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        return join(async.zrange(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        return join(async.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return join(async.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max) {
+        return join(async.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return join(async.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
+        return join(async.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return join(async.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max) {
+        return join(async.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return join(async.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrangeWithScores(String key, long start, long end) {
+        return join(async.zrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Long zrank(String key, String member) {
+        return join(async.zrank(key, member));
+    }
+
+    @Override
+    public Long zrem(String key, String... members) {
+        return join(async.zrem(key, members));
+    }
+
+    @Override
+    public Long zremrangeByRank(String key, long start, long end) {
+        return join(async.zremrangeByRank(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, double start, double end) {
+        return join(async.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Long zremrangeByScore(String key, String start, String end) {
+        return join(async.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        return join(async.zrevrange(key, start, end));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        return join(async.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return join(async.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min) {
+        return join(async.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return join(async.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return join(async.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return join(async.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return join(async.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return join(async.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeWithScores(String key, long start, long end) {
+        return join(async.zrevrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        return join(async.zrevrank(key, member));
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        return join(async.zscore(key, member));
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        return join(async.getBytes(key));
+    }
+
+    @Override
+    public Boolean setBytes(String key, byte[] value) {
+        return join(async.setBytes(key, value));
+    }
+
+    @Override
+    public String setExpireBytes(String key, int seconds, byte[] value) {
+        return join(async.setExpireBytes(key, seconds, value));
+    }
+
+    @Override
+    public List<byte[]> mgetBytes(String... keys) {
+        return join(async.mgetBytes(keys));
+    }
+
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        return join(async.hgetBytes(key, field));
+    }
+
+    @Override
+    public Long hsetBytes(String key, String field, byte[] value) {
+        return join(async.hsetBytes(key, field, value));
+    }
+
+    @Override
+    public List<byte[]> hmgetBytes(String key, String... fields) {
+        return join(async.hmgetBytes(key, fields));
+    }
+
+    @Override
+    public String hmsetBytes(String key, Map<String, byte[]> hash) {
+        return join(async.hmsetBytes(key, hash));
+    }
+
+    @Override
+    public Map<String, byte[]> hgetAllBytes(String key) {
+        return join(async.hgetAllBytes(key));
+    }
+
+    @Override
+    public Long rpushBytes(String key, byte[]... values) {
+        return join(async.rpushBytes(key, values));
+    }
+
+    @Override
+    public List<byte[]> lrangeBytes(String key, long start, long end) {
+        return join(async.lrangeBytes(key, start, end));
+    }
+
+    @Override
+    public List<Object> batch(Consumer<CacheBatch> commands) {
+        return join(async.batch(commands));
+    }
+}
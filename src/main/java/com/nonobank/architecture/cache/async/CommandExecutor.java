@@ -0,0 +1,127 @@
+package com.nonobank.architecture.cache.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 有界的命令执行线程池,附带超时控制和执行统计
+ */
+class CommandExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    final LongAdder submitted = new LongAdder();
+
+    final LongAdder completed = new LongAdder();
+
+    final LongAdder failed = new LongAdder();
+
+    final LongAdder rejected = new LongAdder();
+
+    final LongAdder timedOut = new LongAdder();
+
+    final LongAdder cancelled = new LongAdder();
+
+    CommandExecutor(int threads, int queueSize) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), r -> {
+                    Thread thread = new Thread(r, "cache-async-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pool.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "cache-async-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 绝大多数命令在超时前完成,取消的超时任务立即移出队列,不在队列中堆积到超时时间
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<T> command, long timeoutMillis) {
+        submitted.increment();
+        CommandFuture<T> future = new CommandFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            if (future.isDone()) {
+                // 排队期间已超时或被取消,不再发送
+                return;
+            }
+            try {
+                T result = command.get();
+                completed.increment();
+                future.complete(result);
+            } catch (Throwable e) {
+                failed.increment();
+                future.completeExceptionally(e);
+            }
+        }, null);
+        future.task = task;
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                // 先计数再完成,等待超时结果的调用方醒来时已能看到计数
+                timedOut.increment();
+                if (future.completeExceptionally(new TimeoutException("cache command timed out after " + timeoutMillis + "ms"))) {
+                    task.cancel(false);
+                } else {
+                    timedOut.decrement();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((r, e) -> timeout.cancel(false));
+        }
+        return future;
+    }
+
+    int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    void shutdown() {
+        pool.shutdown();
+        timer.shutdown();
+    }
+
+    /**
+     * 取消时同时撤销排队中的命令;已经发送到服务端的命令会执行完,但结果被丢弃
+     */
+    private class CommandFuture<T> extends CompletableFuture<T> {
+
+        volatile FutureTask<Void> task;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            if (result) {
+                cancelled.increment();
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.nonobank.architecture.cache.async;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.retry.Retryer;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 基于有界线程池的 {@link AsyncCacheClient} 实现,命令在线程池中通过同步客户端执行
+ * 线程数和队列长度决定了同时在途的命令上限,队列满时命令立即失败而不是阻塞调用线程。
+ */
+public class ExecutorAsyncCacheClient implements AsyncCacheClient, Closeable {
+
+    private final AbstractCacheClient delegate;
+
+    private final CommandExecutor executor;
+
+    private final long timeoutMillis;
+
+    private final Retryer retryer;
+
+    /**withTimeout 返回的视图共享线程池,只有创建线程池的实例关闭它*/
+    private final boolean ownsExecutor;
+
+    public ExecutorAsyncCacheClient(AbstractCacheClient delegate, CacheConfig config) {
+        this(delegate, new CommandExecutor(config.getAsyncThreads(), config.getAsyncQueueSize()), config.getAsyncTimeoutMillis(),
+                Retryer.of(config), true);
+    }
+
+    private ExecutorAsyncCacheClient(AbstractCacheClient delegate, CommandExecutor executor, long timeoutMillis, Retryer retryer,
+                                     boolean ownsExecutor) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.retryer = retryer;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    @Override
+    public AsyncCacheClient withTimeout(long timeout, TimeUnit unit) {
+        return new ExecutorAsyncCacheClient(delegate, executor, unit.toMillis(timeout), retryer, false);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> command) {
+        return executor.submit(command, timeoutMillis);
+    }
+
+    /**
+     * 每次尝试单独提交到线程池,两次尝试之间由定时线程等待,不占用执行线程
+     */
+    private <T> CompletableFuture<T> retry(String command, Supplier<CompletableFuture<T>> attempt, int retryTimes, int sleepSeconds) {
+        if (retryTimes <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return retryer.callAsync(command, attempt, retryer.legacyPolicy(retryTimes, sleepSeconds));
+    }
+
+    public long getSubmittedCount() {
+        return executor.submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return executor.completed.sum();
+    }
+
+    public long getFailedCount() {
+        return executor.failed.sum();
+    }
+
+    public long getRejectedCount() {
+        return executor.rejected.sum();
+    }
+
+    public long getTimedOutCount() {
+        return executor.timedOut.sum();
+    }
+
+    public long getCancelledCount() {
+        return executor.cancelled.sum();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    /**
+     * 关闭线程池,已提交的命令会继续执行完;对 withTimeout 返回的视图调用时不做任何事
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds) {
+        return retry("setExpire", () -> submit(() -> delegate.setExpire(key, seconds, value)), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setWithRetry(String key, String value, int retryTimes, int sleepSeconds) {
+        return retry("set", () -> submit(() -> delegate.set(key, value)), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Long> delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        return retry("del", () -> submit(() -> delegate.del(keys)), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds) {
+        return retry("expire", () -> submit(() -> delegate.expire(key, seconds)), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<String> getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        return retry("get", () -> submit(() -> delegate.get(key)), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> set(String key, String value) {
+        return submit(() -> delegate.set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return submit(() -> delegate.get(key));
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key, Function<String, String> loader, int ttlSeconds) {
+        return submit(() -> delegate.get(key, loader, ttlSeconds));
+    }
+
+    @Override
+    public CompletableFuture<String> getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return submit(() -> delegate.getRefreshAhead(key, loader, ttlSeconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> setnx(String key, String value) {
+        return submit(() -> delegate.setnx(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getSet(String key, String value) {
+        return submit(() -> delegate.getSet(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return submit(() -> delegate.exists(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> expire(String key, int seconds) {
+        return submit(() -> delegate.expire(key, seconds));
+    }
+
+    @Override
+    public CompletableFuture<Long> expireAt(String key, long unixTime) {
+        return submit(() -> delegate.expireAt(key, unixTime));
+    }
+
+    @Override
+    public CompletableFuture<Long> append(String key, String value) {
+        return submit(() -> delegate.append(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> decr(String key) {
+        return submit(() -> delegate.decr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> decrBy(String key, long integer) {
+        return submit(() -> delegate.decrBy(key, integer));
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(String key) {
+        return submit(() -> delegate.incr(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> incrBy(String key, long integer) {
+        return submit(() -> delegate.incrBy(key, integer));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String... keys) {
+        return submit(() -> delegate.del(keys));
+    }
+
+    @Override
+    public CompletableFuture<String> getrange(String key, long startOffset, long endOffset) {
+        return submit(() -> delegate.getrange(key, startOffset, endOffset));
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field) {
+        return submit(() -> delegate.hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String... fields) {
+        return submit(() -> delegate.hdel(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hexists(String key, String field) {
+        return submit(() -> delegate.hexists(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return submit(() -> delegate.hgetAll(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> hincrBy(String key, String field, long value) {
+        return submit(() -> delegate.hincrBy(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> hkeys(String key) {
+        return submit(() -> delegate.hkeys(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> hlen(String key) {
+        return submit(() -> delegate.hlen(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        return submit(() -> delegate.hmget(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<String> hmset(String key, Map<String, String> hash) {
+        return submit(() -> delegate.hmset(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value) {
+        return submit(() -> delegate.hset(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetnx(String key, String field, String value) {
+        return submit(() -> delegate.hsetnx(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hvals(String key) {
+        return submit(() -> delegate.hvals(key));
+    }
+
+    @Override
+    public CompletableFuture<String> lindex(String key, long index) {
+        return submit(() -> delegate.lindex(key, index));
+    }
+
+    @Override
+    public CompletableFuture<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        return submit(() -> delegate.linsert(key, where, pivot, value));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String... keys) {
+        return submit(() -> delegate.mget(keys));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> mset(String... keysvalues) {
+        return submit(() -> delegate.mset(keysvalues));
+    }
+
+    @Override
+    public CompletableFuture<Long> llen(String key) {
+        return submit(() -> delegate.llen(key));
+    }
+
+    @Override
+    public CompletableFuture<String> lpop(String key) {
+        return submit(() -> delegate.lpop(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(String key, String... strings) {
+        return submit(() -> delegate.lpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<Long> lpushx(String key, String... string) {
+        return submit(() -> delegate.lpushx(key, string));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> lrange(String key, long start, long end) {
+        return submit(() -> delegate.lrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> lrem(String key, long count, String value) {
+        return submit(() -> delegate.lrem(key, count, value));
+    }
+
+    @Override
+    public CompletableFuture<String> ltrim(String key, long start, long end) {
+        return submit(() -> delegate.ltrim(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<String> lset(String key, long index, String value) {
+        return submit(() -> delegate.lset(key, index, value));
+    }
+
+    @Override
+    public CompletableFuture<String> rpop(String key) {
+        return submit(() -> delegate.rpop(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(String key, String... strings) {
+        return submit(() -> delegate.rpush(key, strings));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpushx(String key, String string) {
+        return submit(() -> delegate.rpushx(key, string));
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... members) {
+        return submit(() -> delegate.sadd(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Long> scard(String key) {
+        return submit(() -> delegate.scard(key));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> smembers(String key) {
+        return submit(() -> delegate.smembers(key));
+    }
+
+    @Override
+    public CompletableFuture<String> setExpire(String key, int seconds, String value) {
+        return submit(() -> delegate.setExpire(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<String> spop(String key) {
+        return submit(() -> delegate.spop(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> setrange(String key, long offset, String value) {
+        return submit(() -> delegate.setrange(key, offset, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sismember(String key, String member) {
+        return submit(() -> delegate.sismember(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> strlen(String key) {
+        return submit(() -> delegate.strlen(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(String key) {
+        return submit(() -> delegate.ttl(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> sort(String key) {
+        return submit(() -> delegate.sort(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> sort(String key, SortingParams sortingParameters) {
+        return submit(() -> delegate.sort(key, sortingParameters));
+    }
+
+    @Override
+    public CompletableFuture<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        return submit(() -> delegate.sort(key, sortingParameters, dstkey));
+    }
+
+    @Override
+    public CompletableFuture<Long> sort(String key, String dstkey) {
+        return submit(() -> delegate.sort(key, dstkey));
+    }
+
+    @Override
+    public CompletableFuture<String> srandmember(String key) {
+        return submit(() -> delegate.srandmember(key));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> srandmember(String key, int count) {
+        return submit(() -> delegate.srandmember(key, count));
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... members) {
+        return submit(() -> delegate.srem(key, members));
+    }
+
+    @Override
+    public CompletableFuture<String> substr(String key, int start, int end) {
+        return submit(() -> delegate.substr(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<String> type(String key) {
+        return submit(() -> delegate.type(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        return submit(() -> delegate.zadd(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        return submit(() -> delegate.zadd(key, scoreMembers));
+    }
+
+    @Override
+    public CompletableFuture<Long> zcard(String key) {
+        return submit(() -> delegate.zcard(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> zcount(String key, double min, double max) {
+        return submit(() -> delegate.zcount(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Long> zcount(String key, String min, String max) {
+        return submit(() -> delegate.zcount(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Double> zincrby(String key, double score, String member) {
+        return submit(() -> delegate.zincrby(key, score, member));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrange(String key, long start, long end) {
+        return submit(() -> delegate.zrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max) {
+        return submit(() -> delegate.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return submit(() -> delegate.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max) {
+        return submit(() -> delegate.zrangeByScore(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return submit(() -> delegate.zrangeByScore(key, min, max, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return submit(() -> delegate.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return submit(() -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return submit(() -> delegate.zrangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return submit(() -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return submit(() -> delegate.zrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrank(String key, String member) {
+        return submit(() -> delegate.zrank(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(String key, String... members) {
+        return submit(() -> delegate.zrem(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByRank(String key, long start, long end) {
+        return submit(() -> delegate.zremrangeByRank(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByScore(String key, double start, double end) {
+        return submit(() -> delegate.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByScore(String key, String start, String end) {
+        return submit(() -> delegate.zremrangeByScore(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrange(String key, long start, long end) {
+        return submit(() -> delegate.zrevrange(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return submit(() -> delegate.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return submit(() -> delegate.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return submit(() -> delegate.zrevrangeByScore(key, max, min));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return submit(() -> delegate.zrevrangeByScore(key, max, min, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return submit(() -> delegate.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return submit(() -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return submit(() -> delegate.zrevrangeByScoreWithScores(key, max, min));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return submit(() -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return submit(() -> delegate.zrevrangeWithScores(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<Long> zrevrank(String key, String member) {
+        return submit(() -> delegate.zrevrank(key, member));
+    }
+
+    @Override
+    public CompletableFuture<Double> zscore(String key, String member) {
+        return submit(() -> delegate.zscore(key, member));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getBytes(String key) {
+        return submit(() -> delegate.getBytes(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setBytes(String key, byte[] value) {
+        return submit(() -> delegate.setBytes(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setExpireBytes(String key, int seconds, byte[] value) {
+        return submit(() -> delegate.setExpireBytes(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> mgetBytes(String... keys) {
+        return submit(() -> delegate.mgetBytes(keys));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> hgetBytes(String key, String field) {
+        return submit(() -> delegate.hgetBytes(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetBytes(String key, String field, byte[] value) {
+        return submit(() -> delegate.hsetBytes(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return submit(() -> delegate.hmgetBytes(key, fields));
+    }
+
+    @Override
+    public CompletableFuture<String> hmsetBytes(String key, Map<String, byte[]> hash) {
+        return submit(() -> delegate.hmsetBytes(key, hash));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> hgetAllBytes(String key) {
+        return submit(() -> delegate.hgetAllBytes(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> rpushBytes(String key, byte[]... values) {
+        return submit(() -> delegate.rpushBytes(key, values));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return submit(() -> delegate.lrangeBytes(key, start, end));
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> batch(Consumer<CacheBatch> commands) {
+        return submit(() -> delegate.batch(commands));
+    }
+}
@@ -0,0 +1,173 @@
+package com.nonobank.architecture.cache.breaker;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 proxy 上一类命令的熔断器
+ * CLOSED:正常放行,滑动窗口内调用数达到 minimumCalls 且错误率或慢调用比例超过阈值时打开;
+ * OPEN:直接拒绝,openMillis 之后进入 HALF_OPEN;
+ * HALF_OPEN:只放行 halfOpenProbes 个探测请求,全部成功后关闭并清空窗口,任一失败或慢调用重新打开。
+ * 调用方先 {@link #tryAcquire()},获准后必须在命令结束时调用一次 {@link #onResult(long, boolean)}。
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final String name;
+
+    private final SlidingWindow window;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final double slowCallRateThreshold;
+
+    private final long openMillis;
+
+    private final int halfOpenProbes;
+
+    /**状态和进入该状态的时间一起切换,状态转换失败的调用方不会改动当前状态的计时*/
+    private final AtomicReference<Phase> phase = new AtomicReference<>(new Phase(State.CLOSED, 0));
+
+    /**半开状态已放行的探测数*/
+    private final AtomicInteger probes = new AtomicInteger();
+
+    /**半开状态已成功的探测数*/
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(String name, CacheConfig config) {
+        this.name = name;
+        this.window = new SlidingWindow(config.getCircuitBreakerWindowMillis());
+        this.minimumCalls = Math.max(1, config.getCircuitBreakerMinimumCalls());
+        this.failureRateThreshold = config.getCircuitBreakerFailureRateThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getCircuitBreakerSlowCallMillis());
+        this.slowCallRateThreshold = config.getCircuitBreakerSlowCallRateThreshold();
+        this.openMillis = config.getCircuitBreakerOpenMillis();
+        this.halfOpenProbes = Math.max(1, config.getCircuitBreakerHalfOpenProbes());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * @return 是否允许发送,OPEN 状态到期后第一个调用者把状态切换为 HALF_OPEN 并成为探测请求
+     */
+    public boolean tryAcquire() {
+        Phase current = phase.get();
+        if (current.state == State.CLOSED) {
+            return true;
+        }
+        if (current.state == State.OPEN) {
+            long now = System.currentTimeMillis();
+            if (now - current.since < openMillis) {
+                rejected.increment();
+                return false;
+            }
+            Phase halfOpen = new Phase(State.HALF_OPEN, now);
+            if (phase.compareAndSet(current, halfOpen)) {
+                probes.set(0);
+                probeSuccesses.set(0);
+                log.info("circuit breaker half open: " + name);
+                current = halfOpen;
+            } else {
+                current = phase.get();
+                if (current.state != State.HALF_OPEN) {
+                    return tryAcquire();
+                }
+            }
+        }
+        if (probes.incrementAndGet() <= halfOpenProbes) {
+            return true;
+        }
+        // 探测请求迟迟没有结果(调用方异常退出没有回报)时重新打开,避免一直停在半开状态
+        if (System.currentTimeMillis() - current.since >= openMillis) {
+            open(current);
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 不占用探测名额的检查,供无法回报结果的调用方(如 batch 选择连接)使用
+     */
+    public boolean isCallPermitted() {
+        return phase.get().state == State.CLOSED;
+    }
+
+    /**
+     * @param elapsedNanos 命令耗时
+     * @param failure      是否为连接类失败,redis 返回的错误不算失败
+     */
+    public void onResult(long elapsedNanos, boolean failure) {
+        boolean slow = elapsedNanos >= slowCallNanos;
+        Phase current = phase.get();
+        if (current.state == State.HALF_OPEN) {
+            if (failure || slow) {
+                open(current);
+            } else if (probeSuccesses.incrementAndGet() >= halfOpenProbes
+                    && phase.compareAndSet(current, new Phase(State.CLOSED, System.currentTimeMillis()))) {
+                window.reset();
+                log.info("circuit breaker closed: " + name);
+            }
+            return;
+        }
+        window.record(failure, slow);
+        if (current.state == State.CLOSED && (failure || slow)) {
+            long[] totals = window.snapshot();
+            if (totals[0] >= minimumCalls && (totals[1] >= failureRateThreshold * totals[0]
+                    || totals[2] >= slowCallRateThreshold * totals[0])) {
+                open(current);
+            }
+        }
+    }
+
+    /**
+     * 只有从调用方观察到的那个状态切换成功时才开始新的打开计时;
+     * 已经打开、或已被其他线程关闭后才到达的失败回报不影响当前状态
+     */
+    private void open(Phase from) {
+        if (phase.compareAndSet(from, new Phase(State.OPEN, System.currentTimeMillis()))) {
+            opened.increment();
+            log.warn("circuit breaker open: " + name + " from " + from.state + " window: " + getStats());
+        }
+    }
+
+    public CircuitBreakerStats getStats() {
+        long[] totals = window.snapshot();
+        return new CircuitBreakerStats(name, phase.get().state, totals[0], totals[1], totals[2], rejected.sum(), opened.sum());
+    }
+
+    private static final class Phase {
+
+        final State state;
+
+        /**进入该状态的时间(毫秒)*/
+        final long since;
+
+        Phase(State state, long since) {
+            this.state = state;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nonobank.architecture.cache.breaker;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 熔断器打开,命令没有发出就直接失败
+ * 不会被自动重试,熔断期间重试只会增加等待时间。
+ */
+public class CircuitBreakerOpenException extends JedisConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
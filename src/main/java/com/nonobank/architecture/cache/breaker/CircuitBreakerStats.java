@@ -0,0 +1,83 @@
+package com.nonobank.architecture.cache.breaker;
+
+/**
+ * 一个熔断器的状态快照,调用数、失败数和慢调用数为当前滑动窗口内的值,拒绝数和打开次数为累计值
+ */
+public class CircuitBreakerStats {
+
+    private final String name;
+
+    private final CircuitBreaker.State state;
+
+    private final long calls;
+
+    private final long failures;
+
+    private final long slowCalls;
+
+    private final long rejected;
+
+    private final long opened;
+
+    CircuitBreakerStats(String name, CircuitBreaker.State state, long calls, long failures, long slowCalls,
+                        long rejected, long opened) {
+        this.name = name;
+        this.state = state;
+        this.calls = calls;
+        this.failures = failures;
+        this.slowCalls = slowCalls;
+        this.rejected = rejected;
+        this.opened = opened;
+    }
+
+    /**
+     * @return proxy 地址/命令类别
+     */
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getState() {
+        return state;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getSlowCalls() {
+        return slowCalls;
+    }
+
+    public double getFailureRate() {
+        return calls == 0 ? 0 : (double) failures / calls;
+    }
+
+    public double getSlowCallRate() {
+        return calls == 0 ? 0 : (double) slowCalls / calls;
+    }
+
+    /**
+     * @return 因熔断被拒绝的调用数
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return 打开的次数
+     */
+    public long getOpened() {
+        return opened;
+    }
+
+    @Override
+    public String toString() {
+        return "{state=" + state + ", calls=" + calls + ", failures=" + failures + ", slowCalls=" + slowCalls
+                + ", rejected=" + rejected + ", opened=" + opened + "}";
+    }
+}
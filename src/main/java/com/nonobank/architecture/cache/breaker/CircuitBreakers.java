@@ -0,0 +1,95 @@
+package com.nonobank.architecture.cache.breaker;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 proxy 地址和 {@link CommandClass} 管理熔断器
+ * 同一个 CacheConfig 的连接池和多路复用引擎通过 {@link #of(CacheConfig)} 共享同一组熔断器,
+ * 同一个 proxy 的熔断器在 proxy 下线后保留,重新上线时沿用之前的状态。
+ */
+public class CircuitBreakers {
+
+    private static final Map<CacheConfig, CircuitBreakers> SHARED = new WeakHashMap<>();
+
+    private final CacheConfig config;
+
+    private final ConcurrentMap<String, CircuitBreaker[]> breakers = new ConcurrentHashMap<>();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    public CircuitBreakers(CacheConfig config) {
+        this.config = config;
+    }
+
+    public static CircuitBreakers of(CacheConfig config) {
+        synchronized (SHARED) {
+            CircuitBreakers breakers = SHARED.get(config);
+            if (breakers == null) {
+                breakers = new CircuitBreakers(config);
+                SHARED.put(config, breakers);
+            }
+            return breakers;
+        }
+    }
+
+    /**
+     * @param proxy proxy 地址,host:port
+     * @return 按 {@link CommandClass#ordinal()} 索引的熔断器
+     */
+    public CircuitBreaker[] forProxy(String proxy) {
+        CircuitBreaker[] existing = breakers.get(proxy);
+        if (existing != null) {
+            return existing;
+        }
+        CommandClass[] classes = CommandClass.values();
+        CircuitBreaker[] created = new CircuitBreaker[classes.length];
+        for (CommandClass commandClass : classes) {
+            created[commandClass.ordinal()] = new CircuitBreaker(proxy + "/" + commandClass, config);
+        }
+        existing = breakers.putIfAbsent(proxy, created);
+        return existing == null ? created : existing;
+    }
+
+    public CircuitBreaker get(String proxy, CommandClass commandClass) {
+        return forProxy(proxy)[commandClass.ordinal()];
+    }
+
+    /**
+     * @return 熔断器是否应把这次失败计入错误率:连接、超时类失败计入,redis 返回的错误说明 proxy 可用,不计入
+     */
+    public static boolean isFailure(Throwable e) {
+        return e instanceof JedisConnectionException && !(e instanceof CircuitBreakerOpenException)
+                || e instanceof TimeoutException;
+    }
+
+    void onFallback() {
+        fallbacks.increment();
+    }
+
+    /**
+     * @return 熔断时按 fallback 返回的调用数
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public List<CircuitBreakerStats> getStats() {
+        List<CircuitBreakerStats> stats = new ArrayList<>();
+        for (CircuitBreaker[] proxy : breakers.values()) {
+            for (CircuitBreaker breaker : proxy) {
+                stats.add(breaker.getStats());
+            }
+        }
+        return stats;
+    }
+}
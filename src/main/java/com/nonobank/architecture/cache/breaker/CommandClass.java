@@ -0,0 +1,47 @@
+package com.nonobank.architecture.cache.breaker;
+
+import com.nonobank.architecture.cache.CacheCommand;
+import redis.clients.jedis.Protocol.Command;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 熔断统计的命令类别
+ * 读和写分开统计:proxy 后端只读副本异常、写入积压等情况下两类命令的健康状况可能不同,
+ * 读命令熔断时还可以按 key 不存在返回 fallback,写命令只能失败。
+ */
+public enum CommandClass {
+
+    READ, WRITE;
+
+    private static final Map<byte[], CommandClass> COMMANDS = new IdentityHashMap<>();
+
+    static {
+        for (Command command : Arrays.asList(Command.GET, Command.MGET, Command.EXISTS, Command.TTL, Command.TYPE,
+                Command.GETRANGE, Command.SUBSTR, Command.STRLEN, Command.HGET, Command.HMGET, Command.HGETALL,
+                Command.HKEYS, Command.HVALS, Command.HLEN, Command.HEXISTS, Command.LRANGE, Command.LINDEX, Command.LLEN,
+                Command.SMEMBERS, Command.SCARD, Command.SISMEMBER, Command.SRANDMEMBER, Command.SORT, Command.ZRANGE,
+                Command.ZRANGEBYSCORE, Command.ZREVRANGE, Command.ZREVRANGEBYSCORE, Command.ZCARD, Command.ZCOUNT,
+                Command.ZSCORE, Command.ZRANK, Command.ZREVRANK, Command.SCAN, Command.HSCAN, Command.SSCAN, Command.ZSCAN)) {
+            COMMANDS.put(command.raw, READ);
+        }
+    }
+
+    /**
+     * @param method {@link com.nonobank.architecture.cache.AbstractCacheClient} 的方法名
+     */
+    public static CommandClass of(String method) {
+        CacheCommand command = CacheCommand.of(method);
+        return command != null && command.isRead() ? READ : WRITE;
+    }
+
+    /**
+     * @param command {@link Command} 的 raw 字节,按引用比较
+     */
+    public static CommandClass of(byte[] command) {
+        CommandClass commandClass = COMMANDS.get(command);
+        return commandClass == null ? WRITE : commandClass;
+    }
+}
@@ -0,0 +1,104 @@
+package com.nonobank.architecture.cache.breaker;
+
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.async.AsyncCacheClient;
+import com.nonobank.architecture.cache.async.ForwardingAsyncCacheClient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link FallbackCacheClient} 的异步版本
+ * 熔断失败通常在提交命令时同步发生,fallback(包括 loader)在调用线程上执行。
+ */
+public class FallbackAsyncCacheClient extends ForwardingAsyncCacheClient {
+
+    private final CircuitBreakers breakers;
+
+    public FallbackAsyncCacheClient(AsyncCacheClient delegate, CacheConfig config) {
+        this(delegate, CircuitBreakers.of(config));
+    }
+
+    public FallbackAsyncCacheClient(AsyncCacheClient delegate, CircuitBreakers breakers) {
+        super(delegate);
+        this.breakers = breakers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T> CompletableFuture<T> invoke(CacheCommand command, String key, Object value,
+                                              Supplier<CompletableFuture<T>> call) {
+        Object miss = FallbackCacheClient.miss(command);
+        return miss == FallbackCacheClient.NO_FALLBACK ? call.get() : read(call.get(), (T) miss);
+    }
+
+    private <T> CompletableFuture<T> read(CompletableFuture<T> future, T miss) {
+        return future.exceptionally(e -> {
+            if (!(unwrap(e) instanceof CircuitBreakerOpenException)) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            breakers.onFallback();
+            return miss;
+        });
+    }
+
+    private CompletableFuture<String> load(CompletableFuture<String> future, String key, Function<String, String> loader) {
+        return future.exceptionally(e -> {
+            if (!(unwrap(e) instanceof CircuitBreakerOpenException)) {
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            breakers.onFallback();
+            return loader.apply(key);
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    @Override
+    public AsyncCacheClient withTimeout(long timeout, TimeUnit unit) {
+        return new FallbackAsyncCacheClient(delegate.withTimeout(timeout, unit), breakers);
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key, Function<String, String> loader, int ttlSeconds) {
+        return load(delegate.get(key, loader, ttlSeconds), key, loader);
+    }
+
+    @Override
+    public CompletableFuture<String> getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return load(delegate.getRefreshAhead(key, loader, ttlSeconds), key, loader);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        return read(delegate.hmget(key, fields), Collections.nCopies(fields.length, null));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String... keys) {
+        return read(delegate.mget(keys), Collections.nCopies(keys.length, null));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> srandmember(String key, int count) {
+        return read(delegate.srandmember(key, count), Collections.emptyList());
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> mgetBytes(String... keys) {
+        return read(delegate.mgetBytes(keys), Collections.nCopies(keys.length, null));
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return read(delegate.hmgetBytes(key, fields), Collections.nCopies(fields.length, null));
+    }
+}
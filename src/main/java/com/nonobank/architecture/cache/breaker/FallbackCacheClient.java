@@ -0,0 +1,149 @@
+package com.nonobank.architecture.cache.breaker;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 熔断时按 key 不存在返回的 {@link AbstractCacheClient}(circuitBreakerFallback=miss)
+ * 读命令遇到 {@link CircuitBreakerOpenException} 时返回与 key 不存在相同的结果(null、空集合、0、false 等),
+ * cache-aside 读取直接调用 loader 返回且不写回;写命令和其他失败照常抛出。
+ */
+public class FallbackCacheClient extends ForwardingCacheClient {
+
+    /**{@link #miss} 的返回值,表示命令没有 fallback*/
+    static final Object NO_FALLBACK = new Object();
+
+    private final CircuitBreakers breakers;
+
+    public FallbackCacheClient(AbstractCacheClient delegate, CacheConfig config) {
+        this(delegate, CircuitBreakers.of(config));
+    }
+
+    public FallbackCacheClient(AbstractCacheClient delegate, CircuitBreakers breakers) {
+        super(delegate);
+        this.breakers = breakers;
+    }
+
+    /**
+     * @return key 不存在时命令的结果,写命令以及结果与参数有关的命令(mget、hmget 等,由各自的方法处理)返回 {@link #NO_FALLBACK}
+     */
+    static Object miss(CacheCommand command) {
+        switch (command) {
+            case GET:
+            case GET_BYTES:
+            case GETRANGE:
+            case SUBSTR:
+            case HGET:
+            case HGET_BYTES:
+            case LINDEX:
+            case SRANDMEMBER:
+            case ZRANK:
+            case ZREVRANK:
+            case ZSCORE:
+                return null;
+            case EXISTS:
+            case HEXISTS:
+            case SISMEMBER:
+                return false;
+            case STRLEN:
+            case HLEN:
+            case LLEN:
+            case SCARD:
+            case ZCARD:
+            case ZCOUNT:
+                return 0L;
+            case TTL:
+                return -2L;
+            case TYPE:
+                return "none";
+            case HGET_ALL:
+            case HGET_ALL_BYTES:
+                return Collections.emptyMap();
+            case HKEYS:
+            case SMEMBERS:
+            case ZRANGE:
+            case ZRANGE_WITH_SCORES:
+            case ZRANGE_BY_SCORE:
+            case ZRANGE_BY_SCORE_WITH_SCORES:
+            case ZREVRANGE:
+            case ZREVRANGE_WITH_SCORES:
+            case ZREVRANGE_BY_SCORE:
+            case ZREVRANGE_BY_SCORE_WITH_SCORES:
+                return Collections.emptySet();
+            case HVALS:
+            case LRANGE:
+            case LRANGE_BYTES:
+            case SORT:
+                return Collections.emptyList();
+            default:
+                return NO_FALLBACK;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        Object miss = miss(command);
+        return miss == NO_FALLBACK ? call.get() : read(call, (T) miss);
+    }
+
+    private <T> T read(Supplier<T> action, T miss) {
+        try {
+            return action.get();
+        } catch (CircuitBreakerOpenException e) {
+            breakers.onFallback();
+            return miss;
+        }
+    }
+
+    private String load(Supplier<String> action, String key, Function<String, String> loader) {
+        try {
+            return action.get();
+        } catch (CircuitBreakerOpenException e) {
+            breakers.onFallback();
+            return loader.apply(key);
+        }
+    }
+
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        return load(() -> delegate.get(key, loader, ttlSeconds), key, loader);
+    }
+
+    @Override
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return load(() -> delegate.getRefreshAhead(key, loader, ttlSeconds), key, loader);
+    }
+
+    @Override
+    public List<String> hmget(String key, String... fields) {
+        return read(() -> delegate.hmget(key, fields), Collections.nCopies(fields.length, null));
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        return read(() -> delegate.mget(keys), Collections.nCopies(keys.length, null));
+    }
+
+    @Override
+    public List<String> srandmember(String key, int count) {
+        return read(() -> delegate.srandmember(key, count), Collections.emptyList());
+    }
+
+    @Override
+    public List<byte[]> mgetBytes(String... keys) {
+        return read(() -> delegate.mgetBytes(keys), Collections.nCopies(keys.length, null));
+    }
+
+    @Override
+    public List<byte[]> hmgetBytes(String key, String... fields) {
+        return read(() -> delegate.hmgetBytes(key, fields), Collections.nCopies(fields.length, null));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nonobank.architecture.cache.breaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间分桶的滑动窗口计数
+ * 窗口分为固定数量的桶,每个桶覆盖 windowMillis / BUCKETS 毫秒,过期的桶在下次写入时清零复用;
+ * 计数只用原子加,桶切换时的少量竞争误差对比例统计没有影响。
+ */
+final class SlidingWindow {
+
+    private static final int BUCKETS = 10;
+
+    private final long bucketMillis;
+
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+
+    SlidingWindow(long windowMillis) {
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    void record(boolean failure, boolean slow) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % BUCKETS)];
+        long current = bucket.epoch.get();
+        if (current != epoch && bucket.epoch.compareAndSet(current, epoch)) {
+            bucket.calls.set(0);
+            bucket.failures.set(0);
+            bucket.slowCalls.set(0);
+        }
+        bucket.calls.incrementAndGet();
+        if (failure) {
+            bucket.failures.incrementAndGet();
+        }
+        if (slow) {
+            bucket.slowCalls.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return 窗口内的 {调用数, 失败数, 慢调用数}
+     */
+    long[] snapshot() {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long[] totals = new long[3];
+        for (Bucket bucket : buckets) {
+            if (epoch - bucket.epoch.get() < BUCKETS) {
+                totals[0] += bucket.calls.get();
+                totals[1] += bucket.failures.get();
+                totals[2] += bucket.slowCalls.get();
+            }
+        }
+        return totals;
+    }
+
+    void reset() {
+        for (Bucket bucket : buckets) {
+            bucket.epoch.set(-1);
+        }
+    }
+
+    private static final class Bucket {
+
+        final AtomicLong epoch = new AtomicLong(-1);
+
+        final AtomicLong calls = new AtomicLong();
+
+        final AtomicLong failures = new AtomicLong();
+
+        final AtomicLong slowCalls = new AtomicLong();
+    }
+}
@@ -0,0 +1,331 @@
+package com.nonobank.architecture.cache.codec;
+
+import com.alibaba.fastjson.JSON;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 紧凑二进制编码,适用于字段固定的简单 POJO
+ * 不写字段名,按字段名顺序依次写值:整数用 zigzag 变长编码,字符串为长度前缀的 UTF-8,
+ * 可空字段多一个字节的 null 标记;集合、嵌套对象等其他类型的字段按 JSON 写入。
+ * 值的开头记录字段结构的指纹,类增删改字段后旧值解码返回 null,按缓存未命中处理重新加载。
+ * 类必须有无参构造方法(可以是私有的),static 和 transient 字段不参与编码。
+ */
+public final class BinaryCodec<T> implements Codec<T> {
+
+    private static final int FORMAT = 0xB1;
+
+    private static final ConcurrentMap<Class<?>, BinaryCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private enum Kind {
+        BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE,
+        BOOLEAN_BOX, BYTE_BOX, SHORT_BOX, CHAR_BOX, INT_BOX, LONG_BOX, FLOAT_BOX, DOUBLE_BOX,
+        STRING, BYTES, ENUM, DATE, DECIMAL, OBJECT
+    }
+
+    private static final Map<Class<?>, Kind> KINDS = new HashMap<>();
+
+    static {
+        KINDS.put(boolean.class, Kind.BOOLEAN);
+        KINDS.put(byte.class, Kind.BYTE);
+        KINDS.put(short.class, Kind.SHORT);
+        KINDS.put(char.class, Kind.CHAR);
+        KINDS.put(int.class, Kind.INT);
+        KINDS.put(long.class, Kind.LONG);
+        KINDS.put(float.class, Kind.FLOAT);
+        KINDS.put(double.class, Kind.DOUBLE);
+        KINDS.put(Boolean.class, Kind.BOOLEAN_BOX);
+        KINDS.put(Byte.class, Kind.BYTE_BOX);
+        KINDS.put(Short.class, Kind.SHORT_BOX);
+        KINDS.put(Character.class, Kind.CHAR_BOX);
+        KINDS.put(Integer.class, Kind.INT_BOX);
+        KINDS.put(Long.class, Kind.LONG_BOX);
+        KINDS.put(Float.class, Kind.FLOAT_BOX);
+        KINDS.put(Double.class, Kind.DOUBLE_BOX);
+        KINDS.put(String.class, Kind.STRING);
+        KINDS.put(byte[].class, Kind.BYTES);
+        KINDS.put(Date.class, Kind.DATE);
+        KINDS.put(BigDecimal.class, Kind.DECIMAL);
+    }
+
+    private final Class<T> type;
+
+    private final Constructor<T> constructor;
+
+    private final Field[] fields;
+
+    private final Kind[] kinds;
+
+    private final int fingerprint;
+
+    private BinaryCodec(Class<T> type) {
+        this.type = type;
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no default constructor", e);
+        }
+        List<Field> list = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                list.add(field);
+            }
+        }
+        list.sort(Comparator.comparing(Field::getName).thenComparing(f -> f.getDeclaringClass().getName()));
+        this.fields = list.toArray(new Field[list.size()]);
+        this.kinds = new Kind[fields.length];
+        StringBuilder signature = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            kinds[i] = kindOf(fields[i].getType());
+            signature.append(fields[i].getName()).append(':').append(fields[i].getGenericType().getTypeName());
+            if (kinds[i] == Kind.ENUM) {
+                // 枚举按序号保存,常量增删或调整顺序也要让旧值失效
+                signature.append(Arrays.toString(fields[i].getType().getEnumConstants()));
+            }
+            signature.append(';');
+        }
+        this.fingerprint = signature.toString().hashCode();
+    }
+
+    /**
+     * @return 该类型的共享实例,字段结构只解析一次
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BinaryCodec<T> of(Class<T> type) {
+        return (BinaryCodec<T>) CODECS.computeIfAbsent(type, BinaryCodec::new);
+    }
+
+    private static Kind kindOf(Class<?> c) {
+        Kind kind = KINDS.get(c);
+        if (kind != null) {
+            return kind;
+        }
+        return c.isEnum() ? Kind.ENUM : Kind.OBJECT;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        Output out = Output.acquire();
+        try {
+            out.writeByte(FORMAT);
+            out.writeInt(fingerprint);
+            for (int i = 0; i < fields.length; i++) {
+                write(out, fields[i], kinds[i], value);
+            }
+            return out.toByteArray();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("encode " + type.getName() + " failed", e);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes.length < 5 || (bytes[0] & 0xFF) != FORMAT) {
+            return null;
+        }
+        Input in = new Input(bytes);
+        in.readByte();
+        if (in.readInt() != fingerprint) {
+            return null;
+        }
+        try {
+            T value = constructor.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                read(in, fields[i], kinds[i], value);
+            }
+            return value;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("decode " + type.getName() + " failed", e);
+        }
+    }
+
+    private static void write(Output out, Field field, Kind kind, Object target) throws IllegalAccessException {
+        switch (kind) {
+            case BOOLEAN:
+                out.writeByte(field.getBoolean(target) ? 1 : 0);
+                return;
+            case BYTE:
+                out.writeByte(field.getByte(target));
+                return;
+            case SHORT:
+                out.writeSignedVarLong(field.getShort(target));
+                return;
+            case CHAR:
+                out.writeVarLong(field.getChar(target));
+                return;
+            case INT:
+                out.writeSignedVarLong(field.getInt(target));
+                return;
+            case LONG:
+                out.writeSignedVarLong(field.getLong(target));
+                return;
+            case FLOAT:
+                out.writeInt(Float.floatToIntBits(field.getFloat(target)));
+                return;
+            case DOUBLE:
+                out.writeLong(Double.doubleToLongBits(field.getDouble(target)));
+                return;
+            default:
+                break;
+        }
+        Object value = field.get(target);
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        switch (kind) {
+            case BOOLEAN_BOX:
+                out.writeByte((Boolean) value ? 1 : 0);
+                break;
+            case BYTE_BOX:
+                out.writeByte((Byte) value);
+                break;
+            case SHORT_BOX:
+            case INT_BOX:
+            case LONG_BOX:
+                out.writeSignedVarLong(((Number) value).longValue());
+                break;
+            case CHAR_BOX:
+                out.writeVarLong((Character) value);
+                break;
+            case FLOAT_BOX:
+                out.writeInt(Float.floatToIntBits((Float) value));
+                break;
+            case DOUBLE_BOX:
+                out.writeLong(Double.doubleToLongBits((Double) value));
+                break;
+            case STRING:
+                out.writeString((String) value);
+                break;
+            case BYTES:
+                out.writeVarLong(((byte[]) value).length);
+                out.writeBytes((byte[]) value);
+                break;
+            case ENUM:
+                out.writeVarLong(((Enum<?>) value).ordinal());
+                break;
+            case DATE:
+                out.writeSignedVarLong(((Date) value).getTime());
+                break;
+            case DECIMAL:
+                out.writeString(((BigDecimal) value).toString());
+                break;
+            default:
+                byte[] json = JSON.toJSONBytes(value);
+                out.writeVarLong(json.length);
+                out.writeBytes(json);
+                break;
+        }
+    }
+
+    private static void read(Input in, Field field, Kind kind, Object target) throws IllegalAccessException {
+        switch (kind) {
+            case BOOLEAN:
+                field.setBoolean(target, in.readByte() != 0);
+                return;
+            case BYTE:
+                field.setByte(target, (byte) in.readByte());
+                return;
+            case SHORT:
+                field.setShort(target, (short) in.readSignedVarLong());
+                return;
+            case CHAR:
+                field.setChar(target, (char) in.readVarLong());
+                return;
+            case INT:
+                field.setInt(target, (int) in.readSignedVarLong());
+                return;
+            case LONG:
+                field.setLong(target, in.readSignedVarLong());
+                return;
+            case FLOAT:
+                field.setFloat(target, Float.intBitsToFloat(in.readInt()));
+                return;
+            case DOUBLE:
+                field.setDouble(target, Double.longBitsToDouble(in.readLong()));
+                return;
+            default:
+                break;
+        }
+        if (in.readByte() == 0) {
+            field.set(target, null);
+            return;
+        }
+        Object value;
+        switch (kind) {
+            case BOOLEAN_BOX:
+                value = in.readByte() != 0;
+                break;
+            case BYTE_BOX:
+                value = (byte) in.readByte();
+                break;
+            case SHORT_BOX:
+                value = (short) in.readSignedVarLong();
+                break;
+            case INT_BOX:
+                value = (int) in.readSignedVarLong();
+                break;
+            case LONG_BOX:
+                value = in.readSignedVarLong();
+                break;
+            case CHAR_BOX:
+                value = (char) in.readVarLong();
+                break;
+            case FLOAT_BOX:
+                value = Float.intBitsToFloat(in.readInt());
+                break;
+            case DOUBLE_BOX:
+                value = Double.longBitsToDouble(in.readLong());
+                break;
+            case STRING:
+                value = in.readString();
+                break;
+            case BYTES:
+                value = in.readBytes(in.readLength());
+                break;
+            case ENUM:
+                Object[] constants = field.getType().getEnumConstants();
+                int ordinal = (int) in.readVarLong();
+                if (ordinal >= constants.length) {
+                    throw new IllegalArgumentException("invalid ordinal " + ordinal + " of " + field.getType().getName());
+                }
+                value = constants[ordinal];
+                break;
+            case DATE:
+                value = new Date(in.readSignedVarLong());
+                break;
+            case DECIMAL:
+                value = new BigDecimal(in.readString());
+                break;
+            default:
+                value = JSON.parseObject(in.readBytes(in.readLength()), field.getGenericType());
+                break;
+        }
+        field.set(target, value);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+}
@@ -0,0 +1,31 @@
+package com.nonobank.architecture.cache.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 缓存值的序列化方式
+ * 实现必须是线程安全的,通常是无状态的单例。
+ */
+public interface Codec<T> {
+
+    /**
+     * @param value 不为 null
+     */
+    byte[] encode(T value);
+
+    /**
+     * @param bytes 不为 null
+     * @return 数据无法按当前类型解析(如类结构已变化)时可以返回 null,按缓存未命中处理
+     */
+    T decode(byte[] bytes);
+
+    /**
+     * 从 ByteBuffer 的 position 到 limit 解码,不修改 buffer 的 position
+     * 可以配合 MultiplexedAsyncCacheClient.getBuffer 使用,默认实现复制为数组后调用 {@link #decode(byte[])}
+     */
+    default T decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return decode(bytes);
+    }
+}
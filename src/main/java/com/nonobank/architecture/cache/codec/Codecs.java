@@ -0,0 +1,79 @@
+package com.nonobank.architecture.cache.codec;
+
+import com.alibaba.fastjson.TypeReference;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 内置编码
+ * STRING、LONG 与 CacheClient 的字符串命令格式相同,可以和 get/set/incr 混用;
+ * 对象默认用 {@link JsonCodec},对体积和编解码开销敏感的值用 {@link BinaryCodec}。
+ */
+public final class Codecs {
+
+    /**
+     * UTF-8 字符串
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+        }
+    };
+
+    /**
+     * 十进制文本,与 incr/incrBy 兼容
+     */
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public byte[] encode(Long value) {
+            return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        }
+    };
+
+    /**
+     * 原样保存
+     */
+    public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    private Codecs() {
+    }
+
+    public static <T> Codec<T> json(Class<T> type) {
+        return JsonCodec.of(type);
+    }
+
+    public static <T> Codec<T> json(TypeReference<T> type) {
+        return JsonCodec.of(type);
+    }
+
+    public static <T> Codec<T> binary(Class<T> type) {
+        return BinaryCodec.of(type);
+    }
+}
@@ -0,0 +1,82 @@
+package com.nonobank.architecture.cache.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 与 {@link Output} 对应的读取器,直接在原数组上按位置读取
+ */
+final class Input {
+
+    private final byte[] buf;
+
+    private int position;
+
+    Input(byte[] buf) {
+        this.buf = buf;
+    }
+
+    private void require(int n) {
+        if (position + n > buf.length) {
+            throw new IllegalArgumentException("truncated binary value, length:" + buf.length);
+        }
+    }
+
+    boolean hasRemaining() {
+        return position < buf.length;
+    }
+
+    int readByte() {
+        require(1);
+        return buf[position++];
+    }
+
+    byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = Arrays.copyOfRange(buf, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    int readInt() {
+        require(4);
+        return (buf[position++] & 0xFF) << 24 | (buf[position++] & 0xFF) << 16
+                | (buf[position++] & 0xFF) << 8 | (buf[position++] & 0xFF);
+    }
+
+    long readLong() {
+        return (long) readInt() << 32 | (readInt() & 0xFFFFFFFFL);
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    long readSignedVarLong() {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    int readLength() {
+        long length = readVarLong();
+        if (length < 0 || length > buf.length - position) {
+            throw new IllegalArgumentException("invalid length " + length + " at " + position);
+        }
+        return (int) length;
+    }
+
+    String readString() {
+        int length = readLength();
+        String s = new String(buf, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return s;
+    }
+}
@@ -0,0 +1,94 @@
+package com.nonobank.architecture.cache.codec;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializeWriter;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.util.ThreadLocalCache;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * fastjson 编码,UTF-8 JSON
+ * 与业务代码原来的 JSON.toJSONString / JSON.parseObject 格式一致,新旧写法可以读写同一个 key。
+ * 编码时 SerializeWriter 的字符缓冲和这里的字节缓冲都是线程本地复用的,每次只分配结果数组;
+ * 解码直接从字节解析,不先构造 String。
+ */
+public final class JsonCodec<T> implements Codec<T> {
+
+    private static final ConcurrentMap<Type, JsonCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private final Type type;
+
+    private final SerializerFeature[] features;
+
+    public JsonCodec(Type type, SerializerFeature... features) {
+        this.type = type;
+        this.features = features;
+    }
+
+    /**
+     * @return 该类型使用默认特性的共享实例
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> of(Class<T> type) {
+        return (JsonCodec<T>) CODECS.computeIfAbsent(type, JsonCodec::new);
+    }
+
+    /**
+     * 泛型类型,如 new TypeReference&lt;List&lt;Order&gt;&gt;() {}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> of(TypeReference<T> type) {
+        return (JsonCodec<T>) CODECS.computeIfAbsent(type.getType(), JsonCodec::new);
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        SerializeWriter writer = new SerializeWriter();
+        Output out = Output.acquire();
+        try {
+            JSONSerializer serializer = new JSONSerializer(writer, SerializeConfig.getGlobalInstance());
+            for (SerializerFeature feature : features) {
+                serializer.config(feature, true);
+            }
+            serializer.write(value);
+            writer.writeTo(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new JSONException("encode " + type + " failed", e);
+        } finally {
+            out.release();
+            writer.close();
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        return JSON.parseObject(bytes, type);
+    }
+
+    @Override
+    public T decode(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            return JSON.parseObject(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    ThreadLocalCache.getUTF8Decoder(), type);
+        }
+        // 直接内存先复制到线程本地数组
+        byte[] bytes = ThreadLocalCache.getBytes(length);
+        buffer.duplicate().get(bytes, 0, length);
+        return JSON.parseObject(bytes, 0, length, ThreadLocalCache.getUTF8Decoder(), type);
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
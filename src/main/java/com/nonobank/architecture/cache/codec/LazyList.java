@@ -0,0 +1,45 @@
+package com.nonobank.architecture.cache.codec;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 只在访问某个元素时才解码的只读列表,解码结果缓存,nil 对应 null
+ * 非线程安全,与普通的 ArrayList 返回值一样不应在线程间共享修改。
+ */
+final class LazyList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final Object UNDECODED = new Object();
+
+    private final List<byte[]> raw;
+
+    private final Codec<T> codec;
+
+    private final Object[] decoded;
+
+    LazyList(List<byte[]> raw, Codec<T> codec) {
+        this.raw = raw;
+        this.codec = codec;
+        this.decoded = new Object[raw.size()];
+        Arrays.fill(decoded, UNDECODED);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Object value = decoded[index];
+        if (value == UNDECODED) {
+            byte[] bytes = raw.get(index);
+            value = bytes == null ? null : codec.decode(bytes);
+            decoded[index] = value;
+        }
+        return (T) value;
+    }
+
+    @Override
+    public int size() {
+        return decoded.length;
+    }
+}
@@ -0,0 +1,132 @@
+package com.nonobank.architecture.cache.codec;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 只在读取某个 value 时才解码的只读 Map,用于 hgetAll:只用到少数字段时其余字段不解码
+ * 遍历 keySet 或 size 不触发解码;解码结果缓存。非线程安全。
+ */
+final class LazyMap<T> extends AbstractMap<String, T> {
+
+    private final Map<String, byte[]> raw;
+
+    private final Codec<T> codec;
+
+    private final Map<String, T> decoded;
+
+    private Set<Entry<String, T>> entrySet;
+
+    LazyMap(Map<String, byte[]> raw, Codec<T> codec) {
+        this.raw = raw;
+        this.codec = codec;
+        this.decoded = new HashMap<>();
+    }
+
+    @Override
+    public T get(Object key) {
+        T value = decoded.get(key);
+        if (value == null) {
+            byte[] bytes = raw.get(key);
+            if (bytes == null) {
+                return null;
+            }
+            value = codec.decode(bytes);
+            decoded.put((String) key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return raw.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return raw.size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(raw.keySet());
+    }
+
+    @Override
+    public Set<Entry<String, T>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, T>>() {
+                @Override
+                public Iterator<Entry<String, T>> iterator() {
+                    Iterator<String> keys = raw.keySet().iterator();
+                    return new Iterator<Entry<String, T>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, T> next() {
+                            return new LazyEntry(keys.next());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return raw.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class LazyEntry implements Entry<String, T> {
+
+        private final String key;
+
+        LazyEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public T getValue() {
+            return get(key);
+        }
+
+        @Override
+        public T setValue(T value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return key.equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.nonobank.architecture.cache.codec;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 线程本地复用的可增长字节缓冲,编码时先写入这里,最后只复制一次得到结果数组
+ * 同时是一个 UTF-8 编码的 Writer,fastjson 的 SerializeWriter 可以直接把字符写进来。
+ * acquire 与 release 必须成对调用;嵌套使用(如二进制编码里的 JSON 字段)时分配临时实例。
+ */
+final class Output extends Writer {
+
+    private static final int INITIAL_SIZE = 1024;
+
+    /**超过这个大小的缓冲用完后不保留,避免偶尔的大值长期占用内存*/
+    private static final int MAX_RETAINED_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<Output> LOCAL = ThreadLocal.withInitial(Output::new);
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+
+    private int count;
+
+    private boolean inUse;
+
+    static Output acquire() {
+        Output out = LOCAL.get();
+        if (out.inUse) {
+            out = new Output();
+        }
+        out.inUse = true;
+        out.count = 0;
+        return out;
+    }
+
+    void release() {
+        inUse = false;
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    int size() {
+        return count;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + extra));
+        }
+    }
+
+    void writeByte(int b) {
+        ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+
+    void writeInt(int v) {
+        ensure(4);
+        buf[count++] = (byte) (v >>> 24);
+        buf[count++] = (byte) (v >>> 16);
+        buf[count++] = (byte) (v >>> 8);
+        buf[count++] = (byte) v;
+    }
+
+    void writeLong(long v) {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    void writeVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[count++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[count++] = (byte) v;
+    }
+
+    /**
+     * zigzag 编码,绝对值小的负数也只占一两个字节
+     */
+    void writeSignedVarLong(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /**
+     * 长度前缀的 UTF-8 字符串:先写字节数,再写内容,不经过中间 byte[]
+     */
+    void writeString(String s) {
+        int length = s.length();
+        int bytes = utf8Length(s, length);
+        writeVarLong(bytes);
+        ensure(bytes);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else {
+                i = writeChar(c, i, length, s.charAt(Math.min(i + 1, length - 1)));
+            }
+        }
+    }
+
+    private static int utf8Length(String s, int length) {
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 写出一个非 ASCII 字符,代理对合并为一个码点,孤立的代理字符写为 '?'(与 String.getBytes 一致)
+     *
+     * @return 最后消费的字符下标
+     */
+    private int writeChar(char c, int i, int length, char next) {
+        if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(next)) {
+            int cp = Character.toCodePoint(c, next);
+            buf[count++] = (byte) (0xF0 | (cp >> 18));
+            buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+        ensure(len * 3);
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else {
+                i = writeChar(c, i, end, i + 1 < end ? chars[i + 1] : 0);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,142 @@
+package com.nonobank.architecture.cache.codec;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象读写,序列化由 {@link Codec} 完成,业务代码不再自己拼 JSON 字符串
+ * 基于 {@link AbstractCacheClient} 的二进制命令,值不经过 String 中转;任何引擎的客户端都可以包装。
+ * 不指定 codec 的方法使用 {@link JsonCodec},与原来 JSON.toJSONString 写入的值互相兼容。
+ * 批量读取(mget、hmget、hgetAll、lrange)返回的集合在访问某个值时才解码,只用到部分字段时其余字段不解码。
+ * <pre>
+ * TypedCacheClient typed = new TypedCacheClient(cacheClient);
+ * typed.setExpire("user:1", 600, user);
+ * User user = typed.get("user:1", User.class);
+ * Map&lt;String, Order&gt; orders = typed.hgetAll("orders:1", Codecs.binary(Order.class));
+ * </pre>
+ */
+public class TypedCacheClient {
+
+    /**JSON 编码只依赖值本身,写入时不需要知道声明类型*/
+    private static final Codec<Object> ANY_JSON = JsonCodec.of(Object.class);
+
+    private final AbstractCacheClient client;
+
+    public TypedCacheClient(AbstractCacheClient client) {
+        this.client = client;
+    }
+
+    public AbstractCacheClient getClient() {
+        return client;
+    }
+
+    public <T> Boolean set(String key, T value, Codec<T> codec) {
+        return client.setBytes(key, codec.encode(value));
+    }
+
+    public Boolean set(String key, Object value) {
+        return set(key, value, ANY_JSON);
+    }
+
+    public <T> String setExpire(String key, int seconds, T value, Codec<T> codec) {
+        return client.setExpireBytes(key, seconds, codec.encode(value));
+    }
+
+    public String setExpire(String key, int seconds, Object value) {
+        return setExpire(key, seconds, value, ANY_JSON);
+    }
+
+    /**
+     * @return key 不存在或值无法按当前结构解码时返回 null
+     */
+    public <T> T get(String key, Codec<T> codec) {
+        byte[] bytes = client.getBytes(key);
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    public <T> T get(String key, Class<T> type) {
+        return get(key, JsonCodec.of(type));
+    }
+
+    /**
+     * @return 与 keys 一一对应,不存在的为 null
+     */
+    public <T> List<T> mget(Codec<T> codec, String... keys) {
+        return new LazyList<>(client.mgetBytes(keys), codec);
+    }
+
+    public <T> List<T> mget(Class<T> type, String... keys) {
+        return mget(JsonCodec.of(type), keys);
+    }
+
+    public <T> Long hset(String key, String field, T value, Codec<T> codec) {
+        return client.hsetBytes(key, field, codec.encode(value));
+    }
+
+    public Long hset(String key, String field, Object value) {
+        return hset(key, field, value, ANY_JSON);
+    }
+
+    public <T> T hget(String key, String field, Codec<T> codec) {
+        byte[] bytes = client.hgetBytes(key, field);
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    public <T> T hget(String key, String field, Class<T> type) {
+        return hget(key, field, JsonCodec.of(type));
+    }
+
+    public <T> String hmset(String key, Map<String, ? extends T> hash, Codec<T> codec) {
+        Map<String, byte[]> encoded = new LinkedHashMap<>(hash.size() * 4 / 3 + 1);
+        for (Map.Entry<String, ? extends T> entry : hash.entrySet()) {
+            encoded.put(entry.getKey(), codec.encode(entry.getValue()));
+        }
+        return client.hmsetBytes(key, encoded);
+    }
+
+    public String hmset(String key, Map<String, ?> hash) {
+        return hmset(key, hash, ANY_JSON);
+    }
+
+    /**
+     * @return 与 fields 一一对应,不存在的为 null
+     */
+    public <T> List<T> hmget(String key, Codec<T> codec, String... fields) {
+        return new LazyList<>(client.hmgetBytes(key, fields), codec);
+    }
+
+    public <T> List<T> hmget(String key, Class<T> type, String... fields) {
+        return hmget(key, JsonCodec.of(type), fields);
+    }
+
+    /**
+     * @return 只读 Map,value 在 get 或遍历 entry 取值时才解码
+     */
+    public <T> Map<String, T> hgetAll(String key, Codec<T> codec) {
+        return new LazyMap<>(client.hgetAllBytes(key), codec);
+    }
+
+    public <T> Map<String, T> hgetAll(String key, Class<T> type) {
+        return hgetAll(key, JsonCodec.of(type));
+    }
+
+    @SafeVarargs
+    public final <T> Long rpush(String key, Codec<T> codec, T... values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = codec.encode(values[i]);
+        }
+        return client.rpushBytes(key, encoded);
+    }
+
+    public <T> List<T> lrange(String key, long start, long end, Codec<T> codec) {
+        return new LazyList<>(client.lrangeBytes(key, start, end), codec);
+    }
+
+    public <T> List<T> lrange(String key, long start, long end, Class<T> type) {
+        return lrange(key, start, end, JsonCodec.of(type));
+    }
+}
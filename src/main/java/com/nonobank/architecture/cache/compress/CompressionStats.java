@@ -0,0 +1,94 @@
+package com.nonobank.architecture.cache.compress;
+
+/**
+ * 一个 key 前缀的压缩统计快照
+ */
+public class CompressionStats {
+
+    private final String prefix;
+
+    private final long writes;
+
+    private final long compressedWrites;
+
+    private final long rawBytes;
+
+    private final long storedBytes;
+
+    private final long compressNanos;
+
+    private final long decompressedReads;
+
+    private final long decompressNanos;
+
+    CompressionStats(String prefix, long writes, long compressedWrites, long rawBytes, long storedBytes,
+                     long compressNanos, long decompressedReads, long decompressNanos) {
+        this.prefix = prefix;
+        this.writes = writes;
+        this.compressedWrites = compressedWrites;
+        this.rawBytes = rawBytes;
+        this.storedBytes = storedBytes;
+        this.compressNanos = compressNanos;
+        this.decompressedReads = decompressedReads;
+        this.decompressNanos = decompressNanos;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return 经过压缩阶段的写入次数,包括低于阈值或压缩无收益而原样写入的
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getCompressedWrites() {
+        return compressedWrites;
+    }
+
+    /**
+     * @return 所有写入值压缩前的总字节数
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * @return 所有写入值实际保存的总字节数
+     */
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * @return 保存字节数与原始字节数之比,越小越好
+     */
+    public double getRatio() {
+        return rawBytes == 0 ? 1.0 : (double) storedBytes / rawBytes;
+    }
+
+    /**
+     * @return 压缩(含尝试后放弃)累计耗时,纳秒
+     */
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    public long getDecompressedReads() {
+        return decompressedReads;
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "{writes=" + writes + ", compressed=" + compressedWrites
+                + ", raw=" + rawBytes + "B, stored=" + storedBytes + "B, ratio=" + String.format("%.3f", getRatio())
+                + ", compressMicros=" + compressNanos / 1000 + ", decompressed=" + decompressedReads
+                + ", decompressMicros=" + decompressNanos / 1000 + "}";
+    }
+}
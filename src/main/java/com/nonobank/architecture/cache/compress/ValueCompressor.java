@@ -0,0 +1,395 @@
+package com.nonobank.architecture.cache.compress;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.nonobank.architecture.cache.CacheConfig;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * 值压缩
+ * 压缩值以两个字节的头开始:0xFC(合法 UTF-8 中不会出现)加算法标记,
+ * 没有这个头的值按原样返回,所以开启压缩前写入的值、低于阈值的值和压缩值可以共存。
+ * <ul>
+ * <li>L:lz4 块,后跟4字节原始长度</li>
+ * <li>Z:zstd 帧</li>
+ * <li>D:使用字典的 zstd 帧,后跟4字节字典 id</li>
+ * <li>R:原样保存但本身以 0xFC 开头的值,避免被误认为压缩值</li>
+ * </ul>
+ * 字典按 key 前缀(第一个 ':' 之前的部分)注册,字典内容保存在 codis 上,其他实例读到未知字典 id 时通过 dictionaryLoader 加载。
+ * 按 key 前缀统计压缩率和压缩、解压耗时。
+ */
+public class ValueCompressor {
+
+    private static final Logger log = LoggerFactory.getLogger(ValueCompressor.class);
+
+    public static final String CODEC_LZ4 = "lz4";
+
+    public static final String CODEC_ZSTD = "zstd";
+
+    /**字典在 codis 上的 key 前缀,后跟字典 id*/
+    public static final String DICTIONARY_KEY_PREFIX = "__zdict:";
+
+    static final byte MAGIC = (byte) 0xFC;
+
+    static final byte LZ4 = 'L';
+
+    static final byte ZSTD = 'Z';
+
+    static final byte ZSTD_DICTIONARY = 'D';
+
+    static final byte RAW = 'R';
+
+    /**redis 单个值的上限*/
+    private static final int MAX_VALUE_SIZE = 512 * 1024 * 1024;
+
+    /**统计的前缀数上限,超出的归入 OTHER_PREFIX,防止 key 没有规范前缀时统计无限增长*/
+    private static final int MAX_PREFIXES = 1024;
+
+    private static final String OTHER_PREFIX = "(other)";
+
+    private static final String NO_PREFIX = "(none)";
+
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    private static final ThreadLocal<byte[][]> BUFFER = ThreadLocal.withInitial(() -> new byte[1][]);
+
+    private final int threshold;
+
+    private final int dictionaryThreshold;
+
+    private final boolean zstd;
+
+    private final int level;
+
+    private final LZ4Compressor lz4Compressor;
+
+    private final LZ4SafeDecompressor lz4Decompressor;
+
+    private final LongFunction<byte[]> dictionaryLoader;
+
+    private final ConcurrentMap<String, Dictionary> prefixDictionaries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Counters> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param dictionaryLoader 按 id 读取字典内容,不存在时返回 null
+     */
+    public ValueCompressor(CacheConfig config, LongFunction<byte[]> dictionaryLoader) {
+        String codec = config.getCompressionCodec();
+        if (CODEC_ZSTD.equalsIgnoreCase(codec)) {
+            this.zstd = true;
+        } else if (codec == null || CODEC_LZ4.equalsIgnoreCase(codec)) {
+            this.zstd = false;
+        } else {
+            throw new IllegalArgumentException("unknown compression codec: " + codec);
+        }
+        this.threshold = config.getCompressionThreshold();
+        this.dictionaryThreshold = config.getCompressionDictionaryThreshold();
+        this.level = config.getCompressionLevel();
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.lz4Compressor = factory.fastCompressor();
+        this.lz4Decompressor = factory.safeDecompressor();
+        this.dictionaryLoader = dictionaryLoader;
+    }
+
+    /**
+     * 用样本训练 zstd 字典,样本应是同一类值的真实数据,通常几百到几千条
+     *
+     * @param dictionarySize 字典大小(字节),一般 16KB 到 110KB
+     */
+    public static byte[] train(List<byte[]> samples, int dictionarySize) {
+        long total = 0;
+        for (byte[] sample : samples) {
+            total += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, total), dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    /**
+     * @return 字典的 id,写入值的头部,读取时据此找到字典
+     */
+    public static long dictionaryId(byte[] dictionary) {
+        return Zstd.getDictIdFromDict(dictionary);
+    }
+
+    /**
+     * 之后写入该前缀下的 key 时使用这个字典;调用方负责先把字典保存到 dictionaryLoader 能读到的位置
+     */
+    public void useDictionary(String prefix, byte[] dictionary) {
+        long id = dictionaryId(dictionary);
+        if (id == 0) {
+            throw new IllegalArgumentException("not a zstd dictionary");
+        }
+        decompressDictionaries.putIfAbsent(id, new ZstdDictDecompress(dictionary));
+        prefixDictionaries.put(prefix, new Dictionary(id, new ZstdDictCompress(dictionary, level)));
+    }
+
+    /**
+     * @return 要保存的值,不满足压缩条件或压缩没有收益时返回原值
+     */
+    public byte[] compress(String key, byte[] value) {
+        String prefix = prefixOf(key);
+        Dictionary dictionary = prefixDictionaries.isEmpty() ? null : prefixDictionaries.get(prefix);
+        int min = Math.max(1, dictionary == null ? threshold : Math.min(threshold, dictionaryThreshold));
+        Counters counters = counters(prefix);
+        if (value.length < min) {
+            counters.record(value.length, value.length);
+            return value.length > 0 && value[0] == MAGIC ? raw(value) : value;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = dictionary != null ? compressZstd(value, dictionary)
+                : zstd ? compressZstd(value, null) : compressLz4(value);
+        long elapsed = System.nanoTime() - start;
+        // 收益不到 1/16 时原样保存,省去读取时的解压
+        if (compressed == null || compressed.length > value.length - (value.length >> 4)) {
+            byte[] stored = value[0] == MAGIC ? raw(value) : value;
+            counters.record(value.length, stored.length);
+            counters.compressNanos.add(elapsed);
+            return stored;
+        }
+        counters.record(value.length, compressed.length);
+        counters.compressedWrites.increment();
+        counters.compressNanos.add(elapsed);
+        return compressed;
+    }
+
+    /**
+     * @return 解压后的值;没有压缩头的值原样返回
+     * @throws JedisDataException 带有压缩头但无法解压,值已损坏(例如被 append/setrange 修改过)或是开启压缩前写入的恰好以压缩头开始的二进制值
+     */
+    public byte[] decompress(String key, byte[] stored) {
+        if (stored == null || stored.length < 2 || stored[0] != MAGIC) {
+            return stored;
+        }
+        byte type = stored[1];
+        if (type == RAW) {
+            return Arrays.copyOfRange(stored, 2, stored.length);
+        }
+        if (type != LZ4 && type != ZSTD && type != ZSTD_DICTIONARY) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        byte[] value;
+        try {
+            value = type == LZ4 ? decompressLz4(stored) : decompressZstd(stored, type == ZSTD_DICTIONARY);
+        } catch (LZ4Exception | IllegalArgumentException e) {
+            throw new JedisDataException("value of key " + key + " has a compression header but cannot be decompressed: "
+                    + e.getMessage(), e);
+        }
+        Counters counters = counters(prefixOf(key));
+        counters.decompressedReads.increment();
+        counters.decompressNanos.add(System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * @return 按 key 前缀的统计快照
+     */
+    public Map<String, CompressionStats> stats() {
+        Map<String, CompressionStats> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Counters> entry : stats.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return snapshot;
+    }
+
+    private byte[] compressLz4(byte[] value) {
+        int bound = 6 + lz4Compressor.maxCompressedLength(value.length);
+        byte[] buffer = buffer(bound);
+        buffer[0] = MAGIC;
+        buffer[1] = LZ4;
+        writeInt(buffer, 2, value.length);
+        int length = lz4Compressor.compress(value, 0, value.length, buffer, 6, bound - 6);
+        return Arrays.copyOf(buffer, 6 + length);
+    }
+
+    private byte[] compressZstd(byte[] value, Dictionary dictionary) {
+        int header = dictionary == null ? 2 : 6;
+        int bound = header + (int) Zstd.compressBound(value.length);
+        byte[] buffer = buffer(bound);
+        buffer[0] = MAGIC;
+        buffer[1] = dictionary == null ? ZSTD : ZSTD_DICTIONARY;
+        long length;
+        if (dictionary == null) {
+            length = Zstd.compressByteArray(buffer, header, bound - header, value, 0, value.length, level);
+        } else {
+            writeInt(buffer, 2, (int) dictionary.id);
+            length = Zstd.compressFastDict(buffer, header, value, 0, value.length, dictionary.compress);
+        }
+        if (Zstd.isError(length)) {
+            log.info("zstd compress failed: " + Zstd.getErrorName(length));
+            return null;
+        }
+        return Arrays.copyOf(buffer, header + (int) length);
+    }
+
+    private byte[] decompressLz4(byte[] stored) {
+        if (stored.length < 6) {
+            throw new IllegalArgumentException("truncated lz4 value");
+        }
+        int length = readInt(stored, 2);
+        if (length < 0 || length > MAX_VALUE_SIZE) {
+            throw new IllegalArgumentException("invalid lz4 length " + length);
+        }
+        byte[] value = new byte[length];
+        int decompressed = lz4Decompressor.decompress(stored, 6, stored.length - 6, value, 0, length);
+        if (decompressed != length) {
+            throw new IllegalArgumentException("lz4 length mismatch");
+        }
+        return value;
+    }
+
+    private byte[] decompressZstd(byte[] stored, boolean withDictionary) {
+        int header = withDictionary ? 6 : 2;
+        if (stored.length <= header) {
+            throw new IllegalArgumentException("truncated zstd value");
+        }
+        long size = Zstd.getFrameContentSize(stored, header, stored.length - header);
+        if (size < 0 || size > MAX_VALUE_SIZE) {
+            throw new IllegalArgumentException("invalid zstd frame");
+        }
+        byte[] value = new byte[(int) size];
+        long length;
+        if (withDictionary) {
+            long id = readInt(stored, 2) & 0xFFFFFFFFL;
+            length = Zstd.decompressFastDict(value, 0, stored, header, stored.length - header, dictionary(id));
+        } else {
+            length = Zstd.decompressByteArray(value, 0, value.length, stored, header, stored.length - header);
+        }
+        if (Zstd.isError(length) || length != size) {
+            throw new IllegalArgumentException("zstd decompress failed: "
+                    + (Zstd.isError(length) ? Zstd.getErrorName(length) : "length mismatch"));
+        }
+        return value;
+    }
+
+    private ZstdDictDecompress dictionary(long id) {
+        ZstdDictDecompress dictionary = decompressDictionaries.get(id);
+        if (dictionary == null) {
+            byte[] content = dictionaryLoader.apply(id);
+            if (content == null) {
+                throw new JedisDataException("compression dictionary " + id + " not found");
+            }
+            dictionary = new ZstdDictDecompress(content);
+            ZstdDictDecompress existing = decompressDictionaries.putIfAbsent(id, dictionary);
+            if (existing != null) {
+                dictionary = existing;
+            }
+        }
+        return dictionary;
+    }
+
+    private static byte[] raw(byte[] value) {
+        byte[] stored = new byte[value.length + 2];
+        stored[0] = MAGIC;
+        stored[1] = RAW;
+        System.arraycopy(value, 0, stored, 2, value.length);
+        return stored;
+    }
+
+    /**
+     * 线程本地的压缩输出缓冲,结果按实际长度复制出去
+     */
+    private static byte[] buffer(int size) {
+        byte[][] holder = BUFFER.get();
+        byte[] buffer = holder[0];
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[Math.max(size, 64 * 1024)];
+            if (buffer.length <= MAX_RETAINED_BUFFER) {
+                holder[0] = buffer;
+            }
+        }
+        return buffer;
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int v) {
+        buffer[offset] = (byte) (v >>> 24);
+        buffer[offset + 1] = (byte) (v >>> 16);
+        buffer[offset + 2] = (byte) (v >>> 8);
+        buffer[offset + 3] = (byte) v;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16
+                | (buffer[offset + 2] & 0xFF) << 8 | (buffer[offset + 3] & 0xFF);
+    }
+
+    static String prefixOf(String key) {
+        int index = key.indexOf(':');
+        return index > 0 ? key.substring(0, index) : NO_PREFIX;
+    }
+
+    private Counters counters(String prefix) {
+        Counters counters = stats.get(prefix);
+        if (counters == null) {
+            if (stats.size() >= MAX_PREFIXES) {
+                prefix = OTHER_PREFIX;
+            }
+            counters = stats.computeIfAbsent(prefix, p -> new Counters());
+        }
+        return counters;
+    }
+
+    private static final class Dictionary {
+
+        final long id;
+
+        final ZstdDictCompress compress;
+
+        Dictionary(long id, ZstdDictCompress compress) {
+            this.id = id;
+            this.compress = compress;
+        }
+    }
+
+    private static final class Counters {
+
+        final LongAdder writes = new LongAdder();
+
+        final LongAdder compressedWrites = new LongAdder();
+
+        final LongAdder rawBytes = new LongAdder();
+
+        final LongAdder storedBytes = new LongAdder();
+
+        final LongAdder compressNanos = new LongAdder();
+
+        final LongAdder decompressedReads = new LongAdder();
+
+        final LongAdder decompressNanos = new LongAdder();
+
+        void record(int raw, int stored) {
+            writes.increment();
+            rawBytes.add(raw);
+            storedBytes.add(stored);
+        }
+
+        CompressionStats snapshot(String prefix) {
+            return new CompressionStats(prefix, writes.sum(), compressedWrites.sum(), rawBytes.sum(), storedBytes.sum(),
+                    compressNanos.sum(), decompressedReads.sum(), decompressNanos.sum());
+        }
+    }
+}
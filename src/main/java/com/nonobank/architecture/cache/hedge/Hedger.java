@@ -0,0 +1,126 @@
+package com.nonobank.architecture.cache.hedge;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.metrics.LatencyHistogram;
+import com.nonobank.architecture.cache.retry.RetryBudget;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求的决策:何时对冲({@link #getDelayNanos()})和能否对冲({@link #tryHedge()})
+ * 对冲延迟取只读命令首次发送的延迟分位数(默认 p95),限制在 [hedgeMinDelayMicros, hedgeMaxDelayMicros];
+ * 对冲次数由 {@link RetryBudget} 限制在只读命令数的 hedgeBudgetRatio 以内,
+ * proxy 整体变慢时分位数随之升高,对冲不会成倍放大流量。
+ * 延迟记录在每秒衰减一半的 {@link LatencyHistogram} 中,分位数每 100ms 最多重新计算一次。
+ */
+public class Hedger {
+
+    private static final long COMPUTE_INTERVAL_NANOS = 100000000L;
+
+    /**样本数低于该值时不给出估计*/
+    private static final long MIN_SAMPLES = 20;
+
+    private final LatencyHistogram latency = new LatencyHistogram(1, TimeUnit.SECONDS);
+
+    private final double percentile;
+
+    private final AtomicLong nextCompute = new AtomicLong();
+
+    /**分位数的估计值(纳秒),样本不足时为 -1*/
+    private volatile long quantileNanos = -1;
+
+    private final RetryBudget budget;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final LongAdder wins = new LongAdder();
+
+    public Hedger(CacheConfig config) {
+        this.percentile = config.getHedgePercentile();
+        this.budget = new RetryBudget(config.getHedgeBudgetRatio(), config.getHedgeBudgetMinPerSecond());
+        this.minDelayNanos = TimeUnit.MICROSECONDS.toNanos(config.getHedgeMinDelayMicros());
+        this.maxDelayNanos = Math.max(minDelayNanos, TimeUnit.MICROSECONDS.toNanos(config.getHedgeMaxDelayMicros()));
+    }
+
+    /**
+     * 每个可对冲的命令调用一次
+     */
+    public void onRequest() {
+        budget.onRequest();
+    }
+
+    /**
+     * @param nanos 首次发送的命令从发出到回复的耗时,无论对冲是否先回复
+     */
+    public void record(long nanos) {
+        latency.record(nanos, System.nanoTime());
+    }
+
+    /**
+     * @return 发出后经过多久仍未回复时对冲
+     */
+    public long getDelayNanos() {
+        long now = System.nanoTime();
+        long next = nextCompute.get();
+        if (now - next >= 0 && nextCompute.compareAndSet(next, now + COMPUTE_INTERVAL_NANOS)) {
+            quantileNanos = quantile();
+        }
+        long quantile = quantileNanos;
+        if (quantile < 0) {
+            return maxDelayNanos;
+        }
+        return Math.min(maxDelayNanos, Math.max(minDelayNanos, quantile));
+    }
+
+    private long quantile() {
+        long[] snapshot = latency.snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        return total < MIN_SAMPLES ? -1 : LatencyHistogram.quantile(snapshot, percentile);
+    }
+
+    /**
+     * @return 预算是否允许再发一个对冲请求,允许时计入对冲次数
+     */
+    public boolean tryHedge() {
+        return budget.tryAcquire();
+    }
+
+    /**
+     * 对冲请求先于首次发送的请求回复
+     */
+    public void onWin() {
+        wins.increment();
+    }
+
+    public long getRequests() {
+        return budget.getRequests();
+    }
+
+    public long getHedges() {
+        return budget.getRetries();
+    }
+
+    public long getWins() {
+        return wins.sum();
+    }
+
+    /**
+     * @return 因预算不足没有发出的对冲次数
+     */
+    public long getExhausted() {
+        return budget.getExhausted();
+    }
+
+    @Override
+    public String toString() {
+        return "{requests=" + getRequests() + ", hedges=" + getHedges() + ", wins=" + getWins()
+                + ", exhausted=" + getExhausted() + ", delayMicros=" + getDelayNanos() / 1000 + "}";
+    }
+}
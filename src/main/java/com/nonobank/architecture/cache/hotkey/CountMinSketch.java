@@ -0,0 +1,69 @@
+package com.nonobank.architecture.cache.hotkey;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 固定大小的 count-min sketch,depth 行 width 列的计数器
+ * 每个 key 在每行按不同的哈希落到一个计数器上,估计值取各行的最小值,只会高估不会低估;
+ * 内存只与 width × depth 有关,与 key 的数量无关。
+ */
+final class CountMinSketch {
+
+    private final int depth;
+
+    private final int mask;
+
+    private final AtomicIntegerArray counters;
+
+    CountMinSketch(int width, int depth) {
+        this.depth = Math.max(1, depth);
+        int columns = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.mask = columns - 1;
+        this.counters = new AtomicIntegerArray(columns * this.depth);
+    }
+
+    /**
+     * 把 key 的哈希扩展为 64 位,高低 32 位分别作为双重哈希的两个基
+     */
+    static long hash(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    /**
+     * 计数加一并返回加一后的估计值
+     */
+    int increment(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int count = counters.incrementAndGet(index(hash, row));
+            if (count < min) {
+                min = count;
+            }
+        }
+        return min;
+    }
+
+    int estimate(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int count = counters.get(index(hash, row));
+            if (count < min) {
+                min = count;
+            }
+        }
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+}
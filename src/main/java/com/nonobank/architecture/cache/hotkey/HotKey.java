@@ -0,0 +1,32 @@
+package com.nonobank.architecture.cache.hotkey;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 一个热点 key 及其在滑动窗口内估计的每秒访问次数(count-min sketch 只会高估)
+ */
+public class HotKey {
+
+    private final String key;
+
+    private final long estimatedPerSecond;
+
+    @ConstructorProperties({"key", "estimatedPerSecond"})
+    public HotKey(String key, long estimatedPerSecond) {
+        this.key = key;
+        this.estimatedPerSecond = estimatedPerSecond;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getEstimatedPerSecond() {
+        return estimatedPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + estimatedPerSecond + "/s";
+    }
+}
@@ -0,0 +1,613 @@
+package com.nonobank.architecture.cache.hotkey;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 统计所有命令访问的 key,用 {@link HotKeyDetector} 找出热点 key
+ * hotKeyLocalCache 为 true 时热点 key 的读命令结果在本地缓存 hotKeyLocalTtlMillis,不再访问 codis;
+ * 通过本客户端执行的写命令立即失效对应 key 的本地数据,其他实例或 batch 中的写入最多在 hotKeyLocalTtlMillis 后可见。
+ * 本地缓存最多 hotKeyTopN 个 key,每个 key 最多缓存 {@value #MAX_VIEWS_PER_KEY} 种读取方式(如 hget 的不同 field),返回的集合是只读的。
+ */
+public class HotKeyCacheClient extends ForwardingCacheClient {
+
+    static final int MAX_VIEWS_PER_KEY = 64;
+
+    private static final Object NULL = new Object();
+
+    private final HotKeyDetector detector;
+
+    /**未开启 hotKeyLocalCache 时为 null*/
+    private final Cache<String, LocalEntry> cache;
+
+    private final LongAdder localHits = new LongAdder();
+
+    public HotKeyCacheClient(AbstractCacheClient delegate, CacheConfig config) {
+        super(delegate);
+        this.detector = new HotKeyDetector(config);
+        this.cache = config.getHotKeyLocalCache() ? Caffeine.newBuilder()
+                .maximumSize(Math.max(1, config.getHotKeyTopN()))
+                .expireAfterWrite(config.getHotKeyLocalTtlMillis(), TimeUnit.MILLISECONDS)
+                .build() : null;
+    }
+
+    public HotKeyDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * @return 当前的热点 key,见 {@link HotKeyDetector#getHotKeys()}
+     */
+    public List<HotKey> getHotKeys() {
+        return detector.getHotKeys();
+    }
+
+    /**
+     * @return 热点 key 的读命令在本地命中的次数
+     */
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    private boolean hot(String key) {
+        return detector.record(key) && cache != null;
+    }
+
+    private void record(String... keys) {
+        for (String key : keys) {
+            detector.record(key);
+        }
+    }
+
+    private void recordPairs(String... keysvalues) {
+        for (int i = 0; i < keysvalues.length; i += 2) {
+            detector.record(keysvalues[i]);
+        }
+    }
+
+    /**
+     * 与 NearCacheClient 相同,先取得本地条目再访问服务端,读取期间被失效时结果只写入已移除的旧条目
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T local(String key, String view, Supplier<T> loader) {
+        LocalEntry entry = cache.get(key, k -> new LocalEntry());
+        Object value = entry.views.get(view);
+        if (value == null) {
+            T loaded = loader.get();
+            if (entry.views.size() < MAX_VIEWS_PER_KEY) {
+                entry.views.put(view, loaded == null ? NULL : loaded);
+            }
+            return loaded;
+        }
+        localHits.increment();
+        return value == NULL ? null : (T) value;
+    }
+
+    private void invalidate(String... keys) {
+        if (cache != null) {
+            for (String key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    private void invalidatePairs(String... keysvalues) {
+        if (cache != null) {
+            for (int i = 0; i < keysvalues.length; i += 2) {
+                cache.invalidate(keysvalues[i]);
+            }
+        }
+    }
+
+    /**
+     * 单 key 命令统计 key,写命令执行后失效本地数据;多 key 命令、sort 存储和热点 key 的本地读取由各自的方法处理
+     */
+    @Override
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        if (key == null) {
+            return call.get();
+        }
+        detector.record(key);
+        if (command.isRead()) {
+            return call.get();
+        }
+        try {
+            return call.get();
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        record(keys);
+        try {
+            return delegate.delWithRetry(retryTimes, sleepSeconds, keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public String getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        if (hot(key)) {
+            return local(key, "get", () -> delegate.getWithRetry(key, retryTimes, sleepSeconds));
+        }
+        return delegate.getWithRetry(key, retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public String get(String key) {
+        if (hot(key)) {
+            return local(key, "get", () -> delegate.get(key));
+        }
+        return delegate.get(key);
+    }
+
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        if (hot(key)) {
+            return local(key, "get", () -> delegate.get(key, loader, ttlSeconds));
+        }
+        return delegate.get(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public String getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        if (hot(key)) {
+            return local(key, "get", () -> delegate.getRefreshAhead(key, loader, ttlSeconds));
+        }
+        return delegate.getRefreshAhead(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public Boolean exists(String key) {
+        if (hot(key)) {
+            return local(key, "exists", () -> delegate.exists(key));
+        }
+        return delegate.exists(key);
+    }
+
+    @Override
+    public Long del(String... keys) {
+        record(keys);
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public String getrange(String key, long startOffset, long endOffset) {
+        if (hot(key)) {
+            return local(key, "getrange:" + startOffset + ":" + endOffset, () -> delegate.getrange(key, startOffset, endOffset));
+        }
+        return delegate.getrange(key, startOffset, endOffset);
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        if (hot(key)) {
+            return local(key, "hget:" + field, () -> delegate.hget(key, field));
+        }
+        return delegate.hget(key, field);
+    }
+
+    @Override
+    public Boolean hexists(String key, String field) {
+        if (hot(key)) {
+            return local(key, "hexists:" + field, () -> delegate.hexists(key, field));
+        }
+        return delegate.hexists(key, field);
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        if (hot(key)) {
+            return local(key, "hgetAll", () -> delegate.hgetAll(key));
+        }
+        return delegate.hgetAll(key);
+    }
+
+    @Override
+    public Set<String> hkeys(String key) {
+        if (hot(key)) {
+            return local(key, "hkeys", () -> delegate.hkeys(key));
+        }
+        return delegate.hkeys(key);
+    }
+
+    @Override
+    public Long hlen(String key) {
+        if (hot(key)) {
+            return local(key, "hlen", () -> delegate.hlen(key));
+        }
+        return delegate.hlen(key);
+    }
+
+    @Override
+    public List<String> hvals(String key) {
+        if (hot(key)) {
+            return local(key, "hvals", () -> delegate.hvals(key));
+        }
+        return delegate.hvals(key);
+    }
+
+    @Override
+    public String lindex(String key, long index) {
+        if (hot(key)) {
+            return local(key, "lindex:" + index, () -> delegate.lindex(key, index));
+        }
+        return delegate.lindex(key, index);
+    }
+
+    @Override
+    public List<String> mget(String... keys) {
+        record(keys);
+        return delegate.mget(keys);
+    }
+
+    @Override
+    public Boolean mset(String... keysvalues) {
+        recordPairs(keysvalues);
+        try {
+            return delegate.mset(keysvalues);
+        } finally {
+            invalidatePairs(keysvalues);
+        }
+    }
+
+    @Override
+    public Long llen(String key) {
+        if (hot(key)) {
+            return local(key, "llen", () -> delegate.llen(key));
+        }
+        return delegate.llen(key);
+    }
+
+    @Override
+    public List<String> lrange(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "lrange:" + start + ":" + end, () -> delegate.lrange(key, start, end));
+        }
+        return delegate.lrange(key, start, end);
+    }
+
+    @Override
+    public Long scard(String key) {
+        if (hot(key)) {
+            return local(key, "scard", () -> delegate.scard(key));
+        }
+        return delegate.scard(key);
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        if (hot(key)) {
+            return local(key, "smembers", () -> delegate.smembers(key));
+        }
+        return delegate.smembers(key);
+    }
+
+    @Override
+    public Boolean sismember(String key, String member) {
+        if (hot(key)) {
+            return local(key, "sismember:" + member, () -> delegate.sismember(key, member));
+        }
+        return delegate.sismember(key, member);
+    }
+
+    @Override
+    public Long strlen(String key) {
+        if (hot(key)) {
+            return local(key, "strlen", () -> delegate.strlen(key));
+        }
+        return delegate.strlen(key);
+    }
+
+    @Override
+    public Long sort(String key, SortingParams sortingParameters, String dstkey) {
+        detector.record(key);
+        try {
+            return delegate.sort(key, sortingParameters, dstkey);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public Long sort(String key, String dstkey) {
+        detector.record(key);
+        try {
+            return delegate.sort(key, dstkey);
+        } finally {
+            invalidate(dstkey);
+        }
+    }
+
+    @Override
+    public String substr(String key, int start, int end) {
+        if (hot(key)) {
+            return local(key, "substr:" + start + ":" + end, () -> delegate.substr(key, start, end));
+        }
+        return delegate.substr(key, start, end);
+    }
+
+    @Override
+    public String type(String key) {
+        if (hot(key)) {
+            return local(key, "type", () -> delegate.type(key));
+        }
+        return delegate.type(key);
+    }
+
+    @Override
+    public Long zcard(String key) {
+        if (hot(key)) {
+            return local(key, "zcard", () -> delegate.zcard(key));
+        }
+        return delegate.zcard(key);
+    }
+
+    @Override
+    public Long zcount(String key, double min, double max) {
+        if (hot(key)) {
+            return local(key, "zcount:" + min + ":" + max, () -> delegate.zcount(key, min, max));
+        }
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Long zcount(String key, String min, String max) {
+        if (hot(key)) {
+            return local(key, "zcount:" + min + ":" + max, () -> delegate.zcount(key, min, max));
+        }
+        return delegate.zcount(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "zrange:" + start + ":" + end, () -> delegate.zrange(key, start, end));
+        }
+        return delegate.zrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max) {
+        if (hot(key)) {
+            return local(key, "zrangeByScore:" + min + ":" + max, () -> delegate.zrangeByScore(key, min, max));
+        }
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrangeByScore:" + min + ":" + max + ":" + offset + ":" + count, () -> delegate.zrangeByScore(key, min, max, offset, count));
+        }
+        return delegate.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max) {
+        if (hot(key)) {
+            return local(key, "zrangeByScore:" + min + ":" + max, () -> delegate.zrangeByScore(key, min, max));
+        }
+        return delegate.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Set<String> zrangeByScore(String key, String min, String max, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrangeByScore:" + min + ":" + max + ":" + offset + ":" + count, () -> delegate.zrangeByScore(key, min, max, offset, count));
+        }
+        return delegate.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max) {
+        if (hot(key)) {
+            return local(key, "zrangeByScoreWithScores:" + min + ":" + max, () -> delegate.zrangeByScoreWithScores(key, min, max));
+        }
+        return delegate.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrangeByScoreWithScores:" + min + ":" + max + ":" + offset + ":" + count, () -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+        }
+        return delegate.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max) {
+        if (hot(key)) {
+            return local(key, "zrangeByScoreWithScores:" + min + ":" + max, () -> delegate.zrangeByScoreWithScores(key, min, max));
+        }
+        return delegate.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Set<Tuple> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrangeByScoreWithScores:" + min + ":" + max + ":" + offset + ":" + count, () -> delegate.zrangeByScoreWithScores(key, min, max, offset, count));
+        }
+        return delegate.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrangeWithScores(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "zrangeWithScores:" + start + ":" + end, () -> delegate.zrangeWithScores(key, start, end));
+        }
+        return delegate.zrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Long zrank(String key, String member) {
+        if (hot(key)) {
+            return local(key, "zrank:" + member, () -> delegate.zrank(key, member));
+        }
+        return delegate.zrank(key, member);
+    }
+
+    @Override
+    public Set<String> zrevrange(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "zrevrange:" + start + ":" + end, () -> delegate.zrevrange(key, start, end));
+        }
+        return delegate.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScore:" + max + ":" + min, () -> delegate.zrevrangeByScore(key, max, min));
+        }
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScore:" + max + ":" + min + ":" + offset + ":" + count, () -> delegate.zrevrangeByScore(key, max, min, offset, count));
+        }
+        return delegate.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScore:" + max + ":" + min, () -> delegate.zrevrangeByScore(key, max, min));
+        }
+        return delegate.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Set<String> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScore:" + max + ":" + min + ":" + offset + ":" + count, () -> delegate.zrevrangeByScore(key, max, min, offset, count));
+        }
+        return delegate.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScoreWithScores:" + max + ":" + min, () -> delegate.zrevrangeByScoreWithScores(key, max, min));
+        }
+        return delegate.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScoreWithScores:" + max + ":" + min + ":" + offset + ":" + count, () -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+        }
+        return delegate.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScoreWithScores:" + max + ":" + min, () -> delegate.zrevrangeByScoreWithScores(key, max, min));
+        }
+        return delegate.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        if (hot(key)) {
+            return local(key, "zrevrangeByScoreWithScores:" + max + ":" + min + ":" + offset + ":" + count, () -> delegate.zrevrangeByScoreWithScores(key, max, min, offset, count));
+        }
+        return delegate.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Set<Tuple> zrevrangeWithScores(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "zrevrangeWithScores:" + start + ":" + end, () -> delegate.zrevrangeWithScores(key, start, end));
+        }
+        return delegate.zrevrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Long zrevrank(String key, String member) {
+        if (hot(key)) {
+            return local(key, "zrevrank:" + member, () -> delegate.zrevrank(key, member));
+        }
+        return delegate.zrevrank(key, member);
+    }
+
+    @Override
+    public Double zscore(String key, String member) {
+        if (hot(key)) {
+            return local(key, "zscore:" + member, () -> delegate.zscore(key, member));
+        }
+        return delegate.zscore(key, member);
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        if (hot(key)) {
+            return local(key, "getBytes", () -> delegate.getBytes(key));
+        }
+        return delegate.getBytes(key);
+    }
+
+    @Override
+    public List<byte[]> mgetBytes(String... keys) {
+        record(keys);
+        return delegate.mgetBytes(keys);
+    }
+
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        if (hot(key)) {
+            return local(key, "hgetBytes:" + field, () -> delegate.hgetBytes(key, field));
+        }
+        return delegate.hgetBytes(key, field);
+    }
+
+    @Override
+    public Map<String, byte[]> hgetAllBytes(String key) {
+        if (hot(key)) {
+            return local(key, "hgetAllBytes", () -> delegate.hgetAllBytes(key));
+        }
+        return delegate.hgetAllBytes(key);
+    }
+
+    @Override
+    public List<byte[]> lrangeBytes(String key, long start, long end) {
+        if (hot(key)) {
+            return local(key, "lrangeBytes:" + start + ":" + end, () -> delegate.lrangeBytes(key, start, end));
+        }
+        return delegate.lrangeBytes(key, start, end);
+    }
+
+    /**
+     * 一个 key 的各种读取方式(命令和参数)的结果
+     */
+    private static final class LocalEntry {
+
+        final Map<String, Object> views = new ConcurrentHashMap<>();
+    }
+}
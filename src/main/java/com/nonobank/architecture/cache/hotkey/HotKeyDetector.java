@@ -0,0 +1,186 @@
+package com.nonobank.architecture.cache.hotkey;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式热点 key 检测
+ * 用两个 count-min sketch 组成滑动窗口:当前窗口的计数加上上一个窗口按剩余比例折算的计数,
+ * 估计值达到 hotKeyThresholdPerSecond 的 key 进入最多 hotKeyTopN 个的热点列表,满了之后替换估计值最小的;
+ * 每个窗口结束时清空最旧的 sketch,并移除不再达到阈值的热点 key。
+ * 内存只与 sketch 大小和 hotKeyTopN 有关,与 key 的数量无关;记录路径不加锁,只在热点列表变化时加锁。
+ */
+public final class HotKeyDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyDetector.class);
+
+    private final int topN;
+
+    private final long windowNanos;
+
+    private final long windowMillis;
+
+    /**一个窗口内的访问次数阈值*/
+    private final long threshold;
+
+    private final AtomicLong windowStart;
+
+    private final ConcurrentHashMap<String, Candidate> hot = new ConcurrentHashMap<>();
+
+    private volatile CountMinSketch current;
+
+    private volatile CountMinSketch previous;
+
+    /**热点列表已满时其中最小的估计值,更小的 key 不用加锁比较*/
+    private volatile long floor;
+
+    public HotKeyDetector(CacheConfig config) {
+        this.topN = Math.max(1, config.getHotKeyTopN());
+        this.windowMillis = Math.max(1, config.getHotKeyWindowMillis());
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.threshold = Math.max(1, (long) config.getHotKeyThresholdPerSecond() * windowMillis / 1000);
+        this.current = new CountMinSketch(config.getHotKeySketchWidth(), config.getHotKeySketchDepth());
+        this.previous = new CountMinSketch(config.getHotKeySketchWidth(), config.getHotKeySketchDepth());
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @return key 当前是否是热点
+     */
+    public boolean record(String key) {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos) {
+            rotate(start, now);
+        }
+        long hash = CountMinSketch.hash(key);
+        long estimate = current.increment(hash);
+        if (estimate < threshold) {
+            estimate += weighted(previous.estimate(hash), now);
+            if (estimate < threshold) {
+                return false;
+            }
+        }
+        return offer(key, estimate);
+    }
+
+    public boolean isHot(String key) {
+        return hot.containsKey(key);
+    }
+
+    /**
+     * 上一个窗口的计数按当前窗口尚未经过的比例计入
+     */
+    private long weighted(long count, long now) {
+        long elapsed = Math.min(windowNanos, Math.max(0, now - windowStart.get()));
+        return count * (windowNanos - elapsed) / windowNanos;
+    }
+
+    private long estimate(long hash, long now) {
+        return current.estimate(hash) + weighted(previous.estimate(hash), now);
+    }
+
+    private boolean offer(String key, long estimate) {
+        Candidate candidate = hot.get(key);
+        if (candidate != null) {
+            candidate.estimate = estimate;
+            return true;
+        }
+        if (hot.size() >= topN && estimate <= floor) {
+            return false;
+        }
+        synchronized (hot) {
+            if (hot.containsKey(key)) {
+                return true;
+            }
+            if (hot.size() >= topN) {
+                Candidate min = min();
+                if (min.estimate >= estimate) {
+                    floor = min.estimate;
+                    return false;
+                }
+                hot.remove(min.key);
+            }
+            hot.put(key, new Candidate(key, estimate));
+            floor = hot.size() >= topN ? min().estimate : 0;
+        }
+        log.info("hot key detected, key:" + key + ", estimated per second:" + estimate * 1000 / windowMillis);
+        return true;
+    }
+
+    /**guarded by hot*/
+    private Candidate min() {
+        Candidate min = null;
+        for (Candidate candidate : hot.values()) {
+            if (min == null || candidate.estimate < min.estimate) {
+                min = candidate;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 窗口结束:清空最旧的 sketch 作为新的当前窗口,按新的估计值移除不再达到阈值的热点 key
+     * 超过两个窗口没有访问时两个 sketch 都清空
+     */
+    private void rotate(long start, long now) {
+        long elapsed = now - start;
+        if (!windowStart.compareAndSet(start, start + elapsed - elapsed % windowNanos)) {
+            return;
+        }
+        synchronized (hot) {
+            CountMinSketch expired = previous;
+            expired.clear();
+            if (elapsed >= windowNanos * 2) {
+                current.clear();
+            }
+            previous = current;
+            current = expired;
+            hot.values().removeIf(candidate -> {
+                candidate.estimate = estimate(CountMinSketch.hash(candidate.key), now);
+                return candidate.estimate < threshold;
+            });
+            floor = hot.size() >= topN ? min().estimate : 0;
+        }
+    }
+
+    /**
+     * @return 当前的热点 key,按估计的每秒访问次数从高到低排列
+     */
+    public List<HotKey> getHotKeys() {
+        long now = System.nanoTime();
+        List<HotKey> keys = new ArrayList<>(hot.size());
+        for (Candidate candidate : hot.values()) {
+            long estimate = estimate(CountMinSketch.hash(candidate.key), now);
+            keys.add(new HotKey(candidate.key, estimate * 1000 / windowMillis));
+        }
+        keys.sort((a, b) -> Long.compare(b.getEstimatedPerSecond(), a.getEstimatedPerSecond()));
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKeyDetector" + getHotKeys();
+    }
+
+    private static final class Candidate {
+
+        final String key;
+
+        volatile long estimate;
+
+        Candidate(String key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+    }
+}
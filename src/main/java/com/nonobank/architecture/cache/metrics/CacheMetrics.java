@@ -0,0 +1,190 @@
+package com.nonobank.architecture.cache.metrics;
+
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.hotkey.HotKey;
+import com.nonobank.architecture.cache.hotkey.HotKeyDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个连接池(或一个 multiplexed 引擎)的所有计量:每个命令、每个 proxy 以及借用连接的等待时间,开启 hotKey 时还有热点 key
+ * 命令计量由 {@link MeteredCacheClient} / {@link MeteredAsyncCacheClient} 记录,proxy 计量由连接池或引擎记录。
+ * 除了 {@link #getCommands()} 等拉取接口,metricsJmx 为 true 时还注册为 MXBean,可以用 jconsole 等工具查看。
+ */
+public class CacheMetrics implements CacheMetricsMXBean, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheMetrics.class);
+
+    public static final String JMX_DOMAIN = "com.nonobank.architecture.cache";
+
+    private static final AtomicInteger JMX_SEQUENCE = new AtomicInteger();
+
+    private final String name;
+
+    private final long windowSeconds;
+
+    private final ConcurrentMap<String, CommandMeter> commands = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CommandMeter> proxies = new ConcurrentHashMap<>();
+
+    private final CommandMeter borrowWait;
+
+    private final ObjectName objectName;
+
+    private volatile HotKeyDetector hotKeys;
+
+    public CacheMetrics(String name, CacheConfig config) {
+        this.name = name;
+        this.windowSeconds = Math.max(1, config.getMetricsWindowSeconds());
+        this.borrowWait = new CommandMeter("borrowWait", windowSeconds, TimeUnit.SECONDS);
+        this.objectName = config.getMetricsJmx() ? register(name) : null;
+    }
+
+    /**
+     * 同名的 MXBean 已经注册时(如同一进程中两个同名的连接池)在名称后加序号,不覆盖已有的注册
+     */
+    private ObjectName register(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String unique = name;
+            while (true) {
+                ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=CacheMetrics,name=" + ObjectName.quote(unique));
+                try {
+                    server.registerMBean(this, objectName);
+                    return objectName;
+                } catch (InstanceAlreadyExistsException e) {
+                    unique = name + "-" + JMX_SEQUENCE.incrementAndGet();
+                }
+            }
+        } catch (JMException e) {
+            log.info("cache metrics jmx register error, name:" + name + ", " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return 命令的计量,不存在时创建;同名的重载方法共用一个计量
+     */
+    public CommandMeter command(String command) {
+        return meter(commands, command);
+    }
+
+    /**
+     * @return 所有命令的计量,按 {@link CacheCommand#ordinal()} 索引,不存在时创建
+     */
+    public CommandMeter[] commands() {
+        CacheCommand[] values = CacheCommand.values();
+        CommandMeter[] meters = new CommandMeter[values.length];
+        for (CacheCommand command : values) {
+            meters[command.ordinal()] = command(command.getName());
+        }
+        return meters;
+    }
+
+    /**
+     * @return proxy(host:port)的计量,不存在时创建
+     */
+    public CommandMeter proxy(String address) {
+        return meter(proxies, address);
+    }
+
+    private CommandMeter meter(ConcurrentMap<String, CommandMeter> meters, String key) {
+        CommandMeter meter = meters.get(key);
+        if (meter == null) {
+            meter = meters.computeIfAbsent(key, k -> new CommandMeter(k, windowSeconds, TimeUnit.SECONDS));
+        }
+        return meter;
+    }
+
+    public CommandMeter borrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * 设置后 {@link #getHotKeys()} 返回该检测器当前的热点 key
+     */
+    public void setHotKeyDetector(HotKeyDetector hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<LatencyStats> getCommands() {
+        return stats(commands);
+    }
+
+    @Override
+    public List<LatencyStats> getProxies() {
+        return stats(proxies);
+    }
+
+    @Override
+    public LatencyStats getBorrowWait() {
+        return borrowWait.getStats();
+    }
+
+    @Override
+    public List<HotKey> getHotKeys() {
+        HotKeyDetector detector = hotKeys;
+        return detector == null ? Collections.emptyList() : detector.getHotKeys();
+    }
+
+    /**
+     * @return 命令的统计,没有调用过时返回 null
+     */
+    public LatencyStats getCommand(String command) {
+        CommandMeter meter = commands.get(command);
+        return meter == null ? null : meter.getStats();
+    }
+
+    private static List<LatencyStats> stats(ConcurrentMap<String, CommandMeter> meters) {
+        List<LatencyStats> stats = new ArrayList<>(meters.size());
+        for (CommandMeter meter : meters.values()) {
+            LatencyStats snapshot = meter.getStats();
+            if (snapshot.getCalls() > 0) {
+                stats.add(snapshot);
+            }
+        }
+        stats.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return stats;
+    }
+
+    /**
+     * 注销 MXBean,已有的计量仍然可以继续记录和读取
+     */
+    @Override
+    public void close() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.info("cache metrics jmx unregister error, name:" + name + ", " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,21 @@
+package com.nonobank.architecture.cache.metrics;
+
+import com.nonobank.architecture.cache.hotkey.HotKey;
+
+import java.util.List;
+
+/**
+ * {@link CacheMetrics} 的 JMX 接口,ObjectName 为 com.nonobank.architecture.cache:type=CacheMetrics,name="..."
+ */
+public interface CacheMetricsMXBean {
+
+    String getName();
+
+    List<LatencyStats> getCommands();
+
+    List<LatencyStats> getProxies();
+
+    LatencyStats getBorrowWait();
+
+    List<HotKey> getHotKeys();
+}
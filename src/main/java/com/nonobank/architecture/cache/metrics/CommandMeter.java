@@ -0,0 +1,93 @@
+package com.nonobank.architecture.cache.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个命令(或一个 proxy、借用连接)的计量:延迟直方图、调用数、失败数、请求和响应字节数
+ * 记录路径只有 LongAdder 和 AtomicLongArray 自增,不加锁不分配对象。
+ */
+public final class CommandMeter {
+
+    private final String name;
+
+    private final LatencyHistogram histogram;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAdder bytesIn = new LongAdder();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    public CommandMeter(String name, long window, TimeUnit unit) {
+        this.name = name;
+        this.histogram = new LatencyHistogram(window, unit);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次成功的调用,begin 为 {@link System#nanoTime()} 的开始时间
+     */
+    public void success(long begin, long out, long in) {
+        long now = System.nanoTime();
+        record(now - begin, now);
+        if (out > 0) {
+            bytesOut.add(out);
+        }
+        if (in > 0) {
+            bytesIn.add(in);
+        }
+    }
+
+    /**
+     * 记录一次失败的调用,begin 为 {@link System#nanoTime()} 的开始时间
+     */
+    public void failure(long begin) {
+        long now = System.nanoTime();
+        record(now - begin, now);
+        errors.increment();
+    }
+
+    public void record(long elapsedNanos, boolean error) {
+        record(elapsedNanos, System.nanoTime());
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    private void record(long elapsedNanos, long now) {
+        histogram.record(elapsedNanos, now);
+        totalNanos.add(elapsedNanos);
+        calls.increment();
+    }
+
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public LatencyStats getStats() {
+        long[] snapshot = histogram.snapshot();
+        long count = calls.sum();
+        return new LatencyStats(name, count, errors.sum(), bytesIn.sum(), bytesOut.sum(),
+                count == 0 ? 0 : totalNanos.sum() / 1000.0 / count,
+                LatencyHistogram.quantile(snapshot, 0.5) / 1000.0,
+                LatencyHistogram.quantile(snapshot, 0.99) / 1000.0,
+                LatencyHistogram.quantile(snapshot, 0.999) / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return getStats().toString();
+    }
+}
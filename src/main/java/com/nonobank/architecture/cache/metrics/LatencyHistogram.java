@@ -0,0 +1,102 @@
+package com.nonobank.architecture.cache.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的 HDR 风格延迟直方图(纳秒)
+ * 小于 16ns 的值各占一个桶,之后每个 2 的幂区间平均分成 8 个桶,相对误差不超过 12.5%;超过约 18 分钟的值计入最后一个桶。
+ * 记录只是一次 AtomicLongArray 自增;每过一个窗口由跨过窗口边界的那次记录把所有计数减半,分位数主要反映最近几个窗口。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int MAX_EXPONENT = 40;
+
+    static final int BUCKETS = index((1L << MAX_EXPONENT) - 1) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final long windowNanos;
+
+    private final AtomicLong nextDecay;
+
+    public LatencyHistogram(long window, TimeUnit unit) {
+        this.windowNanos = Math.max(1, unit.toNanos(window));
+        this.nextDecay = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    static int index(long nanos) {
+        if (nanos < SUB_COUNT * 2) {
+            return nanos < 0 ? 0 : (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return SUB_COUNT * 2 + (exponent - SUB_BITS - 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * 桶内最大值,分位数按它上报,偏大不偏小
+     */
+    static long upperBound(int index) {
+        if (index < SUB_COUNT * 2) {
+            return index;
+        }
+        int exponent = (index - SUB_COUNT * 2) / SUB_COUNT + SUB_BITS + 1;
+        int sub = (index - SUB_COUNT * 2) % SUB_COUNT;
+        return (1L << exponent) + ((long) (sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    public void record(long nanos, long now) {
+        counts.incrementAndGet(index(nanos));
+        long decay = nextDecay.get();
+        if (now - decay >= 0 && nextDecay.compareAndSet(decay, decay + windowNanos)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = counts.get(i);
+                if (count > 0) {
+                    counts.addAndGet(i, -(count - (count >>> 1)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 返回当前各桶计数的拷贝,并发记录中的样本可能只有一部分被计入
+     */
+    public long[] snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * 在 {@link #snapshot()} 的结果上计算分位数(纳秒),没有样本时返回 0
+     */
+    public static long quantile(long[] snapshot, double quantile) {
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * quantile));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(snapshot.length - 1);
+    }
+}
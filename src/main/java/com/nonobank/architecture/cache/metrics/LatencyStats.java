@@ -0,0 +1,84 @@
+package com.nonobank.architecture.cache.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * {@link CommandMeter} 的快照,JMX 中映射为 CompositeData
+ * 调用数、失败数、字节数和平均延迟从创建起累计;分位数(微秒)主要反映最近几个统计窗口。
+ */
+public class LatencyStats {
+
+    private final String name;
+
+    private final long calls;
+
+    private final long errors;
+
+    private final long bytesIn;
+
+    private final long bytesOut;
+
+    private final double meanMicros;
+
+    private final double p50Micros;
+
+    private final double p99Micros;
+
+    private final double p999Micros;
+
+    @ConstructorProperties({"name", "calls", "errors", "bytesIn", "bytesOut", "meanMicros", "p50Micros", "p99Micros", "p999Micros"})
+    public LatencyStats(String name, long calls, long errors, long bytesIn, long bytesOut,
+                        double meanMicros, double p50Micros, double p99Micros, double p999Micros) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{calls=%d, errors=%d, bytesIn=%d, bytesOut=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p999=%.1fus}",
+                name, calls, errors, bytesIn, bytesOut, meanMicros, p50Micros, p99Micros, p999Micros);
+    }
+}
@@ -0,0 +1,59 @@
+package com.nonobank.architecture.cache.metrics;
+
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.async.AsyncCacheClient;
+import com.nonobank.architecture.cache.async.ForwardingAsyncCacheClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link MeteredCacheClient} 的异步版本
+ * 延迟从提交命令开始计算到 future 完成为止,在完成 future 的线程上记录。
+ */
+public class MeteredAsyncCacheClient extends ForwardingAsyncCacheClient {
+
+    private final CacheMetrics metrics;
+
+    /**按 {@link CacheCommand#ordinal()} 索引*/
+    private final CommandMeter[] meters;
+
+    public MeteredAsyncCacheClient(AsyncCacheClient delegate, CacheMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+        this.meters = metrics.commands();
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public AsyncCacheClient withTimeout(long timeout, TimeUnit unit) {
+        return new MeteredAsyncCacheClient(delegate.withTimeout(timeout, unit), metrics);
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> invoke(CacheCommand command, String key, Object value,
+                                              Supplier<CompletableFuture<T>> call) {
+        CommandMeter meter = meters[command.ordinal()];
+        long begin = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            meter.failure(begin);
+            throw e;
+        }
+        long out = PayloadSize.of(key) + PayloadSize.of(value);
+        future.whenComplete((result, e) -> {
+            if (e == null) {
+                meter.success(begin, out, PayloadSize.of(result));
+            } else {
+                meter.failure(begin);
+            }
+        });
+        return future;
+    }
+}
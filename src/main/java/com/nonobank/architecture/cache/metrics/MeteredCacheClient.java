@@ -0,0 +1,44 @@
+package com.nonobank.architecture.cache.metrics;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+
+import java.util.function.Supplier;
+
+/**
+ * 记录任意 {@link AbstractCacheClient} 每个命令的延迟、调用数、失败数和请求/响应字节数
+ * 同名的重载方法计入同一个命令,带 loader 的 get 单独计为 getLoader(包含 loader 的耗时)。
+ * 计量在调用线程上完成,每次调用的额外开销在百纳秒以内,见 cache-client-benchmarks 中的 MeteredClientBenchmark。
+ */
+public class MeteredCacheClient extends ForwardingCacheClient {
+
+    private final CacheMetrics metrics;
+
+    /**按 {@link CacheCommand#ordinal()} 索引*/
+    private final CommandMeter[] meters;
+
+    public MeteredCacheClient(AbstractCacheClient delegate, CacheMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+        this.meters = metrics.commands();
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        CommandMeter meter = meters[command.ordinal()];
+        long begin = System.nanoTime();
+        try {
+            T result = call.get();
+            meter.success(begin, PayloadSize.of(key) + PayloadSize.of(value), PayloadSize.of(result));
+            return result;
+        } catch (RuntimeException e) {
+            meter.failure(begin);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.nonobank.architecture.cache.metrics;
+
+import redis.clients.jedis.Tuple;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 估算命令参数和返回值的字节数,用于 bytesIn / bytesOut
+ * 字符串按字符数计(ASCII 时与实际字节数一致),返回的数值按 8 字节计,不含 RESP 协议的额外开销。
+ * 数组、集合和 Map 只累计前 {@value #SAMPLE} 个元素,再按元素总数等比例估算,计量的开销不随返回结果的大小增长。
+ */
+public final class PayloadSize {
+
+    static final int SAMPLE = 16;
+
+    private PayloadSize() {
+    }
+
+    public static long of(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public static long of(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    public static long of(String[] values) {
+        if (values == null) {
+            return 0;
+        }
+        int sampled = Math.min(values.length, SAMPLE);
+        long size = 0;
+        for (int i = 0; i < sampled; i++) {
+            size += of(values[i]);
+        }
+        return scale(size, sampled, values.length);
+    }
+
+    public static long of(byte[][] values) {
+        if (values == null) {
+            return 0;
+        }
+        int sampled = Math.min(values.length, SAMPLE);
+        long size = 0;
+        for (int i = 0; i < sampled; i++) {
+            size += of(values[i]);
+        }
+        return scale(size, sampled, values.length);
+    }
+
+    public static long of(Collection<?> values) {
+        if (values == null) {
+            return 0;
+        }
+        int sampled = 0;
+        long size = 0;
+        for (Iterator<?> it = values.iterator(); sampled < SAMPLE && it.hasNext(); sampled++) {
+            size += of(it.next());
+        }
+        return scale(size, sampled, values.size());
+    }
+
+    public static long of(Map<?, ?> values) {
+        if (values == null) {
+            return 0;
+        }
+        int sampled = 0;
+        long size = 0;
+        for (Iterator<? extends Map.Entry<?, ?>> it = values.entrySet().iterator(); sampled < SAMPLE && it.hasNext(); sampled++) {
+            Map.Entry<?, ?> entry = it.next();
+            size += of(entry.getKey()) + of(entry.getValue());
+        }
+        return scale(size, sampled, values.size());
+    }
+
+    public static long of(Tuple tuple) {
+        return tuple == null ? 0 : of(tuple.getBinaryElement()) + 8;
+    }
+
+    public static long of(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return of((String) value);
+        }
+        if (value instanceof byte[]) {
+            return of((byte[]) value);
+        }
+        if (value instanceof Number) {
+            return 8;
+        }
+        if (value instanceof Tuple) {
+            return of((Tuple) value);
+        }
+        if (value instanceof String[]) {
+            return of((String[]) value);
+        }
+        if (value instanceof byte[][]) {
+            return of((byte[][]) value);
+        }
+        if (value instanceof Collection) {
+            return of((Collection<?>) value);
+        }
+        if (value instanceof Map) {
+            return of((Map<?, ?>) value);
+        }
+        return 0;
+    }
+
+    private static long scale(long size, int sampled, int total) {
+        return sampled == 0 || sampled == total ? size : size * total / sampled;
+    }
+}
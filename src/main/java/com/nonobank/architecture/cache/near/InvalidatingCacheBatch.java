@@ -0,0 +1,585 @@
+package com.nonobank.architecture.cache.near;
+
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 记录批量命令中被写入的 key,批量执行完成后由 {@link NearCacheClient} 统一失效本地缓存
+ */
+class InvalidatingCacheBatch implements CacheBatch {
+
+    private final CacheBatch batch;
+
+    private final Set<String> written;
+
+    InvalidatingCacheBatch(CacheBatch batch, Set<String> written) {
+        this.batch = batch;
+        this.written = written;
+    }
+
+    @Override
+    public Response<String> set(String key, String value) {
+        written.add(key);
+        return batch.set(key, value);
+    }
+
+    @Override
+    public Response<String> get(String key) {
+        return batch.get(key);
+    }
+
+    @Override
+    public Response<Long> setnx(String key, String value) {
+        written.add(key);
+        return batch.setnx(key, value);
+    }
+
+    @Override
+    public Response<String> getSet(String key, String value) {
+        written.add(key);
+        return batch.getSet(key, value);
+    }
+
+    @Override
+    public Response<Boolean> exists(String key) {
+        return batch.exists(key);
+    }
+
+    @Override
+    public Response<Long> expire(String key, int seconds) {
+        written.add(key);
+        return batch.expire(key, seconds);
+    }
+
+    @Override
+    public Response<Long> expireAt(String key, long unixTime) {
+        written.add(key);
+        return batch.expireAt(key, unixTime);
+    }
+
+    @Override
+    public Response<Long> append(String key, String value) {
+        written.add(key);
+        return batch.append(key, value);
+    }
+
+    @Override
+    public Response<Long> decr(String key) {
+        written.add(key);
+        return batch.decr(key);
+    }
+
+    @Override
+    public Response<Long> decrBy(String key, long integer) {
+        written.add(key);
+        return batch.decrBy(key, integer);
+    }
+
+    @Override
+    public Response<Long> incr(String key) {
+        written.add(key);
+        return batch.incr(key);
+    }
+
+    @Override
+    public Response<Long> incrBy(String key, long integer) {
+        written.add(key);
+        return batch.incrBy(key, integer);
+    }
+
+    @Override
+    public Response<Long> del(String... keys) {
+        Collections.addAll(written, keys);
+        return batch.del(keys);
+    }
+
+    @Override
+    public Response<String> getrange(String key, long startOffset, long endOffset) {
+        return batch.getrange(key, startOffset, endOffset);
+    }
+
+    @Override
+    public Response<String> hget(String key, String field) {
+        return batch.hget(key, field);
+    }
+
+    @Override
+    public Response<Long> hdel(String key, String... fields) {
+        written.add(key);
+        return batch.hdel(key, fields);
+    }
+
+    @Override
+    public Response<Boolean> hexists(String key, String field) {
+        return batch.hexists(key, field);
+    }
+
+    @Override
+    public Response<Map<String, String>> hgetAll(String key) {
+        return batch.hgetAll(key);
+    }
+
+    @Override
+    public Response<Long> hincrBy(String key, String field, long value) {
+        written.add(key);
+        return batch.hincrBy(key, field, value);
+    }
+
+    @Override
+    public Response<Set<String>> hkeys(String key) {
+        return batch.hkeys(key);
+    }
+
+    @Override
+    public Response<Long> hlen(String key) {
+        return batch.hlen(key);
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return batch.hmget(key, fields);
+    }
+
+    @Override
+    public Response<String> hmset(String key, Map<String, String> hash) {
+        written.add(key);
+        return batch.hmset(key, hash);
+    }
+
+    @Override
+    public Response<Long> hset(String key, String field, String value) {
+        written.add(key);
+        return batch.hset(key, field, value);
+    }
+
+    @Override
+    public Response<Long> hsetnx(String key, String field, String value) {
+        written.add(key);
+        return batch.hsetnx(key, field, value);
+    }
+
+    @Override
+    public Response<List<String>> hvals(String key) {
+        return batch.hvals(key);
+    }
+
+    @Override
+    public Response<String> lindex(String key, long index) {
+        return batch.lindex(key, index);
+    }
+
+    @Override
+    public Response<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        written.add(key);
+        return batch.linsert(key, where, pivot, value);
+    }
+
+    @Override
+    public Response<List<String>> mget(String... keys) {
+        return batch.mget(keys);
+    }
+
+    @Override
+    public Response<String> mset(String... keysvalues) {
+        for (int i = 0; i < keysvalues.length; i += 2) {
+            written.add(keysvalues[i]);
+        }
+        return batch.mset(keysvalues);
+    }
+
+    @Override
+    public Response<Long> llen(String key) {
+        return batch.llen(key);
+    }
+
+    @Override
+    public Response<String> lpop(String key) {
+        written.add(key);
+        return batch.lpop(key);
+    }
+
+    @Override
+    public Response<Long> lpush(String key, String... strings) {
+        written.add(key);
+        return batch.lpush(key, strings);
+    }
+
+    @Override
+    public Response<Long> lpushx(String key, String... string) {
+        written.add(key);
+        return batch.lpushx(key, string);
+    }
+
+    @Override
+    public Response<List<String>> lrange(String key, long start, long end) {
+        return batch.lrange(key, start, end);
+    }
+
+    @Override
+    public Response<Long> lrem(String key, long count, String value) {
+        written.add(key);
+        return batch.lrem(key, count, value);
+    }
+
+    @Override
+    public Response<String> ltrim(String key, long start, long end) {
+        written.add(key);
+        return batch.ltrim(key, start, end);
+    }
+
+    @Override
+    public Response<String> lset(String key, long index, String value) {
+        written.add(key);
+        return batch.lset(key, index, value);
+    }
+
+    @Override
+    public Response<String> rpop(String key) {
+        written.add(key);
+        return batch.rpop(key);
+    }
+
+    @Override
+    public Response<Long> rpush(String key, String... strings) {
+        written.add(key);
+        return batch.rpush(key, strings);
+    }
+
+    @Override
+    public Response<Long> rpushx(String key, String string) {
+        written.add(key);
+        return batch.rpushx(key, string);
+    }
+
+    @Override
+    public Response<Long> sadd(String key, String... members) {
+        written.add(key);
+        return batch.sadd(key, members);
+    }
+
+    @Override
+    public Response<Long> scard(String key) {
+        return batch.scard(key);
+    }
+
+    @Override
+    public Response<Set<String>> smembers(String key) {
+        return batch.smembers(key);
+    }
+
+    @Override
+    public Response<String> setExpire(String key, int seconds, String value) {
+        written.add(key);
+        return batch.setExpire(key, seconds, value);
+    }
+
+    @Override
+    public Response<String> spop(String key) {
+        written.add(key);
+        return batch.spop(key);
+    }
+
+    @Override
+    public Response<Long> setrange(String key, long offset, String value) {
+        written.add(key);
+        return batch.setrange(key, offset, value);
+    }
+
+    @Override
+    public Response<Boolean> sismember(String key, String member) {
+        return batch.sismember(key, member);
+    }
+
+    @Override
+    public Response<Long> strlen(String key) {
+        return batch.strlen(key);
+    }
+
+    @Override
+    public Response<Long> ttl(String key) {
+        return batch.ttl(key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key) {
+        return batch.sort(key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key, SortingParams sortingParameters) {
+        return batch.sort(key, sortingParameters);
+    }
+
+    @Override
+    public Response<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        written.add(dstkey);
+        return batch.sort(key, sortingParameters, dstkey);
+    }
+
+    @Override
+    public Response<Long> sort(String key, String dstkey) {
+        written.add(dstkey);
+        return batch.sort(key, dstkey);
+    }
+
+    @Override
+    public Response<String> srandmember(String key) {
+        return batch.srandmember(key);
+    }
+
+    @Override
+    public Response<List<String>> srandmember(String key, int count) {
+        return batch.srandmember(key, count);
+    }
+
+    @Override
+    public Response<Long> srem(String key, String... members) {
+        written.add(key);
+        return batch.srem(key, members);
+    }
+
+    @Override
+    public Response<String> substr(String key, int start, int end) {
+        return batch.substr(key, start, end);
+    }
+
+    @Override
+    public Response<String> type(String key) {
+        return batch.type(key);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member) {
+        written.add(key);
+        return batch.zadd(key, score, member);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        written.add(key);
+        return batch.zadd(key, scoreMembers);
+    }
+
+    @Override
+    public Response<Long> zcard(String key) {
+        return batch.zcard(key);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, double min, double max) {
+        return batch.zcount(key, min, max);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, String min, String max) {
+        return batch.zcount(key, min, max);
+    }
+
+    @Override
+    public Response<Double> zincrby(String key, double score, String member) {
+        written.add(key);
+        return batch.zincrby(key, score, member);
+    }
+
+    @Override
+    public Response<Set<String>> zrange(String key, long start, long end) {
+        return batch.zrange(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+        return batch.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return batch.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max) {
+        return batch.zrangeByScore(key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return batch.zrangeByScore(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return batch.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return batch.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return batch.zrangeByScoreWithScores(key, min, max);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return batch.zrangeByScoreWithScores(key, min, max, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return batch.zrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zrank(String key, String member) {
+        return batch.zrank(key, member);
+    }
+
+    @Override
+    public Response<Long> zrem(String key, String... members) {
+        written.add(key);
+        return batch.zrem(key, members);
+    }
+
+    @Override
+    public Response<Long> zremrangeByRank(String key, long start, long end) {
+        written.add(key);
+        return batch.zremrangeByRank(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, double start, double end) {
+        written.add(key);
+        return batch.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, String start, String end) {
+        written.add(key);
+        return batch.zremrangeByScore(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrange(String key, long start, long end) {
+        return batch.zrevrange(key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return batch.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return batch.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return batch.zrevrangeByScore(key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return batch.zrevrangeByScore(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return batch.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return batch.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return batch.zrevrangeByScoreWithScores(key, max, min);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return batch.zrevrangeByScoreWithScores(key, max, min, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return batch.zrevrangeWithScores(key, start, end);
+    }
+
+    @Override
+    public Response<Long> zrevrank(String key, String member) {
+        return batch.zrevrank(key, member);
+    }
+
+    @Override
+    public Response<Double> zscore(String key, String member) {
+        return batch.zscore(key, member);
+    }
+
+    @Override
+    public Response<byte[]> getBytes(String key) {
+        return batch.getBytes(key);
+    }
+
+    @Override
+    public Response<String> setBytes(String key, byte[] value) {
+        written.add(key);
+        return batch.setBytes(key, value);
+    }
+
+    @Override
+    public Response<String> setExpireBytes(String key, int seconds, byte[] value) {
+        written.add(key);
+        return batch.setExpireBytes(key, seconds, value);
+    }
+
+    @Override
+    public Response<List<byte[]>> mgetBytes(String... keys) {
+        return batch.mgetBytes(keys);
+    }
+
+    @Override
+    public Response<byte[]> hgetBytes(String key, String field) {
+        return batch.hgetBytes(key, field);
+    }
+
+    @Override
+    public Response<Long> hsetBytes(String key, String field, byte[] value) {
+        written.add(key);
+        return batch.hsetBytes(key, field, value);
+    }
+
+    @Override
+    public Response<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return batch.hmgetBytes(key, fields);
+    }
+
+    @Override
+    public Response<Long> rpushBytes(String key, byte[]... values) {
+        written.add(key);
+        return batch.rpushBytes(key, values);
+    }
+
+    @Override
+    public Response<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return batch.lrangeBytes(key, start, end);
+    }
+
+    @Override
+    public Response<String> eval(String script, List<String> keys, List<String> args) {
+        written.addAll(keys);
+        return batch.eval(script, keys, args);
+    }
+}
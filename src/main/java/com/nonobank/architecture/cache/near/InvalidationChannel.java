@@ -0,0 +1,196 @@
+package com.nonobank.architecture.cache.near;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.enumeration.CacheEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Tuple;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 通过 codis 在多个实例之间传递本地缓存失效消息
+ * codis 的 pub/sub 不能跨 proxy 可靠投递,因此失效消息写入按环境划分、按 key 分片的 zset:
+ * member 为"实例标识|key",score 为写入时间(毫秒)。
+ * 每个周期用一次 pipeline 完成:发布本实例在该周期内积累的失效 key,并拉取所有分片上新增的失效消息,
+ * 拉取的代价只与整个集群的写入量有关,与本地缓存的 key 数量无关。
+ * 拉取进度只按本地时钟推进,时钟超前的实例写入的 score 不会让本实例跳过其他实例的消息;
+ * 每个周期只多读一个周期的消息,每隔 clockSkewMillis 多读一次时钟偏差窗口,
+ * 时钟落后超过一个周期的实例写入的失效最多晚 clockSkewMillis 生效。
+ */
+class InvalidationChannel implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidationChannel.class);
+
+    private static final String STREAM_PREFIX = "__nearcache_invalidation:";
+
+    private static final char SEPARATOR = '|';
+
+    private final AbstractCacheClient client;
+
+    private final Consumer<String> evictor;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final String[] shardKeys;
+
+    private final long clockSkewMillis;
+
+    private final long pollMillis;
+
+    private final long retentionMillis;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**最近一个时钟偏差窗口内已处理过的失效消息,避免重叠拉取时重复失效*/
+    private final Map<String, Double> recent = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private long lastSeen;
+
+    /**上一次多读时钟偏差窗口时的拉取进度*/
+    private long sweepBase;
+
+    private long lastSweep;
+
+    private long lastTrim;
+
+    InvalidationChannel(AbstractCacheClient client, NearCacheConfig config, Consumer<String> evictor) {
+        this.client = client;
+        this.evictor = evictor;
+        this.clockSkewMillis = config.getInvalidationClockSkewMillis();
+        this.pollMillis = config.getInvalidationPollMillis();
+        this.retentionMillis = config.getInvalidationRetentionMillis();
+        CacheEnvironment env = CacheEnvironment.env(config.getInvalidationEnvironment());
+        this.shardKeys = new String[Math.max(1, config.getInvalidationShards())];
+        for (int i = 0; i < shardKeys.length; i++) {
+            shardKeys[i] = env.encode(STREAM_PREFIX + i);
+        }
+        this.lastSeen = System.currentTimeMillis();
+        this.sweepBase = lastSeen;
+        this.lastSweep = lastSeen;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nearcache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, config.getInvalidationPollMillis(),
+                config.getInvalidationPollMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记需要通知其他实例失效的 key,在下一个周期发布
+     */
+    void publish(String key) {
+        pending.add(key);
+    }
+
+    private void poll() {
+        List<String> published = new ArrayList<>(pending.size());
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            published.add(it.next());
+            it.remove();
+        }
+        long now = System.currentTimeMillis();
+        // lastSeen 不超过本地时间,在它之后写入的消息 score 不小于 lastSeen 减去写入方落后的时钟偏差
+        boolean sweep = now - lastSweep >= clockSkewMillis;
+        long base = Math.min(lastSeen, now);
+        double from = Math.max(sweep ? sweepBase - clockSkewMillis : base - pollMillis, now - retentionMillis);
+        boolean trim = now - lastTrim > retentionMillis / 2;
+        List<Response<Set<Tuple>>> shards = new ArrayList<>(shardKeys.length);
+        try {
+            client.batch(b -> {
+                if (!published.isEmpty()) {
+                    Map<Integer, Map<String, Double>> byShard = new HashMap<>();
+                    for (String key : published) {
+                        Map<String, Double> members = byShard.get(shardOf(key));
+                        if (members == null) {
+                            members = new HashMap<>();
+                            byShard.put(shardOf(key), members);
+                        }
+                        members.put(instanceId + SEPARATOR + key, (double) now);
+                    }
+                    for (Map.Entry<Integer, Map<String, Double>> entry : byShard.entrySet()) {
+                        b.zadd(shardKeys[entry.getKey()], entry.getValue());
+                    }
+                }
+                for (String shardKey : shardKeys) {
+                    shards.add(b.zrangeByScoreWithScores(shardKey, from, Double.POSITIVE_INFINITY));
+                }
+                if (trim) {
+                    for (String shardKey : shardKeys) {
+                        b.zremrangeByScore(shardKey, 0, now - retentionMillis);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // 发布失败的 key 留到下个周期重试
+            pending.addAll(published);
+            log.info("near cache invalidation poll failed: " + e.getMessage());
+            return;
+        }
+        if (trim) {
+            lastTrim = now;
+        }
+        boolean complete = true;
+        for (Response<Set<Tuple>> shard : shards) {
+            try {
+                for (Tuple tuple : shard.get()) {
+                    accept(tuple.getElement(), tuple.getScore(), now);
+                }
+            } catch (Exception e) {
+                complete = false;
+                log.info("near cache invalidation shard read failed: " + e.getMessage());
+            }
+        }
+        if (sweep && complete) {
+            sweepBase = base;
+            lastSweep = now;
+        }
+        for (Iterator<Double> it = recent.values().iterator(); it.hasNext(); ) {
+            if (it.next() < sweepBase - clockSkewMillis) {
+                it.remove();
+            }
+        }
+    }
+
+    private void accept(String member, double score, long now) {
+        long written = Math.min((long) score, now);
+        if (written > lastSeen) {
+            lastSeen = written;
+        }
+        Double seen = recent.put(member, score);
+        if (seen != null && seen == score) {
+            return;
+        }
+        int split = member.indexOf(SEPARATOR);
+        if (split < 0 || member.startsWith(instanceId)) {
+            // 本实例的写入已经在本地失效过
+            return;
+        }
+        evictor.accept(member.substring(split + 1));
+    }
+
+    private int shardOf(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % shardKeys.length;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,289 @@
+package com.nonobank.architecture.cache.near;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 带进程内本地缓存(L1)的缓存客户端装饰器
+ * get/hget/hgetAll/smembers/zrange 的结果缓存在本地,按缓存的读取结果数量上限(W-TinyLFU 淘汰)和写入后存活时间失效,
+ * 同一个 key 的每个读取方式(如 hget 的每个 field、zrange 的每个区间)各算一个;
+ * 通过本客户端执行的写命令会立即失效对应 key 的本地数据;
+ * 开启 invalidation 后写入的 key 经 {@link InvalidationChannel} 通知其他实例,否则其他实例的写入最多在 expireAfterWriteMillis 后可见。
+ * 本地缓存返回的集合是只读的。
+ */
+public class NearCacheClient extends ForwardingCacheClient {
+
+    private static final Object NULL = new Object();
+
+    private final Cache<String, NearEntry> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loadSuccesses = new LongAdder();
+
+    private final LongAdder loadFailures = new LongAdder();
+
+    private final LongAdder loadNanos = new LongAdder();
+
+    private final InvalidationChannel channel;
+
+    public NearCacheClient(AbstractCacheClient delegate, NearCacheConfig config) {
+        super(delegate);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumSize())
+                .weigher((String key, NearEntry entry) -> Math.max(1, entry.views.size()))
+                .expireAfter(new ExpireAfterCreate(TimeUnit.MILLISECONDS.toNanos(config.getExpireAfterWriteMillis())))
+                .recordStats()
+                .build();
+        this.channel = config.getInvalidation() ? new InvalidationChannel(delegate, config, cache::invalidate) : null;
+    }
+
+    /**
+     * 本地缓存命中、未命中、加载、淘汰等统计,命中按读取方式(如 hget 的某个 field)计算,淘汰的权重为被淘汰的读取结果数量
+     */
+    public CacheStats stats() {
+        CacheStats entries = cache.stats();
+        return CacheStats.of(hits.sum(), misses.sum(), loadSuccesses.sum(), loadFailures.sum(), loadNanos.sum(),
+                entries.evictionCount(), entries.evictionWeight());
+    }
+
+    /**
+     * 本地缓存中当前的key数量(近似值)
+     */
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 只失效本地缓存,不访问服务端
+     */
+    public void invalidateLocal(String... keys) {
+        for (String key : keys) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * 先取得 key 对应的本地条目再访问服务端:若读取期间该 key 被失效,
+     * 结果只会写入已被移除的旧条目,不会把旧值带回本地缓存。
+     * 写入新的读取结果后用同一个条目替换自身,让缓存按新的读取结果数量重新计算权重;条目已被失效时替换不生效
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T read(String key, String view, Supplier<T> loader) {
+        NearEntry entry = cache.get(key, k -> new NearEntry());
+        Object value = entry.views.get(view);
+        if (value == null) {
+            misses.increment();
+            long start = System.nanoTime();
+            T loaded;
+            try {
+                loaded = loader.get();
+            } catch (RuntimeException | Error e) {
+                loadFailures.increment();
+                loadNanos.add(System.nanoTime() - start);
+                throw e;
+            }
+            loadSuccesses.increment();
+            loadNanos.add(System.nanoTime() - start);
+            if (entry.views.put(view, loaded == null ? NULL : loaded) == null) {
+                cache.asMap().replace(key, entry, entry);
+            }
+            return loaded;
+        }
+        hits.increment();
+        return value == NULL ? null : (T) value;
+    }
+
+    private void invalidate(String key) {
+        cache.invalidate(key);
+        if (channel != null) {
+            channel.publish(key);
+        }
+    }
+
+    private void invalidate(String... keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    private void invalidateMset(String... keysvalues) {
+        for (int i = 0; i < keysvalues.length; i += 2) {
+            invalidate(keysvalues[i]);
+        }
+    }
+
+    /**
+     * 停止失效消息的发布和拉取,然后关闭被装饰的客户端
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        super.close();
+    }
+
+    /**
+     * 单 key 的写命令执行后失效本地数据,sort 存储失效目标 key;多 key 命令、batch 和缓存的读命令由各自的方法处理
+     */
+    @Override
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        if (key == null || command.isRead()) {
+            return call.get();
+        }
+        try {
+            return call.get();
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        try {
+            return delegate.delWithRetry(retryTimes, sleepSeconds, keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public String getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        return read(key, "get", () -> delegate.getWithRetry(key, retryTimes, sleepSeconds));
+    }
+
+    @Override
+    public String get(String key) {
+        return read(key, "get", () -> delegate.get(key));
+    }
+
+    @Override
+    public String get(String key, Function<String, String> loader, int ttlSeconds) {
+        return read(key, "get", () -> delegate.get(key, loader, ttlSeconds));
+    }
+
+    @Override
+    public Long del(String... keys) {
+        try {
+            return delegate.del(keys);
+        } finally {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public String hget(String key, String field) {
+        return read(key, "hget:" + field, () -> delegate.hget(key, field));
+    }
+
+    @Override
+    public Map<String, String> hgetAll(String key) {
+        return read(key, "hgetAll", () -> Collections.unmodifiableMap(delegate.hgetAll(key)));
+    }
+
+    @Override
+    public Boolean mset(String... keysvalues) {
+        try {
+            return delegate.mset(keysvalues);
+        } finally {
+            invalidateMset(keysvalues);
+        }
+    }
+
+    @Override
+    public Set<String> smembers(String key) {
+        return read(key, "smembers", () -> Collections.unmodifiableSet(delegate.smembers(key)));
+    }
+
+    @Override
+    public Set<String> zrange(String key, long start, long end) {
+        return read(key, "zrange:" + start + ":" + end, () -> Collections.unmodifiableSet(delegate.zrange(key, start, end)));
+    }
+
+    @Override
+    public byte[] getBytes(String key) {
+        return copy(read(key, "getBytes", () -> delegate.getBytes(key)));
+    }
+
+    @Override
+    public byte[] hgetBytes(String key, String field) {
+        return copy(read(key, "hgetBytes:" + field, () -> delegate.hgetBytes(key, field)));
+    }
+
+    /**
+     * 本地缓存的字节数组被多个调用方共享,返回副本避免被修改
+     */
+    private static byte[] copy(byte[] value) {
+        return value == null ? null : value.clone();
+    }
+
+    @Override
+    public List<Object> batch(Consumer<CacheBatch> commands) {
+        Set<String> written = new HashSet<>();
+        try {
+            return delegate.batch(b -> commands.accept(new InvalidatingCacheBatch(b, written)));
+        } finally {
+            for (String key : written) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * 一个 key 的本地缓存条目,同一个 key 的不同读取方式(如不同 field、不同区间)分别缓存,随 key 一起失效
+     */
+    private static class NearEntry {
+
+        final Map<String, Object> views = new ConcurrentHashMap<>(4);
+    }
+
+    /**
+     * 条目从创建起计算存活时间,读取结果增加时的重新写入不延长它,
+     * 否则不断有新 field 被读取的 key 上较早的读取结果会超过 expireAfterWriteMillis 仍然有效
+     */
+    private static class ExpireAfterCreate implements Expiry<String, NearEntry> {
+
+        private final long nanos;
+
+        ExpireAfterCreate(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, NearEntry entry, long currentTime) {
+            return nanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, NearEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, NearEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.nonobank.architecture.cache.near;
+
+import com.nonobank.architecture.enumeration.CacheEnvironment;
+
+public final class NearCacheConfig {
+	
+	private static final long DEFAULT_MAXIMUM_SIZE=10000;
+	
+	private static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS=5000;
+	
+	private static final boolean DEFAULT_INVALIDATION=false;
+	
+	private static final String DEFAULT_INVALIDATION_ENVIRONMENT=CacheEnvironment.DEFAULT.value();
+	
+	private static final int DEFAULT_INVALIDATION_SHARDS=16;
+	
+	private static final long DEFAULT_INVALIDATION_POLL_MILLIS=100;
+	
+	private static final long DEFAULT_INVALIDATION_CLOCK_SKEW_MILLIS=1000;
+	
+	private static final long DEFAULT_INVALIDATION_RETENTION_MILLIS=60000;
+	
+	/**本地缓存最多保存的读取结果数量,同一个 key 的每个读取方式(如 hget 的每个 field)各算一个,超出后按 W-TinyLFU 策略淘汰*/
+	private long maximumSize=DEFAULT_MAXIMUM_SIZE;
+	
+	/**本地缓存写入后的存活时间(毫秒),也是其他实例写入后本地数据最长的不一致时间*/
+	private long expireAfterWriteMillis=DEFAULT_EXPIRE_AFTER_WRITE_MILLIS;
+	
+	/**是否通过 codis 在多个实例之间广播本地缓存失效*/
+	private boolean invalidation=DEFAULT_INVALIDATION;
+	
+	/**失效流所属的环境,不同环境使用不同的失效流*/
+	private String invalidationEnvironment=DEFAULT_INVALIDATION_ENVIRONMENT;
+	
+	/**失效流的分片数量,每个分片是一个 zset*/
+	private int invalidationShards=DEFAULT_INVALIDATION_SHARDS;
+	
+	/**发布和拉取失效消息的间隔(毫秒),其他实例写入后本地数据不一致的时间约为两个间隔*/
+	private long invalidationPollMillis=DEFAULT_INVALIDATION_POLL_MILLIS;
+	
+	/**容忍的实例间时钟偏差(毫秒),拉取时向前多读这段时间内的失效消息*/
+	private long invalidationClockSkewMillis=DEFAULT_INVALIDATION_CLOCK_SKEW_MILLIS;
+	
+	/**失效消息在 codis 中保留的时间(毫秒)*/
+	private long invalidationRetentionMillis=DEFAULT_INVALIDATION_RETENTION_MILLIS;
+
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	public long getExpireAfterWriteMillis() {
+		return expireAfterWriteMillis;
+	}
+
+	public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+		this.expireAfterWriteMillis = expireAfterWriteMillis;
+	}
+
+	public boolean getInvalidation() {
+		return invalidation;
+	}
+
+	public void setInvalidation(boolean invalidation) {
+		this.invalidation = invalidation;
+	}
+
+	public String getInvalidationEnvironment() {
+		return invalidationEnvironment;
+	}
+
+	public void setInvalidationEnvironment(String invalidationEnvironment) {
+		this.invalidationEnvironment = invalidationEnvironment;
+	}
+
+	public int getInvalidationShards() {
+		return invalidationShards;
+	}
+
+	public void setInvalidationShards(int invalidationShards) {
+		this.invalidationShards = invalidationShards;
+	}
+
+	public long getInvalidationPollMillis() {
+		return invalidationPollMillis;
+	}
+
+	public void setInvalidationPollMillis(long invalidationPollMillis) {
+		this.invalidationPollMillis = invalidationPollMillis;
+	}
+
+	public long getInvalidationClockSkewMillis() {
+		return invalidationClockSkewMillis;
+	}
+
+	public void setInvalidationClockSkewMillis(long invalidationClockSkewMillis) {
+		this.invalidationClockSkewMillis = invalidationClockSkewMillis;
+	}
+
+	public long getInvalidationRetentionMillis() {
+		return invalidationRetentionMillis;
+	}
+
+	public void setInvalidationRetentionMillis(long invalidationRetentionMillis) {
+		this.invalidationRetentionMillis = invalidationRetentionMillis;
+	}
+	
+}
@@ -0,0 +1,592 @@
+package com.nonobank.architecture.cache.nio;
+
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.Protocol.Keyword;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 多路复用引擎上的 {@link CacheBatch}
+ * 同一批命令固定发送到同一个连接,保证按提交顺序执行;
+ * 单条命令的错误回复记录在对应的 Response 中,连接错误使整批失败。
+ */
+class EngineCacheBatch implements CacheBatch {
+
+    private static final Builder<Object> RAW = new Builder<Object>() {
+        @Override
+        public Object build(Object data) {
+            return data;
+        }
+    };
+
+    private final MultiplexedEngine engine;
+
+    private final RespConnection connection;
+
+    private final List<Response<?>> responses = new ArrayList<>();
+
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+    EngineCacheBatch(MultiplexedEngine engine) {
+        this.engine = engine;
+        this.connection = engine.connection(null);
+    }
+
+    private <T> Response<T> add(Builder<T> builder, Command command, Object... args) {
+        Response<T> response = new Response<>(builder);
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        engine.send(connection, reply, RAW, 0, false, command.raw, args);
+        futures.add(reply.handle((data, e) -> {
+            if (e instanceof JedisDataException) {
+                response.set(e);
+                return null;
+            }
+            if (e != null) {
+                throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException(e);
+            }
+            response.set(data);
+            return null;
+        }));
+        responses.add(response);
+        return response;
+    }
+
+    /**
+     * @return 所有命令完成后按提交顺序给出结果,命令自己的错误以 JedisDataException 对象出现在列表中
+     */
+    CompletableFuture<List<Object>> results() {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+            List<Object> results = new ArrayList<>(responses.size());
+            for (Response<?> response : responses) {
+                try {
+                    results.add(response.get());
+                } catch (JedisDataException e) {
+                    results.add(e);
+                }
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public Response<String> set(String key, String value) {
+        return add(BuilderFactory.STRING, Command.SET, key, value);
+    }
+
+    @Override
+    public Response<String> get(String key) {
+        return add(BuilderFactory.STRING, Command.GET, key);
+    }
+
+    @Override
+    public Response<Long> setnx(String key, String value) {
+        return add(BuilderFactory.LONG, Command.SETNX, key, value);
+    }
+
+    @Override
+    public Response<String> getSet(String key, String value) {
+        return add(BuilderFactory.STRING, Command.GETSET, key, value);
+    }
+
+    @Override
+    public Response<Boolean> exists(String key) {
+        return add(BuilderFactory.BOOLEAN, Command.EXISTS, key);
+    }
+
+    @Override
+    public Response<Long> expire(String key, int seconds) {
+        return add(BuilderFactory.LONG, Command.EXPIRE, key, seconds);
+    }
+
+    @Override
+    public Response<Long> expireAt(String key, long unixTime) {
+        return add(BuilderFactory.LONG, Command.EXPIREAT, key, unixTime);
+    }
+
+    @Override
+    public Response<Long> append(String key, String value) {
+        return add(BuilderFactory.LONG, Command.APPEND, key, value);
+    }
+
+    @Override
+    public Response<Long> decr(String key) {
+        return add(BuilderFactory.LONG, Command.DECR, key);
+    }
+
+    @Override
+    public Response<Long> decrBy(String key, long integer) {
+        return add(BuilderFactory.LONG, Command.DECRBY, key, integer);
+    }
+
+    @Override
+    public Response<Long> incr(String key) {
+        return add(BuilderFactory.LONG, Command.INCR, key);
+    }
+
+    @Override
+    public Response<Long> incrBy(String key, long integer) {
+        return add(BuilderFactory.LONG, Command.INCRBY, key, integer);
+    }
+
+    @Override
+    public Response<Long> del(String... keys) {
+        return add(BuilderFactory.LONG, Command.DEL, (Object[]) keys);
+    }
+
+    @Override
+    public Response<String> getrange(String key, long startOffset, long endOffset) {
+        return add(BuilderFactory.STRING, Command.GETRANGE, key, startOffset, endOffset);
+    }
+
+    @Override
+    public Response<String> hget(String key, String field) {
+        return add(BuilderFactory.STRING, Command.HGET, key, field);
+    }
+
+    @Override
+    public Response<Long> hdel(String key, String... fields) {
+        return add(BuilderFactory.LONG, Command.HDEL, key, fields);
+    }
+
+    @Override
+    public Response<Boolean> hexists(String key, String field) {
+        return add(BuilderFactory.BOOLEAN, Command.HEXISTS, key, field);
+    }
+
+    @Override
+    public Response<Map<String, String>> hgetAll(String key) {
+        return add(BuilderFactory.STRING_MAP, Command.HGETALL, key);
+    }
+
+    @Override
+    public Response<Long> hincrBy(String key, String field, long value) {
+        return add(BuilderFactory.LONG, Command.HINCRBY, key, field, value);
+    }
+
+    @Override
+    public Response<Set<String>> hkeys(String key) {
+        return add(BuilderFactory.STRING_SET, Command.HKEYS, key);
+    }
+
+    @Override
+    public Response<Long> hlen(String key) {
+        return add(BuilderFactory.LONG, Command.HLEN, key);
+    }
+
+    @Override
+    public Response<List<String>> hmget(String key, String... fields) {
+        return add(BuilderFactory.STRING_LIST, Command.HMGET, key, fields);
+    }
+
+    @Override
+    public Response<String> hmset(String key, Map<String, String> hash) {
+        return add(BuilderFactory.STRING, Command.HMSET, key, hash);
+    }
+
+    @Override
+    public Response<Long> hset(String key, String field, String value) {
+        return add(BuilderFactory.LONG, Command.HSET, key, field, value);
+    }
+
+    @Override
+    public Response<Long> hsetnx(String key, String field, String value) {
+        return add(BuilderFactory.LONG, Command.HSETNX, key, field, value);
+    }
+
+    @Override
+    public Response<List<String>> hvals(String key) {
+        return add(BuilderFactory.STRING_LIST, Command.HVALS, key);
+    }
+
+    @Override
+    public Response<String> lindex(String key, long index) {
+        return add(BuilderFactory.STRING, Command.LINDEX, key, index);
+    }
+
+    @Override
+    public Response<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        return add(BuilderFactory.LONG, Command.LINSERT, key, where.warp().raw, pivot, value);
+    }
+
+    @Override
+    public Response<List<String>> mget(String... keys) {
+        return add(BuilderFactory.STRING_LIST, Command.MGET, (Object[]) keys);
+    }
+
+    @Override
+    public Response<String> mset(String... keysvalues) {
+        return add(BuilderFactory.STRING, Command.MSET, (Object[]) keysvalues);
+    }
+
+    @Override
+    public Response<Long> llen(String key) {
+        return add(BuilderFactory.LONG, Command.LLEN, key);
+    }
+
+    @Override
+    public Response<String> lpop(String key) {
+        return add(BuilderFactory.STRING, Command.LPOP, key);
+    }
+
+    @Override
+    public Response<Long> lpush(String key, String... strings) {
+        return add(BuilderFactory.LONG, Command.LPUSH, key, strings);
+    }
+
+    @Override
+    public Response<Long> lpushx(String key, String... string) {
+        return add(BuilderFactory.LONG, Command.LPUSHX, key, string);
+    }
+
+    @Override
+    public Response<List<String>> lrange(String key, long start, long end) {
+        return add(BuilderFactory.STRING_LIST, Command.LRANGE, key, start, end);
+    }
+
+    @Override
+    public Response<Long> lrem(String key, long count, String value) {
+        return add(BuilderFactory.LONG, Command.LREM, key, count, value);
+    }
+
+    @Override
+    public Response<String> ltrim(String key, long start, long end) {
+        return add(BuilderFactory.STRING, Command.LTRIM, key, start, end);
+    }
+
+    @Override
+    public Response<String> lset(String key, long index, String value) {
+        return add(BuilderFactory.STRING, Command.LSET, key, index, value);
+    }
+
+    @Override
+    public Response<String> rpop(String key) {
+        return add(BuilderFactory.STRING, Command.RPOP, key);
+    }
+
+    @Override
+    public Response<Long> rpush(String key, String... strings) {
+        return add(BuilderFactory.LONG, Command.RPUSH, key, strings);
+    }
+
+    @Override
+    public Response<Long> rpushx(String key, String string) {
+        return add(BuilderFactory.LONG, Command.RPUSHX, key, string);
+    }
+
+    @Override
+    public Response<Long> sadd(String key, String... members) {
+        return add(BuilderFactory.LONG, Command.SADD, key, members);
+    }
+
+    @Override
+    public Response<Long> scard(String key) {
+        return add(BuilderFactory.LONG, Command.SCARD, key);
+    }
+
+    @Override
+    public Response<Set<String>> smembers(String key) {
+        return add(BuilderFactory.STRING_SET, Command.SMEMBERS, key);
+    }
+
+    @Override
+    public Response<String> setExpire(String key, int seconds, String value) {
+        return add(BuilderFactory.STRING, Command.SETEX, key, seconds, value);
+    }
+
+    @Override
+    public Response<String> spop(String key) {
+        return add(BuilderFactory.STRING, Command.SPOP, key);
+    }
+
+    @Override
+    public Response<Long> setrange(String key, long offset, String value) {
+        return add(BuilderFactory.LONG, Command.SETRANGE, key, offset, value);
+    }
+
+    @Override
+    public Response<Boolean> sismember(String key, String member) {
+        return add(BuilderFactory.BOOLEAN, Command.SISMEMBER, key, member);
+    }
+
+    @Override
+    public Response<Long> strlen(String key) {
+        return add(BuilderFactory.LONG, Command.STRLEN, key);
+    }
+
+    @Override
+    public Response<Long> ttl(String key) {
+        return add(BuilderFactory.LONG, Command.TTL, key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key) {
+        return add(BuilderFactory.STRING_LIST, Command.SORT, key);
+    }
+
+    @Override
+    public Response<List<String>> sort(String key, SortingParams sortingParameters) {
+        return add(BuilderFactory.STRING_LIST, Command.SORT, key, sortingParameters.getParams());
+    }
+
+    @Override
+    public Response<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        return add(BuilderFactory.LONG, Command.SORT, key, sortingParameters.getParams(), Keyword.STORE.raw, dstkey);
+    }
+
+    @Override
+    public Response<Long> sort(String key, String dstkey) {
+        return add(BuilderFactory.LONG, Command.SORT, key, Keyword.STORE.raw, dstkey);
+    }
+
+    @Override
+    public Response<String> srandmember(String key) {
+        return add(BuilderFactory.STRING, Command.SRANDMEMBER, key);
+    }
+
+    @Override
+    public Response<List<String>> srandmember(String key, int count) {
+        return add(BuilderFactory.STRING_LIST, Command.SRANDMEMBER, key, count);
+    }
+
+    @Override
+    public Response<Long> srem(String key, String... members) {
+        return add(BuilderFactory.LONG, Command.SREM, key, members);
+    }
+
+    @Override
+    public Response<String> substr(String key, int start, int end) {
+        return add(BuilderFactory.STRING, Command.SUBSTR, key, start, end);
+    }
+
+    @Override
+    public Response<String> type(String key) {
+        return add(BuilderFactory.STRING, Command.TYPE, key);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, double score, String member) {
+        return add(BuilderFactory.LONG, Command.ZADD, key, score, member);
+    }
+
+    @Override
+    public Response<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        return add(BuilderFactory.LONG, Command.ZADD, key, scoreMembers);
+    }
+
+    @Override
+    public Response<Long> zcard(String key) {
+        return add(BuilderFactory.LONG, Command.ZCARD, key);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, double min, double max) {
+        return add(BuilderFactory.LONG, Command.ZCOUNT, key, min, max);
+    }
+
+    @Override
+    public Response<Long> zcount(String key, String min, String max) {
+        return add(BuilderFactory.LONG, Command.ZCOUNT, key, min, max);
+    }
+
+    @Override
+    public Response<Double> zincrby(String key, double score, String member) {
+        return add(BuilderFactory.DOUBLE, Command.ZINCRBY, key, score, member);
+    }
+
+    @Override
+    public Response<Set<String>> zrange(String key, long start, long end) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZRANGE, key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max);
+    }
+
+    @Override
+    public Response<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZRANGE, key, start, end, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Long> zrank(String key, String member) {
+        return add(BuilderFactory.LONG, Command.ZRANK, key, member);
+    }
+
+    @Override
+    public Response<Long> zrem(String key, String... members) {
+        return add(BuilderFactory.LONG, Command.ZREM, key, members);
+    }
+
+    @Override
+    public Response<Long> zremrangeByRank(String key, long start, long end) {
+        return add(BuilderFactory.LONG, Command.ZREMRANGEBYRANK, key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, double start, double end) {
+        return add(BuilderFactory.LONG, Command.ZREMRANGEBYSCORE, key, start, end);
+    }
+
+    @Override
+    public Response<Long> zremrangeByScore(String key, String start, String end) {
+        return add(BuilderFactory.LONG, Command.ZREMRANGEBYSCORE, key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrange(String key, long start, long end) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZREVRANGE, key, start, end);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min);
+    }
+
+    @Override
+    public Response<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return add(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public Response<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return add(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGE, key, start, end, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public Response<Long> zrevrank(String key, String member) {
+        return add(BuilderFactory.LONG, Command.ZREVRANK, key, member);
+    }
+
+    @Override
+    public Response<Double> zscore(String key, String member) {
+        return add(BuilderFactory.DOUBLE, Command.ZSCORE, key, member);
+    }
+
+    @Override
+    public Response<byte[]> getBytes(String key) {
+        return add(BuilderFactory.BYTE_ARRAY, Command.GET, key);
+    }
+
+    @Override
+    public Response<String> setBytes(String key, byte[] value) {
+        return add(BuilderFactory.STRING, Command.SET, key, value);
+    }
+
+    @Override
+    public Response<String> setExpireBytes(String key, int seconds, byte[] value) {
+        return add(BuilderFactory.STRING, Command.SETEX, key, seconds, value);
+    }
+
+    @Override
+    public Response<List<byte[]>> mgetBytes(String... keys) {
+        return add(BuilderFactory.BYTE_ARRAY_LIST, Command.MGET, (Object[]) keys);
+    }
+
+    @Override
+    public Response<byte[]> hgetBytes(String key, String field) {
+        return add(BuilderFactory.BYTE_ARRAY, Command.HGET, key, field);
+    }
+
+    @Override
+    public Response<Long> hsetBytes(String key, String field, byte[] value) {
+        return add(BuilderFactory.LONG, Command.HSET, key, field, value);
+    }
+
+    @Override
+    public Response<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return add(BuilderFactory.BYTE_ARRAY_LIST, Command.HMGET, key, fields);
+    }
+
+    @Override
+    public Response<Long> rpushBytes(String key, byte[]... values) {
+        return add(BuilderFactory.LONG, Command.RPUSH, key, values);
+    }
+
+    @Override
+    public Response<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return add(BuilderFactory.BYTE_ARRAY_LIST, Command.LRANGE, key, start, end);
+    }
+
+    @Override
+    public Response<String> eval(String script, List<String> keys, List<String> args) {
+        return add(BuilderFactory.STRING, Command.EVAL, script, keys.size(), keys, args);
+    }
+}
@@ -0,0 +1,760 @@
+package com.nonobank.architecture.cache.nio;
+
+import com.nonobank.architecture.cache.CacheBatch;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.async.AsyncCacheClient;
+import com.nonobank.architecture.cache.async.BlockingCacheClient;
+import com.nonobank.architecture.cache.async.ExecutorAsyncCacheClient;
+import com.nonobank.architecture.cache.retry.Retryer;
+import com.nonobank.architecture.enumeration.ListPosition;
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.Protocol.Keyword;
+import redis.clients.jedis.SortingParams;
+import redis.clients.jedis.Tuple;
+import redis.clients.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 基于 {@link MultiplexedEngine} 的 {@link AsyncCacheClient} 实现
+ * 命令直接写入共享的多路复用连接,不占用线程,同时在途的命令数只受每个连接的 multiplexMaxPending 限制。
+ * 命令默认超时为 asyncTimeoutMillis,未配置时与 Jedis 的读超时相同。
+ * 带重试的命令由定时线程按退避时间重新发送,不阻塞任何线程;
+ * cache-aside 加载会执行调用方的 loader,在独立的有界线程池中进行。
+ * future 在 IO 线程上完成,回调中不要执行阻塞操作。
+ */
+public class MultiplexedAsyncCacheClient implements AsyncCacheClient, Closeable {
+
+    private static final Builder<Boolean> OK = new Builder<Boolean>() {
+        @Override
+        public Boolean build(Object data) {
+            return "OK".equals(SafeEncoder.encode((byte[]) data));
+        }
+    };
+
+    private static final Builder<Map<String, byte[]>> BINARY_MAP = new Builder<Map<String, byte[]>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, byte[]> build(Object data) {
+            List<byte[]> flat = (List<byte[]>) data;
+            Map<String, byte[]> hash = new LinkedHashMap<>(flat.size() * 2 / 3 + 1);
+            for (int i = 0; i + 1 < flat.size(); i += 2) {
+                hash.put(SafeEncoder.encode(flat.get(i)), flat.get(i + 1));
+            }
+            return hash;
+        }
+    };
+
+    private final MultiplexedEngine engine;
+
+    private final CacheConfig config;
+
+    private final boolean ownsEngine;
+
+    private final long timeoutMillis;
+
+    private final MultiplexedAsyncCacheClient root;
+
+    private final Retryer retryer;
+
+    private volatile ExecutorAsyncCacheClient loaders;
+
+    /**
+     * 按配置从 zookeeper 发现 proxy 并建立连接
+     */
+    public MultiplexedAsyncCacheClient(CacheConfig config) {
+        this(new MultiplexedEngine(checkConfig(config)), config, true);
+    }
+
+    /**
+     * 使用已有的引擎,关闭客户端时不关闭引擎
+     */
+    public MultiplexedAsyncCacheClient(MultiplexedEngine engine, CacheConfig config) {
+        this(engine, checkConfig(config), false);
+    }
+
+    /**
+     * 多路复用引擎不压缩也不解压值,开启 compression 的配置在建立连接之前失败,避免与其他实例读写不一致
+     */
+    private static CacheConfig checkConfig(CacheConfig config) {
+        if (config.getCompression()) {
+            throw new IllegalArgumentException("compression is not supported by the multiplexed engine");
+        }
+        return config;
+    }
+
+    private MultiplexedAsyncCacheClient(MultiplexedEngine engine, CacheConfig config, boolean ownsEngine) {
+        this.engine = engine;
+        this.config = config;
+        this.ownsEngine = ownsEngine;
+        this.timeoutMillis = config.getAsyncTimeoutMillis() > 0 ? config.getAsyncTimeoutMillis() : Protocol.DEFAULT_TIMEOUT;
+        this.root = this;
+        this.retryer = Retryer.of(config);
+    }
+
+    private MultiplexedAsyncCacheClient(MultiplexedAsyncCacheClient root, long timeoutMillis) {
+        this.engine = root.engine;
+        this.config = root.config;
+        this.ownsEngine = false;
+        this.timeoutMillis = timeoutMillis;
+        this.root = root;
+        this.retryer = root.retryer;
+    }
+
+    @Override
+    public AsyncCacheClient withTimeout(long timeout, TimeUnit unit) {
+        return new MultiplexedAsyncCacheClient(root, unit.toMillis(timeout));
+    }
+
+    public MultiplexedEngine getEngine() {
+        return engine;
+    }
+
+    private <T> CompletableFuture<T> execute(Builder<T> builder, Command command, Object... args) {
+        return engine.execute(builder, timeoutMillis, command.raw, args);
+    }
+
+    /**
+     * 零拷贝读取:回复直接以连接读缓冲区上的只读切片交给 reader,不创建中间的 byte[] 或 String,
+     * 适合在 reader 中直接反序列化或只取部分内容的大值。
+     * reader 在 IO 线程上同步执行,不能保存切片,也不能执行阻塞操作;key 不存在时不调用 reader,结果为 null
+     */
+    public <T> CompletableFuture<T> getBuffer(String key, Function<ByteBuffer, T> reader) {
+        return engine.executeSlice(reader, timeoutMillis, Command.GET.raw, key);
+    }
+
+    /**
+     * hash 字段的零拷贝读取,约束同 {@link #getBuffer}
+     */
+    public <T> CompletableFuture<T> hgetBuffer(String key, String field, Function<ByteBuffer, T> reader) {
+        return engine.executeSlice(reader, timeoutMillis, Command.HGET.raw, key, field);
+    }
+
+    /**
+     * 与同步客户端的重试语义一致:最多执行 retryTimes 次,sleepSeconds 为退避时间上限,重试由定时线程重新发送
+     */
+    private <T> CompletableFuture<T> retry(String command, Supplier<CompletableFuture<T>> attempt, int retryTimes, int sleepSeconds) {
+        if (retryTimes <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return retryer.callAsync(command, attempt, retryer.legacyPolicy(retryTimes, sleepSeconds));
+    }
+
+    private ExecutorAsyncCacheClient loaders() {
+        MultiplexedAsyncCacheClient owner = root;
+        if (owner.loaders == null) {
+            synchronized (owner) {
+                if (owner.loaders == null) {
+                    owner.loaders = new ExecutorAsyncCacheClient(new BlockingCacheClient(owner, config), config);
+                }
+            }
+        }
+        return owner.loaders;
+    }
+
+    private CompletableFuture<List<Object>> executeBatch(Consumer<CacheBatch> commands) {
+        EngineCacheBatch batch;
+        try {
+            batch = new EngineCacheBatch(engine);
+            commands.accept(batch);
+        } catch (RuntimeException e) {
+            CompletableFuture<List<Object>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        CompletableFuture<List<Object>> result = batch.results();
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timeout = engine.timer().schedule(() -> {
+                result.completeExceptionally(new TimeoutException("batch timed out after " + timeoutMillis + "ms"));
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((r, e) -> timeout.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * 关闭自己创建的引擎和加载线程池
+     */
+    @Override
+    public void close() {
+        if (root != this) {
+            return;
+        }
+        if (loaders != null) {
+            loaders.close();
+        }
+        if (ownsEngine) {
+            engine.close();
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> setExpireWithRetry(String key, int seconds, String value, int retryTimes, int sleepSeconds) {
+        return retry("setExpire", () -> setExpire(key, seconds, value), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setWithRetry(String key, String value, int retryTimes, int sleepSeconds) {
+        return retry("set", () -> set(key, value), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Long> delWithRetry(int retryTimes, int sleepSeconds, String... keys) {
+        return retry("del", () -> del(keys), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> expireWithRetry(String key, int seconds, int retryTimes, int sleepSeconds) {
+        return retry("expire", () -> expire(key, seconds), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<String> getWithRetry(String key, int retryTimes, int sleepSeconds) {
+        return retry("get", () -> get(key), retryTimes, sleepSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> set(String key, String value) {
+        return execute(OK, Command.SET, key, value);
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key) {
+        return execute(BuilderFactory.STRING, Command.GET, key);
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key, Function<String, String> loader, int ttlSeconds) {
+        return loaders().get(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public CompletableFuture<String> getRefreshAhead(String key, Function<String, String> loader, int ttlSeconds) {
+        return loaders().getRefreshAhead(key, loader, ttlSeconds);
+    }
+
+    @Override
+    public CompletableFuture<Long> setnx(String key, String value) {
+        return execute(BuilderFactory.LONG, Command.SETNX, key, value);
+    }
+
+    @Override
+    public CompletableFuture<String> getSet(String key, String value) {
+        return execute(BuilderFactory.STRING, Command.GETSET, key, value);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return execute(BuilderFactory.BOOLEAN, Command.EXISTS, key);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> expire(String key, int seconds) {
+        return execute(BuilderFactory.BOOLEAN, Command.EXPIRE, key, seconds);
+    }
+
+    @Override
+    public CompletableFuture<Long> expireAt(String key, long unixTime) {
+        return execute(BuilderFactory.LONG, Command.EXPIREAT, key, unixTime);
+    }
+
+    @Override
+    public CompletableFuture<Long> append(String key, String value) {
+        return execute(BuilderFactory.LONG, Command.APPEND, key, value);
+    }
+
+    @Override
+    public CompletableFuture<Long> decr(String key) {
+        return execute(BuilderFactory.LONG, Command.DECR, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> decrBy(String key, long integer) {
+        return execute(BuilderFactory.LONG, Command.DECRBY, key, integer);
+    }
+
+    @Override
+    public CompletableFuture<Long> incr(String key) {
+        return execute(BuilderFactory.LONG, Command.INCR, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> incrBy(String key, long integer) {
+        return execute(BuilderFactory.LONG, Command.INCRBY, key, integer);
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String... keys) {
+        return execute(BuilderFactory.LONG, Command.DEL, (Object[]) keys);
+    }
+
+    @Override
+    public CompletableFuture<String> getrange(String key, long startOffset, long endOffset) {
+        return execute(BuilderFactory.STRING, Command.GETRANGE, key, startOffset, endOffset);
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field) {
+        return execute(BuilderFactory.STRING, Command.HGET, key, field);
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String... fields) {
+        return execute(BuilderFactory.LONG, Command.HDEL, key, fields);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> hexists(String key, String field) {
+        return execute(BuilderFactory.BOOLEAN, Command.HEXISTS, key, field);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        return execute(BuilderFactory.STRING_MAP, Command.HGETALL, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> hincrBy(String key, String field, long value) {
+        return execute(BuilderFactory.LONG, Command.HINCRBY, key, field, value);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> hkeys(String key) {
+        return execute(BuilderFactory.STRING_SET, Command.HKEYS, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> hlen(String key) {
+        return execute(BuilderFactory.LONG, Command.HLEN, key);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        return execute(BuilderFactory.STRING_LIST, Command.HMGET, key, fields);
+    }
+
+    @Override
+    public CompletableFuture<String> hmset(String key, Map<String, String> hash) {
+        return execute(BuilderFactory.STRING, Command.HMSET, key, hash);
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value) {
+        return execute(BuilderFactory.LONG, Command.HSET, key, field, value);
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetnx(String key, String field, String value) {
+        return execute(BuilderFactory.LONG, Command.HSETNX, key, field, value);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> hvals(String key) {
+        return execute(BuilderFactory.STRING_LIST, Command.HVALS, key);
+    }
+
+    @Override
+    public CompletableFuture<String> lindex(String key, long index) {
+        return execute(BuilderFactory.STRING, Command.LINDEX, key, index);
+    }
+
+    @Override
+    public CompletableFuture<Long> linsert(String key, ListPosition where, String pivot, String value) {
+        return execute(BuilderFactory.LONG, Command.LINSERT, key, where.warp().raw, pivot, value);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> mget(String... keys) {
+        return execute(BuilderFactory.STRING_LIST, Command.MGET, (Object[]) keys);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> mset(String... keysvalues) {
+        return execute(OK, Command.MSET, (Object[]) keysvalues);
+    }
+
+    @Override
+    public CompletableFuture<Long> llen(String key) {
+        return execute(BuilderFactory.LONG, Command.LLEN, key);
+    }
+
+    @Override
+    public CompletableFuture<String> lpop(String key) {
+        return execute(BuilderFactory.STRING, Command.LPOP, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> lpush(String key, String... strings) {
+        return execute(BuilderFactory.LONG, Command.LPUSH, key, strings);
+    }
+
+    @Override
+    public CompletableFuture<Long> lpushx(String key, String... string) {
+        return execute(BuilderFactory.LONG, Command.LPUSHX, key, string);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> lrange(String key, long start, long end) {
+        return execute(BuilderFactory.STRING_LIST, Command.LRANGE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Long> lrem(String key, long count, String value) {
+        return execute(BuilderFactory.LONG, Command.LREM, key, count, value);
+    }
+
+    @Override
+    public CompletableFuture<String> ltrim(String key, long start, long end) {
+        return execute(BuilderFactory.STRING, Command.LTRIM, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<String> lset(String key, long index, String value) {
+        return execute(BuilderFactory.STRING, Command.LSET, key, index, value);
+    }
+
+    @Override
+    public CompletableFuture<String> rpop(String key) {
+        return execute(BuilderFactory.STRING, Command.RPOP, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> rpush(String key, String... strings) {
+        return execute(BuilderFactory.LONG, Command.RPUSH, key, strings);
+    }
+
+    @Override
+    public CompletableFuture<Long> rpushx(String key, String string) {
+        return execute(BuilderFactory.LONG, Command.RPUSHX, key, string);
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... members) {
+        return execute(BuilderFactory.LONG, Command.SADD, key, members);
+    }
+
+    @Override
+    public CompletableFuture<Long> scard(String key) {
+        return execute(BuilderFactory.LONG, Command.SCARD, key);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> smembers(String key) {
+        return execute(BuilderFactory.STRING_SET, Command.SMEMBERS, key);
+    }
+
+    @Override
+    public CompletableFuture<String> setExpire(String key, int seconds, String value) {
+        return execute(BuilderFactory.STRING, Command.SETEX, key, seconds, value);
+    }
+
+    @Override
+    public CompletableFuture<String> spop(String key) {
+        return execute(BuilderFactory.STRING, Command.SPOP, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> setrange(String key, long offset, String value) {
+        return execute(BuilderFactory.LONG, Command.SETRANGE, key, offset, value);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> sismember(String key, String member) {
+        return execute(BuilderFactory.BOOLEAN, Command.SISMEMBER, key, member);
+    }
+
+    @Override
+    public CompletableFuture<Long> strlen(String key) {
+        return execute(BuilderFactory.LONG, Command.STRLEN, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> ttl(String key) {
+        return execute(BuilderFactory.LONG, Command.TTL, key);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> sort(String key) {
+        return execute(BuilderFactory.STRING_LIST, Command.SORT, key);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> sort(String key, SortingParams sortingParameters) {
+        return execute(BuilderFactory.STRING_LIST, Command.SORT, key, sortingParameters.getParams());
+    }
+
+    @Override
+    public CompletableFuture<Long> sort(String key, SortingParams sortingParameters, String dstkey) {
+        return execute(BuilderFactory.LONG, Command.SORT, key, sortingParameters.getParams(), Keyword.STORE.raw, dstkey);
+    }
+
+    @Override
+    public CompletableFuture<Long> sort(String key, String dstkey) {
+        return execute(BuilderFactory.LONG, Command.SORT, key, Keyword.STORE.raw, dstkey);
+    }
+
+    @Override
+    public CompletableFuture<String> srandmember(String key) {
+        return execute(BuilderFactory.STRING, Command.SRANDMEMBER, key);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> srandmember(String key, int count) {
+        return execute(BuilderFactory.STRING_LIST, Command.SRANDMEMBER, key, count);
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... members) {
+        return execute(BuilderFactory.LONG, Command.SREM, key, members);
+    }
+
+    @Override
+    public CompletableFuture<String> substr(String key, int start, int end) {
+        return execute(BuilderFactory.STRING, Command.SUBSTR, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<String> type(String key) {
+        return execute(BuilderFactory.STRING, Command.TYPE, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        return execute(BuilderFactory.LONG, Command.ZADD, key, score, member);
+    }
+
+    @Override
+    public CompletableFuture<Long> zadd(String key, Map<String,Double> scoreMembers) {
+        return execute(BuilderFactory.LONG, Command.ZADD, key, scoreMembers);
+    }
+
+    @Override
+    public CompletableFuture<Long> zcard(String key) {
+        return execute(BuilderFactory.LONG, Command.ZCARD, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> zcount(String key, double min, double max) {
+        return execute(BuilderFactory.LONG, Command.ZCOUNT, key, min, max);
+    }
+
+    @Override
+    public CompletableFuture<Long> zcount(String key, String min, String max) {
+        return execute(BuilderFactory.LONG, Command.ZCOUNT, key, min, max);
+    }
+
+    @Override
+    public CompletableFuture<Double> zincrby(String key, double score, String member) {
+        return execute(BuilderFactory.DOUBLE, Command.ZINCRBY, key, score, member);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrange(String key, long start, long end) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZRANGE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max, int offset, int count) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrangeByScore(String key, String min, String max, int offset, int count) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, double min, double max, int offset, int count) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeByScoreWithScores(String key, String min, String max, int offset, int count) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZRANGEBYSCORE, key, min, max, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrangeWithScores(String key, long start, long end) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZRANGE, key, start, end, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Long> zrank(String key, String member) {
+        return execute(BuilderFactory.LONG, Command.ZRANK, key, member);
+    }
+
+    @Override
+    public CompletableFuture<Long> zrem(String key, String... members) {
+        return execute(BuilderFactory.LONG, Command.ZREM, key, members);
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByRank(String key, long start, long end) {
+        return execute(BuilderFactory.LONG, Command.ZREMRANGEBYRANK, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByScore(String key, double start, double end) {
+        return execute(BuilderFactory.LONG, Command.ZREMRANGEBYSCORE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Long> zremrangeByScore(String key, String start, String end) {
+        return execute(BuilderFactory.LONG, Command.ZREMRANGEBYSCORE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrange(String key, long start, long end) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZREVRANGE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, double max, double min, int offset, int count) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> zrevrangeByScore(String key, String max, String min, int offset, int count) {
+        return execute(BuilderFactory.STRING_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, double max, double min, int offset, int count) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeByScoreWithScores(String key, String max, String min, int offset, int count) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGEBYSCORE, key, max, min, Keyword.WITHSCORES.raw, Keyword.LIMIT.raw, offset, count);
+    }
+
+    @Override
+    public CompletableFuture<Set<Tuple>> zrevrangeWithScores(String key, long start, long end) {
+        return execute(BuilderFactory.TUPLE_ZSET, Command.ZREVRANGE, key, start, end, Keyword.WITHSCORES.raw);
+    }
+
+    @Override
+    public CompletableFuture<Long> zrevrank(String key, String member) {
+        return execute(BuilderFactory.LONG, Command.ZREVRANK, key, member);
+    }
+
+    @Override
+    public CompletableFuture<Double> zscore(String key, String member) {
+        return execute(BuilderFactory.DOUBLE, Command.ZSCORE, key, member);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> getBytes(String key) {
+        return execute(BuilderFactory.BYTE_ARRAY, Command.GET, key);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setBytes(String key, byte[] value) {
+        return execute(OK, Command.SET, key, value);
+    }
+
+    @Override
+    public CompletableFuture<String> setExpireBytes(String key, int seconds, byte[] value) {
+        return execute(BuilderFactory.STRING, Command.SETEX, key, seconds, value);
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> mgetBytes(String... keys) {
+        return execute(BuilderFactory.BYTE_ARRAY_LIST, Command.MGET, (Object[]) keys);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> hgetBytes(String key, String field) {
+        return execute(BuilderFactory.BYTE_ARRAY, Command.HGET, key, field);
+    }
+
+    @Override
+    public CompletableFuture<Long> hsetBytes(String key, String field, byte[] value) {
+        return execute(BuilderFactory.LONG, Command.HSET, key, field, value);
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> hmgetBytes(String key, String... fields) {
+        return execute(BuilderFactory.BYTE_ARRAY_LIST, Command.HMGET, key, fields);
+    }
+
+    @Override
+    public CompletableFuture<String> hmsetBytes(String key, Map<String, byte[]> hash) {
+        return execute(BuilderFactory.STRING, Command.HMSET, key, hash);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> hgetAllBytes(String key) {
+        return execute(BINARY_MAP, Command.HGETALL, key);
+    }
+
+    @Override
+    public CompletableFuture<Long> rpushBytes(String key, byte[]... values) {
+        return execute(BuilderFactory.LONG, Command.RPUSH, key, values);
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> lrangeBytes(String key, long start, long end) {
+        return execute(BuilderFactory.BYTE_ARRAY_LIST, Command.LRANGE, key, start, end);
+    }
+
+    @Override
+    public CompletableFuture<List<Object>> batch(Consumer<CacheBatch> commands) {
+        return executeBatch(commands);
+    }
+}
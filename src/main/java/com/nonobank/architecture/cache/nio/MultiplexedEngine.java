@@ -0,0 +1,463 @@
+package com.nonobank.architecture.cache.nio;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.CodisProxyWatcher;
+import com.nonobank.architecture.cache.breaker.CircuitBreaker;
+import com.nonobank.architecture.cache.breaker.CircuitBreakerOpenException;
+import com.nonobank.architecture.cache.breaker.CircuitBreakers;
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import com.nonobank.architecture.cache.hedge.Hedger;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.metrics.CommandMeter;
+import com.nonobank.architecture.cache.retry.CommandNotSentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 非阻塞多路复用命令引擎
+ * 每个 proxy 只保持少量长连接(multiplexConnectionsPerProxy),由 multiplexEventLoops 个 IO 线程驱动,
+ * 任意数量的调用线程共享这些连接,命令按轮询分配到可用连接并自动合并写出。
+ * proxy 列表来自 zookeeper(与 jodis 相同的目录结构),也可以直接指定地址。
+ * 命令的 future 在 IO 线程上完成,回调中不要执行阻塞操作。
+ * 开启 circuitBreaker 时与连接池共享按 proxy 和命令类别的熔断器,选择连接时跳过熔断的 proxy。
+ * 开启 hedge 时只读命令超过近期延迟分位数仍未回复,会在预算内向另一个 proxy 再发一次,先回复的结果生效。
+ * 开启 metrics 时记录每个 proxy 的延迟、失败数和实际收发的字节数。
+ */
+public class MultiplexedEngine implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiplexedEngine.class);
+
+    private static final long CLOSE_GRACE_MILLIS = 5000;
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private final CacheConfig config;
+
+    private final EventLoop[] loops;
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final AtomicInteger nextConnection = new AtomicInteger();
+
+    private final CodisProxyWatcher watcher;
+
+    private final CircuitBreakers breakers;
+
+    private final Hedger hedger;
+
+    /**未开启 metrics 时为 null*/
+    private final CacheMetrics metrics;
+
+    private volatile Map<HostAndPort, List<RespConnection>> proxies = Collections.emptyMap();
+
+    private volatile RespConnection[] connections = new RespConnection[0];
+
+    private volatile boolean closed;
+
+    /**
+     * 从 zookeeper 发现 codis proxy,配置了 proxyAddresses 时直接使用这些地址
+     */
+    public MultiplexedEngine(CacheConfig config) {
+        this.config = config;
+        this.loops = createLoops(config);
+        this.timer = createTimer();
+        this.breakers = config.getCircuitBreaker() ? CircuitBreakers.of(config) : null;
+        this.hedger = config.getHedge() ? new Hedger(config) : null;
+        List<HostAndPort> addresses = CodisProxyWatcher.staticAddresses(config);
+        this.metrics = config.getMetrics() ? new CacheMetrics(metricsName(addresses == null
+                ? config.getZkAddressAndPort() + config.getZkProxyDir() : addresses.toString()), config) : null;
+        this.watcher = addresses == null ? new CodisProxyWatcher(config, this::resetProxies) : null;
+        if (addresses != null) {
+            resetProxies(addresses);
+        }
+    }
+
+    /**
+     * 直接连接指定的 proxy(或 redis)地址
+     */
+    public MultiplexedEngine(CacheConfig config, List<HostAndPort> addresses) {
+        this.config = config;
+        this.loops = createLoops(config);
+        this.timer = createTimer();
+        this.breakers = config.getCircuitBreaker() ? CircuitBreakers.of(config) : null;
+        this.hedger = config.getHedge() ? new Hedger(config) : null;
+        this.metrics = config.getMetrics() ? new CacheMetrics(metricsName(addresses.toString()), config) : null;
+        this.watcher = null;
+        resetProxies(addresses);
+    }
+
+    private static String metricsName(String target) {
+        return "multiplexed#" + sequence.incrementAndGet() + "@" + target;
+    }
+
+    private static EventLoop[] createLoops(CacheConfig config) {
+        int count = config.getMultiplexEventLoops() > 0 ? config.getMultiplexEventLoops()
+                : Math.min(4, Runtime.getRuntime().availableProcessors());
+        EventLoop[] loops = new EventLoop[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                loops[i] = new EventLoop("cache-multiplex-io-" + i);
+            } catch (IOException e) {
+                for (int j = 0; j < i; j++) {
+                    loops[j].close();
+                }
+                throw new JedisConnectionException("cannot open selector", e);
+            }
+        }
+        return loops;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "cache-multiplex-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private synchronized void resetProxies(List<HostAndPort> addresses) {
+        if (closed) {
+            return;
+        }
+        Map<HostAndPort, List<RespConnection>> current = proxies;
+        Map<HostAndPort, List<RespConnection>> updated = new HashMap<>();
+        int perProxy = Math.max(1, config.getMultiplexConnectionsPerProxy());
+        for (HostAndPort address : addresses) {
+            List<RespConnection> existing = current.get(address);
+            if (existing == null) {
+                existing = new ArrayList<>(perProxy);
+                for (int i = 0; i < perProxy; i++) {
+                    existing.add(new RespConnection(address, loops[Math.abs(nextLoop.getAndIncrement() % loops.length)], timer,
+                            Protocol.DEFAULT_TIMEOUT, config.getMultiplexMaxPending(),
+                            breakers == null ? null : breakers.forProxy(address.toString()),
+                            metrics == null ? null : metrics.proxy(address.toString())));
+                }
+            }
+            updated.put(address, existing);
+        }
+        List<RespConnection> all = new ArrayList<>();
+        for (List<RespConnection> list : updated.values()) {
+            all.addAll(list);
+        }
+        proxies = updated;
+        connections = all.toArray(new RespConnection[all.size()]);
+        for (Map.Entry<HostAndPort, List<RespConnection>> entry : current.entrySet()) {
+            if (!updated.containsKey(entry.getKey())) {
+                log.info("codis proxy removed, address:" + entry.getKey());
+                for (RespConnection connection : entry.getValue()) {
+                    connection.close(CLOSE_GRACE_MILLIS);
+                }
+            }
+        }
+        log.info("codis proxies for multiplexed engine: " + updated.keySet());
+    }
+
+    /**
+     * 轮询选择一个已连接的连接,都不可用时选择正在建立的连接
+     * 开启熔断时跳过熔断器不放行的 proxy;commandClass 为 null(batch 无法回报单个命令的结果)时只选择熔断器关闭的 proxy
+     */
+    RespConnection connection(CommandClass commandClass) {
+        RespConnection[] snapshot = connections;
+        if (snapshot.length == 0) {
+            throw new CommandNotSentException("no codis proxy available");
+        }
+        int start = nextConnection.getAndIncrement();
+        RespConnection connecting = null;
+        boolean rejected = false;
+        for (int i = 0; i < snapshot.length; i++) {
+            RespConnection connection = snapshot[Math.abs((start + i) % snapshot.length)];
+            RespConnection.State state = connection.state();
+            if (state == RespConnection.State.READY) {
+                if (permitted(connection, commandClass)) {
+                    return connection;
+                }
+                rejected = true;
+            }
+            if (state == RespConnection.State.CONNECTING && connecting == null) {
+                connecting = connection;
+            }
+        }
+        if (connecting != null) {
+            if (permitted(connecting, commandClass)) {
+                return connecting;
+            }
+            rejected = true;
+        }
+        if (rejected) {
+            throw new CircuitBreakerOpenException("circuit breaker open for all codis proxies, command class: " + commandClass);
+        }
+        // 开启熔断时所有 proxy 都断开与全部熔断同样处理,读命令可以按 fallback 返回
+        if (breakers != null) {
+            throw new CircuitBreakerOpenException("no reachable codis proxy among " + proxies.keySet());
+        }
+        throw new CommandNotSentException("no reachable codis proxy among " + proxies.keySet());
+    }
+
+    private static boolean permitted(RespConnection connection, CommandClass commandClass) {
+        CircuitBreaker[] proxyBreakers = connection.breakers();
+        if (proxyBreakers == null) {
+            return true;
+        }
+        if (commandClass == null) {
+            return proxyBreakers[CommandClass.WRITE.ordinal()].isCallPermitted();
+        }
+        return proxyBreakers[commandClass.ordinal()].tryAcquire();
+    }
+
+    /**
+     * 异步执行一条命令
+     *
+     * @param builder       把 RESP 回复转换为返回值,与 Jedis BuilderFactory 兼容
+     * @param timeoutMillis 超时后 future 以 TimeoutException 失败,小于等于0表示不限制
+     * @param command       命令名
+     * @param args          参数,支持 String、String[]、byte[]、数值、Map 和 Collection
+     */
+    public <T> CompletableFuture<T> execute(Builder<T> builder, long timeoutMillis, byte[] command, Object... args) {
+        return execute(false, builder, timeoutMillis, command, args);
+    }
+
+    /**
+     * 异步执行一条返回 bulk 的命令,回复不复制,直接以只读 ByteBuffer 切片交给 reader
+     * reader 在 IO 线程上同步调用,切片在 reader 返回后失效,不能保存或交给其他线程;
+     * 回复为 nil 时不调用 reader,结果为 null
+     */
+    public <T> CompletableFuture<T> executeSlice(Function<ByteBuffer, T> reader, long timeoutMillis, byte[] command, Object... args) {
+        return execute(true, new Builder<T>() {
+            @Override
+            public T build(Object data) {
+                return data == null ? null : reader.apply((ByteBuffer) data);
+            }
+        }, timeoutMillis, command, args);
+    }
+
+    private <T> CompletableFuture<T> execute(boolean slice, Builder<T> builder, long timeoutMillis, byte[] command, Object... args) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            CommandClass commandClass = breakers == null && hedger == null ? null : CommandClass.of(command);
+            RespConnection connection = connection(breakers == null ? null : commandClass);
+            if (hedger != null && commandClass == CommandClass.READ) {
+                hedged(connection, future, builder, timeoutMillis, slice, command, args);
+            } else {
+                track(connection, commandClass, future);
+                send(connection, future, builder, timeoutMillis, slice, command, args);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void track(RespConnection connection, CommandClass commandClass, CompletableFuture<?> future) {
+        CircuitBreaker breaker = breakers != null && commandClass != null ? connection.breakers()[commandClass.ordinal()] : null;
+        CommandMeter meter = connection.meter();
+        if (breaker == null && meter == null) {
+            return;
+        }
+        long begin = System.nanoTime();
+        future.whenComplete((r, e) -> {
+            long elapsed = System.nanoTime() - begin;
+            if (breaker != null) {
+                breaker.onResult(elapsed, e != null && CircuitBreakers.isFailure(e));
+            }
+            if (meter != null) {
+                meter.record(elapsed, e != null);
+            }
+        });
+    }
+
+    /**
+     * 对冲执行只读命令
+     * 每次发送各自计时和回报熔断器;任意一次成功即完成,全部失败时以最后一个异常失败。
+     * 只统计首次发送的延迟,对冲的回复不会拉低分位数。
+     */
+    private <T> void hedged(RespConnection primary, CompletableFuture<T> future, Builder<T> builder, long timeoutMillis,
+                            boolean slice, byte[] command, Object... args) {
+        hedger.onRequest();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        long begin = System.nanoTime();
+        CompletableFuture<T> first = new CompletableFuture<>();
+        first.whenComplete((r, e) -> {
+            if (e == null) {
+                hedger.record(System.nanoTime() - begin);
+            }
+        });
+        first.whenComplete(settle(future, outstanding, false));
+        track(primary, CommandClass.READ, first);
+        send(primary, first, builder, timeoutMillis, slice, command, args);
+        if (future.isDone()) {
+            return;
+        }
+        ScheduledFuture<?> hedge = timer.schedule(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            RespConnection other = alternate(primary);
+            if (other == null || !hedger.tryHedge()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            CompletableFuture<T> second = new CompletableFuture<>();
+            second.whenComplete(settle(future, outstanding, true));
+            track(other, CommandClass.READ, second);
+            // 对冲与首次发送在同一时刻超时,整体耗时不超过 timeoutMillis
+            long remaining = timeoutMillis <= 0 ? timeoutMillis
+                    : Math.max(1, timeoutMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+            send(other, second, builder, remaining, slice, command, args);
+        }, hedger.getDelayNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((r, e) -> hedge.cancel(false));
+    }
+
+    private <T> BiConsumer<T, Throwable> settle(CompletableFuture<T> future, AtomicInteger outstanding, boolean hedge) {
+        return (r, e) -> {
+            if (e == null) {
+                if (future.complete(r) && hedge) {
+                    hedger.onWin();
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * 选择另一个 proxy 上已连接且熔断器关闭的连接,没有时返回 null
+     */
+    private RespConnection alternate(RespConnection primary) {
+        RespConnection[] snapshot = connections;
+        int start = ThreadLocalRandom.current().nextInt(Math.max(1, snapshot.length));
+        for (int i = 0; i < snapshot.length; i++) {
+            RespConnection connection = snapshot[(start + i) % snapshot.length];
+            if (connection.state() != RespConnection.State.READY || connection.address().equals(primary.address())) {
+                continue;
+            }
+            CircuitBreaker[] proxyBreakers = connection.breakers();
+            if (proxyBreakers == null || proxyBreakers[CommandClass.READ.ordinal()].isCallPermitted()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    <T> void send(RespConnection connection, CompletableFuture<T> future, Builder<T> builder, long timeoutMillis,
+                  boolean slice, byte[] command, Object... args) {
+        if (closed) {
+            future.completeExceptionally(new CommandNotSentException("multiplexed engine closed"));
+            return;
+        }
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                future.completeExceptionally(new TimeoutException("command timed out after " + timeoutMillis + "ms"));
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((r, e) -> timeout.cancel(false));
+        }
+        connection.send(new PendingCommand<>(RespCodec.flatten(command, args), builder, future, slice));
+    }
+
+    /**
+     * @return 熔断器,未开启 circuitBreaker 时为 null
+     */
+    public CircuitBreakers getCircuitBreakers() {
+        return breakers;
+    }
+
+    /**
+     * @return 对冲统计,未开启 hedge 时为 null
+     */
+    public Hedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * @return 引擎的计量(每个 proxy 的延迟和字节数),未开启 metrics 时为 null;
+     * 每个命令的计量由 {@link com.nonobank.architecture.cache.metrics.MeteredAsyncCacheClient} 记录到同一个对象
+     */
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    ScheduledThreadPoolExecutor timer() {
+        return timer;
+    }
+
+    /**
+     * @return 当前所有连接上已提交未完成的命令数
+     */
+    public int getPending() {
+        int pending = 0;
+        for (RespConnection connection : connections) {
+            pending += connection.pending();
+        }
+        return pending;
+    }
+
+    /**
+     * @return 已写出的命令数
+     */
+    public long getCommandsWritten() {
+        long commands = 0;
+        for (RespConnection connection : connections) {
+            commands += connection.commands();
+        }
+        return commands;
+    }
+
+    /**
+     * @return 写出的系统调用次数,与 getCommandsWritten 的比值即平均每次写出合并的命令数
+     */
+    public long getFlushes() {
+        long flushes = 0;
+        for (RespConnection connection : connections) {
+            flushes += connection.flushes();
+        }
+        return flushes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        for (RespConnection connection : connections) {
+            connection.close(0);
+        }
+        timer.schedule(() -> {
+            for (EventLoop loop : loops) {
+                loop.close();
+            }
+            timer.shutdown();
+        }, 100, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,45 @@
+package com.nonobank.architecture.cache.nio;
+
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 已提交等待回复的命令,回复按发送顺序依次匹配
+ */
+final class PendingCommand<T> {
+
+    final List<byte[]> parts;
+
+    final Builder<T> builder;
+
+    final CompletableFuture<T> future;
+
+    /**为 true 时 bulk 回复以 buffer 切片的形式交给 builder,不复制为 byte[]*/
+    final boolean slice;
+
+    PendingCommand(List<byte[]> parts, Builder<T> builder, CompletableFuture<T> future, boolean slice) {
+        this.parts = parts;
+        this.builder = builder;
+        this.future = future;
+        this.slice = slice;
+    }
+
+    void complete(Object reply) {
+        if (reply instanceof JedisDataException) {
+            future.completeExceptionally((JedisDataException) reply);
+            return;
+        }
+        try {
+            future.complete(builder.build(reply));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    void fail(Throwable cause) {
+        future.completeExceptionally(cause);
+    }
+}
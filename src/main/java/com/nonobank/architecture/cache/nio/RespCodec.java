@@ -0,0 +1,263 @@
+package com.nonobank.architecture.cache.nio;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RESP 协议编解码
+ * 编码:命令参数支持 String、String[]、byte[]、byte[][]、数值、Map(zadd 的 member->score 或 hmset 的 field->value)、
+ * Collection&lt;byte[]&gt;(如 SortingParams.getParams()),按顺序展开为 RESP 数组。
+ * 解码:与 Jedis Protocol.read 的结果结构一致(状态和 bulk 为 byte[],整数为 Long,数组为 List,错误为 JedisDataException),
+ * 因此可以直接使用 BuilderFactory 构造返回值;数据不完整时返回 {@link #INCOMPLETE} 并恢复读取位置。
+ */
+final class RespCodec {
+
+    static final Object INCOMPLETE = new Object();
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] POSITIVE_INFINITY = SafeEncoder.encode("+inf");
+
+    private static final byte[] NEGATIVE_INFINITY = SafeEncoder.encode("-inf");
+
+    private static final long INCOMPLETE_NUMBER = Long.MIN_VALUE;
+
+    private RespCodec() {
+    }
+
+    static byte[] score(double value) {
+        if (value == Double.POSITIVE_INFINITY) {
+            return POSITIVE_INFINITY;
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return NEGATIVE_INFINITY;
+        }
+        return Protocol.toByteArray(value);
+    }
+
+    /**
+     * 把命令和参数展开成字节数组列表
+     */
+    static List<byte[]> flatten(byte[] command, Object[] args) {
+        List<byte[]> parts = new ArrayList<>(args.length + 1);
+        parts.add(command);
+        for (Object arg : args) {
+            flatten(parts, arg);
+        }
+        return parts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(List<byte[]> parts, Object arg) {
+        if (arg instanceof byte[]) {
+            parts.add((byte[]) arg);
+        } else if (arg instanceof String) {
+            parts.add(SafeEncoder.encode((String) arg));
+        } else if (arg instanceof String[]) {
+            for (String s : (String[]) arg) {
+                parts.add(SafeEncoder.encode(s));
+            }
+        } else if (arg instanceof byte[][]) {
+            Collections.addAll(parts, (byte[][]) arg);
+        } else if (arg instanceof Double) {
+            parts.add(score((Double) arg));
+        } else if (arg instanceof Number) {
+            parts.add(Protocol.toByteArray(((Number) arg).longValue()));
+        } else if (arg instanceof Map) {
+            for (Map.Entry<String, ?> entry : ((Map<String, ?>) arg).entrySet()) {
+                if (entry.getValue() instanceof byte[]) {
+                    parts.add(SafeEncoder.encode(entry.getKey()));
+                    parts.add((byte[]) entry.getValue());
+                } else if (entry.getValue() instanceof Double) {
+                    // zadd: score member
+                    parts.add(score((Double) entry.getValue()));
+                    parts.add(SafeEncoder.encode(entry.getKey()));
+                } else {
+                    parts.add(SafeEncoder.encode(entry.getKey()));
+                    parts.add(SafeEncoder.encode((String) entry.getValue()));
+                }
+            }
+        } else if (arg instanceof Collection) {
+            for (Object o : (Collection<?>) arg) {
+                flatten(parts, o);
+            }
+        } else {
+            throw new IllegalArgumentException("unsupported argument type: " + arg.getClass());
+        }
+    }
+
+    static int encodedLength(List<byte[]> parts) {
+        int length = 1 + digits(parts.size()) + 2;
+        for (byte[] part : parts) {
+            length += 1 + digits(part.length) + 2 + part.length + 2;
+        }
+        return length;
+    }
+
+    static void encode(List<byte[]> parts, ByteBuffer out) {
+        out.put((byte) '*');
+        putNumber(out, parts.size());
+        for (byte[] part : parts) {
+            out.put((byte) '$');
+            putNumber(out, part.length);
+            out.put(part);
+            out.put(CRLF);
+        }
+    }
+
+    private static void putNumber(ByteBuffer out, int value) {
+        if (value == 0) {
+            out.put((byte) '0');
+        } else {
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            while (divisor > 0) {
+                out.put((byte) ('0' + value / divisor % 10));
+                divisor /= 10;
+            }
+        }
+        out.put(CRLF);
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * 从 buffer 当前位置读取一个完整回复,数据不完整时恢复 position 并返回 INCOMPLETE
+     */
+    static Object decode(ByteBuffer in) {
+        int start = in.position();
+        Object reply = read(in);
+        if (reply == INCOMPLETE) {
+            in.position(start);
+        }
+        return reply;
+    }
+
+    /**
+     * 与 {@link #decode} 相同,但 bulk 回复不复制,返回指向 buffer 内部的只读切片;
+     * 切片只在下一次读取 buffer 之前有效
+     */
+    static Object decodeSlice(ByteBuffer in) {
+        int start = in.position();
+        if (!in.hasRemaining() || in.get(start) != '$') {
+            return decode(in);
+        }
+        in.get();
+        long length = readNumber(in);
+        if (length == INCOMPLETE_NUMBER || length >= 0 && in.remaining() < length + 2) {
+            in.position(start);
+            return INCOMPLETE;
+        }
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer slice = in.slice();
+        slice.limit((int) length);
+        in.position(in.position() + (int) length + 2);
+        return slice.asReadOnlyBuffer();
+    }
+
+    private static Object read(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return INCOMPLETE;
+        }
+        byte type = in.get();
+        switch (type) {
+            case '+': {
+                int end = lineEnd(in);
+                return end < 0 ? INCOMPLETE : line(in, end);
+            }
+            case '-': {
+                int end = lineEnd(in);
+                return end < 0 ? INCOMPLETE : new JedisDataException(SafeEncoder.encode(line(in, end)));
+            }
+            case ':': {
+                long value = readNumber(in);
+                return value == INCOMPLETE_NUMBER ? INCOMPLETE : Long.valueOf(value);
+            }
+            case '$': {
+                long length = readNumber(in);
+                if (length == INCOMPLETE_NUMBER) {
+                    return INCOMPLETE;
+                }
+                if (length < 0) {
+                    return null;
+                }
+                if (in.remaining() < length + 2) {
+                    return INCOMPLETE;
+                }
+                byte[] bulk = new byte[(int) length];
+                in.get(bulk);
+                in.position(in.position() + 2);
+                return bulk;
+            }
+            case '*': {
+                long count = readNumber(in);
+                if (count == INCOMPLETE_NUMBER) {
+                    return INCOMPLETE;
+                }
+                if (count < 0) {
+                    return null;
+                }
+                List<Object> items = new ArrayList<>((int) count);
+                for (int i = 0; i < count; i++) {
+                    Object item = read(in);
+                    if (item == INCOMPLETE) {
+                        return INCOMPLETE;
+                    }
+                    items.add(item);
+                }
+                return items;
+            }
+            default:
+                throw new JedisDataException("Unknown reply: " + (char) type);
+        }
+    }
+
+    private static int lineEnd(ByteBuffer in) {
+        for (int i = in.position(); i < in.limit() - 1; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] line(ByteBuffer in, int end) {
+        byte[] line = new byte[end - in.position()];
+        in.get(line);
+        in.position(end + 2);
+        return line;
+    }
+
+    private static long readNumber(ByteBuffer in) {
+        int end = lineEnd(in);
+        if (end < 0) {
+            return INCOMPLETE_NUMBER;
+        }
+        boolean negative = in.get(in.position()) == '-';
+        long value = 0;
+        for (int i = in.position() + (negative ? 1 : 0); i < end; i++) {
+            value = value * 10 + (in.get(i) - '0');
+        }
+        in.position(end + 2);
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,379 @@
+package com.nonobank.architecture.cache.nio;
+
+import com.nonobank.architecture.cache.breaker.CircuitBreaker;
+import com.nonobank.architecture.cache.metrics.CommandMeter;
+import com.nonobank.architecture.cache.retry.CommandNotSentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 到一个 proxy 的非阻塞连接,多个调用线程共享
+ * 调用线程只把命令放入发送队列,由事件循环线程统一编码写出:
+ * 一次写出之前到达的所有命令合并为一次系统调用(自动 pipeline),回复按 FIFO 顺序与已发送命令匹配。
+ * 连接断开时所有未完成命令以 JedisConnectionException 失败,之后按退避时间自动重连。
+ */
+final class RespConnection {
+
+    private static final Logger log = LoggerFactory.getLogger(RespConnection.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 5000;
+
+    enum State {CONNECTING, READY, DISCONNECTED, CLOSED}
+
+    private final HostAndPort address;
+
+    private final EventLoop loop;
+
+    private final ScheduledExecutorService timer;
+
+    private final int connectTimeoutMillis;
+
+    private final int maxPending;
+
+    /**该 proxy 的熔断器,未开启熔断时为 null*/
+    private final CircuitBreaker[] breakers;
+
+    /**该 proxy 的计量,未开启 metrics 时为 null*/
+    private final CommandMeter meter;
+
+    /**调用线程写入,事件循环线程取出*/
+    private final Queue<PendingCommand<?>> outbound = new ConcurrentLinkedQueue<>();
+
+    /**已写出等待回复的命令,只在事件循环线程访问*/
+    private final ArrayDeque<PendingCommand<?>> inflight = new ArrayDeque<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder commands = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private SocketChannel channel;
+
+    private SelectionKey key;
+
+    private volatile State state = State.CONNECTING;
+
+    private volatile boolean closing;
+
+    private long reconnectDelayMillis;
+
+    RespConnection(HostAndPort address, EventLoop loop, ScheduledExecutorService timer, int connectTimeoutMillis, int maxPending,
+                   CircuitBreaker[] breakers, CommandMeter meter) {
+        this.address = address;
+        this.loop = loop;
+        this.timer = timer;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.maxPending = maxPending;
+        this.breakers = breakers;
+        this.meter = meter;
+        loop.execute(this::connect);
+    }
+
+    HostAndPort address() {
+        return address;
+    }
+
+    CircuitBreaker[] breakers() {
+        return breakers;
+    }
+
+    CommandMeter meter() {
+        return meter;
+    }
+
+    State state() {
+        return state;
+    }
+
+    int pending() {
+        return pending.get();
+    }
+
+    long commands() {
+        return commands.sum();
+    }
+
+    long flushes() {
+        return flushes.sum();
+    }
+
+    /**
+     * 提交命令,可在任意线程调用;首次连接建立前提交的命令在连接成功后发送
+     */
+    void send(PendingCommand<?> command) {
+        State current = state;
+        if (closing || current == State.DISCONNECTED || current == State.CLOSED) {
+            command.fail(new CommandNotSentException("connection to " + address + " is " + (closing ? "closing" : current)));
+            return;
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            command.fail(new CommandNotSentException("too many pending commands on " + address));
+            return;
+        }
+        outbound.add(command);
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    private void connect() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CONNECTING;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            if (channel.connect(new InetSocketAddress(address.getHost(), address.getPort()))) {
+                key = channel.register(loop.selector(), SelectionKey.OP_READ, this);
+                connected();
+            } else {
+                key = channel.register(loop.selector(), SelectionKey.OP_CONNECT, this);
+                SocketChannel connecting = channel;
+                timer.schedule(() -> loop.execute(() -> {
+                    if (channel == connecting && state == State.CONNECTING) {
+                        disconnect(new JedisConnectionException("connect to " + address + " timed out"));
+                    }
+                }), connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            disconnect(new JedisConnectionException("connect to " + address + " failed", e));
+        }
+    }
+
+    private void connected() {
+        state = State.READY;
+        reconnectDelayMillis = 0;
+        flush();
+    }
+
+    /**
+     * 事件循环线程回调
+     */
+    void handle(SelectionKey selected) {
+        if (!selected.isValid() || selected != key) {
+            return;
+        }
+        try {
+            if (selected.isConnectable()) {
+                channel.finishConnect();
+                key.interestOps(SelectionKey.OP_READ);
+                connected();
+                return;
+            }
+            if (selected.isReadable()) {
+                read();
+            }
+            if (selected.isValid() && selected.isWritable()) {
+                write();
+            }
+        } catch (IOException | RuntimeException e) {
+            disconnect(e instanceof JedisConnectionException ? (JedisConnectionException) e
+                    : new JedisConnectionException("connection to " + address + " failed", e));
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (state == State.CONNECTING) {
+            return;
+        }
+        if (state != State.READY) {
+            // 断开后才进入队列的命令
+            failAll(new JedisConnectionException("connection to " + address + " is " + state));
+            return;
+        }
+        PendingCommand<?> command;
+        boolean queued = false;
+        while ((command = outbound.poll()) != null) {
+            if (command.future.isDone()) {
+                // 超时或取消的命令还没发送,直接丢弃
+                pending.decrementAndGet();
+                continue;
+            }
+            int length = RespCodec.encodedLength(command.parts);
+            if (writeBuffer.remaining() < length) {
+                try {
+                    ensureWritable(length);
+                } catch (IOException e) {
+                    pending.decrementAndGet();
+                    JedisConnectionException cause = new JedisConnectionException("write to " + address + " failed", e);
+                    command.fail(cause);
+                    disconnect(cause);
+                    return;
+                }
+            }
+            RespCodec.encode(command.parts, writeBuffer);
+            inflight.add(command);
+            commands.increment();
+            queued = true;
+        }
+        if (queued) {
+            try {
+                write();
+            } catch (IOException e) {
+                disconnect(new JedisConnectionException("write to " + address + " failed", e));
+            }
+        }
+    }
+
+    private void ensureWritable(int length) throws IOException {
+        if (writeBuffer.position() > 0) {
+            write();
+        }
+        if (writeBuffer.remaining() < length) {
+            // socket 暂时写不完或单条命令超过缓冲区,扩容继续积累
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + length));
+            writeBuffer.flip();
+            larger.put(writeBuffer);
+            writeBuffer = larger;
+        }
+    }
+
+    private void write() throws IOException {
+        writeBuffer.flip();
+        if (writeBuffer.hasRemaining()) {
+            int written = channel.write(writeBuffer);
+            flushes.increment();
+            if (meter != null) {
+                meter.addBytesOut(written);
+            }
+        }
+        boolean drained = !writeBuffer.hasRemaining();
+        writeBuffer.compact();
+        if (drained) {
+            if (writeBuffer.capacity() > BUFFER_SIZE) {
+                writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void read() throws IOException {
+        int n;
+        while ((n = channel.read(readBuffer)) > 0) {
+            if (meter != null) {
+                meter.addBytesIn(n);
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining()) {
+                PendingCommand<?> command = inflight.peek();
+                if (command == null) {
+                    throw new JedisConnectionException("unexpected reply from " + address);
+                }
+                Object reply = command.slice ? RespCodec.decodeSlice(readBuffer) : RespCodec.decode(readBuffer);
+                if (reply == RespCodec.INCOMPLETE) {
+                    break;
+                }
+                inflight.poll();
+                pending.decrementAndGet();
+                // 切片指向 readBuffer,必须在 compact 之前同步处理完
+                command.complete(reply);
+            }
+            readBuffer.compact();
+            if (!readBuffer.hasRemaining()) {
+                // 单个回复超过缓冲区
+                ByteBuffer larger = ByteBuffer.allocateDirect(readBuffer.capacity() * 2);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            } else if (readBuffer.position() == 0 && readBuffer.capacity() > BUFFER_SIZE) {
+                readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+        }
+        if (n < 0) {
+            throw new JedisConnectionException("connection closed by " + address);
+        }
+    }
+
+    private void disconnect(JedisConnectionException cause) {
+        if (state == State.CLOSED || closing) {
+            state = State.CLOSED;
+            closeChannel();
+            failAll(cause);
+            return;
+        }
+        log.info("codis proxy connection lost, address:" + address + " Exception: " + cause.getMessage());
+        state = State.DISCONNECTED;
+        closeChannel();
+        failAll(cause);
+        reconnectDelayMillis = Math.min(MAX_RECONNECT_DELAY_MILLIS, Math.max(100, reconnectDelayMillis * 2));
+        timer.schedule(() -> loop.execute(this::connect), reconnectDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void failAll(Throwable cause) {
+        PendingCommand<?> command;
+        while ((command = inflight.poll()) != null) {
+            pending.decrementAndGet();
+            command.fail(cause);
+        }
+        CommandNotSentException notSent = null;
+        while ((command = outbound.poll()) != null) {
+            if (notSent == null) {
+                notSent = new CommandNotSentException(cause.getMessage(), cause);
+            }
+            pending.decrementAndGet();
+            command.fail(notSent);
+        }
+        writeBuffer.clear();
+        readBuffer.clear();
+    }
+
+    private void closeChannel() {
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("close channel failed", e);
+            }
+        }
+    }
+
+    /**
+     * 不再接受新命令,已发送的命令在 gracePeriodMillis 内等待回复,之后关闭连接
+     */
+    void close(long gracePeriodMillis) {
+        closing = true;
+        loop.execute(this::flush);
+        timer.schedule(() -> loop.execute(() -> {
+            state = State.CLOSED;
+            closeChannel();
+            failAll(new JedisConnectionException("connection to " + address + " closed"));
+        }), gracePeriodMillis, TimeUnit.MILLISECONDS);
+    }
+}
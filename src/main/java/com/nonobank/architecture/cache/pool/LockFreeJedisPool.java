@@ -0,0 +1,469 @@
+package com.nonobank.architecture.cache.pool;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.Pool;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 借用和归还不加锁的 Jedis 连接池,替代 commons-pool2 GenericObjectPool
+ * 借用依次尝试:当前线程上次使用的连接(CAS 占用)、从随机位置扫描共享的连接环、未达到 maxTotal 时新建连接、
+ * 等待其他线程归还(归还的线程直接交接给等待者);只有新建和销毁连接时替换连接环需要加锁。
+ * 支持 maxTotal、minIdle、maxWaitMillis、blockWhenExhausted、testOnBorrow 和空闲检测
+ * (testWhileIdle、minEvictableIdleTimeMillis、timeBetweenEvictionRunsMillis),其他参数不生效。
+ */
+public class LockFreeJedisPool extends Pool<Jedis> {
+
+    private static final Logger log = LoggerFactory.getLogger(LockFreeJedisPool.class);
+
+    private static final int FREE = 0;
+
+    private static final int IN_USE = 1;
+
+    private static final int REMOVED = -1;
+
+    /**等待交接时每次最长阻塞的时间,期间因销毁连接空出的名额通过重新扫描获得*/
+    private static final long HANDOFF_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static volatile ScheduledThreadPoolExecutor housekeeper;
+
+    private final PooledObjectFactory<Jedis> factory;
+
+    private final int maxTotal;
+
+    private final int minIdle;
+
+    /**小于0表示一直等待*/
+    private final long maxWaitNanos;
+
+    private final boolean testOnBorrow;
+
+    private final boolean testWhileIdle;
+
+    private final long minEvictableIdleNanos;
+
+    private final ConcurrentHashMap<Jedis, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Entry> last = new ThreadLocal<>();
+
+    private final SynchronousQueue<Entry> handoff = new SynchronousQueue<>(true);
+
+    /**已建立和正在建立的连接数*/
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final ScheduledFuture<?> eviction;
+
+    private volatile Entry[] ring = new Entry[0];
+
+    private volatile boolean closed;
+
+    public LockFreeJedisPool(GenericObjectPoolConfig poolConfig, PooledObjectFactory<Jedis> factory) {
+        this.factory = factory;
+        this.maxTotal = poolConfig.getMaxTotal() < 0 ? Integer.MAX_VALUE : poolConfig.getMaxTotal();
+        this.minIdle = Math.min(poolConfig.getMinIdle(), maxTotal);
+        this.maxWaitNanos = !poolConfig.getBlockWhenExhausted() ? 0
+                : poolConfig.getMaxWaitMillis() < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(poolConfig.getMaxWaitMillis());
+        this.testOnBorrow = poolConfig.getTestOnBorrow();
+        this.testWhileIdle = poolConfig.getTestWhileIdle();
+        this.minEvictableIdleNanos = TimeUnit.MILLISECONDS.toNanos(poolConfig.getMinEvictableIdleTimeMillis());
+        long period = poolConfig.getTimeBetweenEvictionRunsMillis();
+        this.eviction = period > 0 ? housekeeper().scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS) : null;
+    }
+
+    private static ScheduledThreadPoolExecutor housekeeper() {
+        if (housekeeper == null) {
+            synchronized (LockFreeJedisPool.class) {
+                if (housekeeper == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "cache-pool-housekeeper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    housekeeper = executor;
+                }
+            }
+        }
+        return housekeeper;
+    }
+
+    @Override
+    public Jedis getResource() {
+        if (closed) {
+            throw new JedisConnectionException("Could not get a resource from the pool", new IllegalStateException("Pool not open"));
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        for (;;) {
+            Entry entry = claim();
+            if (entry == null) {
+                entry = create(IN_USE);
+            }
+            if (entry == null) {
+                entry = await(deadline);
+            }
+            if (testOnBorrow && !validate(entry)) {
+                discard(entry);
+                continue;
+            }
+            last.set(entry);
+            entry.jedis.setDataSource(this);
+            return entry.jedis;
+        }
+    }
+
+    /**
+     * 先尝试当前线程上次使用的连接,再从随机位置扫描一圈
+     */
+    private Entry claim() {
+        Entry entry = last.get();
+        if (entry != null && entry.state.compareAndSet(FREE, IN_USE)) {
+            return entry;
+        }
+        Entry[] snapshot = ring;
+        int length = snapshot.length;
+        if (length == 0) {
+            return null;
+        }
+        int index = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            entry = snapshot[index];
+            if (entry.state.get() == FREE && entry.state.compareAndSet(FREE, IN_USE)) {
+                return entry;
+            }
+            if (++index == length) {
+                index = 0;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 新建的连接,已达到 maxTotal 时为 null
+     */
+    private Entry create(int state) {
+        for (;;) {
+            int current = size.get();
+            if (current >= maxTotal) {
+                return null;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        PooledObject<Jedis> pooled;
+        try {
+            pooled = factory.makeObject();
+        } catch (Exception e) {
+            size.decrementAndGet();
+            throw new JedisConnectionException("Could not get a resource from the pool", e);
+        }
+        Entry entry = new Entry(pooled, state);
+        add(entry);
+        if (closed) {
+            discard(entry);
+            throw new JedisConnectionException("Could not get a resource from the pool", new IllegalStateException("Pool not open"));
+        }
+        return entry;
+    }
+
+    private Entry await(long deadline) {
+        waiters.incrementAndGet();
+        try {
+            for (;;) {
+                Entry entry = claim();
+                if (entry == null) {
+                    entry = create(IN_USE);
+                }
+                if (entry != null) {
+                    return entry;
+                }
+                long remaining = maxWaitNanos < 0 ? HANDOFF_POLL_NANOS : deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new JedisConnectionException("Could not get a resource from the pool",
+                            new NoSuchElementException("Timeout waiting for idle object"));
+                }
+                entry = handoff.poll(Math.min(remaining, HANDOFF_POLL_NANOS), TimeUnit.NANOSECONDS);
+                if (entry != null && entry.state.compareAndSet(FREE, IN_USE)) {
+                    return entry;
+                }
+                if (closed) {
+                    throw new JedisConnectionException("Could not get a resource from the pool", new IllegalStateException("Pool not open"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisConnectionException("Could not get a resource from the pool", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * @deprecated 由 {@link Jedis#close()} 回调,直接归还连接使用 {@link #returnObject}
+     */
+    @Override
+    @Deprecated
+    public void returnResource(Jedis resource) {
+        returnObject(resource);
+    }
+
+    /**
+     * @deprecated 由 {@link Jedis#close()} 回调,直接销毁连接使用 {@link #invalidateObject}
+     */
+    @Override
+    @Deprecated
+    public void returnBrokenResource(Jedis resource) {
+        invalidateObject(resource);
+    }
+
+    /**
+     * 归还正常的连接,重置连接状态失败时销毁连接;不属于本连接池或已归还的连接被忽略
+     */
+    public void returnObject(Jedis resource) {
+        if (resource == null) {
+            return;
+        }
+        Entry entry = entry(resource);
+        if (entry == null || entry.state.get() != IN_USE) {
+            return;
+        }
+        try {
+            resource.resetState();
+        } catch (RuntimeException e) {
+            discard(entry);
+            throw new JedisException("Could not return the resource to the pool", e);
+        }
+        release(entry);
+    }
+
+    /**
+     * 销毁损坏的连接,空出的名额可以新建连接
+     */
+    public void invalidateObject(Jedis resource) {
+        if (resource == null) {
+            return;
+        }
+        Entry entry = entry(resource);
+        if (entry != null) {
+            discard(entry);
+        }
+    }
+
+    private Entry entry(Jedis resource) {
+        Entry entry = last.get();
+        if (entry != null && entry.jedis == resource) {
+            return entry;
+        }
+        return entries.get(resource);
+    }
+
+    /**
+     * 归还:记录归还时间后置为空闲
+     */
+    private void release(Entry entry) {
+        if (closed) {
+            discard(entry);
+            return;
+        }
+        entry.lastReturn = System.nanoTime();
+        free(entry);
+    }
+
+    /**
+     * 置为空闲但不更新归还时间,空闲检测放回的连接继续按原来的归还时间计算空闲时长;
+     * 有线程等待时交接给它,直到连接被占用或没有等待者
+     */
+    private void free(Entry entry) {
+        if (closed) {
+            discard(entry);
+            return;
+        }
+        if (!entry.state.compareAndSet(IN_USE, FREE)) {
+            // 重复归还
+            return;
+        }
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.state.get() != FREE || handoff.offer(entry)) {
+                return;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(10000);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private boolean validate(Entry entry) {
+        try {
+            return factory.validateObject(entry.pooled);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void discard(Entry entry) {
+        if (entry.state.getAndSet(REMOVED) == REMOVED) {
+            return;
+        }
+        remove(entry);
+        size.decrementAndGet();
+        try {
+            factory.destroyObject(entry.pooled);
+        } catch (Exception e) {
+            log.debug("destroy jedis failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void add(Entry entry) {
+        entries.put(entry.jedis, entry);
+        Entry[] current = ring;
+        Entry[] updated = new Entry[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = entry;
+        ring = updated;
+    }
+
+    private synchronized void remove(Entry entry) {
+        entries.remove(entry.jedis);
+        Entry[] current = ring;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == entry) {
+                Entry[] updated = new Entry[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                ring = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 空闲检测:回收空闲超过 minEvictableIdleTimeMillis 的连接(保留 minIdle 个),testWhileIdle 时校验其余空闲连接,再补足 minIdle
+     */
+    private void evict() {
+        try {
+            long now = System.nanoTime();
+            for (Entry entry : ring) {
+                if (!entry.state.compareAndSet(FREE, IN_USE)) {
+                    continue;
+                }
+                boolean expired = minEvictableIdleNanos > 0 && now - entry.lastReturn > minEvictableIdleNanos && size.get() > minIdle;
+                if (expired || (testWhileIdle && !validate(entry))) {
+                    discard(entry);
+                } else {
+                    free(entry);
+                }
+            }
+            ensureMinIdle();
+        } catch (RuntimeException e) {
+            log.debug("jedis pool eviction failed: " + e.getMessage());
+        }
+    }
+
+    private void ensureMinIdle() {
+        while (!closed && getNumIdle() < minIdle) {
+            Entry entry = create(IN_USE);
+            if (entry == null) {
+                return;
+            }
+            release(entry);
+        }
+    }
+
+    @Override
+    public void addObjects(int count) {
+        for (int i = 0; i < count; i++) {
+            Entry entry = create(IN_USE);
+            if (entry == null) {
+                return;
+            }
+            release(entry);
+        }
+    }
+
+    @Override
+    public int getNumActive() {
+        int active = 0;
+        for (Entry entry : ring) {
+            if (entry.state.get() == IN_USE) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public int getNumIdle() {
+        int idle = 0;
+        for (Entry entry : ring) {
+            if (entry.state.get() == FREE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    @Override
+    public int getNumWaiters() {
+        return waiters.get();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 销毁空闲连接,借出的连接在归还时销毁
+     */
+    @Override
+    public void destroy() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        for (Entry entry : ring) {
+            if (entry.state.compareAndSet(FREE, IN_USE)) {
+                discard(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final PooledObject<Jedis> pooled;
+
+        final Jedis jedis;
+
+        final AtomicInteger state;
+
+        volatile long lastReturn = System.nanoTime();
+
+        Entry(PooledObject<Jedis> pooled, int state) {
+            this.pooled = pooled;
+            this.jedis = pooled.getObject();
+            this.state = new AtomicInteger(state);
+        }
+    }
+}
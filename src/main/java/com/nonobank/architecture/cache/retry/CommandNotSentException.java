@@ -0,0 +1,19 @@
+package com.nonobank.architecture.cache.retry;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 命令确定没有发送到 proxy 时的失败(没有可用连接、连接已断开、排队命令超限等),任何命令都可以安全重试
+ */
+public class CommandNotSentException extends JedisConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CommandNotSentException(String message) {
+        super(message);
+    }
+
+    public CommandNotSentException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,116 @@
+package com.nonobank.architecture.cache.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局重试预算,限制重试占总请求量的比例
+ * 每个请求存入 ratio 个令牌,每次重试取出1个,另外每秒固定补充 minPerSecond 个保证低流量时也能重试;
+ * 令牌上限为10秒的固定补充量加上 ratio*1000,proxy 大面积故障时重试量被限制在正常流量的 ratio 以内。
+ */
+public final class RetryBudget {
+
+    /**令牌以千分之一为单位存储*/
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+
+    private final long minPerSecond;
+
+    private final long maxTokens;
+
+    private final AtomicLong tokens;
+
+    private final AtomicLong lastRefillNanos;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * @param ratio        重试与请求数之比的上限,如 0.1 表示重试不超过请求量的 10%
+     * @param minPerSecond 不依赖流量的每秒重试额度
+     */
+    public RetryBudget(double ratio, int minPerSecond) {
+        this.depositPerRequest = Math.max(0, Math.round(ratio * SCALE));
+        this.minPerSecond = Math.max(0, minPerSecond);
+        this.maxTokens = (this.minPerSecond * 10 + Math.max(1, Math.round(ratio * 1000))) * SCALE;
+        this.tokens = new AtomicLong(this.minPerSecond * SCALE);
+        this.lastRefillNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 每个请求(不含重试)调用一次
+     */
+    public void onRequest() {
+        requests.increment();
+        if (depositPerRequest > 0) {
+            deposit(depositPerRequest);
+        }
+    }
+
+    /**
+     * @return 是否允许一次重试,允许时扣除一个令牌
+     */
+    public boolean tryAcquire() {
+        refill();
+        long current;
+        do {
+            current = tokens.get();
+            if (current < SCALE) {
+                exhausted.increment();
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - SCALE));
+        retries.increment();
+        return true;
+    }
+
+    private void refill() {
+        if (minPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastRefillNanos.get();
+        // 最多按10秒补充,令牌本身也有上限
+        long elapsed = Math.min(now - last, 10000000000L);
+        long amount = elapsed * minPerSecond * SCALE / 1000000000L;
+        if (amount >= SCALE && lastRefillNanos.compareAndSet(last, now)) {
+            deposit(amount);
+        }
+    }
+
+    private void deposit(long amount) {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= maxTokens) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + amount)));
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return 因预算不足而放弃的重试次数
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * @return 当前可用的重试次数
+     */
+    public long getAvailable() {
+        return tokens.get() / SCALE;
+    }
+}
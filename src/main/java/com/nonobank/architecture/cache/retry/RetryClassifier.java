@@ -0,0 +1,81 @@
+package com.nonobank.architecture.cache.retry;
+
+import com.nonobank.architecture.cache.breaker.CircuitBreakerOpenException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 判断失败的命令能否重试
+ * 命令确定没有发出(拿不到连接、连接被拒绝)时任何命令都可以重试;
+ * 已经发出后失败(读超时、连接中断)时 proxy 可能已经执行,只有幂等命令可以重试,
+ * incr、lpush 这类重复执行会改变结果的命令不重试;redis 返回的错误(WRONGTYPE 等)重试也不会成功,不重试;
+ * 熔断器打开时的失败也不重试。
+ */
+public final class RetryClassifier {
+
+    /**非幂等命令,按 AbstractCacheClient 的方法名,不区分大小写*/
+    private static final Set<String> NON_IDEMPOTENT = new HashSet<>();
+
+    static {
+        for (String command : Arrays.asList("incr", "incrBy", "decr", "decrBy", "hincrBy", "zincrby", "append",
+                "lpush", "lpushx", "rpush", "rpushx", "rpushBytes", "lpop", "rpop", "spop", "linsert", "lrem",
+                "setnx", "hsetnx", "getSet", "batch")) {
+            NON_IDEMPOTENT.add(command.toLowerCase());
+        }
+    }
+
+    private RetryClassifier() {
+    }
+
+    public static boolean isIdempotent(String command) {
+        return !NON_IDEMPOTENT.contains(command.toLowerCase());
+    }
+
+    /**
+     * @param idempotent 命令重复执行是否安全
+     */
+    public static boolean isRetryable(Throwable failure, boolean idempotent) {
+        Throwable e = unwrap(failure);
+        if (e instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        if (notSent(e)) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        return e instanceof JedisConnectionException || e instanceof TimeoutException;
+    }
+
+    /**
+     * @return 能确定命令没有发送出去
+     */
+    public static boolean notSent(Throwable failure) {
+        for (Throwable e = unwrap(failure); e != null; e = e.getCause()) {
+            // 连接池耗尽或建立连接失败
+            if (e instanceof CommandNotSentException || e instanceof NoSuchElementException || e instanceof ConnectException) {
+                return true;
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
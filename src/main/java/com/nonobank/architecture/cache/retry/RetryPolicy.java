@@ -0,0 +1,72 @@
+package com.nonobank.architecture.cache.retry;
+
+import com.nonobank.architecture.cache.CacheConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试次数与退避时间
+ * 第 n 次重试前等待 [cap/2, cap] 之间的随机时间,cap = min(maxDelayMillis, baseDelayMillis * 2^(n-1)),
+ * 随机抖动使同时失败的大量请求分散重试,避免对 proxy 形成同步的重试风暴。
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts 包括第一次在内的最多执行次数
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+    }
+
+    public static RetryPolicy of(CacheConfig config) {
+        return new RetryPolicy(config.getRetryMaxAttempts(), config.getRetryBaseDelayMillis(), config.getRetryMaxDelayMillis());
+    }
+
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis);
+    }
+
+    public RetryPolicy withMaxDelayMillis(long maxDelayMillis) {
+        return new RetryPolicy(maxAttempts, Math.min(baseDelayMillis, maxDelayMillis), maxDelayMillis);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @param retry 第几次重试,从1开始
+     * @return 本次重试前的等待时间(毫秒)
+     */
+    public long delayMillis(int retry) {
+        int shift = Math.min(30, Math.max(0, retry - 1));
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        if (cap <= 1) {
+            return cap;
+        }
+        long half = cap / 2;
+        return half + ThreadLocalRandom.current().nextLong(cap - half + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts=" + maxAttempts + ", baseDelayMillis=" + baseDelayMillis
+                + ", maxDelayMillis=" + maxDelayMillis + "}";
+    }
+}
@@ -0,0 +1,156 @@
+package com.nonobank.architecture.cache.retry;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按 {@link RetryPolicy} 重试命令,重试前检查失败类型({@link RetryClassifier})和全局重试预算({@link RetryBudget})
+ * call 在调用线程上按毫秒级退避等待后重试;callAsync 的重试由定时线程调度,不占用调用线程和执行线程。
+ * 同一个 CacheConfig 的客户端通过 {@link #of(CacheConfig)} 共享同一个实例,重试预算对整个集群生效。
+ */
+public class Retryer {
+
+    private static final Logger log = LoggerFactory.getLogger(Retryer.class);
+
+    private static final Map<CacheConfig, Retryer> SHARED = new WeakHashMap<>();
+
+    private static volatile ScheduledThreadPoolExecutor timer;
+
+    private final RetryPolicy policy;
+
+    private final RetryBudget budget;
+
+    public Retryer(RetryPolicy policy, RetryBudget budget) {
+        this.policy = policy;
+        this.budget = budget;
+    }
+
+    public static Retryer of(CacheConfig config) {
+        synchronized (SHARED) {
+            Retryer retryer = SHARED.get(config);
+            if (retryer == null) {
+                retryer = new Retryer(RetryPolicy.of(config),
+                        new RetryBudget(config.getRetryBudgetRatio(), config.getRetryBudgetMinPerSecond()));
+                SHARED.put(config, retryer);
+            }
+            return retryer;
+        }
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * 旧的 xxxWithRetry 接口的策略:最多执行 retryTimes 次,sleepSeconds 作为退避时间的上限
+     */
+    public RetryPolicy legacyPolicy(int retryTimes, int sleepSeconds) {
+        return policy.withMaxAttempts(retryTimes).withMaxDelayMillis(sleepSeconds * 1000L);
+    }
+
+    public <T> T call(String command, Supplier<T> action) {
+        return call(command, action, policy);
+    }
+
+    /**
+     * @param command 命令名,用于判断是否幂等
+     * @return action 的结果,不能重试或重试用完时抛出最后一次的异常
+     */
+    public <T> T call(String command, Supplier<T> action, RetryPolicy policy) {
+        budget.onRequest();
+        boolean idempotent = RetryClassifier.isIdempotent(command);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                if (!shouldRetry(e, idempotent, attempt, policy)) {
+                    throw e;
+                }
+                long delay = policy.delayMillis(attempt);
+                log.info("retry " + command + " attempt: " + attempt + " after " + delay + "ms Exception: " + e.toString());
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(String command, Supplier<CompletableFuture<T>> action) {
+        return callAsync(command, action, policy);
+    }
+
+    /**
+     * 异步重试:失败后由定时线程在退避时间到达时再次调用 action,期间不占用任何线程
+     *
+     * @param action 发起一次执行,不应阻塞
+     */
+    public <T> CompletableFuture<T> callAsync(String command, Supplier<CompletableFuture<T>> action, RetryPolicy policy) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        budget.onRequest();
+        attempt(command, RetryClassifier.isIdempotent(command), action, policy, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(String command, boolean idempotent, Supplier<CompletableFuture<T>> action, RetryPolicy policy,
+                             int attempt, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = RetryClassifier.unwrap(e);
+            if (result.isDone() || !shouldRetry(cause, idempotent, attempt, policy)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            long delay = policy.delayMillis(attempt);
+            log.info("retry " + command + " attempt: " + attempt + " after " + delay + "ms Exception: " + cause.toString());
+            timer().schedule(() -> attempt(command, idempotent, action, policy, attempt + 1, result), delay, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private boolean shouldRetry(Throwable e, boolean idempotent, int attempt, RetryPolicy policy) {
+        return attempt < policy.getMaxAttempts() && RetryClassifier.isRetryable(e, idempotent) && budget.tryAcquire();
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            synchronized (Retryer.class) {
+                if (timer == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "cache-retry-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    timer = executor;
+                }
+            }
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,47 @@
+package com.nonobank.architecture.cache.retry;
+
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.async.AsyncCacheClient;
+import com.nonobank.architecture.cache.async.ForwardingAsyncCacheClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 对任意 {@link AsyncCacheClient} 的所有命令按 {@link Retryer} 自动重试
+ * 失败后由定时线程在退避时间到达时重新提交,调用线程和执行线程都不等待;
+ * 非幂等命令只在确定没有发出时重试,cache-aside 加载、batch 和 xxxWithRetry 直接交给被包装的客户端。
+ */
+public class RetryingAsyncCacheClient extends ForwardingAsyncCacheClient {
+
+    private final Retryer retryer;
+
+    public RetryingAsyncCacheClient(AsyncCacheClient delegate, CacheConfig config) {
+        this(delegate, Retryer.of(config));
+    }
+
+    public RetryingAsyncCacheClient(AsyncCacheClient delegate, Retryer retryer) {
+        super(delegate);
+        this.retryer = retryer;
+    }
+
+    public Retryer getRetryer() {
+        return retryer;
+    }
+
+    /**
+     * 超时作用于每一次尝试
+     */
+    @Override
+    public AsyncCacheClient withTimeout(long timeout, TimeUnit unit) {
+        return new RetryingAsyncCacheClient(delegate.withTimeout(timeout, unit), retryer);
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> invoke(CacheCommand command, String key, Object value,
+                                              Supplier<CompletableFuture<T>> call) {
+        return RetryingCacheClient.PASS_THROUGH.contains(command) ? call.get() : retryer.callAsync(command.getName(), call);
+    }
+}
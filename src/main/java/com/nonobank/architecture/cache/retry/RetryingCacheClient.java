@@ -0,0 +1,45 @@
+package com.nonobank.architecture.cache.retry;
+
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 对任意 {@link AbstractCacheClient} 的所有命令按 {@link Retryer} 自动重试
+ * 非幂等命令(incr、lpush 等)只在确定没有发出时重试;cache-aside 加载、batch 和 xxxWithRetry 直接交给被包装的客户端。
+ * 重试在调用线程上等待退避时间(毫秒级),不希望占用调用线程时使用 {@link RetryingAsyncCacheClient}。
+ */
+public class RetryingCacheClient extends ForwardingCacheClient {
+
+    /**直接交给被包装的客户端、不重试的命令*/
+    static final Set<CacheCommand> PASS_THROUGH = Collections.unmodifiableSet(EnumSet.of(
+            CacheCommand.SET_EXPIRE_WITH_RETRY, CacheCommand.SET_WITH_RETRY, CacheCommand.DEL_WITH_RETRY,
+            CacheCommand.EXPIRE_WITH_RETRY, CacheCommand.GET_WITH_RETRY, CacheCommand.GET_LOADER,
+            CacheCommand.GET_REFRESH_AHEAD, CacheCommand.BATCH));
+
+    private final Retryer retryer;
+
+    public RetryingCacheClient(AbstractCacheClient delegate, CacheConfig config) {
+        this(delegate, Retryer.of(config));
+    }
+
+    public RetryingCacheClient(AbstractCacheClient delegate, Retryer retryer) {
+        super(delegate);
+        this.retryer = retryer;
+    }
+
+    public Retryer getRetryer() {
+        return retryer;
+    }
+
+    @Override
+    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+        return PASS_THROUGH.contains(command) ? call.get() : retryer.call(command.getName(), call);
+    }
+}
@@ -0,0 +1,298 @@
+package com.nonobank.architecture.cache.scan;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.enumeration.CacheEnvironment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大 key 与内存分析,作为 {@link KeySink} 接收 {@link KeyScanner} 的结果(需要 scanProbeSize)
+ * 统计内容:
+ * 估算内存最大的 bigKeyTopN 个 key,以及每种集合类型元素最多的 bigKeyTopN 个 key,用固定大小的最小堆维护;
+ * 按 {@link CacheEnvironment} 前缀(key 中第一个 : 之前)分组的 key 个数和估算内存,不是已知环境的归入 other;
+ * 按二级前缀(前两段)的估算内存排行,前缀个数不受限制,用容量为 4 * bigKeyPrefixTopN 的 {@link SpaceSaving} 近似统计;
+ * 按剩余时间分区间的 TTL 分布。
+ * 内存占用只与上述参数有关,与 key 的数量无关。估算内存 = key 长度 + 固定开销 + 字符串长度或元素个数 * bigKeyElementBytes,
+ * 只用于比较大小,不等于 redis 的实际内存。scanSampleRate 小于 1 时分组统计按抽样比例放大。
+ */
+public class KeyAnalyzer implements KeySink {
+
+    /**每个 key 的固定开销估算:dictEntry、redisObject、过期字典等*/
+    static final long KEY_OVERHEAD_BYTES = 64;
+
+    static final String OTHER = "other";
+
+    static final String NO_PREFIX = "(no prefix)";
+
+    private static final String[] TTL_BUCKETS = {"no expiry", "< 1m", "1m - 1h", "1h - 1d", "1d - 7d", "7d - 30d", ">= 30d"};
+
+    private static final long[] TTL_BOUNDS = {TimeUnit.MINUTES.toSeconds(1), TimeUnit.HOURS.toSeconds(1),
+            TimeUnit.DAYS.toSeconds(1), TimeUnit.DAYS.toSeconds(7), TimeUnit.DAYS.toSeconds(30)};
+
+    private static final Set<String> ENVIRONMENTS = new HashSet<>();
+
+    static {
+        for (CacheEnvironment environment : CacheEnvironment.values()) {
+            ENVIRONMENTS.add(environment.value());
+        }
+    }
+
+    private final int topN;
+
+    private final int prefixTopN;
+
+    private final long elementBytes;
+
+    private final double sampleRate;
+
+    private final PriorityQueue<Ranked> biggest;
+
+    private final Map<String, PriorityQueue<Ranked>> longest = new TreeMap<>();
+
+    private final Map<String, long[]> environments = new TreeMap<>();
+
+    private final SpaceSaving prefixes;
+
+    private final long[][] ttls = new long[TTL_BUCKETS.length][2];
+
+    private long keys;
+
+    private long estimatedBytes;
+
+    public KeyAnalyzer(CacheConfig config) {
+        this.topN = Math.max(1, config.getBigKeyTopN());
+        this.prefixTopN = Math.max(1, config.getBigKeyPrefixTopN());
+        this.elementBytes = Math.max(1, config.getBigKeyElementBytes());
+        this.sampleRate = Math.min(1, Math.max(Double.MIN_VALUE, config.getScanSampleRate()));
+        this.biggest = new PriorityQueue<>(topN + 1, Ranked.ORDER);
+        this.prefixes = new SpaceSaving(prefixTopN * 4);
+    }
+
+    @Override
+    public synchronized void accept(ScannedKey key) throws IOException {
+        long bytes = estimateBytes(key);
+        keys++;
+        estimatedBytes += bytes;
+        offer(biggest, new Ranked(key, bytes));
+        if (!"string".equals(key.getType())) {
+            offer(longest.computeIfAbsent(key.getType(), t -> new PriorityQueue<>(topN + 1, Ranked.ORDER)),
+                    new Ranked(key, key.getSize()));
+        }
+        long[] environment = environments.computeIfAbsent(environment(key.getKey()), e -> new long[2]);
+        environment[0]++;
+        environment[1] += bytes;
+        prefixes.add(prefix(key.getKey()), 1, bytes);
+        long[] ttl = ttls[ttlBucket(key.getTtl())];
+        ttl[0]++;
+        ttl[1] += bytes;
+    }
+
+    private void offer(PriorityQueue<Ranked> heap, Ranked ranked) {
+        if (heap.size() < topN) {
+            heap.add(ranked);
+        } else if (ranked.rank > heap.peek().rank) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * @return 估算的内存字节数,未探测长度时只计 key 本身
+     */
+    public long estimateBytes(ScannedKey key) {
+        long bytes = KEY_OVERHEAD_BYTES + key.getKey().getBytes(StandardCharsets.UTF_8).length;
+        if (key.getSize() <= 0) {
+            return bytes;
+        }
+        return bytes + ("string".equals(key.getType()) ? key.getSize() : key.getSize() * elementBytes);
+    }
+
+    static String environment(String key) {
+        int colon = key.indexOf(':');
+        String prefix = colon < 0 ? null : key.substring(0, colon);
+        return prefix != null && ENVIRONMENTS.contains(prefix) ? prefix : OTHER;
+    }
+
+    /**
+     * @return key 的前两段,如 user:order:123 为 user:order;只有一段时为第一个 : 之前的部分
+     */
+    static String prefix(String key) {
+        int first = key.indexOf(':');
+        if (first < 0) {
+            return NO_PREFIX;
+        }
+        int second = key.indexOf(':', first + 1);
+        return second < 0 ? key.substring(0, first) : key.substring(0, second);
+    }
+
+    static int ttlBucket(long ttl) {
+        if (ttl < 0) {
+            return 0;
+        }
+        for (int i = 0; i < TTL_BOUNDS.length; i++) {
+            if (ttl < TTL_BOUNDS[i]) {
+                return i + 1;
+            }
+        }
+        return TTL_BUCKETS.length - 1;
+    }
+
+    private long scale(long value) {
+        return sampleRate >= 1 ? value : Math.round(value / sampleRate);
+    }
+
+    /**
+     * @return 估算内存最大的 key,从大到小
+     */
+    public synchronized List<ScannedKey> getBiggestKeys() {
+        return sorted(biggest);
+    }
+
+    /**
+     * @return 每种集合类型元素最多的 key,从多到少
+     */
+    public synchronized Map<String, List<ScannedKey>> getLongestKeys() {
+        Map<String, List<ScannedKey>> result = new TreeMap<>();
+        for (Map.Entry<String, PriorityQueue<Ranked>> entry : longest.entrySet()) {
+            result.put(entry.getKey(), sorted(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static List<ScannedKey> sorted(PriorityQueue<Ranked> heap) {
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(Ranked.ORDER.reversed());
+        List<ScannedKey> keys = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            keys.add(r.key);
+        }
+        return keys;
+    }
+
+    /**
+     * @return 按环境分组的统计,按估算内存从大到小
+     */
+    public synchronized List<KeyGroupStats> getEnvironments() {
+        List<KeyGroupStats> stats = new ArrayList<>(environments.size());
+        for (Map.Entry<String, long[]> entry : environments.entrySet()) {
+            stats.add(new KeyGroupStats(entry.getKey(), scale(entry.getValue()[0]), scale(entry.getValue()[1])));
+        }
+        stats.sort(Comparator.comparingLong(KeyGroupStats::getEstimatedBytes).reversed());
+        return stats;
+    }
+
+    /**
+     * @return 估算内存最大的 bigKeyPrefixTopN 个二级前缀,近似值:估算内存偏大,key 个数偏小
+     */
+    public synchronized List<KeyGroupStats> getPrefixes() {
+        List<KeyGroupStats> stats = new ArrayList<>(prefixTopN);
+        for (SpaceSaving.Counter counter : prefixes.top(prefixTopN)) {
+            stats.add(new KeyGroupStats(counter.item, scale(counter.count), scale(counter.weight)));
+        }
+        return stats;
+    }
+
+    /**
+     * @return TTL 分布,按剩余时间从短到长,第一项为没有过期时间的 key
+     */
+    public synchronized List<KeyGroupStats> getTtlDistribution() {
+        List<KeyGroupStats> stats = new ArrayList<>(TTL_BUCKETS.length);
+        for (int i = 0; i < TTL_BUCKETS.length; i++) {
+            stats.add(new KeyGroupStats(TTL_BUCKETS[i], scale(ttls[i][0]), scale(ttls[i][1])));
+        }
+        return stats;
+    }
+
+    public synchronized long getKeys() {
+        return scale(keys);
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return scale(estimatedBytes);
+    }
+
+    /**
+     * @return 文本报告
+     */
+    public synchronized String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("keys: %d, estimated bytes: %d, sample rate: %s%n", getKeys(), getEstimatedBytes(), sampleRate));
+        out.append(String.format("%n-- top %d keys by estimated bytes --%n", topN));
+        for (ScannedKey key : getBiggestKeys()) {
+            out.append(String.format("%12d  %-6s %10d  ttl %-8d %s  %s%n", estimateBytes(key), key.getType(), key.getSize(),
+                    key.getTtl(), key.getNode(), key.getKey()));
+        }
+        for (Map.Entry<String, List<ScannedKey>> entry : getLongestKeys().entrySet()) {
+            out.append(String.format("%n-- top %d %s keys by elements --%n", topN, entry.getKey()));
+            for (ScannedKey key : entry.getValue()) {
+                out.append(String.format("%12d  ttl %-8d %s  %s%n", key.getSize(), key.getTtl(), key.getNode(), key.getKey()));
+            }
+        }
+        group(out, "environments", getEnvironments());
+        group(out, "top " + prefixTopN + " prefixes (approximate)", getPrefixes());
+        group(out, "ttl distribution", getTtlDistribution());
+        return out.toString();
+    }
+
+    private void group(StringBuilder out, String title, List<KeyGroupStats> stats) {
+        out.append(String.format("%n-- %s --%n", title));
+        long total = Math.max(1, getEstimatedBytes());
+        for (KeyGroupStats stat : stats) {
+            out.append(String.format("%-32s %12d keys %16d bytes %6.2f%%%n", stat.getName(), stat.getKeys(),
+                    stat.getEstimatedBytes(), stat.getEstimatedBytes() * 100.0 / total));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+
+    /**
+     * 命令行入口:KeyAnalyzer host:port[,host:port...] [sampleRate] [match]
+     * 分析结果只在内存中,不使用检查点,中断后需要重新扫描
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: KeyAnalyzer host:port[,host:port...] [sampleRate] [match]");
+            return;
+        }
+        CacheConfig config = new CacheConfig();
+        config.setScanProbeSize(true);
+        if (args.length > 1) {
+            config.setScanSampleRate(Double.parseDouble(args[1]));
+        }
+        KeyScanner scanner = new KeyScanner(config, Arrays.asList(args[0].split(",")));
+        if (args.length > 2) {
+            scanner.setMatch(args[2]);
+        }
+        KeyAnalyzer analyzer = new KeyAnalyzer(config);
+        System.out.println(scanner.scan(analyzer));
+        System.out.println(analyzer.report());
+    }
+
+    private static final class Ranked {
+
+        static final Comparator<Ranked> ORDER = Comparator.comparingLong(r -> r.rank);
+
+        final ScannedKey key;
+
+        final long rank;
+
+        Ranked(ScannedKey key, long rank) {
+            this.key = key;
+            this.rank = rank;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 把扫描结果追加写入一个文件,所有扫描线程共用一个 FileChannel 和固定大小的缓冲,内存占用与 key 的数量无关
+ * 每行一个 key,字段以 tab 分隔:key、type、ttl、size;keysOnly 为 true 时只写 key。
+ * key 中的 \、tab、换行分别写为 \\、\t、\n,用 {@link #unescape(String)} 还原。
+ */
+public class KeyFileWriter implements KeySink {
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final boolean keysOnly;
+
+    private long lines;
+
+    public KeyFileWriter(Path path, int bufferSize, boolean keysOnly) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+        this.keysOnly = keysOnly;
+    }
+
+    @Override
+    public synchronized void accept(ScannedKey key) throws IOException {
+        line.setLength(0);
+        escape(key.getKey(), line);
+        if (!keysOnly) {
+            line.append('\t').append(key.getType()).append('\t').append(key.getTtl()).append('\t').append(key.getSize());
+        }
+        line.append('\n');
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            break;
+        }
+        lines++;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 写出缓冲并同步到磁盘
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    /**
+     * @return 已写入的行数
+     */
+    public synchronized long getLines() {
+        return lines;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static void escape(String key, StringBuilder out) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    public static String unescape(String key) {
+        if (key.indexOf('\\') < 0) {
+            return key;
+        }
+        StringBuilder out = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '\\' && i + 1 < key.length()) {
+                char next = key.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 一组 key(前缀、环境或 TTL 区间)的个数和估算内存,抽样扫描时已按抽样比例折算
+ */
+public final class KeyGroupStats {
+
+    private final String name;
+
+    private final long keys;
+
+    private final long estimatedBytes;
+
+    @ConstructorProperties({"name", "keys", "estimatedBytes"})
+    public KeyGroupStats(String name, long keys, long estimatedBytes) {
+        this.name = name;
+        this.keys = keys;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getKeys() {
+        return keys;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{keys=" + keys + ", estimatedBytes=" + estimatedBytes + "}";
+    }
+}
@@ -0,0 +1,311 @@
+package com.nonobank.architecture.cache.scan;
+
+import com.nonobank.architecture.cache.CacheConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 并行扫描多个 codis server(redis 实例)的全部 key
+ * 每个节点一个连接,按 scanCount 分页 SCAN,每页的 TYPE、TTL 用一次 pipeline 查询,
+ * scanProbeSize 为 true 时再用一次 pipeline 按类型查询长度;同时扫描的节点数为 scanParallelism。
+ * scanSampleRate 小于 1 时每页只探测按该比例随机抽中的 key,{@link ScanSummary#getScanned()} 仍为扫描到的全部 key 数。
+ * 结果经过滤后交给 {@link KeySink},每隔 scanCheckpointIntervalMillis 先 flush 结果再保存各节点的游标,
+ * 中断后用同一个检查点文件再次运行时从保存的游标继续;出错的节点不影响其他节点,游标同样保留。
+ * 扫描期间被删除的 key(TYPE 为 none)不输出。
+ * <pre>
+ * java com.nonobank.architecture.cache.scan.KeyScanner output.txt host1:6379,host2:6379 [match]
+ * </pre>
+ */
+public class KeyScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyScanner.class);
+
+    private static final String NONE = "none";
+
+    private final CacheConfig config;
+
+    private final List<HostAndPort> nodes;
+
+    private String match = "*";
+
+    private Predicate<ScannedKey> filter = key -> true;
+
+    private ScanCheckpoint checkpoint;
+
+    private volatile boolean stopped;
+
+    private final AtomicLong pages = new AtomicLong();
+
+    private final AtomicLong scanned = new AtomicLong();
+
+    private final AtomicLong accepted = new AtomicLong();
+
+    private final Object saveLock = new Object();
+
+    private volatile long lastSave;
+
+    /**
+     * @param nodes codis server 的 host:port
+     */
+    public KeyScanner(CacheConfig config, List<String> nodes) {
+        this.config = config;
+        this.nodes = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            String[] addr = node.trim().split(":", 2);
+            if (addr.length != 2) {
+                throw new IllegalArgumentException("invalid node address: " + node);
+            }
+            this.nodes.add(new HostAndPort(addr[0], Integer.parseInt(addr[1])));
+        }
+    }
+
+    /**
+     * SCAN 的 MATCH 模式,默认 *
+     */
+    public KeyScanner setMatch(String match) {
+        this.match = match;
+        return this;
+    }
+
+    /**
+     * 只有满足条件的 key 交给 {@link KeySink}
+     */
+    public KeyScanner setFilter(Predicate<ScannedKey> filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    public KeyScanner setCheckpoint(ScanCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * 中止扫描,各节点完成当前页后保存检查点并退出
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * 扫描所有节点,阻塞到全部完成、出错或被中止
+     */
+    public ScanSummary scan(KeySink sink) throws IOException {
+        long start = System.currentTimeMillis();
+        if (checkpoint == null) {
+            checkpoint = new ScanCheckpoint(null);
+        }
+        pages.set(0);
+        scanned.set(0);
+        accepted.set(0);
+        lastSave = start;
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(config.getScanParallelism(), nodes.size())), r -> {
+            Thread thread = new Thread(r, "key-scanner-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(nodes.size());
+            for (HostAndPort node : nodes) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        scanNode(node, sink);
+                    } catch (Exception e) {
+                        failed.add(node.toString());
+                        log.info("scan node error, node:" + node + ", cursor:" + checkpoint.getCursor(node.toString()) + ", " + e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            save(sink);
+        }
+        ScanSummary summary = new ScanSummary(nodes.size(), new ArrayList<>(failed), pages.get(), scanned.get(), accepted.get(),
+                System.currentTimeMillis() - start, stopped);
+        log.info("scan finished, " + summary);
+        return summary;
+    }
+
+    private void scanNode(HostAndPort node, KeySink sink) throws IOException {
+        String name = node.toString();
+        if (checkpoint.isDone(name)) {
+            log.info("scan node skipped, already done in checkpoint, node:" + name);
+            return;
+        }
+        String cursor = checkpoint.getCursor(name);
+        log.info("scan node start, node:" + name + ", cursor:" + cursor);
+        ScanParams params = new ScanParams().match(match).count(config.getScanCount());
+        try (Jedis jedis = new Jedis(node.getHost(), node.getPort(), config.getScanTimeoutMillis())) {
+            do {
+                ScanResult<String> page = jedis.scan(cursor, params);
+                List<String> keys = page.getResult();
+                for (ScannedKey key : probe(jedis, name, sample(keys))) {
+                    if (filter.test(key)) {
+                        sink.accept(key);
+                        accepted.incrementAndGet();
+                    }
+                }
+                scanned.addAndGet(keys.size());
+                pages.incrementAndGet();
+                cursor = page.getStringCursor();
+                checkpoint.update(name, cursor);
+                if (System.currentTimeMillis() - lastSave >= config.getScanCheckpointIntervalMillis()) {
+                    save(sink);
+                }
+            } while (!"0".equals(cursor) && !stopped);
+        }
+        log.info("scan node " + ("0".equals(cursor) ? "done" : "stopped") + ", node:" + name + ", cursor:" + cursor);
+    }
+
+    private List<String> sample(List<String> keys) {
+        double rate = config.getScanSampleRate();
+        if (rate >= 1) {
+            return keys;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> sampled = new ArrayList<>((int) (keys.size() * rate) + 1);
+        for (String key : keys) {
+            if (random.nextDouble() < rate) {
+                sampled.add(key);
+            }
+        }
+        return sampled;
+    }
+
+    /**
+     * 一次 pipeline 查询 TYPE 和 TTL,需要时再按类型用一次 pipeline 查询长度
+     */
+    private List<ScannedKey> probe(Jedis jedis, String node, List<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<String>> types = new ArrayList<>(keys.size());
+        List<Response<Long>> ttls = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            types.add(pipeline.type(key));
+            ttls.add(pipeline.ttl(key));
+        }
+        pipeline.sync();
+        List<Response<Long>> sizes = null;
+        if (config.getScanProbeSize()) {
+            pipeline = jedis.pipelined();
+            sizes = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                sizes.add(size(pipeline, types.get(i).get(), keys.get(i)));
+            }
+            pipeline.sync();
+        }
+        List<ScannedKey> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String type = types.get(i).get();
+            if (NONE.equals(type)) {
+                continue;
+            }
+            Response<Long> size = sizes == null ? null : sizes.get(i);
+            result.add(new ScannedKey(node, keys.get(i), type, ttls.get(i).get(),
+                    size == null ? ScannedKey.UNKNOWN_SIZE : size.get()));
+        }
+        return result;
+    }
+
+    private static Response<Long> size(Pipeline pipeline, String type, String key) {
+        switch (type) {
+            case "string":
+                return pipeline.strlen(key);
+            case "hash":
+                return pipeline.hlen(key);
+            case "list":
+                return pipeline.llen(key);
+            case "set":
+                return pipeline.scard(key);
+            case "zset":
+                return pipeline.zcard(key);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 先取游标快照再 flush 结果,快照中每个游标之前的结果都已持久化
+     */
+    private void save(KeySink sink) throws IOException {
+        synchronized (saveLock) {
+            Map<String, String> snapshot = checkpoint.snapshot();
+            sink.flush();
+            checkpoint.save(snapshot);
+            lastSave = System.currentTimeMillis();
+        }
+    }
+
+    public long getScanned() {
+        return scanned.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * 命令行入口:KeyScanner output host:port[,host:port...] [match]
+     * 输出每行 key、type、ttl、size,检查点文件为 output.checkpoint
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: KeyScanner output host:port[,host:port...] [match]");
+            return;
+        }
+        CacheConfig config = new CacheConfig();
+        Path output = Paths.get(args[0]);
+        KeyScanner scanner = new KeyScanner(config, Arrays.asList(args[1].split(",")))
+                .setCheckpoint(new ScanCheckpoint(Paths.get(args[0] + ".checkpoint")));
+        if (args.length > 2) {
+            scanner.setMatch(args[2]);
+        }
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scanner.stop();
+            try {
+                main.join(60000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try (KeyFileWriter writer = new KeyFileWriter(output, config.getScanOutputBufferSize(), false)) {
+            System.out.println(scanner.scan(writer));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 接收 {@link KeyScanner} 的扫描结果,多个节点的扫描线程会并发调用
+ */
+public interface KeySink extends Closeable {
+
+    void accept(ScannedKey key) throws IOException;
+
+    /**
+     * 把已接收的结果持久化,扫描器在保存检查点之前调用,保证检查点之前的结果不会丢失
+     */
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+        flush();
+    }
+}
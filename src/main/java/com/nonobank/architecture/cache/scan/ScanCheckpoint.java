@@ -0,0 +1,98 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 每个节点的 SCAN 游标,保存到 properties 文件,扫描中断后从保存的游标继续
+ * 文件先写到临时文件再原子替换,进程在写入过程中退出不会损坏已有的检查点。
+ * 检查点之后、下一次保存之前输出的结果在恢复时会重复输出一次(至少一次)。
+ * 所有节点完成后文件仍然保留,再次运行不会重复扫描,需要重新扫描时删除该文件。
+ */
+public class ScanCheckpoint {
+
+    /**已完成节点的游标值*/
+    static final String DONE = "done";
+
+    private static final String START = "0";
+
+    private final Path path;
+
+    private final Map<String, String> cursors = new HashMap<>();
+
+    /**
+     * @param path 检查点文件,为 null 时只保存在内存中;文件存在时读取其中的游标
+     */
+    public ScanCheckpoint(Path path) throws IOException {
+        this.path = path;
+        if (path != null && Files.exists(path)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+            }
+            for (String node : properties.stringPropertyNames()) {
+                cursors.put(node, properties.getProperty(node));
+            }
+        }
+    }
+
+    /**
+     * @return 节点的游标,没有记录时为 "0"
+     */
+    public synchronized String getCursor(String node) {
+        String cursor = cursors.get(node);
+        return cursor == null || DONE.equals(cursor) ? START : cursor;
+    }
+
+    public synchronized boolean isDone(String node) {
+        return DONE.equals(cursors.get(node));
+    }
+
+    /**
+     * 记录节点下一页的游标,"0" 表示节点已完成
+     */
+    public synchronized void update(String node, String cursor) {
+        cursors.put(node, START.equals(cursor) ? DONE : cursor);
+    }
+
+    public synchronized Map<String, String> snapshot() {
+        return new HashMap<>(cursors);
+    }
+
+    /**
+     * 把快照写入文件,调用者应先持久化快照之前的所有结果
+     */
+    public void save(Map<String, String> snapshot) throws IOException {
+        if (path == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.putAll(snapshot);
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "scan cursors, node=cursor");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ScanCheckpoint" + cursors;
+    }
+}
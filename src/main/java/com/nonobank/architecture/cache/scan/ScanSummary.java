@@ -0,0 +1,86 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.util.List;
+
+/**
+ * 一次扫描的汇总
+ */
+public final class ScanSummary {
+
+    private final int nodes;
+
+    private final List<String> failedNodes;
+
+    private final long pages;
+
+    private final long scanned;
+
+    private final long accepted;
+
+    private final long elapsedMillis;
+
+    private final boolean stopped;
+
+    ScanSummary(int nodes, List<String> failedNodes, long pages, long scanned, long accepted, long elapsedMillis, boolean stopped) {
+        this.nodes = nodes;
+        this.failedNodes = failedNodes;
+        this.pages = pages;
+        this.scanned = scanned;
+        this.accepted = accepted;
+        this.elapsedMillis = elapsedMillis;
+        this.stopped = stopped;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return 出错的节点,游标保留在检查点中,再次运行时从中断处继续
+     */
+    public List<String> getFailedNodes() {
+        return failedNodes;
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    /**
+     * @return 本次扫描到的 key 数
+     */
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @return 通过过滤条件、交给 {@link KeySink} 的 key 数
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return 是否被 {@link KeyScanner#stop()} 中止
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return 所有节点都已扫描完成
+     */
+    public boolean isComplete() {
+        return !stopped && failedNodes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ScanSummary{nodes=" + nodes + ", failedNodes=" + failedNodes + ", pages=" + pages + ", scanned=" + scanned
+                + ", accepted=" + accepted + ", elapsedMillis=" + elapsedMillis + ", stopped=" + stopped + "}";
+    }
+}
@@ -0,0 +1,65 @@
+package com.nonobank.architecture.cache.scan;
+
+/**
+ * 扫描到的一个 key 及其探测结果
+ */
+public final class ScannedKey {
+
+    /**未探测长度*/
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final String node;
+
+    private final String key;
+
+    private final String type;
+
+    private final long ttl;
+
+    private final long size;
+
+    public ScannedKey(String node, String key, String type, long ttl, long size) {
+        this.node = node;
+        this.key = key;
+        this.type = type;
+        this.ttl = ttl;
+        this.size = size;
+    }
+
+    /**
+     * @return 所在节点的 host:port
+     */
+    public String getNode() {
+        return node;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return string、hash、list、set、zset
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return 剩余秒数,-1 表示没有过期时间
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return 字符串的字节数或集合的元素个数,未探测时为 {@link #UNKNOWN_SIZE}
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ScannedKey{node=" + node + ", key=" + key + ", type=" + type + ", ttl=" + ttl + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,71 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带权重的 Space-Saving 算法,在固定个数的计数器中跟踪权重最大的项
+ * 计数器满时新项替换权重最小的计数器并继承其权重,权重偏大,偏差不超过记录的 error;
+ * 次数不继承,只计开始跟踪之后的次数,偏小。权重大于总权重 / capacity 的项一定在计数器中。非线程安全。
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+
+    private final Map<String, Counter> counters;
+
+    SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    void add(String item, long count, long weight) {
+        Counter counter = counters.get(item);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(item, 0);
+            } else {
+                Counter min = null;
+                for (Counter candidate : counters.values()) {
+                    if (min == null || candidate.weight < min.weight) {
+                        min = candidate;
+                    }
+                }
+                counters.remove(min.item);
+                counter = new Counter(item, min.weight);
+            }
+            counters.put(item, counter);
+        }
+        counter.count += count;
+        counter.weight += weight;
+    }
+
+    /**
+     * @return 按权重从大到小排列的前 n 项
+     */
+    List<Counter> top(int n) {
+        List<Counter> top = new ArrayList<>(counters.values());
+        top.sort((a, b) -> Long.compare(b.weight, a.weight));
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    static final class Counter {
+
+        final String item;
+
+        /**替换时继承的权重,即估计值的最大偏差*/
+        final long error;
+
+        long count;
+
+        long weight;
+
+        Counter(String item, long error) {
+            this.item = item;
+            this.error = error;
+            this.weight = error;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.nonobank.architecture.cache.scan;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.nonobank.architecture.cache.AbstractCacheClient;
+import com.nonobank.architecture.cache.CacheClient;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.CacheScripts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为没有过期时间的 key 批量补齐 TTL
+ * key 来自 {@link KeyScanner} 的结果文件({@link #run(Path, ScanCheckpoint)},按文件偏移量保存检查点),
+ * 或者作为 {@link KeySink} 直接接收扫描结果(使用扫描器的检查点)。key 按 backfillRules 中最长的匹配前缀选择规则,
+ * 没有匹配规则的 key 不处理。每 backfillBatchSize 个 key 经过 proxy 用一次 pipeline 重新查询 TTL,
+ * 仍为 -1 的 key 再用一次 pipeline 执行 {@link CacheScripts#EXPIRE_IF_PERSISTENT},过期时间带随机抖动。
+ * 处理速率不超过 backfillKeysPerSecond,一批 pipeline 超过 backfillSlowBatchMillis 时速率减半,之后每批恢复 10%,
+ * 避免影响线上请求的延迟。backfillDryRun 为 true(默认)时只查询和统计,不执行 expire。
+ */
+public class TtlBackfill implements KeySink {
+
+    private static final Logger log = LoggerFactory.getLogger(TtlBackfill.class);
+
+    private static final double MIN_KEYS_PER_SECOND = 100;
+
+    private final AbstractCacheClient client;
+
+    private final CacheConfig config;
+
+    private final List<TtlRule> rules;
+
+    private final boolean dryRun;
+
+    private final int batchSize;
+
+    private final double maxRate;
+
+    private final RateLimiter limiter;
+
+    private final List<String> pending = new ArrayList<>();
+
+    private final List<TtlRule> pendingRules = new ArrayList<>();
+
+    private final Map<String, Long> updatedByRule = new TreeMap<>();
+
+    private volatile boolean stopped;
+
+    private long seen;
+
+    private long unmatched;
+
+    private long skipped;
+
+    private long updated;
+
+    private long failed;
+
+    public TtlBackfill(AbstractCacheClient client, CacheConfig config) {
+        this.client = client;
+        this.config = config;
+        this.rules = TtlRule.parse(config.getBackfillRules());
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("backfillRules is empty");
+        }
+        rules.sort((a, b) -> Integer.compare(b.getPrefix().length(), a.getPrefix().length()));
+        this.dryRun = config.getBackfillDryRun();
+        this.batchSize = Math.max(1, config.getBackfillBatchSize());
+        this.maxRate = Math.max(MIN_KEYS_PER_SECOND, config.getBackfillKeysPerSecond());
+        this.limiter = RateLimiter.create(maxRate);
+    }
+
+    /**
+     * 接收扫描结果,已有过期时间的 key 忽略
+     */
+    @Override
+    public void accept(ScannedKey key) throws IOException {
+        if (key.getTtl() == -1) {
+            add(key.getKey());
+        }
+    }
+
+    /**
+     * 加入一个 key,凑满一批时立即处理
+     */
+    public synchronized void add(String key) {
+        seen++;
+        TtlRule rule = rule(key);
+        if (rule == null) {
+            unmatched++;
+            return;
+        }
+        pending.add(key);
+        pendingRules.add(rule);
+        if (pending.size() >= batchSize) {
+            process();
+        }
+    }
+
+    private TtlRule rule(String key) {
+        for (TtlRule rule : rules) {
+            if (rule.matches(key)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 处理不足一批的剩余 key
+     */
+    @Override
+    public synchronized void flush() {
+        if (!pending.isEmpty()) {
+            process();
+        }
+    }
+
+    /**guarded by this*/
+    private void process() {
+        List<String> keys = new ArrayList<>(pending);
+        List<TtlRule> keyRules = new ArrayList<>(pendingRules);
+        pending.clear();
+        pendingRules.clear();
+        limiter.acquire(keys.size());
+        long begin = System.nanoTime();
+        List<Object> ttls = client.batch(batch -> {
+            for (String key : keys) {
+                batch.ttl(key);
+            }
+        });
+        long slowest = System.nanoTime() - begin;
+        List<Integer> targets = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Object ttl = ttls.get(i);
+            if (ttl instanceof Long && (Long) ttl == -1) {
+                targets.add(i);
+            } else if (ttl instanceof Exception) {
+                failed++;
+            } else {
+                skipped++;
+            }
+        }
+        if (dryRun) {
+            for (int i : targets) {
+                updated(keyRules.get(i));
+            }
+        } else if (!targets.isEmpty()) {
+            begin = System.nanoTime();
+            List<Object> results = client.batch(batch -> {
+                for (int i : targets) {
+                    batch.eval(CacheScripts.EXPIRE_IF_PERSISTENT, Collections.singletonList(keys.get(i)),
+                            Collections.singletonList(String.valueOf(keyRules.get(i).nextTtlSeconds())));
+                }
+            });
+            slowest = Math.max(slowest, System.nanoTime() - begin);
+            for (int j = 0; j < targets.size(); j++) {
+                Object result = results.get(j);
+                if (result instanceof Exception) {
+                    failed++;
+                } else if (CacheScripts.toLong(result) == 1) {
+                    updated(keyRules.get(targets.get(j)));
+                } else {
+                    skipped++;
+                }
+            }
+        }
+        adjustRate(TimeUnit.NANOSECONDS.toMillis(slowest));
+    }
+
+    private void updated(TtlRule rule) {
+        updated++;
+        updatedByRule.merge(rule.toString(), 1L, Long::sum);
+    }
+
+    private void adjustRate(long batchMillis) {
+        double rate = limiter.getRate();
+        double next = batchMillis > config.getBackfillSlowBatchMillis()
+                ? Math.max(MIN_KEYS_PER_SECOND, rate / 2) : Math.min(maxRate, rate * 1.1);
+        if (next != rate) {
+            if (next < rate) {
+                log.info("ttl backfill slowed down, batch millis:" + batchMillis + ", keys per second:" + (long) next);
+            }
+            limiter.setRate(next);
+        }
+    }
+
+    /**
+     * 处理 {@link KeyScanner} 的结果文件(每行第一列为 key),从检查点中记录的偏移量继续
+     * 每处理完一批后记录偏移量,每隔 scanCheckpointIntervalMillis 保存一次
+     */
+    public void run(Path input, ScanCheckpoint checkpoint) throws IOException {
+        String name = "file:" + input.toAbsolutePath();
+        if (checkpoint.isDone(name)) {
+            log.info("ttl backfill skipped, already done in checkpoint, input:" + input);
+            return;
+        }
+        long offset = Long.parseLong(checkpoint.getCursor(name));
+        log.info("ttl backfill start, input:" + input + ", offset:" + offset + ", dryRun:" + dryRun + ", rules:" + rules);
+        long lastSave = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            channel.position(offset);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), config.getScanOutputBufferSize());
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            int b;
+            while (!stopped) {
+                b = in.read();
+                if (b >= 0) {
+                    offset++;
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                }
+                if (line.size() > 0) {
+                    String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    int tab = text.indexOf('\t');
+                    add(KeyFileWriter.unescape(tab < 0 ? text : text.substring(0, tab)));
+                    line.reset();
+                }
+                if (b < 0) {
+                    flush();
+                    checkpoint.update(name, "0");
+                    break;
+                }
+                if (isIdle()) {
+                    checkpoint.update(name, String.valueOf(offset));
+                    if (System.currentTimeMillis() - lastSave >= config.getScanCheckpointIntervalMillis()) {
+                        checkpoint.save(checkpoint.snapshot());
+                        lastSave = System.currentTimeMillis();
+                    }
+                }
+            }
+        } finally {
+            checkpoint.save(checkpoint.snapshot());
+        }
+        log.info("ttl backfill " + (stopped ? "stopped" : "finished") + ", input:" + input + ", offset:" + offset + ", " + this);
+    }
+
+    /**
+     * @return 已接收的 key 都已处理
+     */
+    private synchronized boolean isIdle() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * 中止 {@link #run(Path, ScanCheckpoint)},未处理的 key 下次从检查点继续
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public synchronized long getSeen() {
+        return seen;
+    }
+
+    /**
+     * @return 没有匹配规则的 key 数
+     */
+    public synchronized long getUnmatched() {
+        return unmatched;
+    }
+
+    /**
+     * @return 处理时已有过期时间或已被删除的 key 数
+     */
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return 设置了过期时间的 key 数,dry run 时为将要设置的 key 数
+     */
+    public synchronized long getUpdated() {
+        return updated;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    public synchronized Map<String, Long> getUpdatedByRule() {
+        return new TreeMap<>(updatedByRule);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TtlBackfill{dryRun=" + dryRun + ", seen=" + seen + ", unmatched=" + unmatched + ", skipped=" + skipped
+                + ", updated=" + updated + ", failed=" + failed + ", updatedByRule=" + updatedByRule + "}";
+    }
+
+    /**
+     * 命令行入口:TtlBackfill rules input [--apply]
+     * input 为 {@link KeyScanner} 的结果文件,或逗号分隔的 codis server host:port(直接扫描);
+     * 检查点文件为 input.backfill.checkpoint(直接扫描时为 backfill.checkpoint);不带 --apply 时为 dry run。
+     * 通过 zookeeper 连接 proxy 执行 expire,zookeeper 配置为 {@link CacheConfig} 的默认值。
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: TtlBackfill prefix=seconds[~jitter][,...] input-file|host:port[,host:port...] [--apply]");
+            return;
+        }
+        CacheConfig config = new CacheConfig();
+        config.setBackfillRules(args[0]);
+        config.setBackfillDryRun(!(args.length > 2 && "--apply".equals(args[2])));
+        config.setScanProbeSize(false);
+        Path input = Paths.get(args[1]);
+        CacheClient client = new CacheClient(config);
+        try {
+            TtlBackfill backfill = new TtlBackfill(client, config);
+            if (Files.isRegularFile(input)) {
+                stopOnShutdown(backfill::stop);
+                backfill.run(input, new ScanCheckpoint(Paths.get(args[1] + ".backfill.checkpoint")));
+            } else {
+                KeyScanner scanner = new KeyScanner(config, Arrays.asList(args[1].split(",")))
+                        .setFilter(key -> key.getTtl() == -1)
+                        .setCheckpoint(new ScanCheckpoint(Paths.get("backfill.checkpoint")));
+                stopOnShutdown(scanner::stop);
+                System.out.println(scanner.scan(backfill));
+            }
+            System.out.println(backfill);
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * 进程退出时中止处理,并等待当前批次完成、检查点保存后再退出
+     */
+    private static void stopOnShutdown(Runnable stop) {
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop.run();
+            try {
+                main.join(60000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+}
@@ -0,0 +1,75 @@
+package com.nonobank.architecture.cache.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * TTL 补齐规则:以 prefix 开头的 key 设置 ttlSeconds 加上 [0, jitterSeconds] 内的随机秒数
+ * 抖动让同一批 key 的过期时间分散开,避免同一秒集中过期。
+ */
+public final class TtlRule {
+
+    private final String prefix;
+
+    private final int ttlSeconds;
+
+    private final int jitterSeconds;
+
+    public TtlRule(String prefix, int ttlSeconds, int jitterSeconds) {
+        if (ttlSeconds <= 0 || jitterSeconds < 0) {
+            throw new IllegalArgumentException("invalid ttl rule, prefix:" + prefix + ", ttl:" + ttlSeconds + ", jitter:" + jitterSeconds);
+        }
+        this.prefix = prefix;
+        this.ttlSeconds = ttlSeconds;
+        this.jitterSeconds = jitterSeconds;
+    }
+
+    /**
+     * 解析 backfillRules:逗号分隔的 prefix=秒数[~抖动秒数],如 user:session:=86400~3600,trd:=604800
+     */
+    public static List<TtlRule> parse(String rules) {
+        List<TtlRule> parsed = new ArrayList<>();
+        if (rules == null || rules.trim().isEmpty()) {
+            return parsed;
+        }
+        for (String rule : rules.split(",")) {
+            int eq = rule.lastIndexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("invalid ttl rule: " + rule);
+            }
+            String[] ttl = rule.substring(eq + 1).trim().split("~", 2);
+            parsed.add(new TtlRule(rule.substring(0, eq).trim(), Integer.parseInt(ttl[0].trim()),
+                    ttl.length > 1 ? Integer.parseInt(ttl[1].trim()) : 0));
+        }
+        return parsed;
+    }
+
+    public boolean matches(String key) {
+        return key.startsWith(prefix);
+    }
+
+    /**
+     * @return 本次使用的过期秒数,含随机抖动
+     */
+    public int nextTtlSeconds() {
+        return jitterSeconds == 0 ? ttlSeconds : ttlSeconds + ThreadLocalRandom.current().nextInt(jitterSeconds + 1);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public int getJitterSeconds() {
+        return jitterSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return prefix + "=" + ttlSeconds + (jitterSeconds > 0 ? "~" + jitterSeconds : "");
+    }
+}
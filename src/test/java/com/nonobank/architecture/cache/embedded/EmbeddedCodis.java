@@ -0,0 +1,130 @@
+package com.nonobank.architecture.cache.embedded;
+
+import com.nonobank.architecture.cache.CacheConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 进程内的 codis 集群:一个 {@link EmbeddedZooKeeper} 加若干个共享同一份数据的 {@link EmbeddedRespServer},
+ * 每个服务注册为 zkProxyDir 下的一个 proxy。{@link #newConfig()} 返回指向它的配置,
+ * 客户端经过与生产环境相同的 zookeeper 发现路径连接,不需要外部的 zookeeper 和 codis。
+ * <pre>
+ * try (EmbeddedCodis codis = new EmbeddedCodis(2)) {
+ *     CacheClient client = new CacheClient(codis.newConfig());
+ *     ...
+ * }
+ * </pre>
+ */
+public class EmbeddedCodis implements Closeable {
+
+    public static final String DEFAULT_PROXY_DIR = "/zk/codis/db_embedded/proxy";
+
+    private final String zkProxyDir;
+
+    private final EmbeddedZooKeeper zooKeeper;
+
+    private final EmbeddedDataStore store = new EmbeddedDataStore();
+
+    private final List<EmbeddedRespServer> proxies = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile long latencyMicros;
+
+    public EmbeddedCodis() throws IOException {
+        this(1);
+    }
+
+    public EmbeddedCodis(int proxyCount) throws IOException {
+        this(proxyCount, DEFAULT_PROXY_DIR);
+    }
+
+    public EmbeddedCodis(int proxyCount, String zkProxyDir) throws IOException {
+        this.zkProxyDir = zkProxyDir;
+        this.zooKeeper = new EmbeddedZooKeeper();
+        try {
+            for (int i = 0; i < proxyCount; i++) {
+                addProxy();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 启动并注册一个新的 proxy,已创建的客户端通过 zookeeper 通知发现它
+     */
+    public EmbeddedRespServer addProxy() throws IOException {
+        EmbeddedRespServer proxy = new EmbeddedRespServer(0, store);
+        proxy.setLatencyMicros(latencyMicros);
+        try {
+            zooKeeper.registerProxy(zkProxyDir, proxy.getAddress());
+        } catch (RuntimeException e) {
+            proxy.close();
+            throw e;
+        }
+        proxies.add(proxy);
+        return proxy;
+    }
+
+    /**
+     * 注销并关闭一个 proxy,模拟 proxy 下线
+     */
+    public void removeProxy(EmbeddedRespServer proxy) {
+        zooKeeper.unregisterProxy(zkProxyDir, proxy.getAddress());
+        proxies.remove(proxy);
+        proxy.close();
+    }
+
+    /**
+     * @return 连接本集群的配置,其他配置项为默认值
+     */
+    public CacheConfig newConfig() {
+        CacheConfig config = new CacheConfig();
+        config.setZkAddressAndPort(zooKeeper.getConnectString());
+        config.setZkProxyDir(zkProxyDir);
+        return config;
+    }
+
+    /**
+     * 设置所有 proxy(包括之后添加的)的回复延迟
+     */
+    public void setLatencyMicros(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+        synchronized (proxies) {
+            for (EmbeddedRespServer proxy : proxies) {
+                proxy.setLatencyMicros(latencyMicros);
+            }
+        }
+    }
+
+    public List<EmbeddedRespServer> getProxies() {
+        synchronized (proxies) {
+            return new ArrayList<>(proxies);
+        }
+    }
+
+    public EmbeddedZooKeeper getZooKeeper() {
+        return zooKeeper;
+    }
+
+    public EmbeddedDataStore getStore() {
+        return store;
+    }
+
+    public String getZkProxyDir() {
+        return zkProxyDir;
+    }
+
+    @Override
+    public void close() {
+        for (EmbeddedRespServer proxy : getProxies()) {
+            proxy.close();
+        }
+        proxies.clear();
+        zooKeeper.close();
+    }
+}
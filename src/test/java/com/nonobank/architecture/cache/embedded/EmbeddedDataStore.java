@@ -0,0 +1,1502 @@
+package com.nonobank.architecture.cache.embedded;
+
+import com.nonobank.architecture.cache.CacheScripts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 内存中的 redis 数据,实现 {@link com.nonobank.architecture.cache.AbstractCacheClient} 用到的命令
+ * 字符串、hash、list、set、zset,过期时间(访问时惰性删除),KEYS、SCAN、SORT(不支持 BY、GET 模式),
+ * EVAL 只支持 {@link CacheScripts} 中的脚本。
+ * key、field、member 按 ISO-8859-1 保存为 String,与原始字节一一对应,二进制安全。
+ * 所有命令在 {@link #execute(List)} 中串行执行,多个 {@link EmbeddedRespServer} 可以共享同一个实例,相当于同一个 codis 集群的多个 proxy。
+ */
+public class EmbeddedDataStore {
+
+    static final Status OK = new Status("OK");
+
+    static final Status PONG = new Status("PONG");
+
+    private static final String WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+    private static final String NOT_INTEGER = "ERR value is not an integer or out of range";
+
+    private static final String NOT_FLOAT = "ERR value is not a valid float";
+
+    private static final String SYNTAX = "ERR syntax error";
+
+    private final Map<String, Entry> data = new HashMap<>();
+
+    /**按 key 哈希值排序的索引,SCAN 的游标即哈希值,扫描期间一直存在的 key 至少返回一次*/
+    private final TreeMap<Long, Set<String>> scanIndex = new TreeMap<>();
+
+    /**
+     * 执行一条命令
+     *
+     * @return 回复:{@link Status}、{@link Error}、Long、byte[]、null(nil)或由这些组成的 List
+     */
+    public synchronized Object execute(List<byte[]> command) {
+        if (command.isEmpty()) {
+            return new Error("ERR empty command");
+        }
+        String name = str(command.get(0)).toUpperCase();
+        try {
+            return dispatch(name, command);
+        } catch (RespException e) {
+            return new Error(e.getMessage());
+        } catch (IndexOutOfBoundsException e) {
+            return new Error("ERR wrong number of arguments for '" + name.toLowerCase() + "' command");
+        }
+    }
+
+    public synchronized int size() {
+        long now = System.currentTimeMillis();
+        int size = 0;
+        for (Entry entry : data.values()) {
+            if (!entry.expired(now)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public synchronized void flushAll() {
+        data.clear();
+        scanIndex.clear();
+    }
+
+    private Object dispatch(String name, List<byte[]> a) {
+        switch (name) {
+            case "PING":
+                return a.size() > 1 ? a.get(1) : PONG;
+            case "ECHO":
+                return a.get(1);
+            case "SELECT":
+            case "AUTH":
+                return OK;
+            case "DBSIZE":
+                return (long) size();
+            case "FLUSHALL":
+            case "FLUSHDB":
+                flushAll();
+                return OK;
+            // keys
+            case "DEL":
+                return del(a);
+            case "EXISTS":
+                return exists(a);
+            case "TYPE":
+                return type(key(a));
+            case "EXPIRE":
+                return expireAt(key(a), System.currentTimeMillis() + integer(a.get(2)) * 1000);
+            case "PEXPIRE":
+                return expireAt(key(a), System.currentTimeMillis() + integer(a.get(2)));
+            case "EXPIREAT":
+                return expireAt(key(a), integer(a.get(2)) * 1000);
+            case "PEXPIREAT":
+                return expireAt(key(a), integer(a.get(2)));
+            case "PERSIST":
+                return persist(key(a));
+            case "TTL":
+                return ttl(key(a), 1000);
+            case "PTTL":
+                return ttl(key(a), 1);
+            case "KEYS":
+                return keys(str(a.get(1)));
+            case "SCAN":
+                return scan(a);
+            case "SORT":
+                return sort(a);
+            // strings
+            case "GET":
+                return getString(key(a));
+            case "SET":
+                return set(a);
+            case "SETNX":
+                return setnx(key(a), a.get(2));
+            case "SETEX":
+                putString(key(a), a.get(3), System.currentTimeMillis() + integer(a.get(2)) * 1000);
+                return OK;
+            case "PSETEX":
+                putString(key(a), a.get(3), System.currentTimeMillis() + integer(a.get(2)));
+                return OK;
+            case "GETSET":
+                return getSet(key(a), a.get(2));
+            case "MGET":
+                return mget(a);
+            case "MSET":
+                return mset(a);
+            case "APPEND":
+                return append(key(a), a.get(2));
+            case "STRLEN":
+                return strlen(key(a));
+            case "GETRANGE":
+            case "SUBSTR":
+                return getrange(key(a), integer(a.get(2)), integer(a.get(3)));
+            case "SETRANGE":
+                return setrange(key(a), integer(a.get(2)), a.get(3));
+            case "INCR":
+                return incrBy(key(a), 1);
+            case "DECR":
+                return incrBy(key(a), -1);
+            case "INCRBY":
+                return incrBy(key(a), integer(a.get(2)));
+            case "DECRBY":
+                return incrBy(key(a), -integer(a.get(2)));
+            // hashes
+            case "HGET":
+                return hget(key(a), str(a.get(2)));
+            case "HSET":
+                return hset(a);
+            case "HSETNX":
+                return hsetnx(key(a), str(a.get(2)), a.get(3));
+            case "HMSET":
+                hset(a);
+                return OK;
+            case "HMGET":
+                return hmget(a);
+            case "HDEL":
+                return hdel(a);
+            case "HEXISTS":
+                return hexists(key(a), str(a.get(2)));
+            case "HLEN":
+                return hlen(key(a));
+            case "HKEYS":
+                return hkeys(key(a));
+            case "HVALS":
+                return hvals(key(a));
+            case "HGETALL":
+                return hgetAll(key(a));
+            case "HINCRBY":
+                return hincrBy(key(a), str(a.get(2)), integer(a.get(3)));
+            // lists
+            case "LPUSH":
+                return push(a, true, false);
+            case "RPUSH":
+                return push(a, false, false);
+            case "LPUSHX":
+                return push(a, true, true);
+            case "RPUSHX":
+                return push(a, false, true);
+            case "LPOP":
+                return pop(key(a), true);
+            case "RPOP":
+                return pop(key(a), false);
+            case "LLEN":
+                return llen(key(a));
+            case "LINDEX":
+                return lindex(key(a), integer(a.get(2)));
+            case "LSET":
+                return lset(key(a), integer(a.get(2)), a.get(3));
+            case "LRANGE":
+                return lrange(key(a), integer(a.get(2)), integer(a.get(3)));
+            case "LTRIM":
+                return ltrim(key(a), integer(a.get(2)), integer(a.get(3)));
+            case "LREM":
+                return lrem(key(a), integer(a.get(2)), a.get(3));
+            case "LINSERT":
+                return linsert(key(a), str(a.get(2)), a.get(3), a.get(4));
+            // sets
+            case "SADD":
+                return sadd(a);
+            case "SREM":
+                return srem(a);
+            case "SCARD":
+                return scard(key(a));
+            case "SMEMBERS":
+                return smembers(key(a));
+            case "SISMEMBER":
+                return sismember(key(a), str(a.get(2)));
+            case "SPOP":
+                return spop(key(a), a.size() > 2 ? integer(a.get(2)) : null);
+            case "SRANDMEMBER":
+                return srandmember(key(a), a.size() > 2 ? integer(a.get(2)) : null);
+            // sorted sets
+            case "ZADD":
+                return zadd(a);
+            case "ZINCRBY":
+                return zincrby(key(a), number(a.get(2)), str(a.get(3)));
+            case "ZREM":
+                return zrem(a);
+            case "ZCARD":
+                return zcard(key(a));
+            case "ZSCORE":
+                return zscore(key(a), str(a.get(2)));
+            case "ZRANK":
+                return zrank(key(a), str(a.get(2)), false);
+            case "ZREVRANK":
+                return zrank(key(a), str(a.get(2)), true);
+            case "ZCOUNT":
+                return zcount(key(a), bound(a.get(2)), bound(a.get(3)));
+            case "ZRANGE":
+                return zrange(a, false);
+            case "ZREVRANGE":
+                return zrange(a, true);
+            case "ZRANGEBYSCORE":
+                return zrangeByScore(a, false);
+            case "ZREVRANGEBYSCORE":
+                return zrangeByScore(a, true);
+            case "ZREMRANGEBYRANK":
+                return zremrangeByRank(key(a), integer(a.get(2)), integer(a.get(3)));
+            case "ZREMRANGEBYSCORE":
+                return zremrangeByScore(key(a), bound(a.get(2)), bound(a.get(3)));
+            // scripting
+            case "EVAL":
+                return eval(a);
+            default:
+                throw new RespException("ERR unknown command '" + name.toLowerCase() + "'");
+        }
+    }
+
+    // ---------------------------------------------------------------- keys
+
+    private Entry entry(String key) {
+        Entry entry = data.get(key);
+        if (entry != null && entry.expired(System.currentTimeMillis())) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(String key, Class<T> type) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!type.isInstance(entry.value)) {
+            throw new RespException(WRONGTYPE);
+        }
+        return (T) entry.value;
+    }
+
+    private <T> T create(String key, Class<T> type, T empty) {
+        T value = value(key, type);
+        if (value == null) {
+            put(key, new Entry(empty, 0));
+            value = empty;
+        }
+        return value;
+    }
+
+    private void put(String key, Entry entry) {
+        if (data.put(key, entry) == null) {
+            scanIndex.computeIfAbsent(scanHash(key), h -> new LinkedHashSet<>()).add(key);
+        }
+    }
+
+    private boolean remove(String key) {
+        if (data.remove(key) == null) {
+            return false;
+        }
+        Long hash = scanHash(key);
+        Set<String> keys = scanIndex.get(hash);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            scanIndex.remove(hash);
+        }
+        return true;
+    }
+
+    /**
+     * 集合类型的值变为空时删除 key,与 redis 一致
+     */
+    private void removeIfEmpty(String key, Object value) {
+        boolean empty = value instanceof Map ? ((Map<?, ?>) value).isEmpty()
+                : value instanceof Collection ? ((Collection<?>) value).isEmpty()
+                : value instanceof ZSet && ((ZSet) value).scores.isEmpty();
+        if (empty) {
+            remove(key);
+        }
+    }
+
+    private static long scanHash(String key) {
+        return key.hashCode() & 0xffffffffL;
+    }
+
+    private Long del(List<byte[]> a) {
+        long removed = 0;
+        for (int i = 1; i < a.size(); i++) {
+            String key = str(a.get(i));
+            if (entry(key) != null && remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private Long exists(List<byte[]> a) {
+        long count = 0;
+        for (int i = 1; i < a.size(); i++) {
+            if (entry(str(a.get(i))) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Status type(String key) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return new Status("none");
+        }
+        Object value = entry.value;
+        if (value instanceof byte[]) {
+            return new Status("string");
+        }
+        if (value instanceof Map) {
+            return new Status("hash");
+        }
+        if (value instanceof List) {
+            return new Status("list");
+        }
+        if (value instanceof Set) {
+            return new Status("set");
+        }
+        return new Status("zset");
+    }
+
+    private Long expireAt(String key, long expireAtMillis) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return 0L;
+        }
+        if (expireAtMillis <= System.currentTimeMillis()) {
+            remove(key);
+        } else {
+            entry.expireAt = expireAtMillis;
+        }
+        return 1L;
+    }
+
+    private Long persist(String key) {
+        Entry entry = entry(key);
+        if (entry == null || entry.expireAt == 0) {
+            return 0L;
+        }
+        entry.expireAt = 0;
+        return 1L;
+    }
+
+    private Long ttl(String key, long unit) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return -2L;
+        }
+        if (entry.expireAt == 0) {
+            return -1L;
+        }
+        long remaining = entry.expireAt - System.currentTimeMillis();
+        return unit == 1 ? remaining : (remaining + unit / 2) / unit;
+    }
+
+    private List<byte[]> keys(String pattern) {
+        long now = System.currentTimeMillis();
+        List<byte[]> keys = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : data.entrySet()) {
+            if (!entry.getValue().expired(now) && GlobMatcher.matches(pattern, entry.getKey())) {
+                keys.add(bytes(entry.getKey()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * SCAN cursor [MATCH pattern] [COUNT count] [TYPE type]
+     * 游标是下一个要扫描的 key 哈希值,同一哈希值的 key 在一次调用中全部返回
+     */
+    private List<Object> scan(List<byte[]> a) {
+        long cursor = integer(a.get(1));
+        String pattern = null;
+        String type = null;
+        long count = 10;
+        for (int i = 2; i < a.size(); i += 2) {
+            String option = str(a.get(i)).toUpperCase();
+            if ("MATCH".equals(option)) {
+                pattern = str(a.get(i + 1));
+            } else if ("COUNT".equals(option)) {
+                count = integer(a.get(i + 1));
+                if (count < 1) {
+                    throw new RespException(SYNTAX);
+                }
+            } else if ("TYPE".equals(option)) {
+                type = str(a.get(i + 1)).toLowerCase();
+            } else {
+                throw new RespException(SYNTAX);
+            }
+        }
+        List<byte[]> keys = new ArrayList<>();
+        long next = 0;
+        int visited = 0;
+        SortedMap<Long, Set<String>> tail = scanIndex.tailMap(cursor);
+        for (Map.Entry<Long, Set<String>> bucket : tail.entrySet()) {
+            if (visited >= count) {
+                next = bucket.getKey();
+                break;
+            }
+            for (String key : new ArrayList<>(bucket.getValue())) {
+                visited++;
+                if (entry(key) == null) {
+                    continue;
+                }
+                if (pattern != null && !GlobMatcher.matches(pattern, key)) {
+                    continue;
+                }
+                if (type != null && !type.equals(type(key).value)) {
+                    continue;
+                }
+                keys.add(bytes(key));
+            }
+        }
+        return Arrays.<Object>asList(bytes(String.valueOf(next)), keys);
+    }
+
+    /**
+     * SORT key [LIMIT offset count] [ASC|DESC] [ALPHA] [STORE destination],BY 只支持 nosort,GET 只支持 #
+     */
+    private Object sort(List<byte[]> a) {
+        String key = key(a);
+        boolean desc = false;
+        boolean alpha = false;
+        boolean sort = true;
+        long offset = 0;
+        long count = -1;
+        String store = null;
+        for (int i = 2; i < a.size(); i++) {
+            String option = str(a.get(i)).toUpperCase();
+            switch (option) {
+                case "ASC":
+                    desc = false;
+                    break;
+                case "DESC":
+                    desc = true;
+                    break;
+                case "ALPHA":
+                    alpha = true;
+                    break;
+                case "LIMIT":
+                    offset = integer(a.get(++i));
+                    count = integer(a.get(++i));
+                    break;
+                case "STORE":
+                    store = str(a.get(++i));
+                    break;
+                case "BY":
+                    if (!"nosort".equalsIgnoreCase(str(a.get(++i)))) {
+                        throw new RespException("ERR SORT BY pattern is not supported by the embedded server");
+                    }
+                    sort = false;
+                    break;
+                case "GET":
+                    if (!"#".equals(str(a.get(++i)))) {
+                        throw new RespException("ERR SORT GET pattern is not supported by the embedded server");
+                    }
+                    break;
+                default:
+                    throw new RespException(SYNTAX);
+            }
+        }
+        List<byte[]> elements = new ArrayList<>();
+        Entry entry = entry(key);
+        if (entry != null) {
+            Object value = entry.value;
+            if (value instanceof List) {
+                elements.addAll(list(value));
+            } else if (value instanceof Set) {
+                for (Object member : (Set<?>) value) {
+                    elements.add(bytes((String) member));
+                }
+            } else if (value instanceof ZSet) {
+                for (ZEntry member : ((ZSet) value).sorted) {
+                    elements.add(bytes(member.member));
+                }
+            } else {
+                throw new RespException(WRONGTYPE);
+            }
+        }
+        if (sort) {
+            Comparator<byte[]> order;
+            if (alpha) {
+                order = (x, y) -> str(x).compareTo(str(y));
+            } else {
+                for (byte[] element : elements) {
+                    try {
+                        Double.parseDouble(str(element));
+                    } catch (NumberFormatException e) {
+                        throw new RespException("ERR One or more scores can't be converted into double");
+                    }
+                }
+                order = (x, y) -> Double.compare(Double.parseDouble(str(x)), Double.parseDouble(str(y)));
+            }
+            elements.sort(desc ? order.reversed() : order);
+        }
+        int from = (int) Math.max(0, Math.min(offset, elements.size()));
+        int to = count < 0 ? elements.size() : (int) Math.min(elements.size(), from + count);
+        List<byte[]> result = new ArrayList<>(elements.subList(from, to));
+        if (store != null) {
+            remove(store);
+            if (!result.isEmpty()) {
+                put(store, new Entry(result, 0));
+            }
+            return (long) result.size();
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------------- strings
+
+    private byte[] getString(String key) {
+        return value(key, byte[].class);
+    }
+
+    private void putString(String key, byte[] value, long expireAt) {
+        remove(key);
+        put(key, new Entry(value, expireAt));
+    }
+
+    /**
+     * SET key value [EX seconds] [PX milliseconds] [NX|XX]
+     */
+    private Object set(List<byte[]> a) {
+        String key = key(a);
+        long expireAt = 0;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 3; i < a.size(); i++) {
+            String option = str(a.get(i)).toUpperCase();
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("EX".equals(option)) {
+                expireAt = System.currentTimeMillis() + integer(a.get(++i)) * 1000;
+            } else if ("PX".equals(option)) {
+                expireAt = System.currentTimeMillis() + integer(a.get(++i));
+            } else {
+                throw new RespException(SYNTAX);
+            }
+        }
+        boolean exists = entry(key) != null;
+        if ((nx && exists) || (xx && !exists)) {
+            return null;
+        }
+        putString(key, a.get(2), expireAt);
+        return OK;
+    }
+
+    private Long setnx(String key, byte[] value) {
+        if (entry(key) != null) {
+            return 0L;
+        }
+        putString(key, value, 0);
+        return 1L;
+    }
+
+    private byte[] getSet(String key, byte[] value) {
+        byte[] old = getString(key);
+        putString(key, value, 0);
+        return old;
+    }
+
+    private List<byte[]> mget(List<byte[]> a) {
+        List<byte[]> values = new ArrayList<>(a.size() - 1);
+        for (int i = 1; i < a.size(); i++) {
+            Entry entry = entry(str(a.get(i)));
+            values.add(entry != null && entry.value instanceof byte[] ? (byte[]) entry.value : null);
+        }
+        return values;
+    }
+
+    private Status mset(List<byte[]> a) {
+        if (a.size() % 2 == 0) {
+            throw new RespException("ERR wrong number of arguments for 'mset' command");
+        }
+        for (int i = 1; i < a.size(); i += 2) {
+            putString(str(a.get(i)), a.get(i + 1), 0);
+        }
+        return OK;
+    }
+
+    private Long append(String key, byte[] suffix) {
+        Entry entry = entry(key);
+        byte[] old = getString(key);
+        if (old == null) {
+            putString(key, suffix, 0);
+            return (long) suffix.length;
+        }
+        byte[] value = Arrays.copyOf(old, old.length + suffix.length);
+        System.arraycopy(suffix, 0, value, old.length, suffix.length);
+        entry.value = value;
+        return (long) value.length;
+    }
+
+    private Long strlen(String key) {
+        byte[] value = getString(key);
+        return value == null ? 0L : value.length;
+    }
+
+    private byte[] getrange(String key, long start, long end) {
+        byte[] value = getString(key);
+        if (value == null) {
+            return new byte[0];
+        }
+        int[] range = range(start, end, value.length);
+        return range == null ? new byte[0] : Arrays.copyOfRange(value, range[0], range[1] + 1);
+    }
+
+    private Long setrange(String key, long offset, byte[] part) {
+        if (offset < 0) {
+            throw new RespException("ERR offset is out of range");
+        }
+        byte[] old = getString(key);
+        byte[] value = old == null ? new byte[0] : old;
+        if (offset + part.length > value.length) {
+            value = Arrays.copyOf(value, (int) offset + part.length);
+        }
+        System.arraycopy(part, 0, value, (int) offset, part.length);
+        if (old == null) {
+            putString(key, value, 0);
+        } else {
+            entry(key).value = value;
+        }
+        return (long) value.length;
+    }
+
+    private Long incrBy(String key, long delta) {
+        Entry entry = entry(key);
+        byte[] old = getString(key);
+        long value;
+        try {
+            value = old == null ? 0 : Long.parseLong(str(old));
+        } catch (NumberFormatException e) {
+            throw new RespException(NOT_INTEGER);
+        }
+        value += delta;
+        if (entry == null) {
+            putString(key, bytes(String.valueOf(value)), 0);
+        } else {
+            entry.value = bytes(String.valueOf(value));
+        }
+        return value;
+    }
+
+    // ---------------------------------------------------------------- hashes
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> hash(String key) {
+        return value(key, LinkedHashMap.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> createHash(String key) {
+        return create(key, LinkedHashMap.class, new LinkedHashMap<String, byte[]>());
+    }
+
+    private byte[] hget(String key, String field) {
+        Map<String, byte[]> hash = hash(key);
+        return hash == null ? null : hash.get(field);
+    }
+
+    private Long hset(List<byte[]> a) {
+        if (a.size() < 4 || a.size() % 2 != 0) {
+            throw new RespException("ERR wrong number of arguments for '" + str(a.get(0)).toLowerCase() + "' command");
+        }
+        Map<String, byte[]> hash = createHash(key(a));
+        long added = 0;
+        for (int i = 2; i < a.size(); i += 2) {
+            if (hash.put(str(a.get(i)), a.get(i + 1)) == null) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private Long hsetnx(String key, String field, byte[] value) {
+        Map<String, byte[]> hash = createHash(key);
+        if (hash.containsKey(field)) {
+            return 0L;
+        }
+        hash.put(field, value);
+        return 1L;
+    }
+
+    private List<byte[]> hmget(List<byte[]> a) {
+        Map<String, byte[]> hash = hash(key(a));
+        List<byte[]> values = new ArrayList<>(a.size() - 2);
+        for (int i = 2; i < a.size(); i++) {
+            values.add(hash == null ? null : hash.get(str(a.get(i))));
+        }
+        return values;
+    }
+
+    private Long hdel(List<byte[]> a) {
+        String key = key(a);
+        Map<String, byte[]> hash = hash(key);
+        if (hash == null) {
+            return 0L;
+        }
+        long removed = 0;
+        for (int i = 2; i < a.size(); i++) {
+            if (hash.remove(str(a.get(i))) != null) {
+                removed++;
+            }
+        }
+        removeIfEmpty(key, hash);
+        return removed;
+    }
+
+    private Long hexists(String key, String field) {
+        Map<String, byte[]> hash = hash(key);
+        return hash != null && hash.containsKey(field) ? 1L : 0L;
+    }
+
+    private Long hlen(String key) {
+        Map<String, byte[]> hash = hash(key);
+        return hash == null ? 0L : hash.size();
+    }
+
+    private List<byte[]> hkeys(String key) {
+        Map<String, byte[]> hash = hash(key);
+        List<byte[]> fields = new ArrayList<>();
+        if (hash != null) {
+            for (String field : hash.keySet()) {
+                fields.add(bytes(field));
+            }
+        }
+        return fields;
+    }
+
+    private List<byte[]> hvals(String key) {
+        Map<String, byte[]> hash = hash(key);
+        return hash == null ? new ArrayList<>() : new ArrayList<>(hash.values());
+    }
+
+    private List<byte[]> hgetAll(String key) {
+        Map<String, byte[]> hash = hash(key);
+        List<byte[]> pairs = new ArrayList<>();
+        if (hash != null) {
+            for (Map.Entry<String, byte[]> entry : hash.entrySet()) {
+                pairs.add(bytes(entry.getKey()));
+                pairs.add(entry.getValue());
+            }
+        }
+        return pairs;
+    }
+
+    private Long hincrBy(String key, String field, long delta) {
+        Map<String, byte[]> hash = createHash(key);
+        byte[] old = hash.get(field);
+        long value;
+        try {
+            value = old == null ? 0 : Long.parseLong(str(old));
+        } catch (NumberFormatException e) {
+            throw new RespException("ERR hash value is not an integer");
+        }
+        value += delta;
+        hash.put(field, bytes(String.valueOf(value)));
+        return value;
+    }
+
+    // ---------------------------------------------------------------- lists
+
+    @SuppressWarnings("unchecked")
+    private static List<byte[]> list(Object value) {
+        return (List<byte[]>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<byte[]> listValue(String key) {
+        return value(key, ArrayList.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Long push(List<byte[]> a, boolean head, boolean onlyIfExists) {
+        String key = key(a);
+        List<byte[]> list = onlyIfExists ? listValue(key) : create(key, ArrayList.class, new ArrayList<byte[]>());
+        if (list == null) {
+            return 0L;
+        }
+        for (int i = 2; i < a.size(); i++) {
+            if (head) {
+                list.add(0, a.get(i));
+            } else {
+                list.add(a.get(i));
+            }
+        }
+        return (long) list.size();
+    }
+
+    private byte[] pop(String key, boolean head) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return null;
+        }
+        byte[] value = list.remove(head ? 0 : list.size() - 1);
+        removeIfEmpty(key, list);
+        return value;
+    }
+
+    private Long llen(String key) {
+        List<byte[]> list = listValue(key);
+        return list == null ? 0L : list.size();
+    }
+
+    private byte[] lindex(String key, long index) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return null;
+        }
+        long i = index < 0 ? list.size() + index : index;
+        return i < 0 || i >= list.size() ? null : list.get((int) i);
+    }
+
+    private Status lset(String key, long index, byte[] value) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            throw new RespException("ERR no such key");
+        }
+        long i = index < 0 ? list.size() + index : index;
+        if (i < 0 || i >= list.size()) {
+            throw new RespException("ERR index out of range");
+        }
+        list.set((int) i, value);
+        return OK;
+    }
+
+    private List<byte[]> lrange(String key, long start, long end) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        int[] range = range(start, end, list.size());
+        return range == null ? new ArrayList<>() : new ArrayList<>(list.subList(range[0], range[1] + 1));
+    }
+
+    private Status ltrim(String key, long start, long end) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return OK;
+        }
+        int[] range = range(start, end, list.size());
+        if (range == null) {
+            list.clear();
+        } else {
+            list.subList(range[1] + 1, list.size()).clear();
+            list.subList(0, range[0]).clear();
+        }
+        removeIfEmpty(key, list);
+        return OK;
+    }
+
+    private Long lrem(String key, long count, byte[] value) {
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return 0L;
+        }
+        long removed = 0;
+        long limit = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+        if (count >= 0) {
+            for (Iterator<byte[]> it = list.iterator(); it.hasNext() && removed < limit; ) {
+                if (Arrays.equals(it.next(), value)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        } else {
+            for (int i = list.size() - 1; i >= 0 && removed < limit; i--) {
+                if (Arrays.equals(list.get(i), value)) {
+                    list.remove(i);
+                    removed++;
+                }
+            }
+        }
+        removeIfEmpty(key, list);
+        return removed;
+    }
+
+    private Long linsert(String key, String where, byte[] pivot, byte[] value) {
+        boolean before = "BEFORE".equalsIgnoreCase(where);
+        if (!before && !"AFTER".equalsIgnoreCase(where)) {
+            throw new RespException(SYNTAX);
+        }
+        List<byte[]> list = listValue(key);
+        if (list == null) {
+            return 0L;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (Arrays.equals(list.get(i), pivot)) {
+                list.add(before ? i : i + 1, value);
+                return (long) list.size();
+            }
+        }
+        return -1L;
+    }
+
+    // ---------------------------------------------------------------- sets
+
+    @SuppressWarnings("unchecked")
+    private Set<String> setValue(String key) {
+        return value(key, LinkedHashSet.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Long sadd(List<byte[]> a) {
+        Set<String> set = create(key(a), LinkedHashSet.class, new LinkedHashSet<String>());
+        long added = 0;
+        for (int i = 2; i < a.size(); i++) {
+            if (set.add(str(a.get(i)))) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private Long srem(List<byte[]> a) {
+        String key = key(a);
+        Set<String> set = setValue(key);
+        if (set == null) {
+            return 0L;
+        }
+        long removed = 0;
+        for (int i = 2; i < a.size(); i++) {
+            if (set.remove(str(a.get(i)))) {
+                removed++;
+            }
+        }
+        removeIfEmpty(key, set);
+        return removed;
+    }
+
+    private Long scard(String key) {
+        Set<String> set = setValue(key);
+        return set == null ? 0L : set.size();
+    }
+
+    private List<byte[]> smembers(String key) {
+        Set<String> set = setValue(key);
+        List<byte[]> members = new ArrayList<>();
+        if (set != null) {
+            for (String member : set) {
+                members.add(bytes(member));
+            }
+        }
+        return members;
+    }
+
+    private Long sismember(String key, String member) {
+        Set<String> set = setValue(key);
+        return set != null && set.contains(member) ? 1L : 0L;
+    }
+
+    private Object spop(String key, Long count) {
+        Set<String> set = setValue(key);
+        List<String> members = set == null ? Collections.<String>emptyList() : new ArrayList<>(set);
+        Collections.shuffle(members, ThreadLocalRandom.current());
+        int n = count == null ? 1 : (int) Math.min(Math.max(count, 0), members.size());
+        List<byte[]> popped = new ArrayList<>();
+        for (String member : members.subList(0, Math.min(n, members.size()))) {
+            set.remove(member);
+            popped.add(bytes(member));
+        }
+        if (set != null) {
+            removeIfEmpty(key, set);
+        }
+        if (count == null) {
+            return popped.isEmpty() ? null : popped.get(0);
+        }
+        return popped;
+    }
+
+    /**
+     * count 为正数时返回不重复的成员,为负数时可以重复
+     */
+    private Object srandmember(String key, Long count) {
+        Set<String> set = setValue(key);
+        List<String> members = set == null ? Collections.<String>emptyList() : new ArrayList<>(set);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (count == null) {
+            return members.isEmpty() ? null : bytes(members.get(random.nextInt(members.size())));
+        }
+        List<byte[]> result = new ArrayList<>();
+        if (count >= 0) {
+            Collections.shuffle(members, random);
+            for (String member : members.subList(0, (int) Math.min(count, members.size()))) {
+                result.add(bytes(member));
+            }
+        } else if (!members.isEmpty()) {
+            for (long i = 0; i < -count; i++) {
+                result.add(bytes(members.get(random.nextInt(members.size()))));
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------------- sorted sets
+
+    private ZSet zset(String key) {
+        return value(key, ZSet.class);
+    }
+
+    /**
+     * ZADD key [NX|XX] [CH] score member [score member ...]
+     */
+    private Long zadd(List<byte[]> a) {
+        String key = key(a);
+        boolean nx = false;
+        boolean xx = false;
+        boolean ch = false;
+        int i = 2;
+        for (; i < a.size(); i++) {
+            String option = str(a.get(i)).toUpperCase();
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("CH".equals(option)) {
+                ch = true;
+            } else {
+                break;
+            }
+        }
+        if (i >= a.size() || (a.size() - i) % 2 != 0) {
+            throw new RespException(SYNTAX);
+        }
+        List<Double> scores = new ArrayList<>();
+        for (int j = i; j < a.size(); j += 2) {
+            scores.add(number(a.get(j)));
+        }
+        ZSet zset = create(key, ZSet.class, new ZSet());
+        long changed = 0;
+        for (int j = i; j < a.size(); j += 2) {
+            String member = str(a.get(j + 1));
+            Double old = zset.scores.get(member);
+            if ((nx && old != null) || (xx && old == null)) {
+                continue;
+            }
+            double score = scores.get((j - i) / 2);
+            if (old == null || (ch && old != score)) {
+                changed++;
+            }
+            zset.put(member, score);
+        }
+        removeIfEmpty(key, zset);
+        return changed;
+    }
+
+    private byte[] zincrby(String key, double delta, String member) {
+        ZSet zset = create(key, ZSet.class, new ZSet());
+        Double old = zset.scores.get(member);
+        double score = (old == null ? 0 : old) + delta;
+        zset.put(member, score);
+        return bytes(format(score));
+    }
+
+    private Long zrem(List<byte[]> a) {
+        String key = key(a);
+        ZSet zset = zset(key);
+        if (zset == null) {
+            return 0L;
+        }
+        long removed = 0;
+        for (int i = 2; i < a.size(); i++) {
+            if (zset.remove(str(a.get(i)))) {
+                removed++;
+            }
+        }
+        removeIfEmpty(key, zset);
+        return removed;
+    }
+
+    private Long zcard(String key) {
+        ZSet zset = zset(key);
+        return zset == null ? 0L : zset.scores.size();
+    }
+
+    private byte[] zscore(String key, String member) {
+        ZSet zset = zset(key);
+        Double score = zset == null ? null : zset.scores.get(member);
+        return score == null ? null : bytes(format(score));
+    }
+
+    private Long zrank(String key, String member, boolean reverse) {
+        ZSet zset = zset(key);
+        Double score = zset == null ? null : zset.scores.get(member);
+        if (score == null) {
+            return null;
+        }
+        long rank = zset.sorted.headSet(new ZEntry(score, member)).size();
+        return reverse ? zset.scores.size() - 1 - rank : rank;
+    }
+
+    private Long zcount(String key, Bound min, Bound max) {
+        ZSet zset = zset(key);
+        long count = 0;
+        if (zset != null) {
+            for (ZEntry entry : zset.sorted) {
+                if (min.belowOrEqual(entry.score) && max.aboveOrEqual(entry.score)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * ZRANGE/ZREVRANGE key start stop [WITHSCORES]
+     */
+    private List<byte[]> zrange(List<byte[]> a, boolean reverse) {
+        ZSet zset = zset(key(a));
+        boolean withScores = a.size() > 4 && "WITHSCORES".equalsIgnoreCase(str(a.get(4)));
+        List<byte[]> result = new ArrayList<>();
+        if (zset == null) {
+            return result;
+        }
+        int[] range = range(integer(a.get(2)), integer(a.get(3)), zset.scores.size());
+        if (range == null) {
+            return result;
+        }
+        int index = 0;
+        for (ZEntry entry : reverse ? zset.sorted.descendingSet() : zset.sorted) {
+            if (index > range[1]) {
+                break;
+            }
+            if (index++ >= range[0]) {
+                add(result, entry, withScores);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * ZRANGEBYSCORE key min max / ZREVRANGEBYSCORE key max min,可带 WITHSCORES 和 LIMIT offset count
+     */
+    private List<byte[]> zrangeByScore(List<byte[]> a, boolean reverse) {
+        ZSet zset = zset(key(a));
+        Bound min = bound(a.get(reverse ? 3 : 2));
+        Bound max = bound(a.get(reverse ? 2 : 3));
+        boolean withScores = false;
+        long offset = 0;
+        long count = -1;
+        for (int i = 4; i < a.size(); i++) {
+            String option = str(a.get(i)).toUpperCase();
+            if ("WITHSCORES".equals(option)) {
+                withScores = true;
+            } else if ("LIMIT".equals(option)) {
+                offset = integer(a.get(++i));
+                count = integer(a.get(++i));
+            } else {
+                throw new RespException(SYNTAX);
+            }
+        }
+        List<byte[]> result = new ArrayList<>();
+        if (zset == null) {
+            return result;
+        }
+        long skipped = 0;
+        long taken = 0;
+        for (ZEntry entry : reverse ? zset.sorted.descendingSet() : zset.sorted) {
+            if (!min.belowOrEqual(entry.score) || !max.aboveOrEqual(entry.score)) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            if (count >= 0 && taken >= count) {
+                break;
+            }
+            taken++;
+            add(result, entry, withScores);
+        }
+        return result;
+    }
+
+    private static void add(List<byte[]> result, ZEntry entry, boolean withScores) {
+        result.add(bytes(entry.member));
+        if (withScores) {
+            result.add(bytes(format(entry.score)));
+        }
+    }
+
+    private Long zremrangeByRank(String key, long start, long end) {
+        ZSet zset = zset(key);
+        if (zset == null) {
+            return 0L;
+        }
+        int[] range = range(start, end, zset.scores.size());
+        if (range == null) {
+            return 0L;
+        }
+        List<ZEntry> removed = new ArrayList<>();
+        int index = 0;
+        for (ZEntry entry : zset.sorted) {
+            if (index > range[1]) {
+                break;
+            }
+            if (index++ >= range[0]) {
+                removed.add(entry);
+            }
+        }
+        for (ZEntry entry : removed) {
+            zset.remove(entry.member);
+        }
+        removeIfEmpty(key, zset);
+        return (long) removed.size();
+    }
+
+    private Long zremrangeByScore(String key, Bound min, Bound max) {
+        ZSet zset = zset(key);
+        if (zset == null) {
+            return 0L;
+        }
+        List<ZEntry> removed = new ArrayList<>();
+        for (ZEntry entry : zset.sorted) {
+            if (min.belowOrEqual(entry.score) && max.aboveOrEqual(entry.score)) {
+                removed.add(entry);
+            }
+        }
+        for (ZEntry entry : removed) {
+            zset.remove(entry.member);
+        }
+        removeIfEmpty(key, zset);
+        return (long) removed.size();
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    // ---------------------------------------------------------------- scripting
+
+    /**
+     * 没有 lua 解释器,按脚本文本执行 {@link CacheScripts} 中客户端用到的脚本的等价逻辑
+     */
+    private Object eval(List<byte[]> a) {
+        String script = str(a.get(1));
+        int numKeys = (int) integer(a.get(2));
+        if (numKeys < 0 || 3 + numKeys > a.size()) {
+            throw new RespException("ERR Number of keys can't be greater than number of args");
+        }
+        List<byte[]> keys = a.subList(3, 3 + numKeys);
+        List<byte[]> args = a.subList(3 + numKeys, a.size());
+        if (CacheScripts.COMPARE_AND_DELETE.equals(script)) {
+            String key = str(keys.get(0));
+            byte[] value = getString(key);
+            return bytes(value != null && Arrays.equals(value, args.get(0)) && remove(key) ? "1" : "0");
+        }
+        if (CacheScripts.EXPIRE_IF_PERSISTENT.equals(script)) {
+            String key = str(keys.get(0));
+            return bytes(ttl(key, 1000) == -1
+                    ? String.valueOf(expireAt(key, System.currentTimeMillis() + integer(args.get(0)) * 1000)) : "0");
+        }
+        throw new RespException("NOSCRIPT embedded server only runs the scripts in CacheScripts");
+    }
+
+    private static String key(List<byte[]> a) {
+        return str(a.get(1));
+    }
+
+    static String str(byte[] bytes) {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long integer(byte[] value) {
+        try {
+            return Long.parseLong(str(value));
+        } catch (NumberFormatException e) {
+            throw new RespException(NOT_INTEGER);
+        }
+    }
+
+    private static double number(byte[] value) {
+        String text = str(value);
+        if ("+inf".equalsIgnoreCase(text) || "inf".equalsIgnoreCase(text)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-inf".equalsIgnoreCase(text)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        try {
+            double number = Double.parseDouble(text);
+            if (Double.isNaN(number)) {
+                throw new RespException(NOT_FLOAT);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new RespException(NOT_FLOAT);
+        }
+    }
+
+    /**
+     * 与 redis 相同的分数格式:整数不带小数部分,无穷大为 inf/-inf
+     */
+    static String format(double score) {
+        if (Double.isInfinite(score)) {
+            return score > 0 ? "inf" : "-inf";
+        }
+        if (score == Math.rint(score) && Math.abs(score) < 1e17) {
+            return String.valueOf((long) score);
+        }
+        return String.valueOf(score);
+    }
+
+    private static Bound bound(byte[] value) {
+        String text = str(value);
+        boolean exclusive = text.startsWith("(");
+        try {
+            return new Bound(number(bytes(exclusive ? text.substring(1) : text)), exclusive);
+        } catch (RespException e) {
+            throw new RespException("ERR min or max is not a float");
+        }
+    }
+
+    /**
+     * 按 redis 的规则把可能为负数的闭区间下标转换为 [from, to],区间为空时返回 null
+     */
+    private static int[] range(long start, long end, int size) {
+        if (start < 0) {
+            start = Math.max(0, size + start);
+        }
+        if (end < 0) {
+            end = size + end;
+        }
+        if (end >= size) {
+            end = size - 1;
+        }
+        if (start > end || start >= size) {
+            return null;
+        }
+        return new int[]{(int) start, (int) end};
+    }
+
+    // ---------------------------------------------------------------- types
+
+    private static final class Entry {
+
+        Object value;
+
+        /**过期时间(毫秒时间戳),0 表示不过期*/
+        long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return expireAt != 0 && expireAt <= now;
+        }
+    }
+
+    private static final class ZEntry implements Comparable<ZEntry> {
+
+        final double score;
+
+        final String member;
+
+        ZEntry(double score, String member) {
+            this.score = score;
+            this.member = member;
+        }
+
+        @Override
+        public int compareTo(ZEntry other) {
+            int c = Double.compare(score, other.score);
+            return c != 0 ? c : member.compareTo(other.member);
+        }
+    }
+
+    private static final class ZSet {
+
+        final Map<String, Double> scores = new HashMap<>();
+
+        final NavigableSet<ZEntry> sorted = new TreeSet<>();
+
+        void put(String member, double score) {
+            Double old = scores.put(member, score);
+            if (old != null) {
+                sorted.remove(new ZEntry(old, member));
+            }
+            sorted.add(new ZEntry(score, member));
+        }
+
+        boolean remove(String member) {
+            Double old = scores.remove(member);
+            if (old == null) {
+                return false;
+            }
+            sorted.remove(new ZEntry(old, member));
+            return true;
+        }
+    }
+
+    private static final class Bound {
+
+        final double value;
+
+        final boolean exclusive;
+
+        Bound(double value, boolean exclusive) {
+            this.value = value;
+            this.exclusive = exclusive;
+        }
+
+        boolean belowOrEqual(double score) {
+            return exclusive ? value < score : value <= score;
+        }
+
+        boolean aboveOrEqual(double score) {
+            return exclusive ? value > score : value >= score;
+        }
+    }
+
+    /**
+     * 状态回复,如 +OK
+     */
+    static final class Status {
+
+        final String value;
+
+        Status(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 错误回复,如 -ERR ...
+     */
+    static final class Error {
+
+        final String message;
+
+        Error(String message) {
+            this.message = message;
+        }
+    }
+
+    private static final class RespException extends RuntimeException {
+
+        RespException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
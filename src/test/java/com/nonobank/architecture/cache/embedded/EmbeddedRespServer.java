@@ -0,0 +1,444 @@
+package com.nonobank.architecture.cache.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的 RESP 服务,代替 codis proxy 用于单元测试和 JMH
+ * 与 redis 一样由一个 NIO 线程处理所有连接,命令在 {@link EmbeddedDataStore} 中执行,多个服务可以共享同一个数据;
+ * 支持 pipeline 和 inline 命令。latencyMicros 大于 0 时每条回复延迟相应的时间后发送,同一连接的回复保持顺序,
+ * 延迟期间不阻塞其他连接,用来模拟网络往返或变慢的 proxy。
+ */
+public class EmbeddedRespServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedRespServer.class);
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final EmbeddedDataStore store;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
+
+    private final Thread loop;
+
+    /**需要在 NIO 线程执行的任务,延迟到期的回复由此交回 NIO 线程发送*/
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final LongAdder commands = new LongAdder();
+
+    private volatile long latencyNanos;
+
+    private volatile boolean closed;
+
+    /**
+     * 监听随机端口,使用独立的数据
+     */
+    public EmbeddedRespServer() throws IOException {
+        this(0, new EmbeddedDataStore());
+    }
+
+    /**
+     * @param port 监听的本地端口,0 表示随机端口
+     * @param store 数据,可以与其他服务共享
+     */
+    public EmbeddedRespServer(int port, EmbeddedDataStore store) throws IOException {
+        this.store = store;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        String name = "embedded-resp-server-" + SEQUENCE.incrementAndGet();
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, name + "-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.loop = new Thread(this::run, name);
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return host:port,与 codis proxy 在 zookeeper 中注册的 addr 格式一致
+     */
+    public String getAddress() {
+        return "127.0.0.1:" + getPort();
+    }
+
+    public EmbeddedDataStore getStore() {
+        return store;
+    }
+
+    /**
+     * 设置每条回复的延迟,0 表示不延迟,修改后对新收到的命令生效
+     */
+    public void setLatencyMicros(long latencyMicros) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, latencyMicros));
+    }
+
+    public long getLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+    }
+
+    /**
+     * @return 已执行的命令数
+     */
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.info("embedded resp server error, port:" + getPort() + ", " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 关闭监听和所有连接,共享的数据不受影响
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        timer.shutdownNow();
+        selector.wakeup();
+        try {
+            loop.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            log.info("embedded resp server close error, " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedRespServer[" + getAddress() + "]";
+    }
+
+    static void encode(Object reply, Output out) {
+        if (reply == null) {
+            out.write("$-1\r\n");
+        } else if (reply instanceof byte[]) {
+            byte[] bytes = (byte[]) reply;
+            out.write("$" + bytes.length + "\r\n");
+            out.write(bytes, 0, bytes.length);
+            out.write(CRLF, 0, 2);
+        } else if (reply instanceof Long) {
+            out.write(":" + reply + "\r\n");
+        } else if (reply instanceof EmbeddedDataStore.Status) {
+            out.write("+" + ((EmbeddedDataStore.Status) reply).value + "\r\n");
+        } else if (reply instanceof EmbeddedDataStore.Error) {
+            out.write("-" + ((EmbeddedDataStore.Error) reply).message + "\r\n");
+        } else {
+            List<?> items = (List<?>) reply;
+            out.write("*" + items.size() + "\r\n");
+            for (Object item : items) {
+                encode(item, out);
+            }
+        }
+    }
+
+    /**
+     * 解析一条命令,数据不完整时返回 null,调用者负责恢复 position
+     */
+    static List<byte[]> parse(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return null;
+        }
+        if (in.get(in.position()) != '*') {
+            String line = line(in);
+            if (line == null) {
+                return null;
+            }
+            List<byte[]> command = new ArrayList<>();
+            for (String part : line.trim().split("\\s+")) {
+                if (!part.isEmpty()) {
+                    command.add(part.getBytes(StandardCharsets.ISO_8859_1));
+                }
+            }
+            return command;
+        }
+        in.get();
+        String header = line(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header);
+        List<byte[]> command = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            if (!in.hasRemaining()) {
+                return null;
+            }
+            if (in.get() != '$') {
+                throw new IllegalArgumentException("Protocol error: expected '$'");
+            }
+            String length = line(in);
+            if (length == null) {
+                return null;
+            }
+            int size = Integer.parseInt(length);
+            if (in.remaining() < size + 2) {
+                return null;
+            }
+            byte[] argument = new byte[size];
+            in.get(argument);
+            in.position(in.position() + 2);
+            command.add(argument);
+        }
+        return command;
+    }
+
+    private static String line(ByteBuffer in) {
+        for (int i = in.position(); i + 1 < in.limit(); i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                byte[] bytes = new byte[i - in.position()];
+                in.get(bytes);
+                in.position(in.position() + 2);
+                return new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 可以直接访问内部数组的输出缓冲
+     */
+    static final class Output extends ByteArrayOutputStream {
+
+        Output(int size) {
+            super(size);
+        }
+
+        void write(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * 一个客户端连接,只在 NIO 线程访问
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private SelectionKey key;
+
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private final Output out = new Output(BUFFER_SIZE);
+
+        /**out 中已经写出的字节数*/
+        private int written;
+
+        /**已排入 timer 尚未发送的延迟回复数*/
+        private int delayed;
+
+        /**最后一个延迟回复的发送时间,保证同一连接的回复顺序*/
+        private long lastDue;
+
+        private boolean closeAfterFlush;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            try {
+                while (!closeAfterFlush) {
+                    int start = in.position();
+                    List<byte[]> command = parse(in);
+                    if (command == null) {
+                        in.position(start);
+                        break;
+                    }
+                    if (!command.isEmpty()) {
+                        execute(command);
+                    }
+                }
+            } catch (RuntimeException e) {
+                reply(new EmbeddedDataStore.Error("ERR Protocol error: " + e.getMessage()));
+                closeAfterFlush = true;
+                in.clear();
+                in.flip();
+            }
+            in.compact();
+            if (!in.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                larger.put(in);
+                in = larger;
+            }
+            flush();
+        }
+
+        private void execute(List<byte[]> command) {
+            commands.increment();
+            if ("QUIT".equalsIgnoreCase(EmbeddedDataStore.str(command.get(0)))) {
+                reply(EmbeddedDataStore.OK);
+                closeAfterFlush = true;
+                return;
+            }
+            reply(store.execute(command));
+        }
+
+        private void reply(Object reply) {
+            long latency = latencyNanos;
+            if (latency <= 0 && delayed == 0) {
+                encode(reply, out);
+                return;
+            }
+            Output encoded = new Output(64);
+            encode(reply, encoded);
+            long now = System.nanoTime();
+            long due = Math.max(now + latency, lastDue);
+            lastDue = due;
+            delayed++;
+            timer.schedule(() -> submit(() -> {
+                delayed--;
+                out.write(encoded.buffer(), 0, encoded.size());
+                try {
+                    flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }), due - now, TimeUnit.NANOSECONDS);
+        }
+
+        void flush() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (written < out.size()) {
+                written += channel.write(ByteBuffer.wrap(out.buffer(), written, out.size() - written));
+            }
+            if (written < out.size()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            out.reset();
+            written = 0;
+            if (closeAfterFlush && delayed == 0) {
+                close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
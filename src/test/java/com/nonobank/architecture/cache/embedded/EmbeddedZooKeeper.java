@@ -0,0 +1,152 @@
+package com.nonobank.architecture.cache.embedded;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的单机 zookeeper,数据目录为临时目录,关闭时删除
+ * 通过 {@link #registerProxy(String, String)} 按 codis 的 zkProxyDir 格式注册 proxy,
+ * jodis RoundRobinJedisPool 和 {@link com.nonobank.architecture.cache.CodisProxyWatcher} 的发现逻辑与连接真实的 codis 时相同。
+ */
+public class EmbeddedZooKeeper implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedZooKeeper.class);
+
+    private static final int TICK_TIME = 2000;
+
+    private final File dataDir;
+
+    private final ZooKeeperServer server;
+
+    private final ServerCnxnFactory factory;
+
+    private final CuratorFramework client;
+
+    /**
+     * 监听随机端口
+     */
+    public EmbeddedZooKeeper() throws IOException {
+        this(0);
+    }
+
+    public EmbeddedZooKeeper(int port) throws IOException {
+        this.dataDir = Files.createTempDirectory("embedded-zookeeper").toFile();
+        this.server = new ZooKeeperServer(dataDir, dataDir, TICK_TIME);
+        this.factory = ServerCnxnFactory.createFactory(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+        try {
+            factory.startup(server);
+            this.client = CuratorFrameworkFactory.newClient(getConnectString(), new RetryOneTime(100));
+            client.start();
+            if (!client.blockUntilConnected(10, TimeUnit.SECONDS)) {
+                throw new IOException("cannot connect to embedded zookeeper: " + getConnectString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IOException("interrupted while starting embedded zookeeper", e);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return factory.getLocalPort();
+    }
+
+    /**
+     * @return 用于 zkAddressAndPort 的连接串
+     */
+    public String getConnectString() {
+        return "127.0.0.1:" + getPort();
+    }
+
+    /**
+     * 在 zkProxyDir 下注册一个 online 状态的 proxy,父节点不存在时创建
+     *
+     * @param address proxy 的 host:port
+     */
+    public void registerProxy(String zkProxyDir, String address) {
+        try {
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL)
+                    .forPath(proxyPath(zkProxyDir, address), proxyInfo(address, "online"));
+        } catch (Exception e) {
+            throw new IllegalStateException("cannot register proxy " + address + " under " + zkProxyDir, e);
+        }
+    }
+
+    /**
+     * 修改已注册 proxy 的状态,非 online 状态的 proxy 会被客户端忽略
+     */
+    public void setProxyState(String zkProxyDir, String address, String state) {
+        try {
+            client.setData().forPath(proxyPath(zkProxyDir, address), proxyInfo(address, state));
+        } catch (Exception e) {
+            throw new IllegalStateException("cannot update proxy " + address + " under " + zkProxyDir, e);
+        }
+    }
+
+    /**
+     * 删除已注册的 proxy,不存在时忽略
+     */
+    public void unregisterProxy(String zkProxyDir, String address) {
+        try {
+            client.delete().forPath(proxyPath(zkProxyDir, address));
+        } catch (KeeperException.NoNodeException e) {
+            // already removed
+        } catch (Exception e) {
+            throw new IllegalStateException("cannot unregister proxy " + address + " under " + zkProxyDir, e);
+        }
+    }
+
+    private static String proxyPath(String zkProxyDir, String address) {
+        return zkProxyDir + "/proxy-" + address.replace(':', '-');
+    }
+
+    private static byte[] proxyInfo(String address, String state) {
+        return ("{\"addr\":\"" + address + "\",\"state\":\"" + state + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (client != null) {
+            client.close();
+        }
+        factory.shutdown();
+        server.shutdown();
+        delete(dataDir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete() && file.exists()) {
+            log.info("cannot delete embedded zookeeper data, path:" + file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedZooKeeper[" + getConnectString() + "]";
+    }
+}
@@ -0,0 +1,87 @@
+package com.nonobank.architecture.cache.embedded;
+
+/**
+ * redis 的 glob 风格匹配,用于 KEYS 和 SCAN MATCH:支持 *、?、[abc]、[^abc]、[a-z] 和 \ 转义
+ */
+final class GlobMatcher {
+
+    private GlobMatcher() {
+    }
+
+    static boolean matches(String pattern, String text) {
+        return matches(pattern, 0, text, 0);
+    }
+
+    private static boolean matches(String pattern, int p, String text, int t) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            switch (c) {
+                case '*':
+                    while (p + 1 < pattern.length() && pattern.charAt(p + 1) == '*') {
+                        p++;
+                    }
+                    if (p + 1 == pattern.length()) {
+                        return true;
+                    }
+                    for (int i = t; i <= text.length(); i++) {
+                        if (matches(pattern, p + 1, text, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case '?':
+                    if (t >= text.length()) {
+                        return false;
+                    }
+                    t++;
+                    p++;
+                    break;
+                case '[': {
+                    if (t >= text.length()) {
+                        return false;
+                    }
+                    int end = p + 1;
+                    boolean negate = end < pattern.length() && pattern.charAt(end) == '^';
+                    if (negate) {
+                        end++;
+                    }
+                    boolean match = false;
+                    char ch = text.charAt(t);
+                    while (end < pattern.length() && pattern.charAt(end) != ']') {
+                        char first = pattern.charAt(end);
+                        if (first == '\\' && end + 1 < pattern.length()) {
+                            first = pattern.charAt(++end);
+                            match |= first == ch;
+                        } else if (end + 2 < pattern.length() && pattern.charAt(end + 1) == '-'
+                                && pattern.charAt(end + 2) != ']') {
+                            char last = pattern.charAt(end + 2);
+                            match |= first <= last ? first <= ch && ch <= last : last <= ch && ch <= first;
+                            end += 2;
+                        } else {
+                            match |= first == ch;
+                        }
+                        end++;
+                    }
+                    if (match == negate) {
+                        return false;
+                    }
+                    t++;
+                    p = Math.min(end + 1, pattern.length());
+                    break;
+                }
+                case '\\':
+                    if (p + 1 < pattern.length()) {
+                        c = pattern.charAt(++p);
+                    }
+                    // fall through
+                default:
+                    if (t >= text.length() || text.charAt(t) != c) {
+                        return false;
+                    }
+                    t++;
+                    p++;
+            }
+        }
+        return t == text.length();
+    }
+}
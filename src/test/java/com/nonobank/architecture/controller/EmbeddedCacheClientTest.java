@@ -0,0 +1,1451 @@
+package com.nonobank.architecture.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nonobank.architecture.cache.CacheClient;
+import com.nonobank.architecture.cache.CacheClientFactory;
+import com.nonobank.architecture.cache.CacheCommand;
+import com.nonobank.architecture.cache.CacheConfig;
+import com.nonobank.architecture.cache.CachePool;
+import com.nonobank.architecture.cache.CachePoolStats;
+import com.nonobank.architecture.cache.CacheScripts;
+import com.nonobank.architecture.cache.ForwardingCacheClient;
+import com.nonobank.architecture.cache.ProxyLoad;
+import com.nonobank.architecture.cache.ProxySelector;
+import com.nonobank.architecture.cache.async.ExecutorAsyncCacheClient;
+import com.nonobank.architecture.cache.breaker.CircuitBreaker;
+import com.nonobank.architecture.cache.breaker.CircuitBreakerOpenException;
+import com.nonobank.architecture.cache.breaker.CircuitBreakerStats;
+import com.nonobank.architecture.cache.breaker.CommandClass;
+import com.nonobank.architecture.cache.breaker.FallbackCacheClient;
+import com.nonobank.architecture.cache.codec.BinaryCodec;
+import com.nonobank.architecture.cache.codec.Codecs;
+import com.nonobank.architecture.cache.codec.JsonCodec;
+import com.nonobank.architecture.cache.codec.TypedCacheClient;
+import com.nonobank.architecture.cache.compress.CompressionStats;
+import com.nonobank.architecture.cache.embedded.EmbeddedCodis;
+import com.nonobank.architecture.cache.embedded.EmbeddedRespServer;
+import com.nonobank.architecture.cache.hedge.Hedger;
+import com.nonobank.architecture.cache.hotkey.HotKey;
+import com.nonobank.architecture.cache.hotkey.HotKeyCacheClient;
+import com.nonobank.architecture.cache.metrics.CacheMetrics;
+import com.nonobank.architecture.cache.metrics.LatencyStats;
+import com.nonobank.architecture.cache.metrics.MeteredCacheClient;
+import com.nonobank.architecture.cache.near.NearCacheClient;
+import com.nonobank.architecture.cache.near.NearCacheConfig;
+import com.nonobank.architecture.cache.nio.MultiplexedAsyncCacheClient;
+import com.nonobank.architecture.cache.pool.LockFreeJedisPool;
+import com.nonobank.architecture.cache.retry.RetryBudget;
+import com.nonobank.architecture.cache.retry.RetryPolicy;
+import com.nonobank.architecture.cache.retry.Retryer;
+import com.nonobank.architecture.cache.retry.RetryingCacheClient;
+import com.nonobank.architecture.cache.scan.KeyAnalyzer;
+import com.nonobank.architecture.cache.scan.KeyGroupStats;
+import com.nonobank.architecture.cache.scan.KeyScanner;
+import com.nonobank.architecture.cache.scan.ScanSummary;
+import com.nonobank.architecture.cache.scan.ScannedKey;
+import com.nonobank.architecture.cache.scan.TtlBackfill;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.management.MBeanServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CacheClient Tester,基于 {@link EmbeddedCodis} 的部分.
+ * 不加载 Spring 上下文,也不连接外部的 zookeeper 和 codis.
+ */
+public class EmbeddedCacheClientTest {
+
+    /**
+     * Method: batch(Consumer<CacheBatch> commands)
+     */
+    @Test
+    public void testBatch() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            try {
+                client.lpush("testBatchList", "a");
+                final Response<?>[] responses = new Response<?>[5];
+                List<Object> result = client.batch(b -> {
+                    b.set("testBatchKey", "1");
+                    responses[0] = b.get("testBatchKey");
+                    responses[1] = b.hset("testBatchHash", "field", "value");
+                    responses[2] = b.incr("testBatchList");
+                    responses[3] = b.incr("testBatchKey");
+                    responses[4] = b.zscore("testBatchZset", "member");
+                });
+                assertEquals(6, result.size());
+                assertEquals("OK", result.get(0));
+                assertEquals("1", result.get(1));
+                assertEquals(1L, result.get(2));
+                // 对列表执行 incr 失败,失败的结果是异常对象,不影响前后的命令
+                assertTrue(result.get(3) instanceof JedisDataException);
+                assertTrue(((JedisDataException) result.get(3)).getMessage().startsWith("WRONGTYPE"));
+                assertEquals(2L, result.get(4));
+                assertNull(result.get(5));
+                assertEquals("1", responses[0].get());
+                assertEquals(1L, responses[1].get());
+                try {
+                    responses[2].get();
+                    fail("the failed command's response must throw its own error");
+                } catch (JedisDataException e) {
+                    assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+                }
+                assertEquals(2L, responses[3].get());
+                assertNull(responses[4].get());
+                assertEquals("2", client.get("testBatchKey"));
+                assertEquals("value", client.hget("testBatchHash", "field"));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Method: get(String key, Function<String, String> loader, int ttlSeconds)
+     */
+    @Test
+    public void testGetWithLoader() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            int callers = 16;
+            ExecutorService executor = Executors.newFixedThreadPool(callers);
+            try {
+                AtomicInteger loads = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<String>> values = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    values.add(executor.submit(() -> {
+                        start.await();
+                        return client.get("testLoaderKey", key -> {
+                            loads.incrementAndGet();
+                            try {
+                                Thread.sleep(200);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return "loaded-" + key;
+                        }, 10);
+                    }));
+                }
+                start.countDown();
+                for (Future<String> value : values) {
+                    assertEquals("loaded-testLoaderKey", value.get(5, TimeUnit.SECONDS));
+                }
+                // 并发未命中的调用方只加载一次,结果按指定的有效期写入
+                assertEquals(1, loads.get());
+                long ttl = client.ttl("testLoaderKey");
+                assertTrue("ttl:" + ttl, ttl > 0 && ttl <= 10);
+                assertEquals("loaded-testLoaderKey", client.get("testLoaderKey", key -> {
+                    loads.incrementAndGet();
+                    return "reloaded-" + key;
+                }, 10));
+                assertEquals(1, loads.get());
+            } finally {
+                executor.shutdownNow();
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testGetRefreshAhead() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            // beta 足够大时,加载耗时 50ms 的值在 2 秒有效期内的每次读取几乎都会触发提前刷新
+            config.setRefreshAheadBeta(1000000);
+            CacheClient client = new CacheClient(config);
+            try {
+                AtomicInteger loads = new AtomicInteger();
+                assertEquals("v1", client.getRefreshAhead("testRefreshKey", key -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "v1";
+                }, 2));
+                assertEquals(1, loads.get());
+                // 普通 get 读到的是带到期时间和加载耗时的信封,而不是原始值
+                String raw = client.get("testRefreshKey");
+                assertTrue(raw, raw.startsWith("\u0001xf:") && raw.endsWith(":v1"));
+
+                CountDownLatch refreshing = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                Function<String, String> slowLoader = key -> {
+                    loads.incrementAndGet();
+                    refreshing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "v2";
+                };
+                for (int i = 0; i < 10 && refreshing.getCount() > 0; i++) {
+                    assertEquals("v1", client.getRefreshAhead("testRefreshKey", slowLoader, 2));
+                }
+                assertTrue("refresh must have been triggered", refreshing.await(5, TimeUnit.SECONDS));
+                // 刷新在后台进行期间继续返回旧值,也不会再启动第二次加载
+                for (int i = 0; i < 10; i++) {
+                    assertEquals("v1", client.getRefreshAhead("testRefreshKey", slowLoader, 2));
+                }
+                assertEquals(2, loads.get());
+                release.countDown();
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!client.get("testRefreshKey").endsWith(":v2") && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertTrue(client.get("testRefreshKey").endsWith(":v2"));
+                assertEquals(2, loads.get());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testGetWithLoaderFailure() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setLoaderLease(true);
+            CacheClient client = new CacheClient(config);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch release = new CountDownLatch(1);
+                Future<String> first = executor.submit(() -> client.get("testLoaderFailure", key -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new Error("loader failed");
+                }, 10));
+                started.await();
+                Future<String> second = executor.submit(() -> client.get("testLoaderFailure", key -> "loaded", 10));
+                Thread.sleep(50);
+                release.countDown();
+                try {
+                    first.get(5, TimeUnit.SECONDS);
+                    fail("the loader error must reach the loading thread");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof Error);
+                }
+                try {
+                    assertEquals("loaded", second.get(5, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    // 等待同一次加载的线程得到同一个错误,而不是一直阻塞
+                    assertEquals("loader failed", e.getCause().getCause().getMessage());
+                }
+                assertEquals("loaded", client.get("testLoaderFailure", key -> "loaded", 10));
+                assertEquals(Boolean.FALSE, client.exists("__lease:testLoaderFailure"));
+            } finally {
+                executor.shutdownNow();
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testExecutorAsyncClient() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setAsyncTimeoutMillis(5000);
+            CacheClient sync = new CacheClient(config);
+            ExecutorAsyncCacheClient client = new ExecutorAsyncCacheClient(sync, config);
+            try {
+                assertEquals(Boolean.TRUE, client.set("testAsyncKey", "testAsyncValue").get(5, TimeUnit.SECONDS));
+                assertEquals("testAsyncValue", client.get("testAsyncKey").get(5, TimeUnit.SECONDS));
+
+                ExecutorAsyncCacheClient view = (ExecutorAsyncCacheClient) client.withTimeout(50, TimeUnit.MILLISECONDS);
+                codis.setLatencyMicros(300000);
+                try {
+                    view.get("testAsyncKey").get(5, TimeUnit.SECONDS);
+                    fail("the view must time out after 50ms");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof TimeoutException);
+                }
+                codis.setLatencyMicros(0);
+                assertEquals(1, client.getTimedOutCount());
+
+                view.close();
+                assertEquals("closing a view must not shut down the shared executor",
+                        "testAsyncValue", client.get("testAsyncKey").get(5, TimeUnit.SECONDS));
+            } finally {
+                client.close();
+                sync.close();
+            }
+            try {
+                client.get("testAsyncKey").get(5, TimeUnit.SECONDS);
+                fail("a closed client must reject commands");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionStringCommands() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setCompression(true);
+            config.setCompressionThreshold(1024);
+            CacheClient client = new CacheClient(config);
+            CacheClient plain = new CacheClient(codis.newConfig());
+            try {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < 1000; i++) {
+                    builder.append("{\"id\":").append(i).append(",\"name\":\"testCompression\"},");
+                }
+                String value = builder.toString();
+                client.set("testCompression:strings", value);
+                assertTrue("value must be stored compressed", plain.getBytes("testCompression:strings").length < value.length());
+                assertEquals(value, client.get("testCompression:strings"));
+                CompressionStats stats = client.getCompressionStats().get("testCompression");
+                assertEquals(1, stats.getWrites());
+                assertEquals(1, stats.getCompressedWrites());
+                assertEquals(value.length(), stats.getRawBytes());
+                assertEquals(plain.getBytes("testCompression:strings").length, stats.getStoredBytes());
+                assertTrue(stats.getRatio() < 0.5);
+                assertEquals(1, stats.getDecompressedReads());
+                assertEquals(Long.valueOf(value.length()), client.strlen("testCompression:strings"));
+                assertEquals(value.substring(0, 10), client.getrange("testCompression:strings", 0, 9));
+                assertEquals(value.substring(value.length() - 5), client.getrange("testCompression:strings", -5, -1));
+                assertEquals(value.substring(3, 8), client.substr("testCompression:strings", 3, 7));
+                assertEquals("", client.getrange("testCompression:missing", 0, 9));
+                assertEquals(Long.valueOf(0), client.strlen("testCompression:missing"));
+                try {
+                    client.append("testCompression:strings", "x");
+                    fail("append must not modify a possibly compressed value");
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+                try {
+                    client.setrange("testCompression:strings", 0, "x");
+                    fail("setrange must not modify a possibly compressed value");
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+
+                // 被其他客户端破坏的压缩值读取时报错,而不是把损坏的字节当作值返回
+                plain.setrange("testCompression:strings", 2, "\u007f\u007f\u007f\u007f");
+                try {
+                    client.get("testCompression:strings");
+                    fail("a corrupt compressed value must fail loudly");
+                } catch (JedisDataException e) {
+                    // expected
+                }
+            } finally {
+                client.close();
+                plain.close();
+            }
+        }
+    }
+
+    @Test
+    public void testMultiplexedEngine() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setMultiplexConnectionsPerProxy(1);
+            MultiplexedAsyncCacheClient client = new MultiplexedAsyncCacheClient(config);
+            int threads = 8;
+            int perThread = 200;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                assertEquals(Boolean.TRUE, client.set("testMultiplexedKey", "testValue").get(5, TimeUnit.SECONDS));
+                for (int i = 0; i < perThread; i++) {
+                    client.set("testMultiplexedKey" + i, "v" + i);
+                }
+                assertEquals("v" + (perThread - 1), client.get("testMultiplexedKey" + (perThread - 1)).get(5, TimeUnit.SECONDS));
+                long written = client.getEngine().getCommandsWritten();
+                long flushes = client.getEngine().getFlushes();
+
+                // 多个线程在同一个连接上交错发送不同类型的命令,每个 future 都得到自己命令的回复
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<CompletableFuture<?>>>> submitted = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    String counter = "testMultiplexedCounter" + t;
+                    submitted.add(executor.submit(() -> {
+                        start.await();
+                        List<CompletableFuture<?>> futures = new ArrayList<>();
+                        for (int i = 0; i < perThread; i++) {
+                            futures.add(client.get("testMultiplexedKey" + i));
+                            futures.add(client.incr(counter));
+                        }
+                        return futures;
+                    }));
+                }
+                start.countDown();
+                for (Future<List<CompletableFuture<?>>> future : submitted) {
+                    List<CompletableFuture<?>> futures = future.get(5, TimeUnit.SECONDS);
+                    for (int i = 0; i < perThread; i++) {
+                        assertEquals("v" + i, futures.get(2 * i).get(5, TimeUnit.SECONDS));
+                        assertEquals(Long.valueOf(i + 1), futures.get(2 * i + 1).get(5, TimeUnit.SECONDS));
+                    }
+                }
+                long commands = client.getEngine().getCommandsWritten() - written;
+                assertEquals(2L * threads * perThread, commands);
+                assertTrue("concurrent commands must share flushes", client.getEngine().getFlushes() - flushes < commands);
+            } finally {
+                executor.shutdownNow();
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHedge() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(2)) {
+            CacheConfig config = codis.newConfig();
+            config.setMultiplexConnectionsPerProxy(1);
+            config.setHedge(true);
+            config.setHedgeMinDelayMicros(10000);
+            config.setHedgeMaxDelayMicros(500000);
+            MultiplexedAsyncCacheClient client = new MultiplexedAsyncCacheClient(config);
+            try {
+                assertEquals(Boolean.TRUE, client.set("testHedgeKey", "testValue").get(5, TimeUnit.SECONDS));
+                Hedger hedger = client.getEngine().getHedger();
+                // 样本不足时按 hedgeMaxDelayMicros 对冲
+                assertEquals(TimeUnit.MICROSECONDS.toNanos(500000), hedger.getDelayNanos());
+                for (int i = 0; i < 200; i++) {
+                    assertEquals("testValue", client.get("testHedgeKey").get(5, TimeUnit.SECONDS));
+                }
+                // 分位数每 100ms 重新计算一次,本机 p95 远小于 10ms,对冲延迟取下限
+                Thread.sleep(150);
+                assertEquals(TimeUnit.MICROSECONDS.toNanos(10000), hedger.getDelayNanos());
+                long hedges = hedger.getHedges();
+                long wins = hedger.getWins();
+
+                // 一个 proxy 变慢后,发给它的读命令超过 p95 时对冲到另一个 proxy,由对冲的回复完成
+                codis.getProxies().get(0).setLatencyMicros(200000);
+                for (int i = 0; i < 6; i++) {
+                    long begin = System.nanoTime();
+                    assertEquals("testValue", client.get("testHedgeKey").get(5, TimeUnit.SECONDS));
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                    assertTrue("elapsed millis: " + elapsedMillis, elapsedMillis < 100);
+                }
+                // 轮流发给两个 proxy,至少一半的读命令被对冲并由对冲的回复完成
+                assertTrue(hedger.toString(), hedger.getWins() - wins >= 3);
+                assertTrue(hedger.toString(), hedger.getHedges() - hedges >= hedger.getWins() - wins);
+                assertEquals(206, hedger.getRequests());
+            } finally {
+                client.close();
+            }
+        }
+
+        // 对冲次数不超过只读命令数的 hedgeBudgetRatio
+        CacheConfig config = new CacheConfig();
+        config.setHedgeBudgetRatio(0.1);
+        config.setHedgeBudgetMinPerSecond(0);
+        Hedger hedger = new Hedger(config);
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            hedger.onRequest();
+        }
+        for (int i = 0; i < 20; i++) {
+            if (hedger.tryHedge()) {
+                allowed++;
+            }
+        }
+        assertEquals(10, allowed);
+        assertEquals(10, hedger.getHedges());
+        assertEquals(10, hedger.getExhausted());
+    }
+
+    @Test
+    public void testTypedClient() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            TypedCacheClient typed = new TypedCacheClient(client);
+            try {
+                TypedValue value = new TypedValue();
+                value.id = 10086L;
+                value.name = "测试";
+                value.tags = Arrays.asList("a", "b");
+
+                typed.setExpire("testTypedJson", 10, value, JsonCodec.of(TypedValue.class));
+                assertEquals(value, typed.get("testTypedJson", JsonCodec.of(TypedValue.class)));
+                assertEquals(value, typed.get("testTypedJson", TypedValue.class));
+                assertTrue(client.get("testTypedJson").contains("\"name\":\"测试\""));
+
+                typed.set("testTypedBinary", value, BinaryCodec.of(TypedValue.class));
+                assertEquals(value, typed.get("testTypedBinary", BinaryCodec.of(TypedValue.class)));
+                assertTrue("binary encoding must be more compact than json",
+                        client.getBytes("testTypedBinary").length < client.getBytes("testTypedJson").length);
+                // 不是二进制编码的值按未命中处理,不会解码出错误的对象
+                assertNull(typed.get("testTypedJson", BinaryCodec.of(TypedValue.class)));
+                assertNull(typed.get("testTypedMissing", BinaryCodec.of(TypedValue.class)));
+
+                typed.hset("testTypedHash", "f1", 8L, Codecs.LONG);
+                typed.hset("testTypedHash", "f2", 9L, Codecs.LONG);
+                assertEquals(Long.valueOf(9), typed.hget("testTypedHash", "f2", Codecs.LONG));
+                Map<String, Long> hash = typed.hgetAll("testTypedHash", Codecs.LONG);
+                assertEquals(2, hash.size());
+                assertEquals(Long.valueOf(8), hash.get("f1"));
+                assertEquals(Long.valueOf(9), hash.get("f2"));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    public static class TypedValue {
+
+        public long id;
+
+        public String name;
+
+        public Integer score;
+
+        public List<String> tags;
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TypedValue)) {
+                return false;
+            }
+            TypedValue other = (TypedValue) o;
+            return id == other.id && Objects.equals(name, other.name) && Objects.equals(score, other.score)
+                    && Objects.equals(tags, other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name, score, tags);
+        }
+    }
+
+    @Test
+    public void testBinaryValues() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            MultiplexedAsyncCacheClient async = new MultiplexedAsyncCacheClient(codis.newConfig());
+            try {
+                // 不是合法 UTF-8 的字节按原样往返,不经过 String 转换
+                byte[] value = new byte[256];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = (byte) i;
+                }
+                assertEquals(Boolean.TRUE, client.setBytes("testBinaryKey", value));
+                assertArrayEquals(value, client.getBytes("testBinaryKey"));
+                assertNull(client.getBytes("testBinaryMissing"));
+                assertEquals(Long.valueOf(1), client.hsetBytes("testBinaryHash", "f", value));
+                assertArrayEquals(value, client.hgetBytes("testBinaryHash", "f"));
+                assertNull(client.hgetBytes("testBinaryHash", "missing"));
+                List<byte[]> values = client.mgetBytes("testBinaryKey", "testBinaryMissing");
+                assertEquals(2, values.size());
+                assertArrayEquals(value, values.get(0));
+                assertNull(values.get(1));
+
+                assertArrayEquals(value, async.getBytes("testBinaryKey").get(5, TimeUnit.SECONDS));
+                assertArrayEquals(value, async.hgetBytes("testBinaryHash", "f").get(5, TimeUnit.SECONDS));
+                assertArrayEquals(value, async.mgetBytes("testBinaryKey", "testBinaryMissing").get(5, TimeUnit.SECONDS).get(0));
+
+                // 切片读取:reader 直接读取回复中的字节,key 或字段不存在时不调用 reader
+                assertEquals(Integer.valueOf(value.length), async.getBuffer("testBinaryKey", ByteBuffer::remaining).get(5, TimeUnit.SECONDS));
+                assertEquals(Byte.valueOf((byte) 255), async.getBuffer("testBinaryKey", buffer -> buffer.get(buffer.position() + 255)).get(5, TimeUnit.SECONDS));
+                assertArrayEquals(value, async.hgetBuffer("testBinaryHash", "f", buffer -> {
+                    byte[] copy = new byte[buffer.remaining()];
+                    buffer.get(copy);
+                    return copy;
+                }).get(5, TimeUnit.SECONDS));
+                assertNull(async.getBuffer("testBinaryMissing", buffer -> {
+                    throw new AssertionError("reader must not run for a missing key");
+                }).get(5, TimeUnit.SECONDS));
+                assertNull(async.hgetBuffer("testBinaryHash", "missing", buffer -> {
+                    throw new AssertionError("reader must not run for a missing field");
+                }).get(5, TimeUnit.SECONDS));
+            } finally {
+                async.close();
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionBatch() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setCompression(true);
+            config.setCompressionThreshold(1024);
+            CacheClient client = new CacheClient(config);
+            CacheClient plain = new CacheClient(codis.newConfig());
+            try {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < 1000; i++) {
+                    builder.append("{\"id\":").append(i).append(",\"name\":\"testCompression\"},");
+                }
+                String value = builder.toString();
+                List<Object> written = client.batch(b -> {
+                    b.set("testCompression:batch", value);
+                    b.hset("testCompression:batchHash", "f", value);
+                    b.mset("testCompression:batch1", value, "testCompression:batch2", "small");
+                    b.setExpire("testCompression:batchExpiring", 60, value);
+                });
+                assertEquals(Arrays.<Object>asList("OK", 1L, "OK", "OK"), written);
+                // 批量写入的值和单条命令写入的一样压缩保存
+                assertTrue(plain.getBytes("testCompression:batch").length < value.length());
+                assertTrue(plain.hgetBytes("testCompression:batchHash", "f").length < value.length());
+                assertTrue(plain.getBytes("testCompression:batch1").length < value.length());
+                assertTrue(plain.getBytes("testCompression:batchExpiring").length < value.length());
+                assertEquals("small", plain.get("testCompression:batch2"));
+                assertEquals(value, client.get("testCompression:batch"));
+                assertEquals(value, client.hget("testCompression:batchHash", "f"));
+
+                client.set("testCompression:single", value);
+                final Response<?>[] responses = new Response<?>[2];
+                List<Object> read = client.batch(b -> {
+                    responses[0] = b.get("testCompression:single");
+                    b.hget("testCompression:batchHash", "f");
+                    b.mget("testCompression:batch1", "testCompression:batch2", "testCompression:missing");
+                    b.hgetAll("testCompression:batchHash");
+                    b.strlen("testCompression:batch");
+                    b.getrange("testCompression:batch", 0, 9);
+                    responses[1] = b.getBytes("testCompression:batch");
+                    b.get("testCompression:missing");
+                });
+                assertEquals(8, read.size());
+                assertEquals(value, read.get(0));
+                assertEquals(value, responses[0].get());
+                assertEquals(value, read.get(1));
+                assertEquals(Arrays.asList(value, "small", null), read.get(2));
+                assertEquals(Collections.singletonMap("f", value), read.get(3));
+                assertEquals((long) value.length(), read.get(4));
+                assertEquals(value.substring(0, 10), read.get(5));
+                assertArrayEquals(value.getBytes("UTF-8"), (byte[]) responses[1].get());
+                assertNull(read.get(7));
+
+                try {
+                    client.batch(b -> b.append("testCompression:batch", "x"));
+                    fail("append must not modify a possibly compressed value");
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+
+                // multiplexed 引擎不解压,和压缩一起开启时创建客户端失败
+                CacheConfig multiplexed = codis.newConfig();
+                multiplexed.setCompression(true);
+                multiplexed.setEngine(CacheClientFactory.ENGINE_MULTIPLEXED);
+                try {
+                    CacheClientFactory.create(multiplexed);
+                    fail("the multiplexed engine must reject compression");
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            } finally {
+                client.close();
+                plain.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            try {
+                client.set("testRetryKey", "testValue");
+                client.lpush("testRetryList", "a");
+                AtomicInteger attempts = new AtomicInteger();
+                AtomicInteger failures = new AtomicInteger();
+                // 前 failures 次调用在发出命令之后断开连接
+                ForwardingCacheClient flaky = new ForwardingCacheClient(client) {
+                    @Override
+                    protected <T> T invoke(CacheCommand command, String key, Object value, Supplier<T> call) {
+                        attempts.incrementAndGet();
+                        if (failures.getAndDecrement() > 0) {
+                            throw new JedisConnectionException("connection reset");
+                        }
+                        return call.get();
+                    }
+                };
+                RetryingCacheClient retrying = new RetryingCacheClient(flaky,
+                        new Retryer(new RetryPolicy(3, 1, 5), new RetryBudget(0.1, 100)));
+                RetryBudget budget = retrying.getRetryer().getBudget();
+
+                failures.set(2);
+                assertEquals("testValue", retrying.get("testRetryKey"));
+                assertEquals(3, attempts.get());
+                assertEquals(1, budget.getRequests());
+                assertEquals(2, budget.getRetries());
+
+                // 重试次数用完后抛出最后一次的异常
+                attempts.set(0);
+                failures.set(3);
+                try {
+                    retrying.get("testRetryKey");
+                    fail("the failure must surface once the attempts are used up");
+                } catch (JedisConnectionException e) {
+                    assertEquals("connection reset", e.getMessage());
+                }
+                assertEquals(3, attempts.get());
+                assertEquals(4, budget.getRetries());
+
+                // 已经发出的非幂等命令不重试
+                attempts.set(0);
+                failures.set(1);
+                try {
+                    retrying.incr("testRetryCounter");
+                    fail("incr must not be retried after it may have been sent");
+                } catch (JedisConnectionException expected) {
+                }
+                assertEquals(1, attempts.get());
+
+                // redis 返回的错误重试也不会成功,不重试
+                attempts.set(0);
+                failures.set(0);
+                try {
+                    retrying.get("testRetryList");
+                    fail("get on a list must fail with WRONGTYPE");
+                } catch (JedisDataException e) {
+                    assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+                }
+                assertEquals(1, attempts.get());
+                assertEquals(4, budget.getRetries());
+                assertEquals(4, budget.getRequests());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setCircuitBreaker(true);
+            config.setCircuitBreakerMinimumCalls(3);
+            config.setCircuitBreakerFailureRateThreshold(0.5);
+            config.setCircuitBreakerOpenMillis(60000);
+            CacheClient client = new CacheClient(config);
+            FallbackCacheClient fallback = new FallbackCacheClient(client, config);
+            try {
+                assertEquals(Boolean.TRUE, client.set("testBreakerKey", "testValue"));
+                EmbeddedRespServer proxy = codis.getProxies().get(0);
+                proxy.close();
+                // proxy 不可用,前 minimumCalls 次失败照常抛出连接异常
+                for (int i = 0; i < 3; i++) {
+                    try {
+                        client.get("testBreakerKey");
+                        fail("the proxy is down");
+                    } catch (JedisConnectionException e) {
+                        assertFalse(e instanceof CircuitBreakerOpenException);
+                    }
+                }
+                CircuitBreakerStats read = null;
+                for (CircuitBreakerStats stats : client.getCircuitBreakerStats()) {
+                    if (stats.getName().equals(proxy.getAddress() + "/" + CommandClass.READ)) {
+                        read = stats;
+                    }
+                }
+                assertEquals(CircuitBreaker.State.OPEN, read.getState());
+                assertEquals(1, read.getOpened());
+                assertEquals(3, read.getFailures());
+                // 打开期间直接拒绝,不再等待连接
+                for (int i = 0; i < 5; i++) {
+                    try {
+                        client.get("testBreakerKey");
+                        fail("the breaker is open");
+                    } catch (CircuitBreakerOpenException expected) {
+                    }
+                }
+                // fallback=miss 时读命令按 key 不存在返回,loader 的结果直接返回
+                assertNull(fallback.get("testBreakerKey"));
+                assertEquals("loaded-testBreakerKey", fallback.get("testBreakerKey", key -> "loaded-" + key, 10));
+                for (CircuitBreakerStats stats : client.getCircuitBreakerStats()) {
+                    if (stats.getName().equals(read.getName())) {
+                        assertEquals(7, stats.getRejected());
+                        assertEquals(3, stats.getCalls());
+                    }
+                }
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testProxyLoads() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(2)) {
+            EmbeddedRespServer slow = codis.getProxies().get(0);
+            EmbeddedRespServer idle = codis.getProxies().get(1);
+            slow.setLatencyMicros(5000);
+            CacheConfig config = codis.newConfig();
+            config.setProxySelector(ProxySelector.LEAST_LOADED);
+            config.setProxySlowStartMillis(0);
+            CacheClient client = new CacheClient(config);
+            try {
+                client.set("testProxyLoadsKey", "testValue");
+                for (int i = 0; i < 200; i++) {
+                    assertEquals("testValue", client.get("testProxyLoadsKey"));
+                }
+                List<ProxyLoad> loads = client.getProxyLoads();
+                assertEquals(2, loads.size());
+                ProxyLoad slowLoad = null;
+                ProxyLoad idleLoad = null;
+                for (ProxyLoad load : loads) {
+                    if (load.getAddress().getPort() == slow.getPort()) {
+                        slowLoad = load;
+                    } else if (load.getAddress().getPort() == idle.getPort()) {
+                        idleLoad = load;
+                    }
+                }
+                assertEquals(201, slowLoad.getRequests() + idleLoad.getRequests());
+                assertEquals(0, slowLoad.getInFlight() + idleLoad.getInFlight());
+                // 有了延迟样本之后绝大部分命令发给空闲的 proxy,慢的 proxy 只在延迟衰减后偶尔被探测
+                assertTrue(loads.toString(), idleLoad.getRequests() > 4 * slowLoad.getRequests());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testEnvironmentPool() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig payConfig = codis.newConfig();
+            payConfig.setEnvrionment("pay");
+            payConfig.setBulkheadMaxConcurrent(8);
+            CacheConfig otherPayConfig = codis.newConfig();
+            otherPayConfig.setEnvrionment("pay");
+            CacheConfig mktConfig = codis.newConfig();
+            mktConfig.setEnvrionment("mkt");
+            CacheClient pay = new CacheClient(payConfig);
+            CacheClient otherPay = new CacheClient(otherPayConfig);
+            CacheClient mkt = new CacheClient(mktConfig);
+            try {
+                // 同一集群同一环境的客户端共享一个连接池,不同环境各用一个
+                CachePoolStats payStats = pay.getPoolStats();
+                assertEquals(payStats.getName(), otherPay.getPoolStats().getName());
+                assertFalse(payStats.getName().equals(mkt.getPoolStats().getName()));
+                assertEquals(2, payStats.getClients());
+                assertEquals(1, mkt.getPoolStats().getClients());
+
+                pay.set("testEnvironmentPoolKey", "testValue");
+                assertEquals("testValue", otherPay.get("testEnvironmentPoolKey"));
+                assertEquals(2, pay.getPoolStats().getBorrows());
+                assertEquals(0, mkt.getPoolStats().getBorrows());
+
+                // 每个客户端关闭时释放一次引用,重复关闭不会多释放,其他客户端继续使用同一个连接池
+                pay.close();
+                pay.close();
+                assertEquals(1, otherPay.getPoolStats().getClients());
+                assertEquals("testValue", otherPay.get("testEnvironmentPoolKey"));
+                assertEquals(3, otherPay.getPoolStats().getBorrows());
+                assertTrue(poolNames().contains(payStats.getName()));
+
+                // 最后一个客户端关闭时关闭连接池,不影响其他环境的连接池
+                otherPay.close();
+                assertFalse(poolNames().contains(payStats.getName()));
+                assertTrue(poolNames().contains(mkt.getPoolStats().getName()));
+                assertEquals(1, mkt.getPoolStats().getClients());
+                try {
+                    otherPay.get("testEnvironmentPoolKey");
+                    fail("the pool is closed after its last client");
+                } catch (JedisException expected) {
+                }
+                assertEquals("testValue", mkt.get("testEnvironmentPoolKey"));
+            } finally {
+                mkt.close();
+            }
+        }
+    }
+
+    private static Set<String> poolNames() {
+        Set<String> names = new HashSet<>();
+        for (CachePoolStats stats : CachePool.getAllStats()) {
+            names.add(stats.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testWarmup() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(2)) {
+            CacheConfig config = codis.newConfig();
+            config.setEnvrionment("infra");
+            config.setWarmup(true);
+            config.setWarmupConnectionsPerProxy(4);
+            CacheClient client = new CacheClient(config);
+            try {
+                // 构造函数返回前每个 proxy 已建立并 PING 过 4 个连接,全部空闲,minIdle 提高到同样的数量
+                assertTrue(client.isReady());
+                CachePoolStats stats = client.getPoolStats();
+                assertEquals(8, stats.getIdle());
+                assertEquals(0, stats.getActive());
+                assertEquals(0, stats.getBorrows());
+                for (EmbeddedRespServer proxy : codis.getProxies()) {
+                    assertEquals(4, proxy.getCommandCount());
+                }
+
+                // 第一次调用直接使用预热的连接,不再新建
+                assertNull(client.get("testWarmupKey"));
+                stats = client.getPoolStats();
+                assertEquals(1, stats.getBorrows());
+                assertEquals(8, stats.getIdle());
+                assertEquals(0, stats.getActive());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHotKey() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setHotKey(true);
+            config.setHotKeyTopN(3);
+            config.setHotKeyWindowMillis(10000);
+            config.setHotKeyThresholdPerSecond(50);
+            config.setHotKeyLocalCache(true);
+            config.setHotKeyLocalTtlMillis(60000);
+            CacheClient cacheClient = new CacheClient(config);
+            HotKeyCacheClient client = new HotKeyCacheClient(cacheClient, config);
+            try {
+                client.set("testHotKey", "hot");
+                client.set("testWarmKey", "warm");
+                for (int i = 0; i < 100; i++) {
+                    client.set("testColdKey" + i, "cold");
+                }
+                long before = codis.getProxies().get(0).getCommandCount();
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals("hot", client.get("testHotKey"));
+                    if (i % 10 < 7) {
+                        assertEquals("warm", client.get("testWarmKey"));
+                    }
+                    if (i % 100 < 5) {
+                        assertEquals("cold", client.get("testColdKey" + i / 100));
+                    }
+                }
+                // 一个窗口内阈值为 500 次,只有访问超过阈值的 key 进入热点列表,按访问频率排列
+                List<HotKey> hotKeys = client.getHotKeys();
+                assertEquals(hotKeys.toString(), 2, hotKeys.size());
+                assertEquals("testHotKey", hotKeys.get(0).getKey());
+                assertEquals("testWarmKey", hotKeys.get(1).getKey());
+                assertTrue(hotKeys.get(0).getEstimatedPerSecond() >= 100);
+                assertTrue(client.getDetector().isHot("testHotKey"));
+                assertFalse(client.getDetector().isHot("testColdKey0"));
+
+                // 成为热点之后的读取在本地命中,不再访问 codis
+                long remote = codis.getProxies().get(0).getCommandCount() - before;
+                assertEquals(1700 + 50, client.getLocalHits() + remote);
+                assertTrue("local hits: " + client.getLocalHits(), client.getLocalHits() >= 600);
+
+                // 通过本客户端的写入立即失效本地数据
+                client.set("testHotKey", "hot2");
+                assertEquals("hot2", client.get("testHotKey"));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerLateFailure() throws Exception {
+        CacheConfig config = new CacheConfig();
+        config.setCircuitBreakerMinimumCalls(1);
+        config.setCircuitBreakerFailureRateThreshold(0.5);
+        config.setCircuitBreakerOpenMillis(300);
+        config.setCircuitBreakerHalfOpenProbes(1);
+        CircuitBreaker breaker = new CircuitBreaker("testLateFailure", config);
+        breaker.onResult(0, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(150);
+        // 打开之后才到达的失败回报不能重新开始打开计时
+        breaker.onResult(0, true);
+        Thread.sleep(200);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onResult(0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getStats().getOpened());
+    }
+
+    @Test
+    public void testLockFreePool() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setPoolType("lockFree");
+            CacheClient client = new CacheClient(config);
+            try {
+                client.set("testLockFreeKey", "testLockFreeValue");
+                assertEquals("testLockFreeValue", client.get("testLockFreeKey"));
+                // 同一个线程依次执行的命令复用同一个连接,归还后连接留在池中空闲
+                CachePoolStats stats = client.getPoolStats();
+                assertEquals(2, stats.getBorrows());
+                assertEquals(0, stats.getActive());
+                assertEquals(1, stats.getIdle());
+                assertEquals(0, stats.getFailures());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testLockFreePoolEviction() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            int port = codis.getProxies().get(0).getPort();
+            GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+            poolConfig.setMaxTotal(8);
+            poolConfig.setMinIdle(1);
+            poolConfig.setMinEvictableIdleTimeMillis(200);
+            poolConfig.setTimeBetweenEvictionRunsMillis(50);
+            LockFreeJedisPool pool = new LockFreeJedisPool(poolConfig, new BasePooledObjectFactory<Jedis>() {
+                @Override
+                public Jedis create() {
+                    return new Jedis("127.0.0.1", port);
+                }
+
+                @Override
+                public PooledObject<Jedis> wrap(Jedis jedis) {
+                    return new DefaultPooledObject<>(jedis);
+                }
+            });
+            try {
+                List<Jedis> borrowed = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    Jedis jedis = pool.getResource();
+                    assertEquals("PONG", jedis.ping());
+                    borrowed.add(jedis);
+                }
+                assertEquals(4, pool.getNumActive());
+                pool.invalidateObject(borrowed.remove(3));
+                assertEquals(3, pool.getNumActive());
+                for (Jedis jedis : borrowed) {
+                    jedis.close();
+                }
+                assertEquals(0, pool.getNumActive());
+                assertEquals(3, pool.getNumIdle());
+                // 空闲检测运行多次之后,空闲超过 minEvictableIdleTimeMillis 的连接被回收到 minIdle
+                long deadline = System.currentTimeMillis() + 3000;
+                while (pool.getNumIdle() > 1 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(1, pool.getNumIdle());
+            } finally {
+                pool.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setEnvrionment("acc");
+            config.setMetrics(true);
+            CacheClient pooled = new CacheClient(config);
+            MeteredCacheClient client = new MeteredCacheClient(pooled, pooled.getMetrics());
+            try {
+                client.set("testMetricsKey", "testMetricsValue");
+                assertEquals("testMetricsValue", client.get("testMetricsKey"));
+                assertNull(client.get("testMetricsMissing"));
+                LatencyStats get = client.getMetrics().getCommand("get");
+                assertEquals(2, get.getCalls());
+                assertEquals(0, get.getErrors());
+                assertEquals("testMetricsValue".length(), get.getBytesIn());
+                LatencyStats set = client.getMetrics().getCommand("set");
+                assertEquals(1, set.getCalls());
+                assertEquals("testMetricsKey".length() + "testMetricsValue".length(), set.getBytesOut());
+                assertFalse(client.getMetrics().getProxies().isEmpty());
+                System.out.println("--test metrics commands---"+client.getMetrics().getCommands()+"--");
+            } finally {
+                client.close();
+            }
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CacheMetrics first = new CacheMetrics("testMetricsJmx", new CacheConfig());
+        CacheMetrics second = new CacheMetrics("testMetricsJmx", new CacheConfig());
+        try {
+            long registered = server.queryNames(null, null).stream()
+                    .filter(name -> name.toString().contains("testMetricsJmx")).count();
+            assertEquals(2, registered);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void testEmbeddedCodis() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(2)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            client.set("testEmbeddedKey", "testEmbeddedValue");
+            client.zadd("testEmbeddedZset", 1, "a");
+            codis.setLatencyMicros(1000);
+            System.out.println("--test embedded codis---"+client.get("testEmbeddedKey")+"--"+client.zrangeWithScores("testEmbeddedZset", 0, -1)+"--");
+            long begin = System.nanoTime();
+            assertEquals("testEmbeddedValue", client.get("testEmbeddedKey"));
+            assertTrue(System.nanoTime() - begin >= TimeUnit.MILLISECONDS.toNanos(1));
+            assertEquals(Collections.singleton(new Tuple("a", 1d)), client.zrangeWithScores("testEmbeddedZset", 0, -1));
+            // 所有 proxy 共用一份数据,从每个 proxy 扫描到的 key 相同
+            assertEquals(2, codis.getProxies().size());
+            for (EmbeddedRespServer proxy : codis.getProxies()) {
+                Jedis jedis = new Jedis("127.0.0.1", proxy.getPort());
+                try {
+                    Set<String> keys = new HashSet<>();
+                    String cursor = ScanParams.SCAN_POINTER_START;
+                    do {
+                        ScanResult<String> page = jedis.scan(cursor, new ScanParams().count(1));
+                        keys.addAll(page.getResult());
+                        cursor = page.getStringCursor();
+                    } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+                    assertEquals(new HashSet<>(Arrays.asList("testEmbeddedKey", "testEmbeddedZset")), keys);
+                } finally {
+                    jedis.close();
+                }
+            }
+            client.close();
+        }
+    }
+
+    @Test
+    public void testReadCoalescer() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setAutoBatch(true);
+            config.setAutoBatchWindowMicros(5000);
+            CacheClient client = new CacheClient(config);
+            try {
+                for (int i = 0; i < 8; i++) {
+                    client.set("testCoalesceKey" + i, "v" + i);
+                    client.hset("testCoalesceHash", "f" + i, "h" + i);
+                }
+                client.lpush("testCoalesceList", "a");
+                int callers = 32;
+                ExecutorService executor = Executors.newFixedThreadPool(callers);
+                CountDownLatch start = new CountDownLatch(1);
+                try {
+                    List<Future<String>> values = new ArrayList<>();
+                    List<Future<String>> fields = new ArrayList<>();
+                    for (int i = 0; i < callers / 2; i++) {
+                        String key = "testCoalesceKey" + (i % 8);
+                        String field = "f" + (i % 8);
+                        values.add(executor.submit(() -> {
+                            start.await();
+                            return client.get(key);
+                        }));
+                        fields.add(executor.submit(() -> {
+                            start.await();
+                            return client.hget("testCoalesceHash", field);
+                        }));
+                    }
+                    Future<String> missing = executor.submit(() -> {
+                        start.await();
+                        return client.get("testCoalesceMissing");
+                    });
+                    Future<String> wrongType = executor.submit(() -> {
+                        start.await();
+                        return client.get("testCoalesceList");
+                    });
+                    start.countDown();
+                    for (int i = 0; i < values.size(); i++) {
+                        assertEquals("v" + (i % 8), values.get(i).get(5, TimeUnit.SECONDS));
+                        assertEquals("h" + (i % 8), fields.get(i).get(5, TimeUnit.SECONDS));
+                    }
+                    assertNull(missing.get(5, TimeUnit.SECONDS));
+                    try {
+                        wrongType.get(5, TimeUnit.SECONDS);
+                        fail("get on a list must fail with WRONGTYPE even when coalesced into MGET");
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof JedisDataException);
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReadCoalescerWindow() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setAutoBatch(true);
+            config.setAutoBatchWindowMicros(10000000);
+            config.setAutoBatchMaxKeys(2);
+            CacheClient client = new CacheClient(config);
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                client.set("testWindowKey", "v");
+                EmbeddedRespServer proxy = codis.getProxies().get(0);
+
+                // 填满批次的线程发送并唤醒等待窗口的线程,两个都不存在的 key 只多一条 EXISTS
+                long commands = proxy.getCommandCount();
+                long begin = System.nanoTime();
+                Future<String> first = executor.submit(() -> client.get("testWindowMissing1"));
+                Thread.sleep(100);
+                assertFalse(first.isDone());
+                assertNull(client.get("testWindowMissing2"));
+                assertNull(first.get(5, TimeUnit.SECONDS));
+                assertTrue(System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(5));
+                assertEquals("MGET and one EXISTS", 2, proxy.getCommandCount() - commands);
+
+                commands = proxy.getCommandCount();
+                Future<String> hit = executor.submit(() -> client.get("testWindowKey"));
+                Thread.sleep(100);
+                assertNull(client.get("testWindowMissing1"));
+                assertEquals("v", hit.get(5, TimeUnit.SECONDS));
+                assertEquals(2, proxy.getCommandCount() - commands);
+
+                // 等待窗口时被中断的线程立即发送,返回结果并保留中断状态
+                CountDownLatch started = new CountDownLatch(1);
+                Future<Boolean> interrupted = executor.submit(() -> {
+                    started.countDown();
+                    assertEquals("v", client.get("testWindowKey"));
+                    return Thread.currentThread().isInterrupted();
+                });
+                started.await();
+                Thread.sleep(100);
+                executor.shutdownNow();
+                assertEquals(Boolean.TRUE, interrupted.get(5, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testNearCache() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient remote = new CacheClient(codis.newConfig());
+            NearCacheConfig nearConfig = new NearCacheConfig();
+            nearConfig.setMaximumSize(16);
+            nearConfig.setExpireAfterWriteMillis(60000);
+            NearCacheClient client = new NearCacheClient(remote, nearConfig);
+            try {
+                client.set("testNearKey", "v1");
+                assertEquals("v1", client.get("testNearKey"));
+                remote.set("testNearKey", "v2");
+                assertEquals("v1", client.get("testNearKey"));
+                client.set("testNearKey", "v3");
+                assertEquals("v3", client.get("testNearKey"));
+                remote.set("testNearKey", "v4");
+                client.invalidateLocal("testNearKey");
+                assertEquals("v4", client.get("testNearKey"));
+
+                client.hset("testNearHash", "f", "a");
+                assertEquals("a", client.hget("testNearHash", "f"));
+                client.hdel("testNearHash", "f");
+                assertNull(client.hget("testNearHash", "f"));
+
+                client.get("testNearRace", key -> {
+                    client.invalidateLocal(key);
+                    return "loaded";
+                }, 60);
+                long missesBefore = client.stats().missCount();
+                assertEquals("loaded", client.get("testNearRace"));
+                assertEquals("a read racing an invalidation must not be cached", missesBefore + 1, client.stats().missCount());
+
+                for (int i = 0; i < 100; i++) {
+                    client.hget("testNearWide", "f" + i);
+                }
+                CacheStats stats = client.stats();
+                assertEquals(stats.missCount(), stats.loadSuccessCount());
+                long deadline = System.currentTimeMillis() + 5000;
+                while (client.stats().evictionCount() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertTrue("fields of one key count toward maximumSize", client.stats().evictionCount() > 0);
+            } finally {
+                client.close();
+            }
+            try {
+                remote.get("testNearKey");
+                fail("closing the near cache must close the remote client");
+            } catch (JedisException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testNearCacheInvalidation() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient remote = new CacheClient(codis.newConfig());
+            NearCacheConfig nearConfig = new NearCacheConfig();
+            nearConfig.setExpireAfterWriteMillis(60000);
+            nearConfig.setInvalidation(true);
+            nearConfig.setInvalidationShards(1);
+            nearConfig.setInvalidationPollMillis(20);
+            nearConfig.setInvalidationClockSkewMillis(200);
+            NearCacheClient writer = new NearCacheClient(new CacheClient(codis.newConfig()), nearConfig);
+            NearCacheClient reader = new NearCacheClient(new CacheClient(codis.newConfig()), nearConfig);
+            try {
+                writer.set("testInvalidationKey", "v1");
+                assertEquals("v1", reader.get("testInvalidationKey"));
+                writer.set("testInvalidationKey", "v2");
+                assertEquals("v2", awaitValue(reader, "testInvalidationKey", "v2"));
+
+                // 时钟超前一分钟的实例写入的消息不能让 reader 跳过时钟正常的实例的消息
+                String shardKey = "default:__nearcache_invalidation:0";
+                remote.zadd(shardKey, System.currentTimeMillis() + 60000, "ahead|testInvalidationOther");
+                Thread.sleep(100);
+                remote.set("testInvalidationKey", "v3");
+                remote.zadd(shardKey, System.currentTimeMillis(), "peer|testInvalidationKey");
+                assertEquals("v3", awaitValue(reader, "testInvalidationKey", "v3"));
+
+                // 时钟落后超过一个拉取周期的实例写入的消息在时钟偏差窗口内生效
+                remote.set("testInvalidationKey", "v4");
+                remote.zadd(shardKey, System.currentTimeMillis() - 150, "behind|testInvalidationKey");
+                assertEquals("v4", awaitValue(reader, "testInvalidationKey", "v4"));
+            } finally {
+                writer.close();
+                reader.close();
+                remote.close();
+            }
+        }
+    }
+
+    private static String awaitValue(NearCacheClient client, String key, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        String value = client.get(key);
+        while (!expected.equals(value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            value = client.get(key);
+        }
+        return value;
+    }
+
+    @Test
+    public void testKeyScanner() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            Set<String> expected = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                client.set("testScanKey" + i, "v");
+                expected.add("testScanKey" + i);
+            }
+            client.setExpire("testScanExpiring", 3600, "v");
+            KeyScanner scanner = new KeyScanner(codis.newConfig(), Collections.singletonList(codis.getProxies().get(0).getAddress()))
+                    .setFilter(key -> key.getTtl() == -1);
+            Set<String> scanned = Collections.synchronizedSet(new HashSet<>());
+            ScanSummary summary = scanner.scan(key -> {
+                assertEquals("string", key.getType());
+                scanned.add(key.getKey());
+            });
+            System.out.println("--test key scanner---"+summary+"--");
+            assertTrue(summary.isComplete());
+            assertEquals(101, summary.getScanned());
+            assertEquals(100, summary.getAccepted());
+            assertEquals(expected, scanned);
+            client.close();
+        }
+    }
+
+    @Test
+    public void testKeyAnalyzer() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheClient client = new CacheClient(codis.newConfig());
+            for (int i = 0; i < 100; i++) {
+                client.hset("user:testAnalyzeHash", "field" + i, "v");
+                client.setExpire("trd:testAnalyzeKey" + i, 3600, "v");
+            }
+            for (int i = 0; i < 10; i++) {
+                client.hset("user:testAnalyzeSmallHash", "field" + i, "v");
+            }
+            CacheConfig config = codis.newConfig();
+            config.setBigKeyTopN(3);
+            KeyAnalyzer analyzer = new KeyAnalyzer(config);
+            new KeyScanner(config, Collections.singletonList(codis.getProxies().get(0).getAddress())).scan(analyzer);
+            System.out.println("--test key analyzer---\n"+analyzer.report()+"--");
+            assertEquals(102, analyzer.getKeys());
+            List<ScannedKey> biggest = analyzer.getBiggestKeys();
+            assertEquals(3, biggest.size());
+            assertEquals("user:testAnalyzeHash", biggest.get(0).getKey());
+            assertEquals("user:testAnalyzeSmallHash", biggest.get(1).getKey());
+            assertTrue(biggest.get(2).getKey().startsWith("trd:testAnalyzeKey"));
+            List<ScannedKey> longest = analyzer.getLongestKeys().get("hash");
+            assertEquals(2, longest.size());
+            assertEquals("user:testAnalyzeHash", longest.get(0).getKey());
+            assertEquals(100, longest.get(0).getSize());
+            assertEquals(10, longest.get(1).getSize());
+            List<KeyGroupStats> environments = analyzer.getEnvironments();
+            assertEquals(2, environments.size());
+            assertEquals("trd", environments.get(0).getName());
+            assertEquals(100, environments.get(0).getKeys());
+            assertEquals("user", environments.get(1).getName());
+            assertEquals(2, environments.get(1).getKeys());
+            assertEquals(2, analyzer.getTtlDistribution().get(0).getKeys());
+            client.close();
+        }
+    }
+
+    @Test
+    public void testTtlBackfill() throws Exception {
+        try (EmbeddedCodis codis = new EmbeddedCodis(1)) {
+            CacheConfig config = codis.newConfig();
+            config.setBackfillRules("testBackfill:=3600~60");
+            config.setBackfillDryRun(false);
+            CacheClient client = new CacheClient(config);
+            for (int i = 0; i < 100; i++) {
+                client.set("testBackfill:" + i, "v");
+            }
+            client.setExpire("testBackfill:expiring", 100, "v");
+            client.set("testBackfillOther", "v");
+            TtlBackfill backfill = new TtlBackfill(client, config);
+            new KeyScanner(config, Collections.singletonList(codis.getProxies().get(0).getAddress())).scan(backfill);
+            System.out.println("--test ttl backfill---"+backfill+"--ttl--"+client.ttl("testBackfill:0")+"--");
+            assertEquals(100, backfill.getUpdated());
+            assertEquals(0, backfill.getFailed());
+            for (int i = 0; i < 100; i++) {
+                long ttl = client.ttl("testBackfill:" + i);
+                assertTrue("ttl:" + ttl, ttl >= 3600 - 60 - 1 && ttl <= 3600 + 60);
+            }
+            assertEquals("0", client.batch(b -> b.eval(CacheScripts.EXPIRE_IF_PERSISTENT,
+                    Collections.singletonList("testBackfill:expiring"), Collections.singletonList("3600"))).get(0));
+            assertTrue(client.ttl("testBackfill:expiring") <= 100);
+            assertEquals(Long.valueOf(-1), client.ttl("testBackfillOther"));
+            client.close();
+        }
+    }
+
+}